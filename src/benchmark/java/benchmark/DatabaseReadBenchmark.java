@@ -0,0 +1,169 @@
+package benchmark;
+
+import myapp.mvc.model.Database;
+import myapp.mvc.model.exam.Exam;
+import myapp.mvc.model.exam.ExamCodec;
+import myapp.mvc.model.exam.SimpleExam;
+import myapp.mvc.model.storage.StorageEngines;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @brief Benchmark della velocità di lettura del database al crescere del numero di thread.
+ *
+ * Per ogni numero di thread lettori (1, 2, 4, ... fino al numero di core) misura le letture
+ * al secondo, con un thread scrittore che modifica un esame ogni millisecondo. Ogni misura
+ * viene ripetuta serializzando le letture su un unico monitor, come faceva il database quando
+ * tutti i metodi erano synchronized, per confrontare le due strategie.
+ *
+ * Il terzo argomento sceglie il motore di archiviazione, ad esempio "concurrent" per il database senza lock.
+ *
+ * Il benchmark si trova in una radice dei sorgenti separata, esclusa dall'archivio dell'applicazione.
+ * Compilazione ed esecuzione, dalla cartella del progetto:
+ *
+ *   javac -d build/benchmark -sourcepath src/main/java src/benchmark/java/benchmark/DatabaseReadBenchmark.java
+ *   java -cp build/benchmark benchmark.DatabaseReadBenchmark [numero di esami] [durata in millisecondi] [motore]
+ */
+public class DatabaseReadBenchmark {
+
+    /** @brief Numero predefinito di esami nel database. */
+    private static final int DEFAULT_EXAMS = 100_000;
+
+    /** @brief Durata predefinita di ogni misura, in millisecondi. */
+    private static final long DEFAULT_DURATION_MILLIS = 2000;
+
+    /** @brief Numero di letture per record tra una lettura dell'intero elenco e la successiva. */
+    private static final int GETS_PER_SNAPSHOT = 64;
+
+    /**
+     * @brief Punto di ingresso del benchmark.
+     *
+     * @param args Numero di esami, durata di ogni misura in millisecondi e nome del motore, tutti opzionali.
+     * @throws Exception Se il file temporaneo non può essere creato o un thread viene interrotto.
+     */
+    public static void main(String[] args) throws Exception {
+        int exams = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_EXAMS;
+        long duration = (args.length > 1) ? Long.parseLong(args[1]) : DEFAULT_DURATION_MILLIS;
+        String engine = (args.length > 2) ? args[2] : StorageEngines.MEMORY;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        Database<Exam> database = createDatabase(exams, engine);
+        List<String> ids = database.getAll().stream().map(Exam::getUniqueId).toList();
+
+        // Riscaldamento del compilatore JIT su entrambe le strategie.
+        measure(database, ids, 1, duration, false);
+        measure(database, ids, 1, duration, true);
+
+        System.out.printf("Esami: %d, motore: %s, core: %d, durata: %d ms%n", exams, engine, cores, duration);
+        System.out.printf("%8s %18s %18s %8s%n", "thread", "database", "synchronized", "rapporto");
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            database.getLockStats().reset();
+            double optimistic = measure(database, ids, threads, duration, false);
+            String stats = database.getLockStats().toString();
+            double serialized = measure(database, ids, threads, duration, true);
+            System.out.printf("%8d %16.0f/s %16.0f/s %7.2fx%n", threads, optimistic, serialized, optimistic / serialized);
+            System.out.println("         " + stats);
+        }
+    }
+
+    /**
+     * @brief Crea un database con il motore e il numero di esami richiesti.
+     *
+     * @param exams Numero di esami da inserire.
+     * @param engine Nome del motore di archiviazione.
+     * @return Il database.
+     * @throws IOException Se il file temporaneo non può essere creato.
+     */
+    private static Database<Exam> createDatabase(int exams, String engine) throws IOException {
+        File file = File.createTempFile("benchmark", ".data");
+        file.deleteOnExit();
+        Database<Exam> database = new Database<>(file.getPath(), new ExamCodec(), engine);
+        Random random = new Random(42);
+        for (int i = 0; i < exams; i++)
+            database.add(new SimpleExam("Nome" + i, "Cognome" + i, "Materia" + (i % 50), 6, 18 + random.nextInt(13), false));
+        return database;
+    }
+
+    /**
+     * @brief Misura le letture al secondo con un certo numero di thread lettori e uno scrittore.
+     *
+     * @param database Il database da leggere.
+     * @param ids Gli ID degli esami presenti.
+     * @param threads Numero di thread lettori.
+     * @param duration Durata della misura, in millisecondi.
+     * @param serialized true per serializzare le letture su un unico monitor.
+     * @return Le letture al secondo.
+     * @throws InterruptedException Se l'attesa dei thread viene interrotta.
+     */
+    private static double measure(Database<Exam> database, List<String> ids, int threads, long duration, boolean serialized) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder reads = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads + 1);
+        Object monitor = new Object();
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            workers.add(new Thread(() -> {
+                Random random = new Random(seed);
+                long count = 0;
+                while (running.get()) {
+                    for (int i = 0; i < GETS_PER_SNAPSHOT; i++) {
+                        String id = ids.get(random.nextInt(ids.size()));
+                        if (serialized) {
+                            synchronized (monitor) {
+                                database.get(id);
+                            }
+                        } else {
+                            database.get(id);
+                        }
+                    }
+                    if (serialized) {
+                        synchronized (monitor) {
+                            database.getAll().size();
+                        }
+                    } else {
+                        database.getAll().size();
+                    }
+                    count += GETS_PER_SNAPSHOT + 1;
+                }
+                reads.add(count);
+                done.countDown();
+            }));
+        }
+
+        workers.add(new Thread(() -> {
+            Random random = new Random(-1);
+            while (running.get()) {
+                String id = ids.get(random.nextInt(ids.size()));
+                if (serialized) {
+                    synchronized (monitor) {
+                        database.mod(id, exam -> exam.getCredits());
+                    }
+                } else {
+                    database.mod(id, exam -> exam.getCredits());
+                }
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+            done.countDown();
+        }));
+
+        long start = System.nanoTime();
+        workers.forEach(Thread::start);
+        Thread.sleep(duration);
+        running.set(false);
+        done.await();
+        return reads.sum() / ((System.nanoTime() - start) / 1e9);
+    }
+}
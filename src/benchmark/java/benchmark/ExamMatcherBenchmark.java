@@ -0,0 +1,186 @@
+package benchmark;
+
+import myapp.mvc.model.exam.Exam;
+import myapp.mvc.model.exam.ExamMatcher;
+import myapp.mvc.model.exam.SimpleExam;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.StringTokenizer;
+
+/**
+ * @brief Benchmark del filtro di ricerca degli esami: tempo e memoria allocata per riga.
+ *
+ * Per ogni filtro (nessuno, studente, materia) e per entrambe le sensibilità al caso confronta il
+ * criterio compilato con il predicato originale del pannello centrale, che a ogni riga copiava i tre
+ * campi in minuscolo e suddivideva il testo in token. La memoria allocata viene letta dai contatori
+ * del thread corrente della JVM prima e dopo il ciclo di verifica: il criterio compilato non deve
+ * allocare memoria per riga, condizione verificata da un'asserzione quando le asserzioni sono abilitate.
+ *
+ * Il benchmark si trova in una radice dei sorgenti separata, esclusa dall'archivio dell'applicazione.
+ * Compilazione ed esecuzione, dalla cartella del progetto:
+ *
+ *   javac -d build/benchmark -sourcepath src/main/java src/benchmark/java/benchmark/ExamMatcherBenchmark.java
+ *   java -ea -cp build/benchmark benchmark.ExamMatcherBenchmark [numero di esami] [ripetizioni]
+ */
+public class ExamMatcherBenchmark {
+
+    /** @brief Numero predefinito di esami filtrati. */
+    private static final int DEFAULT_EXAMS = 100_000;
+
+    /** @brief Numero predefinito di passaggi sull'elenco per ogni misura. */
+    private static final int DEFAULT_ROUNDS = 20;
+
+    /** @brief Testi di ricerca misurati. */
+    private static final String[] QUERIES = {"nome12", "Cognome 99", "materia"};
+
+    /**
+     * @brief Punto di ingresso del benchmark.
+     *
+     * @param args Numero di esami e numero di passaggi, entrambi opzionali.
+     */
+    public static void main(String[] args) {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_EXAMS;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+
+        List<Exam> exams = createExams(count);
+        // Le chiavi di ricerca vengono calcolate una volta, come quando gli esami entrano in tabella.
+        exams.forEach(Exam::getSearchKeys);
+
+        // Riscaldamento del compilatore JIT su entrambe le strategie.
+        for (ExamMatcher.Scope scope : ExamMatcher.Scope.values()) {
+            measureCompiled(exams, ExamMatcher.compile(QUERIES[0], scope, false), rounds);
+            measureLegacy(exams, QUERIES[0], scope, false, rounds);
+        }
+
+        System.out.printf("Esami: %d, passaggi: %d%n", count, rounds);
+        System.out.printf("%-12s %-9s %-6s %14s %14s %14s %14s%n",
+            "testo", "filtro", "caso", "compilato", "byte/riga", "originale", "byte/riga");
+        for (String query : QUERIES) {
+            for (ExamMatcher.Scope scope : ExamMatcher.Scope.values()) {
+                for (boolean caseSensitive : new boolean[]{false, true}) {
+                    long[] compiled = measureCompiled(exams, ExamMatcher.compile(query, scope, caseSensitive), rounds);
+                    long[] legacy = measureLegacy(exams, query, scope, caseSensitive, rounds);
+                    long rows = (long) exams.size() * rounds;
+                    // Un'allocazione per riga richiederebbe almeno un byte per riga: i pochi byte
+                    // eventualmente allocati dai contatori stessi restano sotto questa soglia.
+                    assert compiled[1] < rows
+                        : "il criterio compilato alloca " + (double) compiled[1] / rows + " byte per riga con \"" + query + "\"";
+                    System.out.printf("%-12s %-9s %-6s %11.1f ns %14.2f %11.1f ns %14.2f%n",
+                        query, scope, caseSensitive ? "sì" : "no",
+                        (double) compiled[0] / rows, (double) compiled[1] / rows,
+                        (double) legacy[0] / rows, (double) legacy[1] / rows);
+                }
+            }
+        }
+    }
+
+    /**
+     * @brief Crea gli esami da filtrare.
+     *
+     * @param count Numero di esami.
+     * @return Gli esami.
+     */
+    private static List<Exam> createExams(int count) {
+        Random random = new Random(42);
+        List<Exam> exams = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            exams.add(new SimpleExam("Nome" + i, "Cognome" + (i % 1000), "Materia" + (i % 50), 6, 18 + random.nextInt(13), false));
+        return exams;
+    }
+
+    /**
+     * @brief Misura il criterio compilato.
+     *
+     * @param exams Gli esami da filtrare.
+     * @param matcher Il criterio.
+     * @param rounds Numero di passaggi sull'elenco.
+     * @return Il tempo totale in nanosecondi e i byte allocati.
+     */
+    private static long[] measureCompiled(List<Exam> exams, ExamMatcher matcher, int rounds) {
+        int size = exams.size();
+        long matches = 0;
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++)
+            for (int i = 0; i < size; i++)
+                if (matcher.matches(exams.get(i))) matches++;
+        long elapsed = System.nanoTime() - start;
+        allocated = allocatedBytes() - allocated;
+        consume(matches);
+        return new long[]{elapsed, allocated};
+    }
+
+    /**
+     * @brief Misura il predicato originale del pannello centrale.
+     *
+     * @param exams Gli esami da filtrare.
+     * @param query Il testo cercato.
+     * @param scope I campi in cui cercare.
+     * @param caseSensitive true se il confronto distingue maiuscole e minuscole.
+     * @param rounds Numero di passaggi sull'elenco.
+     * @return Il tempo totale in nanosecondi e i byte allocati.
+     */
+    private static long[] measureLegacy(List<Exam> exams, String query, ExamMatcher.Scope scope, boolean caseSensitive, int rounds) {
+        int size = exams.size();
+        long matches = 0;
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++)
+            for (int i = 0; i < size; i++)
+                if (legacyMatches(exams.get(i), query, scope, caseSensitive)) matches++;
+        long elapsed = System.nanoTime() - start;
+        allocated = allocatedBytes() - allocated;
+        consume(matches);
+        return new long[]{elapsed, allocated};
+    }
+
+    /**
+     * @brief Predicato originale del pannello centrale, per il confronto.
+     *
+     * @param exam L'esame.
+     * @param query Il testo cercato.
+     * @param scope I campi in cui cercare.
+     * @param caseSensitive true se il confronto distingue maiuscole e minuscole.
+     * @return true se l'esame corrisponde, false altrimenti.
+     */
+    private static boolean legacyMatches(Exam exam, String query, ExamMatcher.Scope scope, boolean caseSensitive) {
+        String match = (caseSensitive) ? query : query.toLowerCase();
+        String[] values = {exam.getUsername(), exam.getSurname(), exam.getTeaching()};
+        if (!caseSensitive)
+            for (int i = 0; i < values.length; i++)
+                values[i] = values[i].toLowerCase();
+
+        if (scope == ExamMatcher.Scope.STUDENT) {
+            StringTokenizer tokenizer = new StringTokenizer(match, " ");
+            while (tokenizer.hasMoreTokens()) {
+                String token = tokenizer.nextToken();
+                if (!values[0].contains(token) && !values[1].contains(token)) return false;
+            }
+            return true;
+        }
+        if (scope == ExamMatcher.Scope.TEACHING) return values[2].contains(match);
+        return values[0].contains(match) || values[1].contains(match) || values[2].contains(match);
+    }
+
+    /**
+     * @brief Restituisce i byte allocati finora dal thread corrente.
+     *
+     * @return I byte allocati.
+     */
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+
+    /**
+     * @brief Impedisce al compilatore JIT di eliminare il conteggio delle corrispondenze.
+     *
+     * @param matches Il numero di corrispondenze.
+     */
+    private static void consume(long matches) {
+        if (matches == Long.MIN_VALUE) System.out.println(matches);
+    }
+}
@@ -1,11 +1,24 @@
 package myapp.mvc.controller;
 
 import myapp.mvc.model.Database;
+import myapp.mvc.model.DatabaseListener;
 import myapp.mvc.model.exam.ComposedExam;
 import myapp.mvc.model.exam.Exam;
+import myapp.mvc.model.exam.ExamCodec;
+import myapp.mvc.model.exam.ExamIndexes;
+import myapp.mvc.model.exam.SearchKeys;
 import myapp.mvc.model.exam.SimpleExam;
+import myapp.mvc.model.storage.FsyncPolicy;
+import myapp.mvc.model.storage.IndexKey;
+import myapp.mvc.model.storage.StorageEngines;
+import myapp.util.IoExecutor;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.Function;
 
 /**
  * @brief Classe di controllo per la gestione degli esami.
@@ -16,11 +29,37 @@ import java.util.List;
  */
 public class ControllerExams {
     
+    /** @brief Proprietà di sistema che sceglie il motore di archiviazione del database. */
+    private static final String ENGINE_PROPERTY = "myapp.storage.exams";
+    
+    /** @brief Proprietà di sistema che sceglie la politica di scrittura forzata su disco (always, batched o never). */
+    private static final String FSYNC_PROPERTY = "myapp.storage.fsync";
+    
+    /** @brief Numero di esami per blocco consegnato durante un caricamento progressivo. */
+    private static final int LOAD_CHUNK_SIZE = 1024;
+    
     /** @brief Database per memorizzare gli esami */
-    private final Database<Exam> database = new Database<>();
+    private final Database<Exam> database = new Database<>(new ExamCodec(), System.getProperty(ENGINE_PROPERTY, StorageEngines.MEMORY), ExamIndexes.ALL);
     
     /** @brief Flag per indicare se i dati sono stati modificati */
-    private boolean modFlag = false;
+    private volatile boolean modFlag = false;
+    
+    /** @brief Transazione aperta dal thread corrente, assente se le modifiche vanno applicate subito. */
+    private final ThreadLocal<Database<Exam>.Transaction> transaction = new ThreadLocal<>();
+    
+    // -----------------------------------------------------------------------------------------------------------------
+    
+    /**
+     * @brief Costruttore di default.
+     *
+     * Imposta la politica di scrittura forzata su disco e abilita il log delle modifiche,
+     * così che il salvataggio automatico scriva solo le operazioni nuove.
+     */
+    public ControllerExams() {
+        FsyncPolicy fsyncPolicy = FsyncPolicy.parse(System.getProperty(FSYNC_PROPERTY, FsyncPolicy.BATCHED.name()));
+        this.database.setFsyncPolicy(fsyncPolicy);
+        this.database.enableWriteAheadLog(fsyncPolicy == FsyncPolicy.ALWAYS);
+    }
     
     // -----------------------------------------------------------------------------------------------------------------
     
@@ -36,7 +75,7 @@ public class ControllerExams {
      * @return ID dell'esame aggiunto.
      */
     public String addSimpleExam(String username, String surname, String teaching, int credits, int grade, boolean honors) {
-        return database.add(new SimpleExam(username, surname, teaching, credits, grade, honors));
+        return this.add(new SimpleExam(username, surname, teaching, credits, grade, honors));
     }
     
     /**
@@ -49,7 +88,7 @@ public class ControllerExams {
      * @return ID dell'esame aggiunto.
      */
     public String addComposedExam(String username, String surname, String teaching, int credits) {
-        return database.add(new ComposedExam(username, surname, teaching, credits));
+        return this.add(new ComposedExam(username, surname, teaching, credits));
     }
     
     /**
@@ -64,14 +103,17 @@ public class ControllerExams {
      * @param honors Nuova lode per lo studente.
      */
     public void modSimpleExam(String uniqueId, String username, String surname, String teaching, int credits, int grade, boolean honors) {
-        if (database.get(uniqueId) instanceof SimpleExam sExam) {
-            sExam.setUsername(username);
-            sExam.setSurname(surname);
-            sExam.setTeaching(teaching);
-            sExam.setCredits(credits);
-            sExam.setFinalGrade(grade);
-            sExam.setHonors(honors);
-        }
+        this.mod(uniqueId, exam -> {
+            if (exam instanceof SimpleExam sExam) {
+                sExam.setUsername(username);
+                sExam.setSurname(surname);
+                sExam.setTeaching(teaching);
+                sExam.setCredits(credits);
+                sExam.setFinalGrade(grade);
+                sExam.setHonors(honors);
+            }
+            return null;
+        });
     }
     
     /**
@@ -84,12 +126,15 @@ public class ControllerExams {
      * @param credits Nuovi crediti dell'esame.
      */
     public void modComposedExam(String uniqueId, String username, String surname, String teaching, int credits) {
-        if (database.get(uniqueId) instanceof ComposedExam cExam) {
-            cExam.setUsername(username);
-            cExam.setSurname(surname);
-            cExam.setTeaching(teaching);
-            cExam.setCredits(credits);
-        }
+        this.mod(uniqueId, exam -> {
+            if (exam instanceof ComposedExam cExam) {
+                cExam.setUsername(username);
+                cExam.setSurname(surname);
+                cExam.setTeaching(teaching);
+                cExam.setCredits(credits);
+            }
+            return null;
+        });
     }
     
     // -----------------------------------------------------------------------------------------------------------------
@@ -101,7 +146,7 @@ public class ControllerExams {
      * @return L'esame corrispondente all'ID specificato.
      */
     public Exam getExam(String uniqueId) {
-        return database.get(uniqueId);
+        return this.get(uniqueId);
     }
     
     /**
@@ -113,13 +158,116 @@ public class ControllerExams {
         return database.getAll();
     }
     
+    /**
+     * @brief Registra un listener da notificare a ogni modifica degli esami.
+     *
+     * @param listener Il listener da registrare.
+     */
+    public void addChangeListener(DatabaseListener<Exam> listener) {
+        this.database.addListener(listener);
+    }
+    
+    /**
+     * @brief Rimuove un listener registrato.
+     *
+     * @param listener Il listener da rimuovere.
+     */
+    public void removeChangeListener(DatabaseListener<Exam> listener) {
+        this.database.removeListener(listener);
+    }
+    
+    /**
+     * @brief Recupera gli esami con voto finale compreso nell'intervallo, ordinati per voto.
+     *
+     * @param minGrade Voto minimo, incluso.
+     * @param maxGrade Voto massimo, incluso.
+     * @return Lista degli esami trovati.
+     */
+    public List<Exam> getExamsInGradeRange(int minGrade, int maxGrade) {
+        byte[] from = new IndexKey().addInt(minGrade).toBytes();
+        byte[] to = IndexKey.after(new IndexKey().addInt(maxGrade).toBytes());
+        return database.findByIndex(ExamIndexes.FINAL_GRADE, from, to);
+    }
+    
+    /**
+     * @brief Recupera gli esami con crediti compresi nell'intervallo, ordinati per crediti.
+     *
+     * @param minCredits Crediti minimi, inclusi.
+     * @param maxCredits Crediti massimi, inclusi.
+     * @return Lista degli esami trovati.
+     */
+    public List<Exam> getExamsInCreditsRange(int minCredits, int maxCredits) {
+        byte[] from = new IndexKey().addInt(minCredits).toBytes();
+        byte[] to = IndexKey.after(new IndexKey().addInt(maxCredits).toBytes());
+        return database.findByIndex(ExamIndexes.CREDITS, from, to);
+    }
+    
+    /**
+     * @brief Recupera gli esami degli studenti con il cognome indicato, ordinati per nome.
+     *
+     * Il cognome è confrontato senza accenti e senza distinguere maiuscole e minuscole.
+     *
+     * @param surname Cognome dello studente.
+     * @return Lista degli esami trovati.
+     */
+    public List<Exam> getExamsBySurname(String surname) {
+        byte[] prefix = new IndexKey().addString(SearchKeys.normalize(surname)).toBytes();
+        return database.findByIndex(ExamIndexes.SURNAME, prefix, IndexKey.after(prefix));
+    }
+    
+    /**
+     * @brief Recupera gli esami di una materia con voto finale compreso nell'intervallo, ordinati per voto.
+     *
+     * La materia è confrontata senza accenti e senza distinguere maiuscole e minuscole.
+     *
+     * @param teaching Materia dell'esame.
+     * @param minGrade Voto minimo, incluso.
+     * @param maxGrade Voto massimo, incluso.
+     * @return Lista degli esami trovati.
+     */
+    public List<Exam> getExamsByTeaching(String teaching, int minGrade, int maxGrade) {
+        String key = SearchKeys.normalize(teaching);
+        byte[] from = new IndexKey().addString(key).addInt(minGrade).toBytes();
+        byte[] to = IndexKey.after(new IndexKey().addString(key).addInt(maxGrade).toBytes());
+        return database.findByIndex(ExamIndexes.TEACHING_GRADE, from, to);
+    }
+    
+    /**
+     * @brief Recupera tutti gli esami ordinati per materia e, a parità, per voto finale.
+     *
+     * @return Lista degli esami.
+     */
+    public List<Exam> getExamsOrderedByTeaching() {
+        return database.findByIndex(ExamIndexes.TEACHING_GRADE, null, null);
+    }
+    
+    /**
+     * @brief Recupera tutti gli esami ordinati per cognome e, a parità, per nome dello studente.
+     *
+     * @return Lista degli esami.
+     */
+    public List<Exam> getExamsOrderedBySurname() {
+        return database.findByIndex(ExamIndexes.SURNAME, null, null);
+    }
+    
+    /**
+     * @brief Indica se il motore di archiviazione mantiene gli indici secondari degli esami.
+     *
+     * In questo caso le ricerche per indice leggono solo le pagine dell'intervallo richiesto.
+     *
+     * @return true se il motore mantiene gli indici, false altrimenti.
+     */
+    public boolean hasStorageIndexes() {
+        return database.isIndexed();
+    }
+    
     /**
      * @brief Elimina un esame dal database.
      *
      * @param uniqueId ID univoco dell'esame da eliminare.
      */
     public void delExam(String uniqueId) {
-        database.del(uniqueId);
+        this.del(uniqueId);
     }
     
     // -----------------------------------------------------------------------------------------------------------------
@@ -133,10 +281,9 @@ public class ControllerExams {
      * @return ID dell'esame parziale aggiunto, o `null` se l'aggiunta fallisce.
      */
     public String addIntermediateGrade(String examUniqueId, int grade, int weight) {
-        if (database.get(examUniqueId) instanceof ComposedExam cExam) {
-            return cExam.addPartialExam(grade, weight);
-        }
-        return null;
+        return this.mod(examUniqueId, exam ->
+            (exam instanceof ComposedExam cExam) ? cExam.addPartialExam(grade, weight) : null
+        );
     }
     
     /**
@@ -146,9 +293,9 @@ public class ControllerExams {
      * @param gradeUniqueId ID univoco dell'esame parziale da eliminare.
      */
     public void delIntermediateGrade(String examUniqueId, String gradeUniqueId) {
-        if (database.get(examUniqueId) instanceof ComposedExam cExam) {
-            cExam.delPartialExam(gradeUniqueId);
-        }
+        this.mod(examUniqueId, exam ->
+            (exam instanceof ComposedExam cExam) && cExam.delPartialExam(gradeUniqueId)
+        );
     }
     
     /**
@@ -160,9 +307,62 @@ public class ControllerExams {
      * @param weight Nuovo peso dell'esame parziale.
      */
     public void modIntermediateGrade(String examUniqueId, String gradeUniqueId, int grade, int weight) {
-        if (database.get(examUniqueId) instanceof ComposedExam cExam) {
-            cExam.modPartialExam(gradeUniqueId, grade, weight);
-        }
+        this.mod(examUniqueId, exam -> {
+            if (exam instanceof ComposedExam cExam) {
+                cExam.modPartialExam(gradeUniqueId, grade, weight);
+            }
+            return null;
+        });
+    }
+    
+    // -----------------------------------------------------------------------------------------------------------------
+    
+    /**
+     * @brief Inizia una transazione per il thread corrente.
+     *
+     * Fino al commit le operazioni del thread sugli esami vengono raccolte e validate senza
+     * toccare il database, e poi applicate tutte insieme.
+     *
+     * @throws IllegalStateException Se il thread ha già una transazione aperta.
+     */
+    public void beginTransaction() {
+        if (this.transaction.get() != null) throw new IllegalStateException("Transazione già aperta");
+        this.transaction.set(this.database.beginTransaction());
+    }
+    
+    /**
+     * @brief Applica al database le operazioni della transazione del thread corrente.
+     *
+     * La transazione viene chiusa anche se il commit fallisce, lasciando il database invariato.
+     *
+     * @return true se la transazione conteneva modifiche, false altrimenti.
+     * @throws IllegalStateException Se il thread non ha una transazione aperta.
+     */
+    public boolean commitTransaction() {
+        Database<Exam>.Transaction current = this.transaction.get();
+        if (current == null) throw new IllegalStateException("Nessuna transazione aperta");
+        this.transaction.remove();
+        current.commit();
+        return current.hasChanges();
+    }
+    
+    /**
+     * @brief Scarta le operazioni della transazione del thread corrente; non ha effetto se non ce n'è una.
+     */
+    public void rollbackTransaction() {
+        Database<Exam>.Transaction current = this.transaction.get();
+        if (current == null) return;
+        this.transaction.remove();
+        current.rollback();
+    }
+    
+    /**
+     * @brief Indica se il thread corrente ha una transazione aperta.
+     *
+     * @return true se le operazioni vengono raccolte in una transazione, false se vengono applicate subito.
+     */
+    public boolean isInTransaction() {
+        return this.transaction.get() != null;
     }
     
     // -----------------------------------------------------------------------------------------------------------------
@@ -201,6 +401,73 @@ public class ControllerExams {
     
     // -----------------------------------------------------------------------------------------------------------------
     
+    /**
+     * @brief Salva tutti gli esami nel file predefinito su un thread di I/O.
+     *
+     * @param progress Riceve l'avanzamento, tra 0 e 1, dal thread di I/O; può essere null.
+     * @return Il future del salvataggio; annullandolo il file resta quello precedente.
+     */
+    public CompletableFuture<Void> saveExamsToFileAsync(DoubleConsumer progress) {
+        return IoExecutor.submit(ioProgress -> {
+            database.saveToFile(ioProgress);
+            return null;
+        }, progress);
+    }
+    
+    /**
+     * @brief Salva tutti gli esami nel file specificato su un thread di I/O.
+     *
+     * @param path Percorso del file in cui salvare gli esami.
+     * @param progress Riceve l'avanzamento, tra 0 e 1, dal thread di I/O; può essere null.
+     * @return Il future del salvataggio; annullandolo il file resta quello precedente.
+     */
+    public CompletableFuture<Void> saveExamsToFileAsync(String path, DoubleConsumer progress) {
+        return IoExecutor.submit(ioProgress -> {
+            database.saveToFile(path, ioProgress);
+            return null;
+        }, progress);
+    }
+    
+    /**
+     * @brief Legge gli esami dal file specificato su un thread di I/O e li carica nel database in un solo passo.
+     *
+     * La sostituzione del contenuto avviene sull'esecutore indicato, ad esempio il thread dell'interfaccia.
+     * Se il file non è leggibile il database resta invariato.
+     *
+     * @param path Percorso del file da cui caricare gli esami.
+     * @param progress Riceve l'avanzamento, tra 0 e 1, dal thread di I/O; può essere null.
+     * @param applyExecutor Esecutore su cui sostituire il contenuto del database.
+     * @return Il future del caricamento; annullandolo prima della sostituzione il database resta invariato.
+     */
+    public CompletableFuture<Void> loadExamsFromFileAsync(String path, DoubleConsumer progress, Executor applyExecutor) {
+        return this.loadExamsFromFileAsync(path, progress, null, applyExecutor);
+    }
+    
+    /**
+     * @brief Legge gli esami dal file specificato su un thread di I/O, consegnandoli a blocchi, e li carica nel database in un solo passo.
+     *
+     * I blocchi permettono di mostrare gli esami mentre il file viene ancora letto: sono consegnati sul
+     * thread di I/O, prima che il database cambi.
+     *
+     * @param path Percorso del file da cui caricare gli esami.
+     * @param progress Riceve l'avanzamento, tra 0 e 1, dal thread di I/O; può essere null.
+     * @param chunks Riceve i blocchi di esami letti, dal thread di I/O; può essere null.
+     * @param applyExecutor Esecutore su cui sostituire il contenuto del database.
+     * @return Il future del caricamento; annullandolo prima della sostituzione il database resta invariato.
+     */
+    public CompletableFuture<Void> loadExamsFromFileAsync(String path, DoubleConsumer progress, Consumer<List<Exam>> chunks, Executor applyExecutor) {
+        CompletableFuture<List<Exam>> read = IoExecutor.submit(ioProgress -> (chunks == null)
+            ? database.readFromFile(path, ioProgress)
+            : database.readFromFile(path, ioProgress, LOAD_CHUNK_SIZE, chunks), progress);
+        CompletableFuture<Void> load = read.thenAcceptAsync(data -> {
+            if (data != null) database.replaceWithLoaded(path, data);
+        }, applyExecutor);
+        load.whenComplete((ignored, e) -> read.cancel(false)); // Annullare il caricamento interrompe la lettura
+        return load;
+    }
+    
+    // -----------------------------------------------------------------------------------------------------------------
+    
     /**
      * @brief Imposta il flag di modifica.
      *
@@ -224,10 +491,59 @@ public class ControllerExams {
     /**
      * @brief Confronta un file con il database attuale per verificare eventuali differenze.
      *
+     * Se il file è stato salvato o caricato dal database il confronto avviene in tempo costante.
+     *
      * @param path Percorso del file da confrontare con il database.
      * @return `true` se il file è uguale al database, `false` altrimenti.
      */
     public boolean compareFileToDatabase(String path) {
         return this.database.compareFileToDatabase(path);
     }
+    
+    // -----------------------------------------------------------------------------------------------------------------
+    
+    /**
+     * @brief Aggiunge un esame al database o alla transazione del thread corrente.
+     *
+     * @param exam L'esame da aggiungere.
+     * @return ID dell'esame aggiunto, null se era già presente.
+     */
+    private String add(Exam exam) {
+        Database<Exam>.Transaction current = this.transaction.get();
+        return (current != null) ? current.add(exam) : this.database.add(exam);
+    }
+    
+    /**
+     * @brief Elimina un esame dal database o nella transazione del thread corrente.
+     *
+     * @param uniqueId ID univoco dell'esame da eliminare.
+     */
+    private void del(String uniqueId) {
+        Database<Exam>.Transaction current = this.transaction.get();
+        if (current != null) current.del(uniqueId);
+        else this.database.del(uniqueId);
+    }
+    
+    /**
+     * @brief Modifica un esame nel database o nella transazione del thread corrente.
+     *
+     * @param uniqueId ID univoco dell'esame da modificare.
+     * @param modifier Funzione che applica la modifica e restituisce un risultato.
+     * @return Il risultato della funzione, null se l'esame non esiste.
+     */
+    private <R> R mod(String uniqueId, Function<? super Exam, R> modifier) {
+        Database<Exam>.Transaction current = this.transaction.get();
+        return (current != null) ? current.mod(uniqueId, modifier) : this.database.mod(uniqueId, modifier);
+    }
+    
+    /**
+     * @brief Recupera un esame, comprese le modifiche della transazione del thread corrente.
+     *
+     * @param uniqueId ID univoco dell'esame.
+     * @return L'esame, null se non esiste.
+     */
+    private Exam get(String uniqueId) {
+        Database<Exam>.Transaction current = this.transaction.get();
+        return (current != null) ? current.get(uniqueId) : this.database.get(uniqueId);
+    }
 }
@@ -2,9 +2,13 @@ package myapp.mvc.controller;
 
 import myapp.mvc.model.Database;
 import myapp.mvc.model.path.UniquePath;
+import myapp.mvc.model.path.UniquePathCodec;
+import myapp.mvc.model.storage.StorageEngines;
+import myapp.util.IoExecutor;
 
-import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.DoubleConsumer;
 
 /**
  * @brief Classe di controllo per la gestione dei percorsi unici.
@@ -15,8 +19,11 @@ import java.util.List;
  */
 public class ControllerPaths {
     
+    /** @brief Proprietà di sistema che sceglie il motore di archiviazione del database. */
+    private static final String ENGINE_PROPERTY = "myapp.storage.paths";
+    
     /** @brief Database per memorizzare i percorsi unici */
-    private final Database<UniquePath> database = new Database<>(".paths");
+    private final Database<UniquePath> database = new Database<>(".paths", new UniquePathCodec(), System.getProperty(ENGINE_PROPERTY, StorageEngines.MEMORY));
     
     /** @brief ID univoco del percorso attualmente selezionato */
     private String selectedUniqueID = null;
@@ -47,14 +54,8 @@ public class ControllerPaths {
     public void setSelectedUniqueID(String selectedUniqueID) {
         if (selectedUniqueID == null) return;
         
-        boolean setted = false;
-        
-        Iterator<UniquePath> it = this.getAllPaths().listIterator();
-        while (!setted && it.hasNext()) {
-            if (selectedUniqueID.equals(it.next().getUniqueId())) {
-                this.selectedUniqueID = selectedUniqueID;
-                setted = true;
-            }
+        if (this.getPath(selectedUniqueID) != null) {
+            this.selectedUniqueID = selectedUniqueID;
         }
     }
     
@@ -125,4 +126,32 @@ public class ControllerPaths {
         if (path == null) return;
         database.saveToFile(path);
     }
+    
+    /**
+     * @brief Salva tutti i percorsi nel file predefinito su un thread di I/O.
+     *
+     * @param progress Riceve l'avanzamento, tra 0 e 1, dal thread di I/O; può essere null.
+     * @return Il future del salvataggio; annullandolo il file resta quello precedente.
+     */
+    public CompletableFuture<Void> savePathsToFileAsync(DoubleConsumer progress) {
+        return IoExecutor.submit(ioProgress -> {
+            database.saveToFile(ioProgress);
+            return null;
+        }, progress);
+    }
+    
+    /**
+     * @brief Salva tutti i percorsi nel file specificato su un thread di I/O.
+     *
+     * @param path Percorso del file in cui salvare i percorsi.
+     * @param progress Riceve l'avanzamento, tra 0 e 1, dal thread di I/O; può essere null.
+     * @return Il future del salvataggio; annullandolo il file resta quello precedente.
+     */
+    public CompletableFuture<Void> savePathsToFileAsync(String path, DoubleConsumer progress) {
+        if (path == null) return CompletableFuture.completedFuture(null);
+        return IoExecutor.submit(ioProgress -> {
+            database.saveToFile(path, ioProgress);
+            return null;
+        }, progress);
+    }
 }
@@ -118,6 +118,23 @@ public interface ManageExams {
     
     // -----------------------------------------------------------------------------------------------------------------
     
+    /**
+     * @brief Inizia una transazione: le operazioni successive vengono applicate tutte insieme al commit.
+     */
+    void beginTransaction();
+    
+    /**
+     * @brief Applica le operazioni della transazione, aggiornando la vista e il flag di modifica una sola volta.
+     */
+    void commitTransaction();
+    
+    /**
+     * @brief Scarta le operazioni della transazione.
+     */
+    void rollbackTransaction();
+    
+    // -----------------------------------------------------------------------------------------------------------------
+    
     /**
      * @brief Salva gli esami nel file predefinito.
      */
@@ -137,11 +154,6 @@ public interface ManageExams {
     
     // -----------------------------------------------------------------------------------------------------------------
     
-    /**
-     * @brief Carica gli esami dal file predefinito.
-     */
-    void loadExams();
-    
     /**
      * @brief Carica gli esami da un percorso specificato.
      *
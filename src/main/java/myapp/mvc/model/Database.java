@@ -1,12 +1,45 @@
 package myapp.mvc.model;
 
+import myapp.mvc.model.exam.HasContentHash;
 import myapp.mvc.model.exam.HasUniqueId;
-import myapp.util.UniqueList;
+import myapp.mvc.model.storage.ConcurrentStorageEngine;
+import myapp.mvc.model.storage.FsyncPolicy;
+import myapp.mvc.model.storage.IndexedStorageEngine;
+import myapp.mvc.model.storage.MemoryStorageEngine;
+import myapp.mvc.model.storage.RecordCodec;
+import myapp.mvc.model.storage.SecondaryIndex;
+import myapp.mvc.model.storage.SnapshotFormat;
+import myapp.mvc.model.storage.StorageEngine;
+import myapp.mvc.model.storage.StorageEngines;
+import myapp.mvc.model.storage.WriteAheadLog;
+import myapp.util.ComparingOutputStream;
+import myapp.util.ContentHash;
+import myapp.util.IoProgress;
+import myapp.util.LockStats;
 
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * @brief Classe che rappresenta un database generico basato su file.
@@ -15,27 +48,150 @@ import java.util.List;
  * che implementano l'interfaccia HasUniqueId. Permette di salvare e caricare i dati
  * su file, aggiungere e rimuovere record, e comparare file.
  *
+ * I record sono conservati da un {@link StorageEngine}; quello predefinito li tiene in memoria.
+ * Con un motore persistente il salvataggio sul file corrente si limita a rendere durevoli
+ * le modifiche del motore, mentre i file esterni continuano a usare gli snapshot completi.
+ *
+ * Ogni modifica incrementa un contatore di versione e aggiorna un'impronta del contenuto,
+ * ottenuta sommando le impronte dei singoli record. Per ogni file salvato o caricato viene
+ * ricordato lo stato persistito, così che il confronto con quel file avvenga in tempo costante
+ * e risulti corretto anche quando le modifiche vengono annullate a mano.
+ *
+ * Se viene fornita una codifica dei record, i file sono scritti nel formato binario compatto
+ * di {@link SnapshotFormat}; i file scritti con la serializzazione Java vengono comunque riconosciuti in lettura.
+ *
+ * Se viene abilitato il log delle modifiche, ogni operazione viene registrata in un file affiancato
+ * a quello del database e il salvataggio sul file corrente si limita a scrivere le operazioni nuove.
+ * Periodicamente il log viene incorporato in un nuovo snapshot del database (checkpoint) e svuotato.
+ *
+ * Ogni file viene salvato scrivendo un file temporaneo affiancato e spostandolo al posto di quello
+ * vecchio, così che un'interruzione lasci sempre un file completo. La scrittura forzata su disco
+ * segue la {@link FsyncPolicy} impostata.
+ *
+ * L'accesso al contenuto è regolato da uno {@link StampedLock}: le modifiche acquisiscono il lock
+ * in scrittura, le letture quello in lettura oppure, se il motore lo consente, nessun lock con una
+ * lettura ottimistica convalidata a posteriori. Le attese sul lock sono registrate in {@link LockStats}.
+ *
+ * Con un {@link ConcurrentStorageEngine} il database funziona invece senza lock: aggiunte, rimozioni e
+ * letture sono delegate direttamente al motore, le modifiche sostituiscono il record solo se nessun altro
+ * thread lo ha cambiato nel frattempo (riprovando altrimenti) e la versione è un contatore atomico.
+ * Ogni modifica viene applicata al motore e accodata ai listener tenendo il lock della striscia del suo ID,
+ * così che le notifiche di uno stesso record seguano l'ordine in cui le modifiche sono state applicate.
+ * {@link #getAll} restituisce allora uno snapshot debolmente consistente. Il caricamento da file resta
+ * l'unica operazione che non va eseguita in concorrenza con le modifiche, e il log delle modifiche
+ * non è disponibile perché richiede un ordine totale delle operazioni.
+ *
+ * I salvataggi serializzano uno snapshot immutabile del contenuto senza tenere il lock del database,
+ * quindi le modifiche concorrenti non attendono la scrittura del file. Per questo i record non vengono
+ * mai modificati sul posto: {@link #mod} applica la modifica a una copia e la sostituisce all'originale.
+ *
+ * Più modifiche possono essere raccolte in una {@link Transaction}, applicata al database tutta insieme o per nulla.
+ *
+ * Ogni modifica viene notificata ai {@link DatabaseListener} registrati come {@link DatabaseChange},
+ * così che le viste possano aggiornare solo le righe coinvolte invece di rileggere tutti i record.
+ *
  * @tparam T Il tipo di oggetto che estende l'interfaccia HasUniqueId.
  */
-public class Database<T extends HasUniqueId> {
+public final class Database<T extends HasUniqueId> {
     
     /** @brief Nome predefinito del file del database. */
     protected static final String DEFAULT_DATABASE_FILE_NAME = "session_recovery.tmp";
     
-    /** @brief Nome predefinito del file temporaneo utilizzato per confronti. */
-    protected static final String DEFAULT_TEMPORARY_FILE_NAME = "compare_buffer.tmp";
-    
     /** @brief Percorso predefinito del file del database. */
     protected static final String DEFAULT_DATABASE_FILE_PATH = System.getProperty("user.dir") + '/' + DEFAULT_DATABASE_FILE_NAME;
     
-    /** @brief Percorso predefinito del file temporaneo. */
-    protected static final String DEFAULT_TEMPORARY_FILE_PATH = System.getProperty("user.dir") + '/' + DEFAULT_TEMPORARY_FILE_NAME;
+    /** @brief Estensione del file di log delle modifiche, affiancato al file del database. */
+    protected static final String WRITE_AHEAD_LOG_EXTENSION = ".wal";
+    
+    /** @brief Estensione del file temporaneo in cui viene scritto un file prima di sostituire quello vecchio. */
+    protected static final String TEMPORARY_FILE_EXTENSION = ".part";
+    
+    /** @brief Intervallo minimo in millisecondi tra due scritture forzate della cartella con la politica {@link FsyncPolicy#BATCHED}. */
+    protected static final long FSYNC_BATCH_MILLIS = 1000;
+    
+    /** @brief Dimensione del log in byte oltre la quale viene eseguito un checkpoint in background. */
+    protected static final long DEFAULT_CHECKPOINT_THRESHOLD = 4L * 1024 * 1024;
+    
+    /** @brief Numero di strisce in cui vengono ripartiti gli ID con un motore concorrente; potenza di 2. */
+    private static final int WRITE_STRIPES = 64;
     
     /** @brief Nome del file corrente usato per il database. */
     protected String CURRENT_FILE_NAME;
     
-    /** @brief Struttura dati che contiene tutti i record univoci. */
-    private final UniqueList<T> structure = new UniqueList<>();
+    /** @brief Motore di archiviazione che contiene tutti i record univoci, indicizzati per ID. */
+    private final StorageEngine<T> engine;
+    
+    /** @brief Contatore monotono delle modifiche applicate al database. */
+    private final AtomicLong version = new AtomicLong();
+    
+    /** @brief Impronta del contenuto: somma delle impronte dei record presenti. */
+    private final AtomicLong digest = new AtomicLong();
+    
+    /** @brief Indica se l'impronta del contenuto va ricalcolata prima di essere usata. */
+    private boolean digestStale = false;
+    
+    /** @brief Stato persistito per ciascun file salvato o caricato, indicizzato per percorso assoluto. */
+    private final Map<Path, PersistedState> persistedStates = new ConcurrentHashMap<>();
+    
+    /** @brief Codifica dei record nei file, null per usare la serializzazione Java. */
+    private final RecordCodec<T> codec;
+    
+    /** @brief Log delle modifiche, null se il salvataggio riscrive ogni volta l'intero file. */
+    private WriteAheadLog<T> writeAheadLog = null;
+    
+    /** @brief Politica di scrittura forzata su disco dei file salvati. */
+    private volatile FsyncPolicy fsyncPolicy = FsyncPolicy.BATCHED;
+    
+    /** @brief Istante dell'ultima scrittura forzata su disco della cartella, in millisecondi. */
+    private long lastFsyncMillis = 0;
+    
+    /** @brief Indica se un checkpoint in background è già stato programmato. */
+    private final AtomicBoolean checkpointScheduled = new AtomicBoolean(false);
+    
+    /** @brief Lock che serializza i salvataggi su file, acquisito sempre prima di quello del database. */
+    private final Object saveLock = new Object();
+    
+    /** @brief Lock lettori/scrittori del contenuto del database. */
+    private final StampedLock lock = new StampedLock();
+    
+    /** @brief Statistiche di utilizzo e contesa del lock del contenuto. */
+    private final LockStats lockStats = new LockStats();
+    
+    /** @brief Listener notificati a ogni modifica del contenuto. */
+    private final List<DatabaseListener<T>> listeners = new CopyOnWriteArrayList<>();
+    
+    /** @brief Modifiche applicate e non ancora notificate, nell'ordine in cui sono avvenute. */
+    private final Queue<DatabaseChange<T>> pendingChanges = new ConcurrentLinkedQueue<>();
+    
+    /** @brief Lock che serializza le notifiche, così che i listener ricevano le modifiche in ordine. */
+    private final Object dispatchLock = new Object();
+    
+    /**
+     * @brief Lock per striscia di ID, usati solo con un motore concorrente.
+     *
+     * Una modifica tiene il lock della striscia dell'ID mentre la applica al motore e la accoda ai
+     * listener: due modifiche allo stesso record vengono quindi notificate nell'ordine in cui sono avvenute.
+     */
+    private final ReentrantLock[] writeStripes = new ReentrantLock[WRITE_STRIPES];
+    
+    /**
+     * @brief Stato del database nel momento in cui è stato scritto o letto da un file.
+     *
+     * @param version Versione del database al momento della scrittura o lettura.
+     * @param digest Impronta del contenuto al momento della scrittura o lettura.
+     * @param size Dimensione del file in byte, per accorgersi di modifiche esterne.
+     * @param lastModified Data di ultima modifica del file, per accorgersi di modifiche esterne.
+     */
+    private record PersistedState(long version, long digest, long size, long lastModified) {}
+    
+    /**
+     * @brief Contenuto del database in un certo momento, da scrivere senza tenere il lock.
+     *
+     * @param version Versione del database al momento dello snapshot.
+     * @param digest Impronta del contenuto al momento dello snapshot.
+     * @param records Record presenti, in una lista immutabile.
+     */
+    private record Snapshot<T>(long version, long digest, List<T> records) {}
     
     // -----------------------------------------------------------------------------------------------------------------
     
@@ -54,8 +210,87 @@ public class Database<T extends HasUniqueId> {
      * @param fileName Nome del file da usare per caricare e salvare i dati.
      */
     public Database(String fileName) {
+        this(fileName, null);
+    }
+    
+    /**
+     * @brief Costruttore che accetta la codifica dei record.
+     *
+     * Inizializza il database con il file predefinito.
+     *
+     * @param codec Codifica dei record nei file.
+     */
+    public Database(RecordCodec<T> codec) {
+        this(Database.DEFAULT_DATABASE_FILE_PATH, codec);
+    }
+    
+    /**
+     * @brief Costruttore che accetta un file specifico e la codifica dei record.
+     *
+     * @param fileName Nome del file da usare per caricare e salvare i dati.
+     * @param codec Codifica dei record nei file, null per usare la serializzazione Java.
+     */
+    public Database(String fileName, RecordCodec<T> codec) {
+        this(fileName, codec, new MemoryStorageEngine<>());
+    }
+    
+    /**
+     * @brief Costruttore che accetta la codifica dei record e il nome del motore di archiviazione.
+     *
+     * Inizializza il database con il file predefinito.
+     *
+     * @param codec Codifica dei record nei file.
+     * @param engineName Nome del motore, come riconosciuto da {@link StorageEngines#create}.
+     */
+    public Database(RecordCodec<T> codec, String engineName) {
+        this(Database.DEFAULT_DATABASE_FILE_PATH, codec, StorageEngines.create(engineName, Database.DEFAULT_DATABASE_FILE_PATH, codec));
+    }
+    
+    /**
+     * @brief Costruttore che accetta un file specifico, la codifica dei record e il nome del motore.
+     *
+     * @param fileName Nome del file da usare per caricare e salvare i dati.
+     * @param codec Codifica dei record nei file.
+     * @param engineName Nome del motore, come riconosciuto da {@link StorageEngines#create}.
+     */
+    public Database(String fileName, RecordCodec<T> codec, String engineName) {
+        this(fileName, codec, StorageEngines.create(engineName, fileName, codec));
+    }
+    
+    /**
+     * @brief Costruttore che accetta la codifica dei record, il nome del motore e gli indici secondari.
+     *
+     * Inizializza il database con il file predefinito. Gli indici vengono mantenuti
+     * solo dai motori ordinati; con gli altri {@link #findByIndex} scorre tutti i record.
+     *
+     * @param codec Codifica dei record nei file.
+     * @param engineName Nome del motore, come riconosciuto da {@link StorageEngines#create}.
+     * @param indexes Indici secondari da mantenere.
+     */
+    public Database(RecordCodec<T> codec, String engineName, List<SecondaryIndex<T>> indexes) {
+        this(Database.DEFAULT_DATABASE_FILE_PATH, codec, StorageEngines.create(engineName, Database.DEFAULT_DATABASE_FILE_PATH, codec, indexes));
+    }
+    
+    /**
+     * @brief Costruttore che accetta un file specifico, la codifica dei record e il motore di archiviazione.
+     *
+     * Se il motore è persistente e contiene già dei record, il file non viene letto:
+     * viene usato solo per importare i dati in un motore ancora vuoto.
+     *
+     * @param fileName Nome del file da usare per caricare e salvare i dati.
+     * @param codec Codifica dei record nei file, null per usare la serializzazione Java.
+     * @param engine Motore di archiviazione dei record.
+     */
+    public Database(String fileName, RecordCodec<T> codec, StorageEngine<T> engine) {
         this.CURRENT_FILE_NAME = fileName;
-        this.loadFromFile(this.CURRENT_FILE_NAME);
+        this.codec = codec;
+        this.engine = engine;
+        for (int i = 0; i < Database.WRITE_STRIPES; i++)
+            this.writeStripes[i] = new ReentrantLock();
+        // Con un motore persistente già popolato l'impronta viene calcolata solo quando serve,
+        // così che l'avvio non debba leggere tutti i record.
+        this.digestStale = this.engine.size() > 0;
+        if (!this.engine.isPersistent() || this.engine.size() == 0) this.loadFromFile(this.CURRENT_FILE_NAME);
     }
     
     // -----------------------------------------------------------------------------------------------------------------
@@ -66,8 +301,27 @@ public class Database<T extends HasUniqueId> {
      * @param record Il record da aggiungere.
      * @return L'ID univoco del record aggiunto.
      */
-    public synchronized String add(T record) {
-        return this.structure.addUnique(record);
+    public String add(T record) {
+        if (this.engine instanceof ConcurrentStorageEngine<T> concurrent) {
+            ReentrantLock stripe = this.stripeOf(record.getUniqueId());
+            stripe.lock();
+            try {
+                if (concurrent.putIfAbsent(record) != null) return null;
+                this.recordChange(0, this.hashOf(record));
+                this.publish(() -> new DatabaseChange.Added<>(this.engine.indexOf(record.getUniqueId()), record));
+            } finally {
+                stripe.unlock();
+                this.dispatchChanges();
+            }
+            return record.getUniqueId();
+        }
+        long stamp = this.writeLock();
+        try {
+            return this.insert(record);
+        } finally {
+            this.lock.unlockWrite(stamp);
+            this.dispatchChanges();
+        }
     }
     
     /**
@@ -76,8 +330,160 @@ public class Database<T extends HasUniqueId> {
      * @param uniqueId L'ID univoco del record da rimuovere.
      * @return true se il record è stato rimosso, false altrimenti.
      */
-    public synchronized boolean del(String uniqueId) {
-        return this.structure.delUnique(uniqueId);
+    public boolean del(String uniqueId) {
+        if (this.engine instanceof ConcurrentStorageEngine<T>) {
+            ReentrantLock stripe = this.stripeOf(uniqueId);
+            stripe.lock();
+            try {
+                return this.delete(uniqueId);
+            } finally {
+                stripe.unlock();
+                this.dispatchChanges();
+            }
+        }
+        long stamp = this.writeLock();
+        try {
+            return this.delete(uniqueId);
+        } finally {
+            this.lock.unlockWrite(stamp);
+            this.dispatchChanges();
+        }
+    }
+    
+    /**
+     * @brief Modifica un record del database.
+     *
+     * Tutte le modifiche ai record già inseriti devono passare da questo metodo, così che
+     * versione e impronta del contenuto restino allineate ai dati e il record modificato
+     * venga riscritto nel motore di archiviazione. La funzione riceve una copia del record,
+     * che sostituisce l'originale: gli snapshot già consegnati restano invariati.
+     *
+     * @param uniqueId L'ID univoco del record da modificare.
+     * @param modifier Funzione che applica la modifica al record e restituisce un risultato.
+     * @return Il risultato della funzione, null se il record non esiste.
+     */
+    public <R> R mod(String uniqueId, Function<? super T, R> modifier) {
+        if (this.engine instanceof ConcurrentStorageEngine<T> concurrent) {
+            R result = this.modLockFree(concurrent, uniqueId, modifier);
+            this.dispatchChanges();
+            return result;
+        }
+        long stamp = this.writeLock();
+        try {
+            T previous = this.engine.get(uniqueId);
+            if (previous == null) return null;
+            long before = this.hashOf(previous);
+            // I motori persistenti restituiscono già una copia decodificata del record.
+            T record = this.engine.isPersistent() ? previous : this.copyOf(previous);
+            R result = modifier.apply(record);
+            this.engine.put(record);
+            this.recordChange(before, this.hashOf(record));
+            if (this.writeAheadLog != null) this.writeAheadLog.logMod(record);
+            this.publish(() -> new DatabaseChange.Updated<>(this.engine.indexOf(uniqueId), previous, record));
+            return result;
+        } finally {
+            this.lock.unlockWrite(stamp);
+            this.dispatchChanges();
+        }
+    }
+    
+    /**
+     * @brief Modifica un record senza il lock del database, ripetendo la modifica se un altro thread lo ha cambiato nel frattempo.
+     *
+     * La funzione viene applicata ogni volta a una copia nuova del record corrente, quindi
+     * può essere chiamata più volte e non deve avere effetti al di fuori del record. La sostituzione
+     * e la notifica avvengono tenendo il lock della striscia dell'ID, che blocca solo le modifiche
+     * ai record della stessa striscia.
+     *
+     * @param concurrent Il motore concorrente del database.
+     * @param uniqueId L'ID univoco del record da modificare.
+     * @param modifier Funzione che applica la modifica al record e restituisce un risultato.
+     * @return Il risultato della funzione, null se il record non esiste.
+     */
+    private <R> R modLockFree(ConcurrentStorageEngine<T> concurrent, String uniqueId, Function<? super T, R> modifier) {
+        while (true) {
+            T record = concurrent.get(uniqueId);
+            if (record == null) return null;
+            T copy = this.copyOf(record);
+            R result = modifier.apply(copy);
+            ReentrantLock stripe = this.stripeOf(uniqueId);
+            stripe.lock();
+            try {
+                if (concurrent.replace(record, copy)) {
+                    this.recordChange(this.hashOf(record), this.hashOf(copy));
+                    this.publish(() -> new DatabaseChange.Updated<>(this.engine.indexOf(uniqueId), record, copy));
+                    return result;
+                }
+            } finally {
+                stripe.unlock();
+            }
+        }
+    }
+    
+    /**
+     * @brief Restituisce il lock della striscia a cui appartiene un ID.
+     *
+     * @param uniqueId L'ID univoco del record.
+     * @return Il lock della striscia.
+     */
+    private ReentrantLock stripeOf(String uniqueId) {
+        return this.writeStripes[Database.stripeIndex(uniqueId)];
+    }
+    
+    /**
+     * @brief Restituisce l'indice della striscia a cui appartiene un ID.
+     *
+     * @param uniqueId L'ID univoco del record.
+     * @return L'indice della striscia.
+     */
+    private static int stripeIndex(String uniqueId) {
+        int hash = uniqueId.hashCode();
+        return (hash ^ (hash >>> 16)) & (Database.WRITE_STRIPES - 1);
+    }
+    
+    /**
+     * @brief Acquisisce, in ordine crescente, i lock delle strisce di un insieme di ID.
+     *
+     * L'ordine fisso evita lo stallo con altre transazioni; le modifiche singole tengono al più un lock.
+     *
+     * @param uniqueIds Gli ID dei record.
+     * @return I lock acquisiti, da rilasciare con {@link #unlockStripes(List)}.
+     */
+    private List<ReentrantLock> lockStripes(Collection<String> uniqueIds) {
+        boolean[] needed = new boolean[WRITE_STRIPES];
+        for (String uniqueId : uniqueIds)
+            needed[Database.stripeIndex(uniqueId)] = true;
+        List<ReentrantLock> locked = new ArrayList<>();
+        try {
+            for (int i = 0; i < WRITE_STRIPES; i++) {
+                if (!needed[i]) continue;
+                this.writeStripes[i].lock();
+                locked.add(this.writeStripes[i]);
+            }
+        } catch (RuntimeException | Error e) {
+            this.unlockStripes(locked);
+            throw e;
+        }
+        return locked;
+    }
+    
+    /**
+     * @brief Rilascia i lock delle strisce acquisiti da {@link #lockStripes(Collection)}.
+     *
+     * @param locked I lock acquisiti.
+     */
+    private void unlockStripes(List<ReentrantLock> locked) {
+        for (int i = locked.size() - 1; i >= 0; i--)
+            locked.get(i).unlock();
+    }
+    
+    /**
+     * @brief Inizia una transazione sul database.
+     *
+     * @return La transazione, da chiudere con {@link Transaction#commit()} o {@link Transaction#rollback()}.
+     */
+    public Transaction beginTransaction() {
+        return new Transaction();
     }
     
     /**
@@ -86,159 +492,1261 @@ public class Database<T extends HasUniqueId> {
      * @param uniqueId L'ID univoco del record da ottenere.
      * @return Il record associato all'ID univoco, null se non esiste.
      */
-    public synchronized T get(String uniqueId) {
-        return this.structure.getUnique(uniqueId);
+    public T get(String uniqueId) {
+        return this.read(() -> this.engine.get(uniqueId));
     }
     
     /**
      * @brief Ottieni tutti i record presenti nel database.
      *
+     * La lista è uno snapshot immutabile: non cambia con le modifiche successive e può essere
+     * letta senza sincronizzazione. Con il motore in memoria viene ottenuta in tempo costante.
+     *
      * @return Una lista contenente tutti i record.
      */
-    public synchronized List<T> getAll() {
-        return this.structure.stream().toList();
+    public List<T> getAll() {
+        return this.read(this.engine::snapshot);
     }
     
-    // -----------------------------------------------------------------------------------------------------------------
+    /**
+     * @brief Restituisce le statistiche di utilizzo e contesa del lock del database.
+     *
+     * @return Le statistiche, aggiornate in tempo reale.
+     */
+    public LockStats getLockStats() {
+        return this.lockStats;
+    }
     
     /**
-     * @brief Salva i record del database sul file corrente.
+     * @brief Registra un listener da notificare a ogni modifica del contenuto.
+     *
+     * @param listener Il listener da registrare.
      */
-    public synchronized void saveToFile() {
-        this.saveToFile(this.CURRENT_FILE_NAME);
+    public void addListener(DatabaseListener<T> listener) {
+        this.listeners.add(listener);
     }
     
     /**
-     * @brief Salva i record del database su un file specificato.
+     * @brief Rimuove un listener registrato.
      *
-     * @param path Percorso del file dove salvare i dati.
+     * @param listener Il listener da rimuovere.
      */
-    public synchronized void saveToFile(String path) {
-        try {
-            this.writeToFile(new FileOutputStream(path), this.getAll());
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    public void removeListener(DatabaseListener<T> listener) {
+        this.listeners.remove(listener);
+    }
+    
+    /**
+     * @brief Inserisce un record se il suo ID non è già presente; richiede il lock in scrittura.
+     *
+     * @param record Il record da aggiungere.
+     * @return L'ID univoco del record aggiunto, null se era già presente.
+     */
+    private String insert(T record) {
+        String uniqueId = record.getUniqueId();
+        if (this.engine.contains(uniqueId)) return null;
+        
+        this.engine.put(record);
+        this.recordChange(0, this.hashOf(record));
+        if (this.writeAheadLog != null) this.writeAheadLog.logAdd(record);
+        this.publish(() -> new DatabaseChange.Added<>(this.engine.indexOf(uniqueId), record));
+        return uniqueId;
+    }
+    
+    /**
+     * @brief Rimuove un record; richiede il lock in scrittura, salvo con un motore concorrente.
+     *
+     * @param uniqueId L'ID univoco del record da rimuovere.
+     * @return true se il record è stato rimosso, false altrimenti.
+     */
+    private boolean delete(String uniqueId) {
+        int index = this.listeners.isEmpty() ? DatabaseChange.UNKNOWN_INDEX : this.engine.indexOf(uniqueId);
+        T record = this.engine.delete(uniqueId);
+        if (record == null) return false;
+        this.recordChange(this.hashOf(record), 0);
+        if (this.writeAheadLog != null) this.writeAheadLog.logDel(uniqueId);
+        this.publish(() -> new DatabaseChange.Removed<>(index, record));
+        return true;
+    }
+    
+    /**
+     * @brief Ottieni i record la cui chiave in un indice secondario è compresa nell'intervallo.
+     *
+     * Con un motore ordinato che mantiene l'indice vengono letti solo i record dell'intervallo;
+     * altrimenti vengono scorsi tutti i record confrontandone la chiave e quelli trovati vengono
+     * ordinati come nel motore ordinato: per chiave e, a parità di chiave, per ID.
+     *
+     * @param index L'indice da usare.
+     * @param fromInclusive Chiave iniziale inclusa, null per partire dalla prima.
+     * @param toExclusive Chiave finale esclusa, null per arrivare all'ultima.
+     * @return I record trovati, in ordine di chiave.
+     */
+    public List<T> findByIndex(SecondaryIndex<T> index, byte[] fromInclusive, byte[] toExclusive) {
+        List<T> records = new ArrayList<>();
+        if (this.engine instanceof IndexedStorageEngine<T> indexed) {
+            long stamp = this.readLock();
+            try {
+                indexed.scanIndex(index, fromInclusive, toExclusive, records::add);
+            } finally {
+                this.lock.unlockRead(stamp);
+            }
+            return records;
+        }
+        List<Map.Entry<byte[], T>> found = new ArrayList<>();
+        for (T record : this.getAll()) {
+            byte[] key = index.getKey(record);
+            if (fromInclusive != null && Arrays.compareUnsigned(key, fromInclusive) < 0) continue;
+            if (toExclusive != null && Arrays.compareUnsigned(key, toExclusive) >= 0) continue;
+            found.add(Map.entry(key, record));
         }
+        found.sort((a, b) -> {
+            int order = Arrays.compareUnsigned(a.getKey(), b.getKey());
+            return (order != 0) ? order : a.getValue().getUniqueId().compareTo(b.getValue().getUniqueId());
+        });
+        for (Map.Entry<byte[], T> entry : found)
+            records.add(entry.getValue());
+        return records;
     }
     
     /**
-     * @brief Salva i record del database su un file specificato.
+     * @brief Indica se il motore mantiene gli indici secondari, così che {@link #findByIndex} legga solo l'intervallo.
      *
-     * @param file Oggetto File dove salvare i dati.
+     * @return true se il motore è ordinato e mantiene gli indici, false altrimenti.
+     */
+    public boolean isIndexed() {
+        return this.engine instanceof IndexedStorageEngine;
+    }
+    
+    /**
+     * @brief Restituisce la versione corrente del database.
+     *
+     * @return Il numero di modifiche applicate dalla creazione del database.
+     */
+    public long getVersion() {
+        return this.read(this.version::get);
+    }
+    
+    /**
+     * @brief Restituisce l'impronta del contenuto corrente del database.
+     *
+     * @return L'impronta del contenuto.
      */
-    public synchronized void saveToFile(File file) {
+    public long getDigest() {
+        if (this.engine instanceof ConcurrentStorageEngine<T>) return this.digest.get();
+        long stamp = this.readLock();
         try {
-            this.writeToFile(new FileOutputStream(file), this.getAll());
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            if (!this.digestStale) return this.digest.get();
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+        stamp = this.writeLock();
+        try {
+            return this.currentDigest();
+        } finally {
+            this.lock.unlockWrite(stamp);
         }
     }
     
     // -----------------------------------------------------------------------------------------------------------------
     
     /**
-     * @brief Carica i record dal file corrente nel database.
+     * @brief Salva i record del database sul file corrente.
+     *
+     * Se il log delle modifiche è abilitato scrive solo le operazioni non ancora registrate,
+     * programmando un checkpoint quando il log supera la soglia prevista.
      */
-    public synchronized void loadFromFile() {
-        this.loadFromFile(this.CURRENT_FILE_NAME);
+    public void saveToFile() {
+        this.saveToFile(IoProgress.NONE);
     }
     
     /**
-     * @brief Carica i record da un file specificato nel database.
+     * @brief Salva i record del database sul file corrente, aggiornando l'avanzamento.
      *
-     * @param path Percorso del file da cui caricare i dati.
+     * Il log delle modifiche e i motori persistenti vengono scritti in un solo passo.
+     *
+     * @param progress Avanzamento, in record scritti; può annullare il salvataggio.
      */
-    public synchronized void loadFromFile(String path) {
+    public void saveToFile(IoProgress progress) {
+        long stamp = this.readLock();
         try {
-            List<T> data = this.readFromFile(new FileInputStream(path));
-            if (data != null) {
-                this.structure.clear();
-                this.structure.addAll(data);
+            if (this.engine.isPersistent()) {
+                this.flushEngine();
+                return;
             }
-        } catch (IOException ignored) {
-            // Ignora l'eccezione per evitare il crash.
+            if (this.writeAheadLog != null) {
+                try {
+                    this.writeAheadLog.commit();
+                    if (this.writeAheadLog.size() >= Database.DEFAULT_CHECKPOINT_THRESHOLD) this.scheduleCheckpoint();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                return;
+            }
+        } finally {
+            this.lock.unlockRead(stamp);
         }
+        this.saveToFile(Path.of(this.CURRENT_FILE_NAME), progress);
     }
     
     /**
-     * @brief Carica i record da un file specificato nel database.
+     * @brief Salva i record del database su un file specificato.
      *
-     * @param file Oggetto File da cui caricare i dati.
+     * Se il file contiene già lo stato corrente (ad esempio perché un salvataggio concorrente
+     * lo ha appena scritto) non viene riscritto.
+     *
+     * @param path Percorso del file dove salvare i dati.
      */
-    public synchronized void loadFromFile(File file) {
-        try {
-            List<T> data = this.readFromFile(new FileInputStream(file));
-            if (data != null) {
-                this.structure.clear();
-                this.structure.addAll(data);
-            }
-        } catch (IOException ignored) {
-            // Ignora l'eccezione per evitare il crash.
-        }
+    public void saveToFile(String path) {
+        this.saveToFile(Path.of(path));
+    }
+    
+    /**
+     * @brief Salva i record del database su un file specificato, aggiornando l'avanzamento.
+     *
+     * Se il salvataggio viene annullato il file resta quello precedente.
+     *
+     * @param path Percorso del file dove salvare i dati.
+     * @param progress Avanzamento, in record scritti; può annullare il salvataggio.
+     */
+    public void saveToFile(String path, IoProgress progress) {
+        this.saveToFile(Path.of(path), progress);
+    }
+    
+    /**
+     * @brief Salva i record del database su un file specificato.
+     *
+     * @param file Oggetto File dove salvare i dati.
+     */
+    public void saveToFile(File file) {
+        this.saveToFile(file.toPath());
+    }
+    
+    /**
+     * @brief Imposta la politica di scrittura forzata su disco dei file salvati.
+     *
+     * @param fsyncPolicy La nuova politica.
+     */
+    public void setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = fsyncPolicy;
     }
     
     // -----------------------------------------------------------------------------------------------------------------
     
     /**
-     * @brief Scrive la lista dei record su un file specificato.
+     * @brief Abilita il log delle modifiche usando la codifica dei record del database.
      *
-     * @param fOut FileOutputStream su cui scrivere i dati.
-     * @param data Lista dei record da scrivere.
+     * @param fsync true per forzare la scrittura su disco a ogni commit.
      */
-    private synchronized void writeToFile(FileOutputStream fOut, List<T> data) {
-        try (ObjectOutputStream oOut = new ObjectOutputStream(fOut)) {
-            oOut.writeObject(data);
-            oOut.flush();
+    public void enableWriteAheadLog(boolean fsync) {
+        if (this.codec == null) throw new IllegalStateException("Nessuna codifica dei record disponibile");
+        this.enableWriteAheadLog(this.codec, fsync);
+    }
+    
+    /**
+     * @brief Abilita il log delle modifiche affiancato al file corrente.
+     *
+     * Le operazioni registrate nel log dopo l'ultimo checkpoint vengono riapplicate
+     * sui record caricati dal file. Non ha effetto con un motore di archiviazione persistente o concorrente.
+     * Un log danneggiato viene conservato a parte e il database riparte dall'ultimo checkpoint; se il
+     * log non può essere aperto il database resta senza log e i salvataggi riscrivono l'intero file.
+     *
+     * @param codec Codifica dei record nel log.
+     * @param fsync true per forzare la scrittura su disco a ogni commit.
+     */
+    public void enableWriteAheadLog(RecordCodec<T> codec, boolean fsync) {
+        long stamp = this.writeLock();
+        WriteAheadLog<T> log = null;
+        try {
+            if (this.writeAheadLog != null || this.engine.isPersistent() || this.engine instanceof ConcurrentStorageEngine<T>) return;
+            Path logPath = Path.of(this.CURRENT_FILE_NAME + Database.WRITE_AHEAD_LOG_EXTENSION);
+            log = new WriteAheadLog<>(logPath, codec, fsync, WriteAheadLog.DEFAULT_GROUP_COMMIT_MILLIS);
+            log.replay(new WriteAheadLog.Replayer<>() {
+                @Override
+                public void add(T record) {
+                    Database.this.insert(record);
+                }
+                
+                @Override
+                public void del(String uniqueId) {
+                    Database.this.delete(uniqueId);
+                }
+                
+                @Override
+                public void mod(T record) {
+                    Database.this.replace(record);
+                }
+            });
+            this.writeAheadLog = log;
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            System.err.println("Log delle modifiche non disponibile per " + this.CURRENT_FILE_NAME + ": " + e);
+            if (log != null) {
+                try {
+                    log.close();
+                } catch (IOException ignored) {
+                    // Il log non viene più usato.
+                }
+            }
+        } finally {
+            this.lock.unlockWrite(stamp);
+            this.dispatchChanges();
         }
     }
     
     /**
-     * @brief Legge la lista dei record da un file specificato.
+     * @brief Incorpora il log delle modifiche in un nuovo snapshot del file corrente e lo svuota.
      *
-     * @param fIn FileInputStream da cui leggere i dati.
-     * @return La lista dei record letti dal file.
+     * Lo snapshot viene scritto senza tenere il lock del database. Dal log vengono poi scartate
+     * solo le operazioni incluse nello snapshot, mentre quelle registrate durante la scrittura restano.
      */
-    private synchronized List<T> readFromFile(FileInputStream fIn) {
-        try (ObjectInputStream oIn = new ObjectInputStream(fIn)) {
-            return (List<T>) oIn.readObject();
-        } catch (IOException | ClassNotFoundException ignored) {
-            // Ignora l'eccezione per evitare il crash.
+    public void checkpoint() {
+        synchronized (this.saveLock) {
+            Path target = Path.of(this.CURRENT_FILE_NAME);
+            WriteAheadLog<T> log;
+            Snapshot<T> snapshot;
+            long logged;
+            long stamp = this.writeLock();
+            try {
+                if (this.engine.isPersistent()) {
+                    this.flushEngine();
+                    return;
+                }
+                log = this.writeAheadLog;
+                if (log != null) {
+                    log.commit();
+                    logged = log.size();
+                    snapshot = this.snapshotLocked();
+                } else {
+                    logged = 0;
+                    snapshot = null;
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } finally {
+                this.lock.unlockWrite(stamp);
+            }
+            if (log == null) {
+                this.saveToFile(target);
+                return;
+            }
+            
+            try {
+                this.writeAtomically(target, snapshot.records(), this.shouldForceDirectory());
+                log.truncateHead(logged);
+                this.markPersisted(target, snapshot);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
         }
-        return null;
     }
     
     // -----------------------------------------------------------------------------------------------------------------
     
     /**
-     * @brief Confronta i record del database corrente con quelli di un file specificato.
-     *
-     * Salva il database corrente in un file temporaneo e lo confronta con il file specificato.
-     *
-     * @param path Percorso del file da confrontare.
-     * @return true se i file sono identici, false altrimenti.
+     * @brief Carica i record dal file corrente nel database.
      */
-    public synchronized boolean compareFileToDatabase(String path) {
-        if (null == path) return false;
-        saveToFile(DEFAULT_TEMPORARY_FILE_PATH);
-        return compareTwoFiles(DEFAULT_TEMPORARY_FILE_PATH, path);
+    public void loadFromFile() {
+        this.loadFromFile(this.CURRENT_FILE_NAME);
     }
     
     /**
-     * @brief Confronta due file per verificarne l'uguaglianza.
+     * @brief Carica i record da un file specificato nel database.
      *
-     * @param file1Path Percorso del primo file.
-     * @param file2Path Percorso del secondo file.
-     * @return true se i file sono uguali, false altrimenti.
+     * @param path Percorso del file da cui caricare i dati.
+     */
+    public void loadFromFile(String path) {
+        this.loadFromFile(Path.of(path));
+    }
+    
+    /**
+     * @brief Carica i record da un file specificato nel database.
+     *
+     * @param file Oggetto File da cui caricare i dati.
+     */
+    public void loadFromFile(File file) {
+        this.loadFromFile(file.toPath());
+    }
+    
+    /**
+     * @brief Legge i record da un file e sostituisce con essi il contenuto del database.
+     *
+     * Il file viene letto senza tenere il lock del database, che viene acquisito solo per la sostituzione.
+     *
+     * @param source Percorso del file da cui caricare i dati.
+     */
+    private void loadFromFile(Path source) {
+        List<T> data = this.readFromFile(source, IoProgress.NONE, 0, null);
+        if (data != null) this.replaceWithLoaded(source, data);
+    }
+    
+    /**
+     * @brief Legge i record da un file senza modificare il database.
+     *
+     * Insieme a {@link #replaceWithLoaded(String, List)} permette di leggere il file su un altro thread
+     * e di sostituire il contenuto del database in un solo passo, ad esempio sul thread dell'interfaccia.
+     *
+     * @param path Percorso del file da cui leggere i dati.
+     * @param progress Avanzamento, in record letti; può annullare la lettura.
+     * @return I record letti, null se il file non esiste o non è leggibile.
      */
-    private synchronized boolean compareTwoFiles(String file1Path, String file2Path) {
+    public List<T> readFromFile(String path, IoProgress progress) {
+        return this.readFromFile(Path.of(path), progress, 0, null);
+    }
+    
+    /**
+     * @brief Legge i record da un file senza modificare il database, consegnandoli a blocchi man mano che vengono letti.
+     *
+     * I blocchi sono liste immutabili consegnate sul thread che legge e permettono di mostrare i record
+     * prima della fine della lettura; il database cambia solo con {@link #replaceWithLoaded(String, List)}.
+     *
+     * @param path Percorso del file da cui leggere i dati.
+     * @param progress Avanzamento, in record letti; può annullare la lettura.
+     * @param chunkSize Numero di record per blocco.
+     * @param chunks Riceve i blocchi di record.
+     * @return I record letti, null se il file non esiste o non è leggibile.
+     */
+    public List<T> readFromFile(String path, IoProgress progress, int chunkSize, Consumer<List<T>> chunks) {
+        return this.readFromFile(Path.of(path), progress, chunkSize, chunks);
+    }
+    
+    /**
+     * @brief Sostituisce il contenuto del database con i record letti da un file.
+     *
+     * @param path Percorso del file da cui sono stati letti i record.
+     * @param data I record letti con {@link #readFromFile(String, IoProgress)}.
+     */
+    public void replaceWithLoaded(String path, List<T> data) {
+        this.replaceWithLoaded(Path.of(path), data);
+    }
+    
+    /**
+     * @brief Legge i record da un file senza modificare il database.
+     *
+     * @param source Percorso del file da cui leggere i dati.
+     * @param progress Avanzamento, in record letti; può annullare la lettura.
+     * @param chunkSize Numero di record per blocco.
+     * @param chunks Riceve i blocchi di record; null per non consegnarli.
+     * @return I record letti, null se il file non esiste o non è leggibile.
+     */
+    private List<T> readFromFile(Path source, IoProgress progress, int chunkSize, Consumer<List<T>> chunks) {
         try {
-            return Files.mismatch(Path.of(file1Path), Path.of(file2Path)) == -1L;
+            return this.readFromFile(new FileInputStream(source.toFile()), progress, chunkSize, chunks);
         } catch (IOException ignored) {
             // Ignora l'eccezione per evitare il crash.
         }
-        return false;
+        return null;
+    }
+    
+    /**
+     * @brief Sostituisce il contenuto del database con i record letti da un file e lo segna come salvato su quel file.
+     *
+     * @param source Percorso del file da cui sono stati letti i record.
+     * @param data I record letti.
+     */
+    private void replaceWithLoaded(Path source, List<T> data) {
+        synchronized (this.saveLock) {
+            long stamp = this.writeLock();
+            try {
+                this.replaceAll(data);
+                this.markPersisted(source, this.snapshotLocked());
+            } finally {
+                this.lock.unlockWrite(stamp);
+            }
+        }
+        this.dispatchChanges();
+    }
+    
+    // -----------------------------------------------------------------------------------------------------------------
+    
+    /**
+     * @brief Salva i record su un file, a meno che non contenga già lo stato corrente.
+     *
+     * Le richieste di salvataggio concorrenti (salvataggio automatico e manuale) vengono eseguite
+     * una dopo l'altra: quelle che trovano il file già aggiornato non lo riscrivono. Il lock del
+     * database viene tenuto solo per prendere lo snapshot, non durante la scrittura.
+     *
+     * @param target Percorso del file dove salvare i dati.
+     */
+    private void saveToFile(Path target) {
+        this.saveToFile(target, IoProgress.NONE);
+    }
+    
+    /**
+     * @brief Salva i record su un file, a meno che non contenga già lo stato corrente, aggiornando l'avanzamento.
+     *
+     * @param target Percorso del file dove salvare i dati.
+     * @param progress Avanzamento, in record scritti; può annullare il salvataggio.
+     */
+    private void saveToFile(Path target, IoProgress progress) {
+        synchronized (this.saveLock) {
+            Snapshot<T> snapshot = this.takeSnapshot();
+            if (this.isPersisted(target, snapshot.version())) return;
+            
+            try {
+                this.writeAtomically(target, snapshot.records(), this.shouldForceDirectory(), progress);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            this.markPersisted(target, snapshot);
+        }
+    }
+    
+    /**
+     * @brief Prende uno snapshot immutabile del contenuto, con la versione e l'impronta corrispondenti.
+     *
+     * Basta il lock in lettura, a meno che l'impronta non vada ricalcolata. Con un motore concorrente
+     * non viene preso alcun lock: la versione è letta prima dei record, così che lo snapshot non risulti
+     * mai più vecchio della versione associata, e l'impronta è calcolata sui record effettivamente letti.
+     *
+     * @return Lo snapshot.
+     */
+    private Snapshot<T> takeSnapshot() {
+        if (this.engine instanceof ConcurrentStorageEngine<T>) {
+            long version = this.version.get();
+            List<T> records = this.engine.snapshot();
+            long digest = 0;
+            for (T record : records)
+                digest += this.hashOf(record);
+            return new Snapshot<>(version, digest, records);
+        }
+        long stamp = this.readLock();
+        try {
+            if (!this.digestStale) return new Snapshot<>(this.version.get(), this.digest.get(), this.engine.snapshot());
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+        stamp = this.writeLock();
+        try {
+            return this.snapshotLocked();
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+    
+    /**
+     * @brief Prende uno snapshot immutabile del contenuto; richiede il lock in scrittura.
+     *
+     * @return Lo snapshot.
+     */
+    private Snapshot<T> snapshotLocked() {
+        return new Snapshot<>(this.version.get(), this.currentDigest(), this.engine.snapshot());
+    }
+    
+    /**
+     * @brief Scrive i record su un file temporaneo affiancato e lo sposta al posto del file indicato.
+     *
+     * In caso di errore il file temporaneo viene eliminato e il file indicato resta quello precedente.
+     *
+     * @param target Percorso del file da sostituire.
+     * @param data Lista dei record da scrivere.
+     * @param forceDirectory true per forzare su disco anche la cartella che contiene il file.
+     * @throws IOException Se la scrittura o lo spostamento falliscono.
+     */
+    private void writeAtomically(Path target, List<T> data, boolean forceDirectory) throws IOException {
+        this.writeAtomically(target, data, forceDirectory, IoProgress.NONE);
+    }
+    
+    /**
+     * @brief Scrive i record su un file temporaneo affiancato e lo sposta al posto del file indicato, aggiornando l'avanzamento.
+     *
+     * Anche se la scrittura viene annullata il file temporaneo viene eliminato e il file indicato resta quello precedente.
+     * Salvo con la politica {@link FsyncPolicy#NEVER}, il file temporaneo viene sempre forzato su disco prima dello
+     * spostamento: altrimenti un'interruzione dell'alimentazione potrebbe lasciare al posto del file vecchio un file
+     * vuoto o troncato. Solo la scrittura forzata della cartella può essere rimandata.
+     *
+     * @param target Percorso del file da sostituire.
+     * @param data Lista dei record da scrivere.
+     * @param forceDirectory true per forzare su disco anche la cartella che contiene il file.
+     * @param progress Avanzamento, in record scritti; può annullare la scrittura.
+     * @throws IOException Se la scrittura o lo spostamento falliscono.
+     */
+    private void writeAtomically(Path target, List<T> data, boolean forceDirectory, IoProgress progress) throws IOException {
+        Path temporary = target.resolveSibling(target.getFileName() + Database.TEMPORARY_FILE_EXTENSION);
+        try {
+            this.writeToFile(new FileOutputStream(temporary.toFile()), data, progress);
+            if (forceDirectory || this.fsyncPolicy != FsyncPolicy.NEVER) {
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+            }
+            try {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        if (forceDirectory) this.forceDirectory(target.toAbsolutePath().getParent());
+    }
+    
+    /**
+     * @brief Decide, in base alla politica, se il prossimo salvataggio deve forzare su disco la cartella del file.
+     *
+     * Con la politica {@link FsyncPolicy#BATCHED} la cartella viene forzata al massimo una volta per intervallo:
+     * uno spostamento non ancora durevole può al più essere perso, lasciando il file precedente completo.
+     *
+     * @return true se la cartella va forzata su disco, false altrimenti.
+     */
+    private boolean shouldForceDirectory() {
+        switch (this.fsyncPolicy) {
+            case ALWAYS:
+                return true;
+            case BATCHED:
+                long now = System.currentTimeMillis();
+                if (now - this.lastFsyncMillis < Database.FSYNC_BATCH_MILLIS) return false;
+                this.lastFsyncMillis = now;
+                return true;
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * @brief Forza su disco la cartella che contiene un file, così che lo spostamento sia durevole.
+     *
+     * @param directory La cartella da forzare.
+     */
+    private void forceDirectory(Path directory) {
+        if (directory == null) return;
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // Non tutti i sistemi permettono di aprire una cartella: lo spostamento resta comunque atomico.
+        }
+    }
+    
+    /**
+     * @brief Scrive la lista dei record su uno stream specificato.
+     *
+     * @param out OutputStream su cui scrivere i dati; viene chiuso al termine.
+     * @param data Lista dei record da scrivere.
+     * @throws IOException Se la scrittura fallisce.
+     */
+    private void writeToFile(OutputStream out, List<T> data) throws IOException {
+        this.writeToFile(out, data, IoProgress.NONE);
+    }
+    
+    /**
+     * @brief Scrive la lista dei record su uno stream specificato, aggiornando l'avanzamento.
+     *
+     * Con la serializzazione Java i record vengono scritti in un solo passo.
+     *
+     * @param out OutputStream su cui scrivere i dati; viene chiuso al termine.
+     * @param data Lista dei record da scrivere.
+     * @param progress Avanzamento, in record scritti; può annullare la scrittura.
+     * @throws IOException Se la scrittura fallisce.
+     */
+    private void writeToFile(OutputStream out, List<T> data, IoProgress progress) throws IOException {
+        if (this.codec != null) {
+            SnapshotFormat.write(out, data, this.codec, progress);
+            return;
+        }
+        try (ObjectOutputStream oOut = new ObjectOutputStream(out)) {
+            oOut.writeObject(data);
+            oOut.flush();
+        }
+        progress.update(1, 1);
+    }
+    
+    /**
+     * @brief Legge la lista dei record da un file specificato.
+     *
+     * Con una codifica dei record riconosce sia il formato binario sia i file scritti
+     * con la serializzazione Java.
+     *
+     * @param fIn FileInputStream da cui leggere i dati.
+     * @param progress Avanzamento, in record letti; può annullare la lettura.
+     * @param chunkSize Numero di record per blocco.
+     * @param chunks Riceve i blocchi di record; null per non consegnarli.
+     * @return La lista dei record letti dal file.
+     */
+    private List<T> readFromFile(FileInputStream fIn, IoProgress progress, int chunkSize, Consumer<List<T>> chunks) {
+        if (this.codec != null) {
+            try {
+                return SnapshotFormat.read(fIn, this.codec, progress, chunkSize, chunks);
+            } catch (IOException ignored) {
+                // Ignora l'eccezione per evitare il crash.
+            }
+            return null;
+        }
+        try (ObjectInputStream oIn = new ObjectInputStream(fIn)) {
+            List<T> data = (List<T>) oIn.readObject();
+            if (chunks != null && data != null && !data.isEmpty()) chunks.accept(List.copyOf(data));
+            return data;
+        } catch (IOException | ClassNotFoundException ignored) {
+            // Ignora l'eccezione per evitare il crash.
+        }
+        return null;
+    }
+    
+    // -----------------------------------------------------------------------------------------------------------------
+    
+    /**
+     * @brief Confronta i record del database corrente con quelli di un file specificato.
+     *
+     * Se il file è stato salvato o caricato da questo database e non è stato modificato
+     * dall'esterno, il confronto avviene in tempo costante quando la versione coincide o l'impronta
+     * del contenuto è diversa. L'impronta è una somma che non dipende dall'ordine dei record, quindi
+     * un'impronta uguale con versione diversa è solo un indizio: ad esempio un record rimosso e
+     * aggiunto di nuovo finisce in fondo al file. In quel caso, come per un file mai visto, serializza
+     * il database confrontando i byte con il file man mano che vengono prodotti, fermandosi alla prima
+     * differenza e senza scrivere alcun file temporaneo.
+     *
+     * @param path Percorso del file da confrontare.
+     * @return true se i file sono identici, false altrimenti.
+     */
+    public boolean compareFileToDatabase(String path) {
+        if (null == path) return false;
+        
+        Path target = Path.of(path);
+        Snapshot<T> snapshot = this.takeSnapshot();
+        PersistedState state = this.persistedStates.get(target.toAbsolutePath().normalize());
+        if (state != null && state.equals(this.persistedState(target, state.version(), state.digest()))) {
+            if (state.version() == snapshot.version()) return true;
+            if (state.digest() != snapshot.digest()) return false;
+        }
+        
+        boolean equal = compareStreamToFile(target, snapshot.records());
+        if (equal) this.markPersisted(target, snapshot);
+        return equal;
+    }
+    
+    /**
+     * @brief Confronta la serializzazione del database con il contenuto di un file.
+     *
+     * @param target Percorso del file da confrontare.
+     * @param data Lista dei record da confrontare.
+     * @return true se i byte prodotti coincidono con l'intero file, false altrimenti.
+     */
+    private boolean compareStreamToFile(Path target, List<T> data) {
+        ComparingOutputStream compared;
+        try (ComparingOutputStream cOut = new ComparingOutputStream(target)) {
+            compared = cOut;
+            this.writeToFile(cOut, data);
+        } catch (IOException ignored) {
+            // Differenza trovata o file non leggibile.
+            return false;
+        }
+        // L'esito è definitivo solo dopo la chiusura, che verifica anche i byte rimasti nel file.
+        return compared.isEqual();
+    }
+    
+    // -----------------------------------------------------------------------------------------------------------------
+    
+    /**
+     * @brief Sostituisce tutti i record del database e ricalcola l'impronta del contenuto.
+     *
+     * Il log delle modifiche non può descrivere una sostituzione completa, quindi se è abilitato
+     * viene scritto subito un nuovo snapshot e il log viene svuotato. Va chiamato tenendo sia il
+     * lock dei salvataggi sia il lock in scrittura.
+     *
+     * @param data I nuovi record.
+     */
+    private void replaceAll(List<T> data) {
+        this.engine.clear();
+        for (T record : data)
+            if (!this.engine.contains(record.getUniqueId())) this.engine.put(record);
+        
+        this.recomputeDigest();
+        this.version.incrementAndGet();
+        this.publish(() -> new DatabaseChange.Reloaded<>(this.engine.snapshot()));
+        
+        if (this.writeAheadLog == null) return;
+        try {
+            Path target = Path.of(this.CURRENT_FILE_NAME);
+            Snapshot<T> snapshot = this.snapshotLocked();
+            this.writeAtomically(target, snapshot.records(), this.shouldForceDirectory());
+            this.writeAheadLog.truncate();
+            this.markPersisted(target, snapshot);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    /**
+     * @brief Sostituisce un record con la sua versione modificata, mantenendone la posizione.
+     *
+     * @param record Il record modificato.
+     */
+    private void replace(T record) {
+        if (!this.engine.contains(record.getUniqueId())) return;
+        T previous = this.engine.put(record);
+        this.recordChange(this.hashOf(previous), this.hashOf(record));
+        this.publish(() -> new DatabaseChange.Updated<>(this.engine.indexOf(record.getUniqueId()), previous, record));
+    }
+    
+    /**
+     * @brief Applica le modifiche di una transazione; richiede il lock in scrittura.
+     *
+     * Se una modifica fallisce, quelle già applicate vengono annullate ripristinando i record originali
+     * e l'eccezione viene rilanciata. Le operazioni vengono registrate nel log e notificate ai listener
+     * solo a modifiche completate.
+     *
+     * @param staged Nuovo stato dei record, null per quelli da rimuovere.
+     * @param base Record originali, null per quelli assenti.
+     */
+    private void applyAll(Map<String, T> staged, Map<String, T> base) {
+        List<String> applied = new ArrayList<>();
+        List<DatabaseChange<T>> changes = new ArrayList<>();
+        boolean notify = !this.listeners.isEmpty();
+        try {
+            for (Map.Entry<String, T> change : staged.entrySet()) {
+                T original = base.get(change.getKey());
+                T record = change.getValue();
+                if (record == null) {
+                    int index = notify ? this.engine.indexOf(change.getKey()) : DatabaseChange.UNKNOWN_INDEX;
+                    this.engine.delete(change.getKey());
+                    if (notify) changes.add(new DatabaseChange.Removed<>(index, original));
+                } else {
+                    this.engine.put(record);
+                    int index = notify ? this.engine.indexOf(change.getKey()) : DatabaseChange.UNKNOWN_INDEX;
+                    if (notify) changes.add((original == null) ? new DatabaseChange.Added<>(index, record) : new DatabaseChange.Updated<>(index, original, record));
+                }
+                applied.add(change.getKey());
+            }
+        } catch (RuntimeException e) {
+            for (int i = applied.size() - 1; i >= 0; i--) {
+                T original = base.get(applied.get(i));
+                if (original == null) this.engine.delete(applied.get(i));
+                else this.engine.put(original);
+            }
+            throw e;
+        }
+        
+        for (Map.Entry<String, T> change : staged.entrySet()) {
+            T original = base.get(change.getKey());
+            T record = change.getValue();
+            this.recordChange((original == null) ? 0 : this.hashOf(original), (record == null) ? 0 : this.hashOf(record));
+            if (this.writeAheadLog == null) continue;
+            if (record == null) this.writeAheadLog.logDel(change.getKey());
+            else if (original == null) this.writeAheadLog.logAdd(record);
+            else this.writeAheadLog.logMod(record);
+        }
+        this.pendingChanges.addAll(changes);
+    }
+    
+    /**
+     * @brief Verifica se due letture di un record restituiscono lo stesso contenuto.
+     *
+     * I motori persistenti restituiscono a ogni lettura una nuova copia, quindi oltre all'identità
+     * viene confrontata l'impronta del contenuto.
+     *
+     * @param first Il primo record, null se assente.
+     * @param second Il secondo record, null se assente.
+     * @return true se i record coincidono o sono entrambi assenti.
+     */
+    private boolean sameRecord(T first, T second) {
+        if (first == second) return true;
+        if (first == null || second == null) return false;
+        return this.engine.isPersistent() && this.hashOf(first) == this.hashOf(second);
+    }
+    
+    /**
+     * @brief Restituisce l'impronta del contenuto, ricalcolandola se necessario; richiede il lock in scrittura.
+     *
+     * @return L'impronta del contenuto.
+     */
+    private long currentDigest() {
+        if (this.digestStale) this.recomputeDigest();
+        return this.digest.get();
+    }
+    
+    /**
+     * @brief Ricalcola l'impronta del contenuto scorrendo tutti i record del motore.
+     */
+    private void recomputeDigest() {
+        long[] newDigest = {0};
+        this.engine.scan(record -> newDigest[0] += this.hashOf(record));
+        this.digest.set(newDigest[0]);
+        this.digestStale = false;
+    }
+    
+    /**
+     * @brief Rende durevoli le modifiche di un motore di archiviazione persistente.
+     */
+    private void flushEngine() {
+        try {
+            this.engine.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    /**
+     * @brief Programma un checkpoint su un thread in background, se non è già stato programmato.
+     */
+    private void scheduleCheckpoint() {
+        if (!this.checkpointScheduled.compareAndSet(false, true)) return;
+        
+        Thread checkpointer = new Thread(() -> {
+            this.checkpointScheduled.set(false);
+            try {
+                this.checkpoint();
+            } catch (RuntimeException ignored) {
+                // Ignora l'eccezione: il log resta valido e il checkpoint verrà ritentato.
+            }
+        }, "Database-checkpoint");
+        checkpointer.setDaemon(true);
+        checkpointer.start();
+    }
+    
+    /**
+     * @brief Accoda una modifica da notificare ai listener, costruendola solo se ce n'è almeno uno.
+     *
+     * Va chiamato mentre la modifica viene applicata, così che l'ordine della coda sia quello delle modifiche.
+     *
+     * @param change Costruttore della modifica, che può calcolare la posizione del record nel motore.
+     */
+    private void publish(Supplier<DatabaseChange<T>> change) {
+        if (!this.listeners.isEmpty()) this.pendingChanges.add(change.get());
+    }
+    
+    /**
+     * @brief Notifica ai listener le modifiche accodate; va chiamato dopo aver rilasciato il lock in scrittura.
+     *
+     * Le notifiche sono serializzate, quindi ogni listener riceve le modifiche nell'ordine della coda
+     * anche se più thread le stanno consegnando.
+     */
+    private void dispatchChanges() {
+        if (this.pendingChanges.isEmpty()) return;
+        synchronized (this.dispatchLock) {
+            DatabaseChange<T> change;
+            while ((change = this.pendingChanges.poll()) != null) {
+                for (DatabaseListener<T> listener : this.listeners) {
+                    try {
+                        listener.onChange(change);
+                    } catch (RuntimeException ignored) {
+                        // Ignora l'eccezione per evitare il crash.
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * @brief Registra una modifica aggiornando versione e impronta del contenuto.
+     *
+     * @param removedHash Impronta del contenuto rimosso (0 se nessuno).
+     * @param addedHash Impronta del contenuto aggiunto (0 se nessuno).
+     */
+    private void recordChange(long removedHash, long addedHash) {
+        this.version.incrementAndGet();
+        this.digest.addAndGet(addedHash - removedHash);
+    }
+    
+    /**
+     * @brief Acquisisce il lock in lettura, registrando l'eventuale attesa.
+     *
+     * @return Il timbro da passare allo sblocco.
+     */
+    private long readLock() {
+        long stamp = this.lock.tryReadLock();
+        if (stamp != 0) {
+            this.lockStats.recordRead(0);
+            return stamp;
+        }
+        long start = System.nanoTime();
+        stamp = this.lock.readLock();
+        this.lockStats.recordRead(System.nanoTime() - start);
+        return stamp;
+    }
+    
+    /**
+     * @brief Acquisisce il lock in scrittura, registrando l'eventuale attesa.
+     *
+     * @return Il timbro da passare allo sblocco.
+     */
+    private long writeLock() {
+        long stamp = this.lock.tryWriteLock();
+        if (stamp != 0) {
+            this.lockStats.recordWrite(0);
+            return stamp;
+        }
+        long start = System.nanoTime();
+        stamp = this.lock.writeLock();
+        this.lockStats.recordWrite(System.nanoTime() - start);
+        return stamp;
+    }
+    
+    /**
+     * @brief Esegue una lettura, prima in modo ottimistico senza lock e, se fallisce, con il lock in lettura.
+     *
+     * La lettura ottimistica è tentata solo se il motore la consente, e il suo risultato è usato solo
+     * se nessuna scrittura è avvenuta nel frattempo. Con un motore concorrente le modifiche non
+     * acquisiscono il lock, quindi la lettura viene eseguita direttamente.
+     *
+     * @param reader La lettura da eseguire.
+     * @return Il risultato della lettura.
+     */
+    private <R> R read(Supplier<R> reader) {
+        if (this.engine instanceof ConcurrentStorageEngine<T>) return reader.get();
+        if (this.engine.supportsOptimisticReads()) {
+            long stamp = this.lock.tryOptimisticRead();
+            if (stamp != 0) {
+                R result = reader.get();
+                boolean valid = this.lock.validate(stamp);
+                this.lockStats.recordOptimisticRead(valid);
+                if (valid) return result;
+            }
+        }
+        long stamp = this.readLock();
+        try {
+            return reader.get();
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * @brief Crea una copia indipendente di un record, da modificare al posto dell'originale.
+     *
+     * Usa la codifica dei record se disponibile, altrimenti la serializzazione Java.
+     *
+     * @param record Il record da copiare.
+     * @return La copia, o il record stesso se non è possibile copiarlo.
+     */
+    @SuppressWarnings("unchecked")
+    private T copyOf(T record) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            if (this.codec != null) {
+                DataOutputStream out = new DataOutputStream(bytes);
+                this.codec.encode(record, out);
+                out.flush();
+                return this.codec.decode(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            }
+            if (!(record instanceof Serializable)) return record;
+            try (ObjectOutputStream oOut = new ObjectOutputStream(bytes)) {
+                oOut.writeObject(record);
+            }
+            try (ObjectInputStream oIn = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+                return (T) oIn.readObject();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
+    /**
+     * @brief Calcola l'impronta di un record.
+     *
+     * @param record Il record di cui calcolare l'impronta.
+     * @return L'impronta del contenuto del record, o del solo ID se il record non ne fornisce una.
+     */
+    private long hashOf(T record) {
+        if (record instanceof HasContentHash hashable) return hashable.getContentHash();
+        return ContentHash.finish(ContentHash.mix(ContentHash.start(), record.getUniqueId()));
+    }
+    
+    /**
+     * @brief Verifica, senza leggerlo, se un file contiene lo stato corrente del database.
+     *
+     * @param path Percorso del file.
+     * @param version Versione del database da verificare.
+     * @return true se il file è stato scritto o letto in quella versione e non è stato modificato dall'esterno.
+     */
+    private boolean isPersisted(Path path, long version) {
+        PersistedState state = this.persistedStates.get(path.toAbsolutePath().normalize());
+        return state != null && state.version() == version && state.equals(this.persistedState(path, state.version(), state.digest()));
+    }
+    
+    /**
+     * @brief Ricorda che il contenuto di uno snapshot coincide con quello del file specificato.
+     *
+     * @param path Percorso del file appena scritto, letto o confrontato.
+     * @param snapshot Lo snapshot che corrisponde al contenuto del file.
+     */
+    private void markPersisted(Path path, Snapshot<T> snapshot) {
+        PersistedState state = this.persistedState(path, snapshot.version(), snapshot.digest());
+        if (state != null) this.persistedStates.put(path.toAbsolutePath().normalize(), state);
+    }
+    
+    /**
+     * @brief Costruisce lo stato persistito leggendo dimensione e data di modifica del file.
+     *
+     * @param path Percorso del file.
+     * @param version Versione del database da associare al file.
+     * @param digest Impronta del contenuto da associare al file.
+     * @return Lo stato persistito, null se il file non è accessibile.
+     */
+    private PersistedState persistedState(Path path, long version, long digest) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new PersistedState(version, digest, attributes.size(), attributes.lastModifiedTime().toMillis());
+        } catch (IOException ignored) {
+            // Il file non esiste o non è leggibile: nessuno stato da ricordare.
+        }
+        return null;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    
+    /**
+     * @brief Transazione che raccoglie più modifiche e le applica al database tutte insieme.
+     *
+     * Le operazioni vengono eseguite subito su copie private dei record, quindi gli errori di
+     * validazione emergono prima che il database venga toccato e le letture della transazione
+     * vedono le sue modifiche. Il commit verifica, tenendo il lock in scrittura, che nessun record
+     * coinvolto sia stato modificato da altri dopo essere stato letto dalla transazione, e solo allora
+     * applica tutte le modifiche; se l'applicazione fallisce a metà le modifiche già applicate vengono
+     * annullate. Il rollback si limita a scartare le copie private.
+     *
+     * Con un {@link ConcurrentStorageEngine} le modifiche fuori transazione non acquisiscono il lock del
+     * database: il commit tiene allora anche i lock delle strisce degli ID coinvolti, così che nessuna
+     * modifica a quei record si inserisca tra la verifica e l'applicazione.
+     *
+     * La transazione non è thread-safe: va usata da un solo thread.
+     */
+    public final class Transaction {
+        
+        /** @brief Record letti dalla transazione al primo utilizzo di ciascun ID, null se assenti. */
+        private final Map<String, T> base = new HashMap<>();
+        
+        /** @brief Nuovo stato dei record modificati, in ordine di primo utilizzo; null per quelli rimossi. */
+        private final Map<String, T> staged = new LinkedHashMap<>();
+        
+        /** @brief Indica se la transazione non è ancora stata confermata o annullata. */
+        private boolean open = true;
+        
+        /**
+         * @brief Costruttore privato: le transazioni si ottengono da {@link Database#beginTransaction()}.
+         */
+        private Transaction() {}
+        
+        /**
+         * @brief Aggiungi un record nella transazione.
+         *
+         * @param record Il record da aggiungere.
+         * @return L'ID univoco del record aggiunto, null se era già presente.
+         */
+        public String add(T record) {
+            String uniqueId = record.getUniqueId();
+            if (this.get(uniqueId) != null) return null;
+            this.touch(uniqueId);
+            this.staged.put(uniqueId, record);
+            return uniqueId;
+        }
+        
+        /**
+         * @brief Rimuovi un record nella transazione.
+         *
+         * @param uniqueId L'ID univoco del record da rimuovere.
+         * @return true se il record è stato rimosso, false se non esiste.
+         */
+        public boolean del(String uniqueId) {
+            if (this.get(uniqueId) == null) return false;
+            this.touch(uniqueId);
+            this.staged.put(uniqueId, null);
+            return true;
+        }
+        
+        /**
+         * @brief Modifica un record nella transazione.
+         *
+         * La funzione riceve una copia privata del record, che diventa visibile agli altri
+         * solo con il commit.
+         *
+         * @param uniqueId L'ID univoco del record da modificare.
+         * @param modifier Funzione che applica la modifica al record e restituisce un risultato.
+         * @return Il risultato della funzione, null se il record non esiste.
+         */
+        public <R> R mod(String uniqueId, Function<? super T, R> modifier) {
+            this.ensureOpen();
+            T record = this.staged.get(uniqueId);
+            if (record == null) {
+                if (this.staged.containsKey(uniqueId)) return null;
+                record = Database.this.get(uniqueId);
+                if (record == null) return null;
+                this.touch(uniqueId);
+                if (!Database.this.engine.isPersistent()) record = Database.this.copyOf(record);
+            }
+            R result = modifier.apply(record);
+            this.staged.put(uniqueId, record);
+            return result;
+        }
+        
+        /**
+         * @brief Ottieni un record come appare nella transazione.
+         *
+         * @param uniqueId L'ID univoco del record.
+         * @return Il record, con le modifiche della transazione, null se non esiste.
+         */
+        public T get(String uniqueId) {
+            this.ensureOpen();
+            if (this.staged.containsKey(uniqueId)) return this.staged.get(uniqueId);
+            return Database.this.get(uniqueId);
+        }
+        
+        /**
+         * @brief Indica se la transazione contiene modifiche.
+         *
+         * @return true se almeno un record è stato aggiunto, modificato o rimosso.
+         */
+        public boolean hasChanges() {
+            return !this.staged.isEmpty();
+        }
+        
+        /**
+         * @brief Indica se la transazione è ancora aperta.
+         *
+         * @return true se non è ancora stata confermata o annullata.
+         */
+        public boolean isOpen() {
+            return this.open;
+        }
+        
+        /**
+         * @brief Applica al database tutte le modifiche della transazione e la chiude.
+         *
+         * @throws ConcurrentModificationException Se un record coinvolto è stato modificato da altri;
+         *         in quel caso il database resta invariato.
+         */
+        public void commit() {
+            this.ensureOpen();
+            this.open = false;
+            if (this.staged.isEmpty()) return;
+            
+            List<ReentrantLock> stripes = (Database.this.engine instanceof ConcurrentStorageEngine<T>)
+                ? Database.this.lockStripes(this.staged.keySet()) : List.of();
+            long stamp = Database.this.writeLock();
+            try {
+                for (String uniqueId : this.staged.keySet())
+                    if (!Database.this.sameRecord(this.base.get(uniqueId), Database.this.engine.get(uniqueId)))
+                        throw new ConcurrentModificationException("Record modificato durante la transazione: " + uniqueId);
+                Database.this.applyAll(this.staged, this.base);
+            } finally {
+                Database.this.lock.unlockWrite(stamp);
+                Database.this.unlockStripes(stripes);
+                Database.this.dispatchChanges();
+            }
+        }
+        
+        /**
+         * @brief Scarta tutte le modifiche della transazione e la chiude; non ha effetto se è già chiusa.
+         */
+        public void rollback() {
+            this.open = false;
+            this.staged.clear();
+            this.base.clear();
+        }
+        
+        /**
+         * @brief Ricorda il record presente nel database al primo utilizzo di un ID.
+         *
+         * @param uniqueId L'ID univoco del record.
+         */
+        private void touch(String uniqueId) {
+            if (!this.base.containsKey(uniqueId)) this.base.put(uniqueId, Database.this.get(uniqueId));
+        }
+        
+        /**
+         * @brief Verifica che la transazione sia ancora aperta.
+         *
+         * @throws IllegalStateException Se la transazione è già stata confermata o annullata.
+         */
+        private void ensureOpen() {
+            if (!this.open) throw new IllegalStateException("Transazione già chiusa");
+        }
     }
     
 }
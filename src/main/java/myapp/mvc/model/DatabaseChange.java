@@ -0,0 +1,52 @@
+package myapp.mvc.model;
+
+import myapp.mvc.model.exam.HasUniqueId;
+
+import java.util.List;
+
+/**
+ * @brief Modifica applicata al contenuto di un {@link Database}, notificata ai suoi {@link DatabaseListener}.
+ *
+ * Le posizioni si riferiscono all'ordine di inserimento dei record, lo stesso di {@link Database#getAll()}.
+ * Se il motore di archiviazione non sa calcolarle in modo economico la posizione vale {@link #UNKNOWN_INDEX}
+ * e chi riceve la modifica deve cercare il record per ID.
+ *
+ * @param <T> Tipo dei record.
+ */
+public sealed interface DatabaseChange<T extends HasUniqueId> {
+
+    /** @brief Posizione non disponibile. */
+    int UNKNOWN_INDEX = -1;
+
+    /**
+     * @brief Un record è stato aggiunto in fondo all'elenco.
+     *
+     * @param index Posizione del nuovo record.
+     * @param record Il record aggiunto.
+     */
+    record Added<T extends HasUniqueId>(int index, T record) implements DatabaseChange<T> {}
+
+    /**
+     * @brief Un record è stato rimosso.
+     *
+     * @param index Posizione del record prima della rimozione.
+     * @param record Il record rimosso.
+     */
+    record Removed<T extends HasUniqueId>(int index, T record) implements DatabaseChange<T> {}
+
+    /**
+     * @brief Un record è stato sostituito dalla sua versione modificata, nella stessa posizione.
+     *
+     * @param index Posizione del record.
+     * @param previous Il record prima della modifica.
+     * @param record Il record modificato.
+     */
+    record Updated<T extends HasUniqueId>(int index, T previous, T record) implements DatabaseChange<T> {}
+
+    /**
+     * @brief L'intero contenuto è stato sostituito, ad esempio dal caricamento di un file.
+     *
+     * @param records I nuovi record, in ordine di inserimento.
+     */
+    record Reloaded<T extends HasUniqueId>(List<T> records) implements DatabaseChange<T> {}
+}
@@ -0,0 +1,23 @@
+package myapp.mvc.model;
+
+import myapp.mvc.model.exam.HasUniqueId;
+
+/**
+ * @brief Interfaccia per ricevere le modifiche al contenuto di un {@link Database}.
+ *
+ * Le modifiche vengono notificate nell'ordine in cui sono state applicate, senza tenere il lock
+ * del database, su uno dei thread che lo stanno modificando. Il listener può quindi leggere il database,
+ * ma dovrebbe restituire rapidamente il controllo, ad esempio spostando il lavoro su un altro thread.
+ *
+ * @param <T> Tipo dei record.
+ */
+@FunctionalInterface
+public interface DatabaseListener<T extends HasUniqueId> {
+
+    /**
+     * @brief Riceve una modifica applicata al database.
+     *
+     * @param change La modifica.
+     */
+    void onChange(DatabaseChange<T> change);
+}
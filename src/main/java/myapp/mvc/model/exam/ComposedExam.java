@@ -1,7 +1,13 @@
 package myapp.mvc.model.exam;
 
+import myapp.util.ContentHash;
+import myapp.util.IndexedUniqueList;
 import myapp.util.UniqueList;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.List;
 
@@ -12,7 +18,19 @@ import java.util.List;
  * `HasFinalGrade` e `HasUniqueId`. Rappresenta un esame composto che aggrega esami parziali
  * con pesi specifici per calcolare il voto finale.
  */
-public class ComposedExam extends Exam implements HasFinalGrade, HasUniqueId, Serializable {
+public class ComposedExam extends Exam implements HasFinalGrade, HasUniqueId, HasContentHash, Serializable {
+    
+    private static final long serialVersionUID = -8243206036330407895L;
+    
+    /**
+     * @brief Forma serializzata dell'esame composto.
+     *
+     * Gli esami parziali vengono scritti come {@link UniqueList}, così che i file
+     * salvati prima dell'introduzione dell'indice restino leggibili e viceversa.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("partials", UniqueList.class)
+    };
     
     /** @brief Peso predefinito degli esami parziali */
     protected static final int DEFAULT_WEIGHT = 50;
@@ -20,8 +38,19 @@ public class ComposedExam extends Exam implements HasFinalGrade, HasUniqueId, Se
     /** @brief Limiti per il peso degli esami parziali */
     public static final int[] WEIGHT_BOUNDARIES = {1, 100};
     
-    /** @brief Lista degli esami parziali, garantita unica per ID */
-    private final UniqueList<PartialExam> partials = new UniqueList<>();
+    /** @brief Valore di {@link #finalGrade} quando la media va ricalcolata */
+    private static final int STALE_GRADE = -1;
+    
+    /** @brief Lista degli esami parziali, garantita unica per ID e indicizzata */
+    private transient IndexedUniqueList<PartialExam> partials = new IndexedUniqueList<>();
+    
+    /**
+     * @brief Media ponderata dei parziali, calcolata alla prima richiesta.
+     *
+     * Viene invalidata da ogni metodo che aggiunge, rimuove o modifica un parziale: i parziali
+     * vanno quindi modificati solo tramite questa classe.
+     */
+    private transient int finalGrade = STALE_GRADE;
     
     /**
      * @brief Costruttore di default.
@@ -46,22 +75,40 @@ public class ComposedExam extends Exam implements HasFinalGrade, HasUniqueId, Se
         super(username, surname, teaching, credits);
     }
     
+    /**
+     * @brief Costruttore con ID già assegnato.
+     *
+     * Usato dalla codifica binaria per ricostruire un esame letto da file.
+     *
+     * @param uniqueId ID univoco dell'esame.
+     * @param username Nome dello studente.
+     * @param surname Cognome dello studente.
+     * @param teaching Materia dell'esame.
+     * @param credits Crediti dell'esame.
+     */
+    ComposedExam(String uniqueId, String username, String surname, String teaching, int credits) {
+        super(uniqueId, username, surname, teaching, credits);
+    }
+    
     /**
      * @brief Restituisce il voto finale dell'esame composto.
      *
      * Calcola la media ponderata dei voti degli esami parziali, utilizzando i pesi associati.
+     * La media viene ricalcolata solo dopo una modifica dei parziali.
      *
      * @return int La media ponderata dei voti parziali.
      */
     @Override
     public int getFinalGrade() {
+        if (this.finalGrade != STALE_GRADE) return this.finalGrade;
         int numerator = 0;
         int denominator = 0;
         for (PartialExam pe : this.partials) {
             numerator += pe.getGrade() * pe.getWeight();
             denominator += pe.getWeight();
         }
-        return (denominator == 0) ? DEFAULT_GRADE : numerator / denominator;
+        this.finalGrade = (denominator == 0) ? DEFAULT_GRADE : numerator / denominator;
+        return this.finalGrade;
     }
     
     /**
@@ -74,9 +121,20 @@ public class ComposedExam extends Exam implements HasFinalGrade, HasUniqueId, Se
      */
     public String addPartialExam(PartialExam exam) {
         if (this.checkIfWeightExceed(exam.getWeight())) return null;
+        this.finalGrade = STALE_GRADE;
         return this.partials.addUnique(exam);
     }
     
+    /**
+     * @brief Ripristina un esame parziale letto da file, senza controllare il limite dei pesi.
+     *
+     * @param exam Istanza di `PartialExam` da ripristinare.
+     */
+    void restorePartialExam(PartialExam exam) {
+        this.finalGrade = STALE_GRADE;
+        this.partials.addUnique(exam);
+    }
+    
     /**
      * @brief Aggiunge un nuovo esame parziale specificando voto e peso.
      *
@@ -105,6 +163,7 @@ public class ComposedExam extends Exam implements HasFinalGrade, HasUniqueId, Se
      * @return boolean `true` se l'esame è stato rimosso, `false` altrimenti.
      */
     public boolean delPartialExam(PartialExam exam) {
+        this.finalGrade = STALE_GRADE;
         return this.partials.remove(exam);
     }
     
@@ -117,7 +176,8 @@ public class ComposedExam extends Exam implements HasFinalGrade, HasUniqueId, Se
      * @return boolean `true` se l'esame è stato rimosso, `false` altrimenti.
      */
     public boolean delPartialExam(String uniqueId) {
-        return this.delPartialExam(this.getPartialExam(uniqueId));
+        this.finalGrade = STALE_GRADE;
+        return this.partials.delUnique(uniqueId);
     }
     
     /**
@@ -133,6 +193,7 @@ public class ComposedExam extends Exam implements HasFinalGrade, HasUniqueId, Se
     public void modPartialExam(String uniqueId, int grade, int weight) {
         PartialExam partialExam = this.getPartialExam(uniqueId);
         if (partialExam != null && !this.checkIfWeightExceed(weight - partialExam.getWeight())) {
+            this.finalGrade = STALE_GRADE;
             partialExam.setGradeWeight(grade, weight);
         }
     }
@@ -149,6 +210,7 @@ public class ComposedExam extends Exam implements HasFinalGrade, HasUniqueId, Se
      */
     public void modPartialExam(PartialExam exam, int grade, int weight) {
         if (!this.checkIfWeightExceed(weight - exam.getWeight())) {
+            this.finalGrade = STALE_GRADE;
             exam.setGradeWeight(grade, weight);
         }
     }
@@ -198,4 +260,56 @@ public class ComposedExam extends Exam implements HasFinalGrade, HasUniqueId, Se
     public boolean checkIfWeightExceed(int new_weight) {
         return (this.getSumOfCurrentWeights() + new_weight > WEIGHT_BOUNDARIES[1]);
     }
+    
+    // -----------------------------------------------------------------------------------------------------------------
+    // Content Hash
+    
+    /**
+     * @brief Restituisce l'impronta del contenuto dell'esame composto.
+     *
+     * @return long Impronta calcolata sui campi comuni e sugli esami parziali, nell'ordine.
+     */
+    @Override
+    public long getContentHash() {
+        long hash = this.mixCommonFields(ContentHash.mix(ContentHash.start(), ComposedExam.class.getName()));
+        hash = ContentHash.mix(hash, this.partials.size());
+        for (PartialExam pe : this.partials)
+            hash = ContentHash.mix(hash, pe.getContentHash());
+        return ContentHash.finish(hash);
+    }
+    
+    // -----------------------------------------------------------------------------------------------------------------
+    // Serializzazione
+    
+    /**
+     * @brief Scrive gli esami parziali nella forma serializzata storica.
+     *
+     * @param out Stream di output.
+     * @throws IOException Se la scrittura fallisce.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        UniqueList<PartialExam> legacy = new UniqueList<>();
+        legacy.addAll(this.partials);
+        
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("partials", legacy);
+        out.writeFields();
+    }
+    
+    /**
+     * @brief Legge gli esami parziali e ricostruisce l'indice per ID.
+     *
+     * @param in Stream di input.
+     * @throws IOException Se la lettura fallisce.
+     * @throws ClassNotFoundException Se la classe degli esami parziali non è disponibile.
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        List<PartialExam> legacy = (List<PartialExam>) fields.get("partials", null);
+        
+        this.partials = new IndexedUniqueList<>();
+        this.finalGrade = STALE_GRADE;
+        if (legacy != null) legacy.forEach(this.partials::addUnique);
+    }
 }
@@ -1,5 +1,7 @@
 package myapp.mvc.model.exam;
 
+import myapp.util.ContentHash;
+
 import java.io.Serializable;
 import java.util.UUID;
 
@@ -10,7 +12,9 @@ import java.util.UUID;
  * materia, crediti, e un identificativo univoco. Fornisce metodi per accedere e modificare
  * queste proprietà e impone la presenza di un metodo astratto per ottenere il voto finale.
  */
-public abstract class Exam implements HasFinalGrade, HasUniqueId, Serializable {
+public abstract class Exam implements HasFinalGrade, HasUniqueId, HasContentHash, Serializable {
+    
+    private static final long serialVersionUID = -7500742973953968805L;
     
     /** @brief Username predefinito per lo studente. */
     protected static final String DEFAULT_USER = "Unnamed";
@@ -45,6 +49,9 @@ public abstract class Exam implements HasFinalGrade, HasUniqueId, Serializable {
     /** @brief Identificativo univoco dell'esame. */
     private String uniqueId;
     
+    /** @brief Chiavi di ricerca normalizzate, ricalcolate quando cambiano username, cognome o materia. */
+    private transient volatile SearchKeys searchKeys;
+    
     // -----------------------------------------------------------------------------------------------------------------
     
     /**
@@ -74,6 +81,25 @@ public abstract class Exam implements HasFinalGrade, HasUniqueId, Serializable {
         this.setCredits(credits);
     }
     
+    /**
+     * @brief Costruttore con ID già assegnato.
+     *
+     * Usato per ricostruire un esame letto da file mantenendone l'identificativo.
+     *
+     * @param uniqueId ID univoco dell'esame.
+     * @param username Username dello studente.
+     * @param surname Cognome dello studente.
+     * @param teaching Materia dell'esame.
+     * @param credits Numero di crediti dell'esame.
+     */
+    protected Exam(String uniqueId, String username, String surname, String teaching, int credits) {
+        this.uniqueId = uniqueId;
+        this.setUsername(username);
+        this.setSurname(surname);
+        this.setTeaching(teaching);
+        this.setCredits(credits);
+    }
+    
     // -----------------------------------------------------------------------------------------------------------------
     // Unique ID
     
@@ -106,8 +132,9 @@ public abstract class Exam implements HasFinalGrade, HasUniqueId, Serializable {
      *
      * @param username Username dello studente.
      */
-    public void setUsername(String username) {
+    public final void setUsername(String username) {
         this.username = (username != null) ? username : Exam.DEFAULT_USER;
+        this.searchKeys = null;
     }
     
     /**
@@ -129,8 +156,9 @@ public abstract class Exam implements HasFinalGrade, HasUniqueId, Serializable {
      *
      * @param surname Cognome dello studente.
      */
-    public void setSurname(String surname) {
+    public final void setSurname(String surname) {
         this.surname = (surname != null) ? surname : Exam.DEFAULT_USER;
+        this.searchKeys = null;
     }
     
     /**
@@ -152,8 +180,9 @@ public abstract class Exam implements HasFinalGrade, HasUniqueId, Serializable {
      *
      * @param teaching Materia dell'esame.
      */
-    public void setTeaching(String teaching) {
+    public final void setTeaching(String teaching) {
         this.teaching = (teaching != null) ? teaching : Exam.DEFAULT_TEACHING;
+        this.searchKeys = null;
     }
     
     /**
@@ -165,6 +194,26 @@ public abstract class Exam implements HasFinalGrade, HasUniqueId, Serializable {
         return this.teaching;
     }
     
+    // -----------------------------------------------------------------------------------------------------------------
+    // Search Keys (Chiavi di ricerca)
+    
+    /**
+     * @brief Ritorna le chiavi di ricerca normalizzate dell'esame.
+     *
+     * Vengono calcolate alla prima richiesta dopo la creazione o la modifica di username, cognome
+     * o materia, e riutilizzate fino alla modifica successiva.
+     *
+     * @return SearchKeys Le chiavi di ricerca.
+     */
+    public SearchKeys getSearchKeys() {
+        SearchKeys keys = this.searchKeys;
+        if (keys == null) {
+            keys = new SearchKeys(this.username, this.surname, this.teaching);
+            this.searchKeys = keys;
+        }
+        return keys;
+    }
+    
     // -----------------------------------------------------------------------------------------------------------------
     // Credits (Crediti)
     
@@ -176,7 +225,7 @@ public abstract class Exam implements HasFinalGrade, HasUniqueId, Serializable {
      *
      * @param credits Numero di crediti dell'esame.
      */
-    public void setCredits(int credits) {
+    public final void setCredits(int credits) {
         this.credits = (credits >= Exam.CREDITS_BOUNDARIES[0] && credits <= Exam.CREDITS_BOUNDARIES[1]) ? credits : Exam.DEFAULT_CREDITS;
     }
     
@@ -199,4 +248,21 @@ public abstract class Exam implements HasFinalGrade, HasUniqueId, Serializable {
      */
     @Override
     public abstract int getFinalGrade();
+    
+    // -----------------------------------------------------------------------------------------------------------------
+    // Content Hash
+    
+    /**
+     * @brief Combina nell'impronta i campi comuni a tutti gli esami.
+     *
+     * @param hash Impronta corrente.
+     * @return long L'impronta aggiornata con ID, studente, materia e crediti.
+     */
+    protected long mixCommonFields(long hash) {
+        hash = ContentHash.mix(hash, this.uniqueId);
+        hash = ContentHash.mix(hash, this.username);
+        hash = ContentHash.mix(hash, this.surname);
+        hash = ContentHash.mix(hash, this.teaching);
+        return ContentHash.mix(hash, this.credits);
+    }
 }
@@ -0,0 +1,109 @@
+package myapp.mvc.model.exam;
+
+import myapp.mvc.model.storage.BinaryFormat;
+import myapp.mvc.model.storage.RecordCodec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.List;
+
+/**
+ * @brief Codifica binaria compatta degli esami.
+ *
+ * Ogni esame è scritto come: tipo (semplice o composto), ID, username, cognome, materia e crediti,
+ * seguiti dal voto e dalla lode per gli esami semplici o dall'elenco degli esami parziali
+ * (ID, voto e peso) per quelli composti.
+ */
+public class ExamCodec implements RecordCodec<Exam> {
+
+    /** @brief Marcatore di un esame semplice. */
+    private static final byte SIMPLE_EXAM = 1;
+
+    /** @brief Marcatore di un esame composto. */
+    private static final byte COMPOSED_EXAM = 2;
+
+    /**
+     * @brief Scrive un esame sullo stream.
+     *
+     * @param exam L'esame da scrivere.
+     * @param out Stream binario di destinazione.
+     * @throws IOException Se la scrittura fallisce o il tipo di esame non è supportato.
+     */
+    @Override
+    public void encode(Exam exam, DataOutput out) throws IOException {
+        if (exam instanceof SimpleExam sExam) {
+            out.writeByte(SIMPLE_EXAM);
+            this.encodeCommonFields(exam, out);
+            BinaryFormat.writeVarInt(out, sExam.getFinalGrade());
+            out.writeBoolean(sExam.getHonors());
+        } else if (exam instanceof ComposedExam cExam) {
+            out.writeByte(COMPOSED_EXAM);
+            this.encodeCommonFields(exam, out);
+            List<PartialExam> partials = cExam.getPartialExams();
+            BinaryFormat.writeVarInt(out, partials.size());
+            for (PartialExam pExam : partials) {
+                BinaryFormat.writeId(out, pExam.getUniqueId());
+                BinaryFormat.writeVarInt(out, pExam.getGrade());
+                BinaryFormat.writeVarInt(out, pExam.getWeight());
+            }
+        } else {
+            throw new IOException("Tipo di esame non supportato: " + exam.getClass().getName());
+        }
+    }
+
+    /**
+     * @brief Legge un esame dallo stream.
+     *
+     * @param in Stream binario di origine.
+     * @return L'esame letto.
+     * @throws IOException Se la lettura fallisce o il tipo di esame è sconosciuto.
+     */
+    @Override
+    public Exam decode(DataInput in) throws IOException {
+        byte type = in.readByte();
+        String uniqueId = BinaryFormat.readId(in);
+        String username = BinaryFormat.readString(in);
+        String surname = BinaryFormat.readString(in);
+        String teaching = BinaryFormat.readString(in);
+        int credits = BinaryFormat.readVarInt(in);
+
+        switch (type) {
+            case SIMPLE_EXAM -> {
+                int grade = BinaryFormat.readVarInt(in);
+                boolean honors = in.readBoolean();
+                return new SimpleExam(uniqueId, username, surname, teaching, credits, grade, honors);
+            }
+            case COMPOSED_EXAM -> {
+                ComposedExam cExam = new ComposedExam(uniqueId, username, surname, teaching, credits);
+                int count = BinaryFormat.readVarInt(in);
+                for (int i = 0; i < count; i++) {
+                    String partialId = BinaryFormat.readId(in);
+                    int grade = BinaryFormat.readVarInt(in);
+                    int weight = BinaryFormat.readVarInt(in);
+                    cExam.restorePartialExam(new PartialExam(partialId, grade, weight));
+                }
+                return cExam;
+            }
+            default -> throw new StreamCorruptedException("Tipo di esame sconosciuto: " + type);
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Scrive i campi comuni a tutti gli esami.
+     *
+     * @param exam L'esame da scrivere.
+     * @param out Stream binario di destinazione.
+     * @throws IOException Se la scrittura fallisce.
+     */
+    private void encodeCommonFields(Exam exam, DataOutput out) throws IOException {
+        BinaryFormat.writeId(out, exam.getUniqueId());
+        BinaryFormat.writeString(out, exam.getUsername());
+        BinaryFormat.writeString(out, exam.getSurname());
+        BinaryFormat.writeString(out, exam.getTeaching());
+        BinaryFormat.writeVarInt(out, exam.getCredits());
+    }
+}
@@ -0,0 +1,72 @@
+package myapp.mvc.model.exam;
+
+import myapp.mvc.model.storage.IndexKey;
+import myapp.mvc.model.storage.SecondaryIndex;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * @brief Indici secondari sugli esami, usati dai motori di archiviazione ordinati.
+ *
+ * Le chiavi sono costruite con {@link IndexKey}, così che un intervallo di valori
+ * (ad esempio i voti tra 24 e 30) corrisponda a un intervallo contiguo di chiavi. I testi sono
+ * indicizzati senza accenti e in minuscolo, come le condizioni di uguaglianza delle ricerche.
+ */
+public final class ExamIndexes {
+
+    /** @brief Indice sul voto finale. */
+    public static final SecondaryIndex<Exam> FINAL_GRADE = index("finalGrade", exam -> new IndexKey().addInt(exam.getFinalGrade()).toBytes());
+
+    /** @brief Indice sui crediti. */
+    public static final SecondaryIndex<Exam> CREDITS = index("credits", exam -> new IndexKey().addInt(exam.getCredits()).toBytes());
+
+    /** @brief Indice sul cognome e, a parità, sul nome dello studente, normalizzati come in {@link SearchKeys#normalize(String)}. */
+    public static final SecondaryIndex<Exam> SURNAME = index("normalizedSurname", exam -> new IndexKey()
+        .addString(exam.getSearchKeys().getNormalizedSurname()).addString(exam.getSearchKeys().getNormalizedUsername()).toBytes());
+
+    /** @brief Indice composto sulla materia normalizzata e, a parità, sul voto finale. */
+    public static final SecondaryIndex<Exam> TEACHING_GRADE = index("normalizedTeachingGrade", exam -> new IndexKey()
+        .addString(exam.getSearchKeys().getNormalizedTeaching()).addInt(exam.getFinalGrade()).toBytes());
+
+    /** @brief Tutti gli indici, da passare al motore di archiviazione. */
+    public static final List<SecondaryIndex<Exam>> ALL = List.of(FINAL_GRADE, CREDITS, SURNAME, TEACHING_GRADE);
+
+    /**
+     * @brief Costruttore privato: la classe espone solo costanti.
+     */
+    private ExamIndexes() {}
+
+    /**
+     * @brief Crea un indice a partire dal nome e dalla funzione che calcola la chiave.
+     *
+     * @param name Nome dell'indice.
+     * @param key Funzione che calcola la chiave di un esame.
+     * @return L'indice.
+     */
+    private static SecondaryIndex<Exam> index(String name, Function<Exam, byte[]> key) {
+        return new SecondaryIndex<>() {
+
+            /**
+             * @brief Restituisce il nome dell'indice.
+             *
+             * @return Il nome.
+             */
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            /**
+             * @brief Calcola la chiave di un esame.
+             *
+             * @param record L'esame.
+             * @return La chiave.
+             */
+            @Override
+            public byte[] getKey(Exam record) {
+                return key.apply(record);
+            }
+        };
+    }
+}
@@ -0,0 +1,151 @@
+package myapp.mvc.model.exam;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+
+/**
+ * @brief Criterio di ricerca degli esami, compilato una volta per testo di ricerca.
+ *
+ * Il testo viene normalizzato e, per la ricerca per studente, suddiviso in token al momento della
+ * compilazione. Il confronto con un esame usa le sue {@link SearchKeys} e non alloca memoria.
+ */
+public final class ExamMatcher {
+
+    /**
+     * @brief Campi in cui cercare il testo.
+     */
+    public enum Scope {
+        /** @brief Username, cognome o materia. */
+        ANY,
+        /** @brief Ogni token in username o cognome. */
+        STUDENT,
+        /** @brief Solo la materia. */
+        TEACHING
+    }
+
+    /** @brief Campi in cui cercare il testo. */
+    private final Scope scope;
+
+    /** @brief Indica se il confronto distingue maiuscole e minuscole. */
+    private final boolean caseSensitive;
+
+    /** @brief Testo cercato, senza accenti e, se il confronto non distingue le maiuscole, in minuscolo. */
+    private final String query;
+
+    /** @brief Token del testo cercato, per la ricerca per studente. */
+    private final String[] tokens;
+
+    /**
+     * @brief Costruttore privato: i criteri si ottengono con {@link #compile(String, Scope, boolean)}.
+     *
+     * @param query Testo cercato, già normalizzato.
+     * @param scope Campi in cui cercare il testo.
+     * @param caseSensitive true se il confronto distingue maiuscole e minuscole.
+     */
+    private ExamMatcher(String query, Scope scope, boolean caseSensitive) {
+        this.query = query;
+        this.scope = scope;
+        this.caseSensitive = caseSensitive;
+
+        List<String> tokens = new ArrayList<>();
+        StringTokenizer tokenizer = new StringTokenizer(query, " ");
+        while (tokenizer.hasMoreTokens())
+            tokens.add(tokenizer.nextToken());
+        this.tokens = tokens.toArray(new String[0]);
+    }
+
+    /**
+     * @brief Compila un criterio di ricerca.
+     *
+     * @param query Testo cercato.
+     * @param scope Campi in cui cercare il testo.
+     * @param caseSensitive true se il confronto distingue maiuscole e minuscole.
+     * @return Il criterio compilato.
+     */
+    public static ExamMatcher compile(String query, Scope scope, boolean caseSensitive) {
+        String key = (caseSensitive) ? SearchKeys.fold(query) : SearchKeys.normalize(query);
+        return new ExamMatcher(key, scope, caseSensitive);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Verifica se un esame corrisponde al criterio.
+     *
+     * @param exam L'esame.
+     * @return true se corrisponde, false altrimenti.
+     */
+    public boolean matches(Exam exam) {
+        SearchKeys keys = exam.getSearchKeys();
+        String username = (this.caseSensitive) ? keys.getUsername() : keys.getNormalizedUsername();
+        String surname = (this.caseSensitive) ? keys.getSurname() : keys.getNormalizedSurname();
+        String teaching = (this.caseSensitive) ? keys.getTeaching() : keys.getNormalizedTeaching();
+
+        if (this.scope == Scope.STUDENT) {
+            /* Per studiare il calendario degli esami di un singolo studente devo identificarlo in modo univoco.
+               Ciascun token deve corrispondere ad almeno uno dei valori in Nome utente o Cognome. */
+            for (String token : this.tokens)
+                if (!username.contains(token) && !surname.contains(token)) return false;
+            return true;
+        }
+        if (this.scope == Scope.TEACHING) return teaching.contains(this.query);
+        return username.contains(this.query) || surname.contains(this.query) || teaching.contains(this.query);
+    }
+
+    /**
+     * @brief Verifica se ogni esame che corrisponde a questo criterio corrisponde anche a un criterio precedente.
+     *
+     * Vale quando i campi e la sensibilità al caso coincidono e il testo estende il precedente: contiene il
+     * testo precedente oppure, per la ricerca per studente, ogni token precedente è contenuto in un token
+     * nuovo. In tal caso il risultato si ottiene restringendo quello del criterio precedente.
+     *
+     * @param previous Il criterio precedente, eventualmente null.
+     * @return true se il criterio restringe quello precedente, false altrimenti.
+     */
+    public boolean refines(ExamMatcher previous) {
+        if (previous == null || previous.scope != this.scope || previous.caseSensitive != this.caseSensitive) return false;
+        if (this.scope != Scope.STUDENT) return this.query.contains(previous.query);
+
+        for (String previousToken : previous.tokens) {
+            boolean covered = false;
+            for (String token : this.tokens) {
+                if (token.contains(previousToken)) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered) return false;
+        }
+        return true;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Ritorna i campi in cui viene cercato il testo.
+     *
+     * @return Scope I campi.
+     */
+    public Scope getScope() {
+        return this.scope;
+    }
+
+    /**
+     * @brief Ritorna il testo cercato, normalizzato.
+     *
+     * @return String Il testo cercato.
+     */
+    public String getQuery() {
+        return this.query;
+    }
+
+    /**
+     * @brief Ritorna i token del testo cercato.
+     *
+     * @return String[] Copia dei token.
+     */
+    public String[] getTokens() {
+        return this.tokens.clone();
+    }
+}
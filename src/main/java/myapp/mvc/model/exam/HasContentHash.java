@@ -0,0 +1,21 @@
+package myapp.mvc.model.exam;
+
+/**
+ * @brief Interfaccia funzionale per ottenere l'impronta del contenuto di un oggetto.
+ *
+ * Questa interfaccia definisce un metodo per ottenere un'impronta a 64 bit che cambia
+ * ogni volta che cambia uno dei dati salvati su file. È annotata come interfaccia
+ * funzionale, quindi può essere utilizzata come espressione lambda o riferimento a un metodo.
+ */
+@FunctionalInterface
+public interface HasContentHash {
+
+    /**
+     * @brief Metodo per ottenere l'impronta del contenuto.
+     *
+     * Due oggetti con gli stessi dati (ID compreso) devono restituire la stessa impronta.
+     *
+     * @return long Impronta del contenuto dell'oggetto.
+     */
+    long getContentHash();
+}
@@ -1,5 +1,6 @@
 package myapp.mvc.model.exam;
 
+import myapp.util.ContentHash;
 import myapp.util.MutablePair;
 
 import java.io.Serializable;
@@ -11,10 +12,12 @@ import java.util.UUID;
  * La classe `PartialExam` implementa l'interfaccia `HasUniqueId` e rappresenta un esame parziale
  * con un voto e un peso associati. Ogni esame parziale ha un ID univoco generato automaticamente.
  */
-public class PartialExam implements HasUniqueId, Serializable {
+public class PartialExam implements HasUniqueId, HasContentHash, Serializable {
+    
+    private static final long serialVersionUID = -4104964103543754788L;
     
     /** @brief ID univoco dell'esame parziale */
-    private final String uniqueId = UUID.randomUUID().toString();
+    private final String uniqueId;
     
     /** @brief Coppia di valori: voto e peso */
     private final MutablePair<Integer, Integer> pair;
@@ -28,6 +31,20 @@ public class PartialExam implements HasUniqueId, Serializable {
      * @param weight Peso dell'esame parziale.
      */
     public PartialExam(Integer grade, Integer weight) {
+        this(UUID.randomUUID().toString(), grade, weight);
+    }
+    
+    /**
+     * @brief Costruttore con ID già assegnato.
+     *
+     * Usato dalla codifica binaria per ricostruire un esame parziale letto da file.
+     *
+     * @param uniqueId ID univoco dell'esame parziale.
+     * @param grade Voto dell'esame parziale.
+     * @param weight Peso dell'esame parziale.
+     */
+    PartialExam(String uniqueId, Integer grade, Integer weight) {
+        this.uniqueId = uniqueId;
         this.pair = new MutablePair<>(grade, weight);
     }
     
@@ -92,4 +109,17 @@ public class PartialExam implements HasUniqueId, Serializable {
     public Integer getWeight() {
         return this.pair.getSecond();
     }
+    
+    /**
+     * @brief Restituisce l'impronta del contenuto dell'esame parziale.
+     *
+     * @return long Impronta calcolata su ID, voto e peso.
+     */
+    @Override
+    public long getContentHash() {
+        long hash = ContentHash.mix(ContentHash.start(), this.uniqueId);
+        hash = ContentHash.mix(hash, this.getGrade() == null ? -1 : this.getGrade());
+        hash = ContentHash.mix(hash, this.getWeight() == null ? -1 : this.getWeight());
+        return ContentHash.finish(hash);
+    }
 }
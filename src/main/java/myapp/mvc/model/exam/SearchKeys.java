@@ -0,0 +1,134 @@
+package myapp.mvc.model.exam;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * @brief Chiavi di ricerca normalizzate di un esame.
+ *
+ * Contiene username, cognome e materia senza accenti, sia con le maiuscole originali sia in minuscolo,
+ * così che la ricerca non debba trasformare i testi a ogni confronto. Le chiavi sono immutabili e
+ * vengono ricalcolate dall'esame quando uno dei tre campi cambia.
+ */
+public final class SearchKeys {
+
+    /** @brief Segni diacritici separati dalla decomposizione canonica. */
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    /** @brief Username senza accenti. */
+    private final String username;
+
+    /** @brief Cognome senza accenti. */
+    private final String surname;
+
+    /** @brief Materia senza accenti. */
+    private final String teaching;
+
+    /** @brief Username senza accenti, in minuscolo. */
+    private final String normalizedUsername;
+
+    /** @brief Cognome senza accenti, in minuscolo. */
+    private final String normalizedSurname;
+
+    /** @brief Materia senza accenti, in minuscolo. */
+    private final String normalizedTeaching;
+
+    /**
+     * @brief Costruttore.
+     *
+     * @param username Username dello studente.
+     * @param surname Cognome dello studente.
+     * @param teaching Materia dell'esame.
+     */
+    public SearchKeys(String username, String surname, String teaching) {
+        this.username = fold(username);
+        this.surname = fold(surname);
+        this.teaching = fold(teaching);
+        this.normalizedUsername = this.username.toLowerCase(Locale.ROOT);
+        this.normalizedSurname = this.surname.toLowerCase(Locale.ROOT);
+        this.normalizedTeaching = this.teaching.toLowerCase(Locale.ROOT);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Rimuove gli accenti da un testo, mantenendo le maiuscole.
+     *
+     * @param text Il testo; null è trattato come testo vuoto.
+     * @return Il testo senza accenti; lo stesso oggetto se non contiene caratteri non ASCII.
+     */
+    public static String fold(String text) {
+        if (text == null) return "";
+        for (int i = 0; i < text.length(); i++)
+            if (text.charAt(i) >= 0x80)
+                return COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return text;
+    }
+
+    /**
+     * @brief Rimuove gli accenti da un testo e lo porta in minuscolo.
+     *
+     * @param text Il testo; null è trattato come testo vuoto.
+     * @return Il testo normalizzato.
+     */
+    public static String normalize(String text) {
+        return fold(text).toLowerCase(Locale.ROOT);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Ritorna lo username senza accenti.
+     *
+     * @return String Username senza accenti.
+     */
+    public String getUsername() {
+        return this.username;
+    }
+
+    /**
+     * @brief Ritorna il cognome senza accenti.
+     *
+     * @return String Cognome senza accenti.
+     */
+    public String getSurname() {
+        return this.surname;
+    }
+
+    /**
+     * @brief Ritorna la materia senza accenti.
+     *
+     * @return String Materia senza accenti.
+     */
+    public String getTeaching() {
+        return this.teaching;
+    }
+
+    /**
+     * @brief Ritorna lo username senza accenti, in minuscolo.
+     *
+     * @return String Username normalizzato.
+     */
+    public String getNormalizedUsername() {
+        return this.normalizedUsername;
+    }
+
+    /**
+     * @brief Ritorna il cognome senza accenti, in minuscolo.
+     *
+     * @return String Cognome normalizzato.
+     */
+    public String getNormalizedSurname() {
+        return this.normalizedSurname;
+    }
+
+    /**
+     * @brief Ritorna la materia senza accenti, in minuscolo.
+     *
+     * @return String Materia normalizzata.
+     */
+    public String getNormalizedTeaching() {
+        return this.normalizedTeaching;
+    }
+}
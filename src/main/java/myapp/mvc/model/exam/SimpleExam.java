@@ -1,5 +1,7 @@
 package myapp.mvc.model.exam;
 
+import myapp.util.ContentHash;
+
 import java.io.Serializable;
 
 /**
@@ -9,7 +11,9 @@ import java.io.Serializable;
  * `HasFinalGrade` e `HasUniqueId`. Rappresenta un esame con un voto finale e la possibilità di
  * ottenere la lode.
  */
-public class SimpleExam extends Exam implements HasFinalGrade, HasUniqueId, Serializable {
+public class SimpleExam extends Exam implements HasFinalGrade, HasUniqueId, HasContentHash, Serializable {
+    
+    private static final long serialVersionUID = 6688285149510648141L;
     
     /** @brief Stato predefinito per la lode (false significa senza lode) */
     protected static final boolean DEFAULT_HONORS = false;
@@ -50,6 +54,24 @@ public class SimpleExam extends Exam implements HasFinalGrade, HasUniqueId, Seri
         this.setSimpleExam(grade, honors);
     }
     
+    /**
+     * @brief Costruttore con ID già assegnato.
+     *
+     * Usato dalla codifica binaria per ricostruire un esame letto da file.
+     *
+     * @param uniqueId ID univoco dell'esame.
+     * @param username Nome dello studente.
+     * @param surname Cognome dello studente.
+     * @param teaching Materia d'esame.
+     * @param credits Crediti dell'esame.
+     * @param grade Voto finale dello studente.
+     * @param honors Indica se lo studente ha ottenuto la lode.
+     */
+    SimpleExam(String uniqueId, String username, String surname, String teaching, int credits, int grade, boolean honors) {
+        super(uniqueId, username, surname, teaching, credits);
+        this.setSimpleExam(grade, honors);
+    }
+    
     /**
      * @brief Imposta il voto finale e lo stato della lode.
      *
@@ -121,4 +143,20 @@ public class SimpleExam extends Exam implements HasFinalGrade, HasUniqueId, Seri
     public int getFinalGrade() {
         return this.grade;
     }
+    
+    // -----------------------------------------------------------------------------------------------------------------
+    // Content Hash
+    
+    /**
+     * @brief Restituisce l'impronta del contenuto dell'esame semplice.
+     *
+     * @return long Impronta calcolata su campi comuni, voto e lode.
+     */
+    @Override
+    public long getContentHash() {
+        long hash = this.mixCommonFields(ContentHash.mix(ContentHash.start(), SimpleExam.class.getName()));
+        hash = ContentHash.mix(hash, this.grade);
+        hash = ContentHash.mix(hash, this.honors ? 1 : 0);
+        return ContentHash.finish(hash);
+    }
 }
@@ -0,0 +1,303 @@
+package myapp.mvc.model.exam.query;
+
+import myapp.mvc.model.exam.Exam;
+import myapp.util.PersistentOrderedMap;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @brief Esami ordinati per voto finale, crediti e ordinale, con ricerche per intervallo e per posizione.
+ *
+ * Gli esami sono le voci di una {@link PersistentOrderedMap} la cui chiave combina voto finale,
+ * crediti e l'ordinale assegnato da {@link ExamSearchIndex}, che rende unica la chiave a parità di
+ * voto e crediti. Intervalli, primi k esami, mediana e percentili si ottengono dalla posizione delle
+ * chiavi nell'albero, in tempo logaritmico nel numero di esami più il numero di esami restituiti.
+ * {@link QueryPlanner} lo usa come accesso per gli intervalli di voto e crediti e la tabella per
+ * ordinare gli esami per voto.
+ *
+ * La chiave indicizzata di ogni esame viene conservata: un esame modificato sul posto, ad esempio un
+ * esame composto a cui cambia un parziale, viene riposizionato correttamente quando viene indicizzato
+ * di nuovo. Le liste restituite leggono la versione dell'albero del momento della chiamata e non
+ * cambiano con le modifiche successive. Le modifiche non sono sicure per l'accesso da più thread.
+ */
+public class ExamGradeOrder {
+
+    /** @brief Bit della chiave riservati all'ordinale. */
+    private static final int ORDINAL_BITS = 32;
+
+    /** @brief Bit della chiave riservati ai crediti, sopra l'ordinale. */
+    private static final int CREDITS_BITS = 8;
+
+    /** @brief Esami per chiave. */
+    private PersistentOrderedMap<Exam> order = PersistentOrderedMap.empty();
+
+    /** @brief Chiave indicizzata di ogni esame, per ID. */
+    private final Map<String, Long> keys = new HashMap<>();
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Indicizza un esame, spostandolo se voto o crediti sono cambiati.
+     *
+     * @param exam L'esame.
+     * @param ordinal L'ordinale dell'esame, costante finché l'esame resta indicizzato.
+     */
+    public void put(Exam exam, int ordinal) {
+        long key = key(exam.getFinalGrade(), exam.getCredits(), ordinal);
+        Long previous = this.keys.put(exam.getUniqueId(), key);
+        if (previous != null && previous != key) this.order = this.order.remove(previous);
+        this.order = this.order.put(key, exam);
+    }
+
+    /**
+     * @brief Rimuove un esame.
+     *
+     * @param uniqueId L'ID dell'esame.
+     */
+    public void remove(String uniqueId) {
+        Long previous = this.keys.remove(uniqueId);
+        if (previous != null) this.order = this.order.remove(previous);
+    }
+
+    /**
+     * @brief Rimuove tutti gli esami.
+     */
+    public void clear() {
+        this.order = PersistentOrderedMap.empty();
+        this.keys.clear();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Restituisce gli esami con voto finale nell'intervallo, in ordine crescente di voto e crediti.
+     *
+     * @param minGrade Voto minimo, incluso.
+     * @param maxGrade Voto massimo, incluso.
+     * @return Vista non modificabile degli esami.
+     */
+    public List<Exam> range(int minGrade, int maxGrade) {
+        return this.between(minGrade, 0, maxGrade, (1 << CREDITS_BITS) - 1);
+    }
+
+    /**
+     * @brief Restituisce gli esami compresi tra due coppie (voto, crediti), nell'ordine dell'indice.
+     *
+     * Le coppie sono confrontate prima per voto e poi per crediti: ad esempio da (27, 6) a (28, 9)
+     * comprende i 27 da almeno 6 crediti e i 28 da al più 9 crediti.
+     *
+     * @param fromGrade Voto della coppia iniziale.
+     * @param fromCredits Crediti della coppia iniziale, inclusa.
+     * @param toGrade Voto della coppia finale.
+     * @param toCredits Crediti della coppia finale, inclusa.
+     * @return Vista non modificabile degli esami.
+     */
+    public List<Exam> between(int fromGrade, int fromCredits, int toGrade, int toCredits) {
+        PersistentOrderedMap<Exam> snapshot = this.order;
+        int from = snapshot.countBelow(bound(fromGrade, fromCredits));
+        int to = snapshot.countBelow(bound(toGrade, toCredits) + (1L << ORDINAL_BITS));
+        return (from >= to) ? List.of() : snapshot.values().subList(from, to);
+    }
+
+    /**
+     * @brief Restituisce gli esami con voto finale e crediti negli intervalli, in ordine crescente di voto e crediti.
+     *
+     * Per ogni voto dell'intervallo gli esami con i crediti richiesti sono contigui: se l'intervallo dei
+     * crediti non li comprende tutti vengono letti con una visita dell'albero per voto.
+     *
+     * @param minGrade Voto minimo, incluso.
+     * @param maxGrade Voto massimo, incluso.
+     * @param minCredits Crediti minimi, inclusi.
+     * @param maxCredits Crediti massimi, inclusi.
+     * @return Gli esami.
+     */
+    public List<Exam> select(int minGrade, int maxGrade, int minCredits, int maxCredits) {
+        PersistentOrderedMap<Exam> snapshot = this.order;
+        List<Exam> exams = new ArrayList<>();
+        if (minGrade > maxGrade || minCredits > maxCredits) return exams;
+        if (coversAllCredits(minCredits, maxCredits)) {
+            snapshot.forEachInRange(bound(minGrade, 0), upperBound(maxGrade, maxCredits), exams::add);
+            return exams;
+        }
+        for (int grade = Math.max(minGrade, 0); grade <= maxGrade; grade++)
+            snapshot.forEachInRange(bound(grade, minCredits), upperBound(grade, maxCredits), exams::add);
+        return exams;
+    }
+
+    /**
+     * @brief Conta gli esami con voto finale e crediti negli intervalli, senza scorrerli.
+     *
+     * @param minGrade Voto minimo, incluso.
+     * @param maxGrade Voto massimo, incluso.
+     * @param minCredits Crediti minimi, inclusi.
+     * @param maxCredits Crediti massimi, inclusi.
+     * @return Il numero di esami.
+     */
+    public int count(int minGrade, int maxGrade, int minCredits, int maxCredits) {
+        PersistentOrderedMap<Exam> snapshot = this.order;
+        if (minGrade > maxGrade || minCredits > maxCredits) return 0;
+        if (coversAllCredits(minCredits, maxCredits))
+            return snapshot.countBelow(upperBound(maxGrade, maxCredits)) - snapshot.countBelow(bound(minGrade, 0));
+        int count = 0;
+        for (int grade = Math.max(minGrade, 0); grade <= maxGrade; grade++)
+            count += snapshot.countBelow(upperBound(grade, maxCredits)) - snapshot.countBelow(bound(grade, minCredits));
+        return count;
+    }
+
+    /**
+     * @brief Indica quante visite dell'albero richiede {@link #select(int, int, int, int)}.
+     *
+     * @param minGrade Voto minimo, incluso.
+     * @param maxGrade Voto massimo, incluso.
+     * @param minCredits Crediti minimi, inclusi.
+     * @param maxCredits Crediti massimi, inclusi.
+     * @return Il numero di visite.
+     */
+    public static int scans(int minGrade, int maxGrade, int minCredits, int maxCredits) {
+        if (minGrade > maxGrade || minCredits > maxCredits) return 0;
+        return coversAllCredits(minCredits, maxCredits) ? 1 : maxGrade - Math.max(minGrade, 0) + 1;
+    }
+
+    /**
+     * @brief Restituisce un ordinamento degli esami per voto finale, crediti e ordinale, letto dalle chiavi indicizzate.
+     *
+     * Il confronto non ricalcola il voto finale: per gli esami indicizzati usa la chiave conservata,
+     * quindi va usato solo dopo aver indicizzato gli esami modificati.
+     *
+     * @return L'ordinamento crescente.
+     */
+    public Comparator<Exam> comparator() {
+        return Comparator.comparingLong(this::keyOf);
+    }
+
+    /**
+     * @brief Conta gli esami con voto finale nell'intervallo, senza scorrerli.
+     *
+     * @param minGrade Voto minimo, incluso.
+     * @param maxGrade Voto massimo, incluso.
+     * @return Il numero di esami.
+     */
+    public int count(int minGrade, int maxGrade) {
+        return this.range(minGrade, maxGrade).size();
+    }
+
+    /**
+     * @brief Restituisce i k esami con voto finale più alto, a parità di voto quelli con più crediti.
+     *
+     * @param k Numero di esami richiesti.
+     * @return Gli esami, dal migliore.
+     */
+    public List<Exam> top(int k) {
+        List<Exam> values = this.order.values();
+        List<Exam> top = new ArrayList<>(Math.min(Math.max(k, 0), values.size()));
+        for (int i = values.size() - 1; i >= 0 && top.size() < k; i--)
+            top.add(values.get(i));
+        return top;
+    }
+
+    /**
+     * @brief Restituisce l'esame in una posizione dell'ordine crescente.
+     *
+     * @param rank La posizione, da 0.
+     * @return L'esame.
+     * @throws IndexOutOfBoundsException Se la posizione non è valida.
+     */
+    public Exam get(int rank) {
+        return this.order.values().get(rank);
+    }
+
+    /**
+     * @brief Restituisce l'esame al percentile indicato, con il metodo del rango più vicino.
+     *
+     * @param percentile Il percentile, da 0 a 100.
+     * @return L'esame, null se non ci sono esami.
+     */
+    public Exam percentile(double percentile) {
+        PersistentOrderedMap<Exam> snapshot = this.order;
+        int size = snapshot.size();
+        if (size == 0) return null;
+        int rank = (int) Math.ceil(Math.max(0, Math.min(100, percentile)) / 100 * size) - 1;
+        return snapshot.values().get(Math.max(rank, 0));
+    }
+
+    /**
+     * @brief Restituisce l'esame mediano; con un numero pari di esami, il minore dei due centrali.
+     *
+     * @return L'esame, null se non ci sono esami.
+     */
+    public Exam median() {
+        return this.percentile(50);
+    }
+
+    /**
+     * @brief Restituisce il numero di esami.
+     *
+     * @return Il numero di esami.
+     */
+    public int size() {
+        return this.order.size();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Restituisce la chiave indicizzata di un esame.
+     *
+     * @param exam L'esame.
+     * @return La chiave indicizzata; per un esame non indicizzato, la chiave con ordinale 0.
+     */
+    private long keyOf(Exam exam) {
+        Long key = this.keys.get(exam.getUniqueId());
+        return (key != null) ? key : bound(exam.getFinalGrade(), exam.getCredits());
+    }
+
+    /**
+     * @brief Indica se un intervallo di crediti comprende tutti i valori rappresentabili nella chiave.
+     *
+     * @param minCredits Crediti minimi, inclusi.
+     * @param maxCredits Crediti massimi, inclusi.
+     * @return true se l'intervallo li comprende tutti, false altrimenti.
+     */
+    private static boolean coversAllCredits(int minCredits, int maxCredits) {
+        return minCredits <= 0 && maxCredits >= (1 << CREDITS_BITS) - 1;
+    }
+
+    /**
+     * @brief Restituisce la chiave successiva a tutte quelle con voto e crediti indicati.
+     *
+     * @param grade Voto finale, non negativo.
+     * @param credits Crediti, limitati ai bit riservati.
+     * @return La chiave esclusa che chiude l'intervallo.
+     */
+    private static long upperBound(int grade, int credits) {
+        return bound(grade, credits) + (1L << ORDINAL_BITS);
+    }
+
+    /**
+     * @brief Compone la chiave di un esame.
+     *
+     * @param grade Voto finale.
+     * @param credits Crediti.
+     * @param ordinal Ordinale dell'esame.
+     * @return La chiave.
+     */
+    private static long key(int grade, int credits, int ordinal) {
+        return bound(grade, credits) | (ordinal & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @brief Restituisce la chiave più piccola con voto e crediti indicati.
+     *
+     * @param grade Voto finale, non negativo.
+     * @param credits Crediti, limitati ai bit riservati.
+     * @return La chiave con ordinale 0.
+     */
+    private static long bound(int grade, int credits) {
+        int clamped = Math.max(0, Math.min(credits, (1 << CREDITS_BITS) - 1));
+        return ((long) Math.max(grade, 0) << (ORDINAL_BITS + CREDITS_BITS)) | ((long) clamped << ORDINAL_BITS);
+    }
+}
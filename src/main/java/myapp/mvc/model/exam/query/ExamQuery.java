@@ -0,0 +1,122 @@
+package myapp.mvc.model.exam.query;
+
+import myapp.mvc.model.exam.Exam;
+import myapp.mvc.model.exam.ExamMatcher;
+
+import java.util.List;
+
+/**
+ * @brief Ricerca sugli esami: un testo libero e un elenco di condizioni, tutti da soddisfare.
+ *
+ * Il testo libero viene cercato come in precedenza, nei campi scelti dal filtro dell'interfaccia; le
+ * condizioni provengono dai termini con campo, ad esempio {@code grade>=27}. Si ottiene con
+ * {@link ExamQueryParser#parse(String, ExamMatcher.Scope, boolean)} ed è immutabile.
+ */
+public final class ExamQuery {
+
+    /** @brief Criterio del testo libero, null se la ricerca non ne contiene. */
+    private final ExamMatcher text;
+
+    /** @brief Condizioni sugli attributi. */
+    private final List<QueryCondition> conditions;
+
+    /**
+     * @brief Costruttore.
+     *
+     * @param text Criterio del testo libero, null se assente.
+     * @param conditions Condizioni sugli attributi.
+     */
+    public ExamQuery(ExamMatcher text, List<QueryCondition> conditions) {
+        this.text = text;
+        this.conditions = List.copyOf(conditions);
+    }
+
+    /**
+     * @brief Crea una ricerca con il solo testo libero, senza interpretarne i termini.
+     *
+     * @param text Testo cercato.
+     * @param scope Campi in cui cercare il testo.
+     * @param caseSensitive true se il confronto distingue maiuscole e minuscole.
+     * @return La ricerca.
+     */
+    public static ExamQuery text(String text, ExamMatcher.Scope scope, boolean caseSensitive) {
+        return new ExamQuery(ExamMatcher.compile(text, scope, caseSensitive), List.of());
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Verifica se un esame soddisfa la ricerca.
+     *
+     * @param exam L'esame.
+     * @return true se l'esame soddisfa il testo libero e tutte le condizioni, false altrimenti.
+     */
+    public boolean matches(Exam exam) {
+        if (this.text != null && !this.text.matches(exam)) return false;
+        for (QueryCondition condition : this.conditions)
+            if (!condition.matches(exam)) return false;
+        return true;
+    }
+
+    /**
+     * @brief Verifica se ogni esame che soddisfa questa ricerca soddisfa anche una ricerca precedente.
+     *
+     * Vale quando il testo libero restringe il precedente (o il precedente è assente) e ogni condizione
+     * precedente è ristretta da una di quelle nuove.
+     *
+     * @param previous La ricerca precedente, eventualmente null.
+     * @return true se la ricerca restringe quella precedente, false altrimenti.
+     */
+    public boolean refines(ExamQuery previous) {
+        if (previous == null) return false;
+        if (previous.text != null && (this.text == null || !this.text.refines(previous.text))) return false;
+
+        for (QueryCondition previousCondition : previous.conditions) {
+            boolean covered = false;
+            for (QueryCondition condition : this.conditions) {
+                if (condition.refines(previousCondition)) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered) return false;
+        }
+        return true;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Ritorna il criterio del testo libero.
+     *
+     * @return ExamMatcher Il criterio, null se la ricerca non contiene testo libero.
+     */
+    public ExamMatcher getText() {
+        return this.text;
+    }
+
+    /**
+     * @brief Ritorna le condizioni sugli attributi.
+     *
+     * @return List<QueryCondition> Elenco non modificabile delle condizioni.
+     */
+    public List<QueryCondition> getConditions() {
+        return this.conditions;
+    }
+
+    /**
+     * @brief Restituisce la ricerca in forma leggibile.
+     *
+     * @return La ricerca.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        if (this.text != null) builder.append('"').append(this.text.getQuery()).append('"');
+        for (QueryCondition condition : this.conditions) {
+            if (!builder.isEmpty()) builder.append(' ');
+            builder.append(condition);
+        }
+        return builder.toString();
+    }
+}
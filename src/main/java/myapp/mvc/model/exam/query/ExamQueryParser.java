@@ -0,0 +1,234 @@
+package myapp.mvc.model.exam.query;
+
+import myapp.mvc.model.exam.Exam;
+import myapp.mvc.model.exam.ExamMatcher;
+import myapp.mvc.model.exam.SearchKeys;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @brief Interpreta il testo della casella di ricerca come {@link ExamQuery}.
+ *
+ * Il testo è diviso in termini separati da spazi; le virgolette raggruppano più parole in un unico
+ * termine. Sono riconosciuti i termini:
+ * - {@code username:testo}, {@code surname:testo}, {@code teaching:testo}: il campo contiene il testo;
+ * - {@code username=testo}, {@code surname=testo}, {@code teaching=testo}: il campo è uguale al testo;
+ * - {@code grade:27}, {@code grade:24..27}, {@code grade>=27} (anche {@code >}, {@code <=}, {@code <},
+ *   {@code =}) e gli stessi per {@code credits}: il valore è nell'intervallo;
+ * - {@code type:simple}, {@code type:composed}: il tipo dell'esame;
+ * - {@code honors}, {@code honors:yes}, {@code honors:no}: la lode.
+ *
+ * Gli altri termini, compresi quelli con un campo sconosciuto, formano il testo libero, cercato come in
+ * precedenza nei campi scelti dal filtro. I termini con un campo noto ma senza valore, ad esempio mentre
+ * vengono digitati, sono ignorati.
+ */
+public final class ExamQueryParser {
+
+    /** @brief Termine con campo: nome, operatore e valore. */
+    private static final Pattern TERM = Pattern.compile("([A-Za-z]+)(>=|<=|:|=|>|<)(.*)", Pattern.DOTALL);
+
+    /** @brief Intervallo di valori, con estremi opzionali. */
+    private static final Pattern RANGE = Pattern.compile("(\\d*)\\.\\.(\\d*)");
+
+    /**
+     * @brief Costruttore privato: la classe espone solo metodi statici.
+     */
+    private ExamQueryParser() {}
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Interpreta il testo di ricerca.
+     *
+     * @param input Testo della casella di ricerca.
+     * @param scope Campi in cui cercare il testo libero.
+     * @param caseSensitive true se i confronti di testo distinguono maiuscole e minuscole.
+     * @return La ricerca.
+     * @throws IllegalArgumentException Se un termine con campo noto ha un valore non valido.
+     */
+    public static ExamQuery parse(String input, ExamMatcher.Scope scope, boolean caseSensitive) {
+        StringBuilder text = new StringBuilder();
+        List<QueryCondition> conditions = new ArrayList<>();
+
+        for (String[] term : split(input)) {
+            String raw = term[0];
+            QueryCondition condition = null;
+            boolean recognized = false;
+
+            Matcher matcher = TERM.matcher(raw);
+            if (term[1] == null && matcher.matches()) {
+                String field = matcher.group(1).toLowerCase();
+                String operator = matcher.group(2);
+                String value = matcher.group(3);
+                recognized = isField(field);
+                if (recognized && !value.isEmpty()) condition = parseCondition(field, operator, value, caseSensitive);
+            } else if (term[1] == null && raw.equalsIgnoreCase("honors")) {
+                recognized = true;
+                condition = new QueryCondition.Honors(true);
+            }
+
+            if (condition != null) conditions.add(condition);
+            else if (!recognized) {
+                if (!text.isEmpty()) text.append(' ');
+                text.append(raw);
+            }
+        }
+
+        ExamMatcher textMatcher = (text.isEmpty()) ? null : ExamMatcher.compile(text.toString(), scope, caseSensitive);
+        return new ExamQuery(textMatcher, conditions);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Divide il testo in termini, rispettando le virgolette.
+     *
+     * @param input Il testo.
+     * @return I termini senza virgolette; il secondo elemento non è null se il termine inizia con le virgolette.
+     */
+    private static List<String[]> split(String input) {
+        List<String[]> terms = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        boolean startsQuoted = false;
+        boolean pending = false;
+
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == '"') {
+                if (!pending) startsQuoted = true;
+                quoted = !quoted;
+                pending = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (pending) terms.add(new String[]{current.toString(), startsQuoted ? "\"" : null});
+                current.setLength(0);
+                startsQuoted = false;
+                pending = false;
+            } else {
+                current.append(c);
+                pending = true;
+            }
+        }
+        if (pending) terms.add(new String[]{current.toString(), startsQuoted ? "\"" : null});
+        terms.removeIf(term -> term[0].isEmpty());
+        return terms;
+    }
+
+    /**
+     * @brief Indica se un nome corrisponde a un campo riconosciuto.
+     *
+     * @param field Il nome del campo, in minuscolo.
+     * @return true se il campo è riconosciuto, false altrimenti.
+     */
+    private static boolean isField(String field) {
+        return switch (field) {
+            case "username", "surname", "teaching", "grade", "credits", "type", "honors" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * @brief Costruisce la condizione di un termine con campo.
+     *
+     * @param field Il nome del campo, in minuscolo.
+     * @param operator L'operatore.
+     * @param value Il valore, non vuoto.
+     * @param caseSensitive true se i confronti di testo distinguono maiuscole e minuscole.
+     * @return La condizione.
+     * @throws IllegalArgumentException Se il valore o l'operatore non sono validi per il campo.
+     */
+    private static QueryCondition parseCondition(String field, String operator, String value, boolean caseSensitive) {
+        switch (field) {
+            case "username":
+                return text(QueryCondition.TextField.USERNAME, operator, value, caseSensitive);
+            case "surname":
+                return text(QueryCondition.TextField.SURNAME, operator, value, caseSensitive);
+            case "teaching":
+                return text(QueryCondition.TextField.TEACHING, operator, value, caseSensitive);
+            case "grade":
+                return range(QueryCondition.RangeField.GRADE, Exam.GRADE_BOUNDARIES, operator, value);
+            case "credits":
+                return range(QueryCondition.RangeField.CREDITS, Exam.CREDITS_BOUNDARIES, operator, value);
+            case "type":
+                requireColon(field, operator);
+                if (value.equalsIgnoreCase("simple")) return new QueryCondition.Type(false);
+                if (value.equalsIgnoreCase("composed")) return new QueryCondition.Type(true);
+                throw new IllegalArgumentException("Tipo non valido: " + value);
+            default:
+                requireColon(field, operator);
+                if (value.equalsIgnoreCase("yes") || value.equalsIgnoreCase("true")) return new QueryCondition.Honors(true);
+                if (value.equalsIgnoreCase("no") || value.equalsIgnoreCase("false")) return new QueryCondition.Honors(false);
+                throw new IllegalArgumentException("Valore non valido per honors: " + value);
+        }
+    }
+
+    /**
+     * @brief Costruisce una condizione su un campo di testo.
+     *
+     * @param field Il campo.
+     * @param operator L'operatore: ':' per il contenimento, '=' per l'uguaglianza.
+     * @param value Il testo cercato.
+     * @param caseSensitive true se il confronto distingue maiuscole e minuscole.
+     * @return La condizione.
+     */
+    private static QueryCondition text(QueryCondition.TextField field, String operator, String value, boolean caseSensitive) {
+        requireColon(field.name().toLowerCase(), operator);
+        String key = (caseSensitive) ? SearchKeys.fold(value) : SearchKeys.normalize(value);
+        if (operator.equals("=")) return new QueryCondition.Equals(field, key, caseSensitive);
+        return new QueryCondition.Text(field, key, caseSensitive);
+    }
+
+    /**
+     * @brief Costruisce una condizione su un intervallo, limitandolo ai valori ammessi per l'attributo.
+     *
+     * @param field L'attributo.
+     * @param boundaries Valori minimo e massimo ammessi per l'attributo.
+     * @param operator L'operatore.
+     * @param value Il valore o l'intervallo.
+     * @return La condizione.
+     * @throws IllegalArgumentException Se il valore non è un numero o un intervallo valido.
+     */
+    private static QueryCondition range(QueryCondition.RangeField field, int[] boundaries, String operator, String value) {
+        String name = field.name().toLowerCase();
+        int min = boundaries[0];
+        int max = boundaries[1];
+        try {
+            Matcher range = RANGE.matcher(value);
+            if (range.matches()) {
+                requireColon(name, operator);
+                if (!range.group(1).isEmpty()) min = Math.max(min, Integer.parseInt(range.group(1)));
+                if (!range.group(2).isEmpty()) max = Math.min(max, Integer.parseInt(range.group(2)));
+            } else {
+                int number = Integer.parseInt(value);
+                switch (operator) {
+                    case ">=" -> min = Math.max(min, number);
+                    case ">" -> min = Math.max(min, number + 1);
+                    case "<=" -> max = Math.min(max, number);
+                    case "<" -> max = Math.min(max, number - 1);
+                    default -> {
+                        min = number;
+                        max = number;
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valore non valido per " + name + ": " + value, e);
+        }
+        return new QueryCondition.Range(field, min, max);
+    }
+
+    /**
+     * @brief Verifica che l'operatore di un termine sia ':' o '='.
+     *
+     * @param field Il nome del campo.
+     * @param operator L'operatore.
+     * @throws IllegalArgumentException Se l'operatore è un confronto.
+     */
+    private static void requireColon(String field, String operator) {
+        if (!operator.equals(":") && !operator.equals("="))
+            throw new IllegalArgumentException("Operatore non valido per " + field + ": " + operator);
+    }
+}
@@ -0,0 +1,394 @@
+package myapp.mvc.model.exam.query;
+
+import myapp.mvc.model.exam.ComposedExam;
+import myapp.mvc.model.exam.Exam;
+import myapp.mvc.model.exam.ExamMatcher;
+import myapp.mvc.model.exam.SearchKeys;
+import myapp.util.CompressedBitmap;
+import myapp.util.TrigramIndex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringTokenizer;
+
+/**
+ * @brief Indici degli esami visualizzati, per ID, usati da {@link QueryPlanner} per ricavare i candidati.
+ *
+ * Contiene un indice per trigrammi su username, cognome e materia normalizzati e indici bitmap per gli
+ * attributi a pochi valori: tipo, lode, ogni valore ammesso dei crediti e ogni voto ammesso. Le bitmap
+ * sono indicizzate dall'ordinale dell'esame, un intero denso assegnato all'inserimento e riusato dopo
+ * la rimozione, così che le condizioni combinate si risolvano con intersezioni e unioni di
+ * {@link CompressedBitmap} invece di rileggere gli attributi di ogni esame.
+ *
+ * Mantiene inoltre l'ordine degli esami per voto finale e crediti ({@link ExamGradeOrder}).
+ *
+ * Gli indici vanno aggiornati a ogni modifica degli esami, dal thread che li possiede: non sono sicuri
+ * per l'accesso da più thread.
+ */
+public class ExamSearchIndex {
+
+    /** @brief Campo dell'indice per trigrammi con lo username. */
+    private static final int USERNAME = 0;
+
+    /** @brief Campo dell'indice per trigrammi con il cognome. */
+    private static final int SURNAME = 1;
+
+    /** @brief Campo dell'indice per trigrammi con la materia. */
+    private static final int TEACHING = 2;
+
+    /** @brief Esami indicizzati, per ID. */
+    private final Map<String, Exam> exams = new HashMap<>();
+
+    /** @brief Indice per trigrammi delle chiavi di ricerca normalizzate. */
+    private final TrigramIndex<String> text = new TrigramIndex<>(3);
+
+    /** @brief Ordinale di ogni esame indicizzato, per ID. */
+    private final Map<String, Integer> ordinals = new HashMap<>();
+
+    /** @brief ID degli esami per ordinale; null per gli ordinali liberi. */
+    private final List<String> uniqueIdsByOrdinal = new ArrayList<>();
+
+    /** @brief Ordinali liberati dalle rimozioni, riassegnati prima di estendere l'intervallo. */
+    private final ArrayDeque<Integer> freeOrdinals = new ArrayDeque<>();
+
+    /** @brief Ordinali di tutti gli esami indicizzati. */
+    private final CompressedBitmap all = new CompressedBitmap();
+
+    /** @brief Ordinali degli esami composti. */
+    private final CompressedBitmap composed = new CompressedBitmap();
+
+    /** @brief Ordinali degli esami con lode. */
+    private final CompressedBitmap honors = new CompressedBitmap();
+
+    /** @brief Ordinali per voto finale, uno per voto ammesso a partire da {@code Exam.GRADE_BOUNDARIES[0]}. */
+    private final CompressedBitmap[] grades = bitmaps(Exam.GRADE_BOUNDARIES);
+
+    /** @brief Ordinali per crediti, uno per valore ammesso a partire da {@code Exam.CREDITS_BOUNDARIES[0]}. */
+    private final CompressedBitmap[] credits = bitmaps(Exam.CREDITS_BOUNDARIES);
+
+    /** @brief Esami ordinati per voto finale e crediti. */
+    private final ExamGradeOrder gradeOrder = new ExamGradeOrder();
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Indicizza un esame, sostituendo la versione indicizzata in precedenza.
+     *
+     * Un esame già indicizzato mantiene il proprio ordinale; le bitmap vengono aggiornate a partire dai
+     * valori correnti, anche se l'esame è stato modificato sul posto.
+     *
+     * @param exam L'esame.
+     */
+    public void put(Exam exam) {
+        String uniqueId = exam.getUniqueId();
+        SearchKeys keys = exam.getSearchKeys();
+        this.exams.put(uniqueId, exam);
+        this.text.put(uniqueId, keys.getNormalizedUsername(), keys.getNormalizedSurname(), keys.getNormalizedTeaching());
+
+        Integer ordinal = this.ordinals.get(uniqueId);
+        if (ordinal == null) {
+            ordinal = this.assignOrdinal(uniqueId);
+            this.all.add(ordinal);
+        } else this.unsetAttributes(ordinal);
+
+        if (exam instanceof ComposedExam) this.composed.add(ordinal);
+        if (QueryCondition.Honors.hasHonors(exam)) this.honors.add(ordinal);
+        CompressedBitmap grade = valueBitmap(this.grades, Exam.GRADE_BOUNDARIES, exam.getFinalGrade());
+        if (grade != null) grade.add(ordinal);
+        CompressedBitmap credit = valueBitmap(this.credits, Exam.CREDITS_BOUNDARIES, exam.getCredits());
+        if (credit != null) credit.add(ordinal);
+        this.gradeOrder.put(exam, ordinal);
+    }
+
+    /**
+     * @brief Rimuove un esame dagli indici, liberandone l'ordinale.
+     *
+     * @param uniqueId L'ID dell'esame.
+     */
+    public void remove(String uniqueId) {
+        this.exams.remove(uniqueId);
+        this.text.remove(uniqueId);
+        this.gradeOrder.remove(uniqueId);
+
+        Integer ordinal = this.ordinals.remove(uniqueId);
+        if (ordinal == null) return;
+        this.unsetAttributes(ordinal);
+        this.all.remove(ordinal);
+        this.uniqueIdsByOrdinal.set(ordinal, null);
+        this.freeOrdinals.push(ordinal);
+    }
+
+    /**
+     * @brief Rimuove tutti gli esami.
+     */
+    public void clear() {
+        this.exams.clear();
+        this.text.clear();
+        this.ordinals.clear();
+        this.uniqueIdsByOrdinal.clear();
+        this.freeOrdinals.clear();
+        this.all.clear();
+        this.composed.clear();
+        this.honors.clear();
+        for (CompressedBitmap bitmap : this.grades) bitmap.clear();
+        for (CompressedBitmap bitmap : this.credits) bitmap.clear();
+        this.gradeOrder.clear();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Restituisce un esame indicizzato.
+     *
+     * @param uniqueId L'ID dell'esame.
+     * @return L'esame, null se non è indicizzato.
+     */
+    public Exam get(String uniqueId) {
+        return this.exams.get(uniqueId);
+    }
+
+    /**
+     * @brief Restituisce gli esami indicizzati con gli ID indicati.
+     *
+     * @param uniqueIds Gli ID, tutti indicizzati.
+     * @return Gli esami.
+     */
+    public List<Exam> getAll(Collection<String> uniqueIds) {
+        List<Exam> rows = new ArrayList<>(uniqueIds.size());
+        for (String uniqueId : uniqueIds)
+            rows.add(this.exams.get(uniqueId));
+        return rows;
+    }
+
+    /**
+     * @brief Restituisce gli ID di tutti gli esami indicizzati.
+     *
+     * @return Vista non modificabile degli ID.
+     */
+    public Set<String> keys() {
+        return this.text.keys();
+    }
+
+    /**
+     * @brief Restituisce gli esami ordinati per voto finale e crediti.
+     *
+     * @return L'ordine degli esami, aggiornato insieme agli altri indici.
+     */
+    public ExamGradeOrder getGradeOrder() {
+        return this.gradeOrder;
+    }
+
+    /**
+     * @brief Restituisce il numero di esami indicizzati.
+     *
+     * @return Il numero di esami.
+     */
+    public int size() {
+        return this.exams.size();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Ricava gli ID degli esami che possono corrispondere al testo libero.
+     *
+     * I candidati sono l'intersezione delle liste dei trigrammi del testo normalizzato; il filtro per
+     * studente interseca i candidati di ciascun token.
+     *
+     * @param matcher Il criterio del testo libero.
+     * @return Gli ID candidati, null se il testo è troppo corto per escludere esami.
+     */
+    public Set<String> textCandidates(ExamMatcher matcher) {
+        // L'indice contiene i testi in minuscolo: i candidati valgono anche per la ricerca sensibile al caso.
+        String query = SearchKeys.normalize(matcher.getQuery());
+        if (matcher.getScope() == ExamMatcher.Scope.STUDENT) {
+            Set<String> candidates = null;
+            StringTokenizer tokenizer = new StringTokenizer(query, " ");
+            while (tokenizer.hasMoreTokens()) {
+                String token = tokenizer.nextToken();
+                if (!this.text.canNarrow(token)) continue; // Token troppo corto per escludere esami
+                Set<String> tokenCandidates = this.text.candidates(token, USERNAME, SURNAME);
+                if (candidates == null) candidates = new HashSet<>(tokenCandidates);
+                else candidates.retainAll(tokenCandidates);
+            }
+            return candidates;
+        }
+
+        if (!this.text.canNarrow(query)) return null;
+        return this.text.candidates(query, textFields(matcher.getScope()));
+    }
+
+    /**
+     * @brief Stima per eccesso il numero di candidati per il testo libero.
+     *
+     * @param matcher Il criterio del testo libero.
+     * @return Il numero stimato di candidati, -1 se il testo è troppo corto per escludere esami.
+     */
+    public int estimateText(ExamMatcher matcher) {
+        String query = SearchKeys.normalize(matcher.getQuery());
+        if (matcher.getScope() == ExamMatcher.Scope.STUDENT) {
+            int estimate = -1;
+            StringTokenizer tokenizer = new StringTokenizer(query, " ");
+            while (tokenizer.hasMoreTokens()) {
+                String token = tokenizer.nextToken();
+                if (!this.text.canNarrow(token)) continue;
+                int tokenEstimate = this.text.estimate(token, USERNAME, SURNAME);
+                estimate = (estimate < 0) ? tokenEstimate : Math.min(estimate, tokenEstimate);
+            }
+            return estimate;
+        }
+
+        if (!this.text.canNarrow(query)) return -1;
+        return this.text.estimate(query, textFields(matcher.getScope()));
+    }
+
+    /**
+     * @brief Ricava gli ID degli esami il cui campo può contenere un testo.
+     *
+     * @param condition La condizione sul campo.
+     * @return Gli ID candidati, null se il testo è troppo corto per escludere esami.
+     */
+    public Set<String> textCandidates(QueryCondition.Text condition) {
+        String query = SearchKeys.normalize(condition.value());
+        if (!this.text.canNarrow(query)) return null;
+        return this.text.candidates(query, textField(condition.field()));
+    }
+
+    /**
+     * @brief Stima per eccesso il numero di esami il cui campo può contenere un testo.
+     *
+     * @param condition La condizione sul campo.
+     * @return Il numero stimato di candidati, -1 se il testo è troppo corto per escludere esami.
+     */
+    public int estimateText(QueryCondition.Text condition) {
+        String query = SearchKeys.normalize(condition.value());
+        if (!this.text.canNarrow(query)) return -1;
+        return this.text.estimate(query, textField(condition.field()));
+    }
+
+    /**
+     * @brief Restituisce gli ordinali degli esami che soddisfano una condizione su tipo, lode, voto o crediti.
+     *
+     * Un intervallo è l'unione delle bitmap dei suoi valori; la negazione di tipo e lode è la differenza
+     * con la bitmap di tutti gli esami. La bitmap restituita può essere quella dell'indice e non va
+     * modificata.
+     *
+     * @param condition La condizione.
+     * @return Gli ordinali degli esami, null se la condizione è sul testo e non ha una bitmap.
+     */
+    public CompressedBitmap conditionRows(QueryCondition condition) {
+        if (condition instanceof QueryCondition.Type type)
+            return (type.composed()) ? this.composed : CompressedBitmap.andNot(this.all, this.composed);
+        if (condition instanceof QueryCondition.Honors honors)
+            return (honors.honors()) ? this.honors : CompressedBitmap.andNot(this.all, this.honors);
+        if (condition instanceof QueryCondition.Range range) {
+            boolean grade = range.field() == QueryCondition.RangeField.GRADE;
+            CompressedBitmap[] bitmaps = (grade) ? this.grades : this.credits;
+            int first = (grade) ? Exam.GRADE_BOUNDARIES[0] : Exam.CREDITS_BOUNDARIES[0];
+            CompressedBitmap rows = new CompressedBitmap();
+            for (int value = Math.max(range.min(), first); value <= range.max() && value - first < bitmaps.length; value++)
+                rows = (rows.isEmpty()) ? bitmaps[value - first] : CompressedBitmap.or(rows, bitmaps[value - first]);
+            return rows;
+        }
+        return null;
+    }
+
+    /**
+     * @brief Restituisce gli ID degli esami con gli ordinali indicati.
+     *
+     * @param rows Gli ordinali, tutti assegnati.
+     * @return Gli ID, in ordine di ordinale.
+     */
+    public List<String> uniqueIds(CompressedBitmap rows) {
+        List<String> uniqueIds = new ArrayList<>(rows.cardinality());
+        rows.forEach(ordinal -> uniqueIds.add(this.uniqueIdsByOrdinal.get(ordinal)));
+        return uniqueIds;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Restituisce i campi dell'indice per trigrammi in cui cercare il testo libero.
+     *
+     * @param scope I campi scelti dal filtro.
+     * @return Gli indici dei campi.
+     */
+    private static int[] textFields(ExamMatcher.Scope scope) {
+        if (scope == ExamMatcher.Scope.TEACHING) return new int[]{TEACHING};
+        if (scope == ExamMatcher.Scope.STUDENT) return new int[]{USERNAME, SURNAME};
+        return new int[]{USERNAME, SURNAME, TEACHING};
+    }
+
+    /**
+     * @brief Restituisce il campo dell'indice per trigrammi di un campo di testo.
+     *
+     * @param field Il campo di testo.
+     * @return L'indice del campo.
+     */
+    private static int textField(QueryCondition.TextField field) {
+        if (field == QueryCondition.TextField.USERNAME) return USERNAME;
+        if (field == QueryCondition.TextField.SURNAME) return SURNAME;
+        return TEACHING;
+    }
+
+    /**
+     * @brief Assegna un ordinale a un esame, riusando per primo un ordinale liberato.
+     *
+     * @param uniqueId L'ID dell'esame.
+     * @return L'ordinale.
+     */
+    private int assignOrdinal(String uniqueId) {
+        Integer ordinal = this.freeOrdinals.poll();
+        if (ordinal == null) {
+            ordinal = this.uniqueIdsByOrdinal.size();
+            this.uniqueIdsByOrdinal.add(uniqueId);
+        } else this.uniqueIdsByOrdinal.set(ordinal, uniqueId);
+        this.ordinals.put(uniqueId, ordinal);
+        return ordinal;
+    }
+
+    /**
+     * @brief Rimuove un ordinale dalle bitmap degli attributi, tranne quella di tutti gli esami.
+     *
+     * I valori indicizzati in precedenza non vengono riletti dall'esame, che può essere cambiato sul posto.
+     *
+     * @param ordinal L'ordinale.
+     */
+    private void unsetAttributes(int ordinal) {
+        this.composed.remove(ordinal);
+        this.honors.remove(ordinal);
+        for (CompressedBitmap bitmap : this.grades) bitmap.remove(ordinal);
+        for (CompressedBitmap bitmap : this.credits) bitmap.remove(ordinal);
+    }
+
+    /**
+     * @brief Crea una bitmap vuota per ogni valore ammesso di un attributo.
+     *
+     * @param boundaries Valori minimo e massimo ammessi.
+     * @return Le bitmap.
+     */
+    private static CompressedBitmap[] bitmaps(int[] boundaries) {
+        CompressedBitmap[] bitmaps = new CompressedBitmap[boundaries[1] - boundaries[0] + 1];
+        for (int i = 0; i < bitmaps.length; i++)
+            bitmaps[i] = new CompressedBitmap();
+        return bitmaps;
+    }
+
+    /**
+     * @brief Restituisce la bitmap di un valore.
+     *
+     * @param bitmaps Le bitmap dell'attributo.
+     * @param boundaries Valori minimo e massimo ammessi.
+     * @param value Il valore.
+     * @return La bitmap, null se il valore è fuori dai limiti e non viene indicizzato.
+     */
+    private static CompressedBitmap valueBitmap(CompressedBitmap[] bitmaps, int[] boundaries, int value) {
+        return (value < boundaries[0] || value > boundaries[1]) ? null : bitmaps[value - boundaries[0]];
+    }
+}
@@ -0,0 +1,266 @@
+package myapp.mvc.model.exam.query;
+
+import myapp.mvc.model.exam.ComposedExam;
+import myapp.mvc.model.exam.Exam;
+import myapp.mvc.model.exam.SearchKeys;
+import myapp.mvc.model.exam.SimpleExam;
+
+/**
+ * @brief Condizione su un attributo di un esame, ottenuta da un termine di una {@link ExamQuery}.
+ *
+ * Le condizioni sono immutabili e possono essere verificate da più thread contemporaneamente.
+ */
+public sealed interface QueryCondition {
+
+    /**
+     * @brief Campi di testo su cui si può porre una condizione.
+     */
+    enum TextField {
+        /** @brief Username dello studente. */
+        USERNAME,
+        /** @brief Cognome dello studente. */
+        SURNAME,
+        /** @brief Materia dell'esame. */
+        TEACHING
+    }
+
+    /**
+     * @brief Attributi numerici su cui si può porre un intervallo.
+     */
+    enum RangeField {
+        /** @brief Voto finale. */
+        GRADE,
+        /** @brief Crediti. */
+        CREDITS
+    }
+
+    /**
+     * @brief Verifica se un esame soddisfa la condizione.
+     *
+     * @param exam L'esame.
+     * @return true se la condizione è soddisfatta, false altrimenti.
+     */
+    boolean matches(Exam exam);
+
+    /**
+     * @brief Verifica se ogni esame che soddisfa questa condizione soddisfa anche una condizione precedente.
+     *
+     * @param previous La condizione precedente.
+     * @return true se la condizione restringe quella precedente, false altrimenti.
+     */
+    default boolean refines(QueryCondition previous) {
+        return this.equals(previous);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Il campo contiene il testo indicato.
+     *
+     * @param field Il campo.
+     * @param value Il testo cercato, senza accenti e, se il confronto non distingue le maiuscole, in minuscolo.
+     * @param caseSensitive true se il confronto distingue maiuscole e minuscole.
+     */
+    record Text(TextField field, String value, boolean caseSensitive) implements QueryCondition {
+
+        /**
+         * @brief Verifica se il campo dell'esame contiene il testo.
+         *
+         * @param exam L'esame.
+         * @return true se il campo contiene il testo, false altrimenti.
+         */
+        @Override
+        public boolean matches(Exam exam) {
+            SearchKeys keys = exam.getSearchKeys();
+            if (this.field == TextField.USERNAME)
+                return ((this.caseSensitive) ? keys.getUsername() : keys.getNormalizedUsername()).contains(this.value);
+            if (this.field == TextField.SURNAME)
+                return ((this.caseSensitive) ? keys.getSurname() : keys.getNormalizedSurname()).contains(this.value);
+            return ((this.caseSensitive) ? keys.getTeaching() : keys.getNormalizedTeaching()).contains(this.value);
+        }
+
+        /**
+         * @brief Restringe una condizione sullo stesso campo il cui testo è contenuto in questo.
+         *
+         * @param previous La condizione precedente.
+         * @return true se la condizione restringe quella precedente, false altrimenti.
+         */
+        @Override
+        public boolean refines(QueryCondition previous) {
+            return previous instanceof Text text && text.field == this.field
+                && text.caseSensitive == this.caseSensitive && this.value.contains(text.value);
+        }
+
+        /**
+         * @brief Restituisce il termine che descrive la condizione.
+         *
+         * @return Il termine.
+         */
+        @Override
+        public String toString() {
+            return this.field.name().toLowerCase() + ":\"" + this.value + "\"";
+        }
+    }
+
+    /**
+     * @brief Il campo è uguale al testo indicato.
+     *
+     * @param field Il campo.
+     * @param value Il testo cercato, senza accenti e, se il confronto non distingue le maiuscole, in minuscolo.
+     * @param caseSensitive true se il confronto distingue maiuscole e minuscole.
+     */
+    record Equals(TextField field, String value, boolean caseSensitive) implements QueryCondition {
+
+        /**
+         * @brief Verifica se il campo dell'esame è uguale al testo.
+         *
+         * @param exam L'esame.
+         * @return true se il campo è uguale al testo, false altrimenti.
+         */
+        @Override
+        public boolean matches(Exam exam) {
+            SearchKeys keys = exam.getSearchKeys();
+            if (this.field == TextField.USERNAME)
+                return ((this.caseSensitive) ? keys.getUsername() : keys.getNormalizedUsername()).equals(this.value);
+            if (this.field == TextField.SURNAME)
+                return ((this.caseSensitive) ? keys.getSurname() : keys.getNormalizedSurname()).equals(this.value);
+            return ((this.caseSensitive) ? keys.getTeaching() : keys.getNormalizedTeaching()).equals(this.value);
+        }
+
+        /**
+         * @brief Restringe la stessa uguaglianza o una condizione di contenimento sullo stesso campo.
+         *
+         * @param previous La condizione precedente.
+         * @return true se la condizione restringe quella precedente, false altrimenti.
+         */
+        @Override
+        public boolean refines(QueryCondition previous) {
+            if (previous instanceof Text text)
+                return text.field() == this.field && text.caseSensitive() == this.caseSensitive && this.value.contains(text.value());
+            return this.equals(previous);
+        }
+
+        /**
+         * @brief Restituisce il termine che descrive la condizione.
+         *
+         * @return Il termine.
+         */
+        @Override
+        public String toString() {
+            return this.field.name().toLowerCase() + "=\"" + this.value + "\"";
+        }
+    }
+
+    /**
+     * @brief L'attributo è compreso nell'intervallo indicato.
+     *
+     * @param field L'attributo.
+     * @param min Valore minimo, incluso.
+     * @param max Valore massimo, incluso.
+     */
+    record Range(RangeField field, int min, int max) implements QueryCondition {
+
+        /**
+         * @brief Verifica se l'attributo dell'esame è compreso nell'intervallo.
+         *
+         * @param exam L'esame.
+         * @return true se il valore è compreso, false altrimenti.
+         */
+        @Override
+        public boolean matches(Exam exam) {
+            int value = (this.field == RangeField.GRADE) ? exam.getFinalGrade() : exam.getCredits();
+            return value >= this.min && value <= this.max;
+        }
+
+        /**
+         * @brief Restringe una condizione sullo stesso attributo con un intervallo che contiene questo.
+         *
+         * @param previous La condizione precedente.
+         * @return true se la condizione restringe quella precedente, false altrimenti.
+         */
+        @Override
+        public boolean refines(QueryCondition previous) {
+            return previous instanceof Range range && range.field == this.field
+                && range.min <= this.min && range.max >= this.max;
+        }
+
+        /**
+         * @brief Restituisce il termine che descrive la condizione.
+         *
+         * @return Il termine.
+         */
+        @Override
+        public String toString() {
+            String name = this.field.name().toLowerCase();
+            return (this.min == this.max) ? name + ":" + this.min : name + ":" + this.min + ".." + this.max;
+        }
+    }
+
+    /**
+     * @brief L'esame è del tipo indicato.
+     *
+     * @param composed true per gli esami composti, false per quelli semplici.
+     */
+    record Type(boolean composed) implements QueryCondition {
+
+        /**
+         * @brief Verifica il tipo dell'esame.
+         *
+         * @param exam L'esame.
+         * @return true se l'esame è del tipo indicato, false altrimenti.
+         */
+        @Override
+        public boolean matches(Exam exam) {
+            return (exam instanceof ComposedExam) == this.composed;
+        }
+
+        /**
+         * @brief Restituisce il termine che descrive la condizione.
+         *
+         * @return Il termine.
+         */
+        @Override
+        public String toString() {
+            return (this.composed) ? "type:composed" : "type:simple";
+        }
+    }
+
+    /**
+     * @brief L'esame ha, o non ha, la lode; gli esami composti non hanno mai la lode.
+     *
+     * @param honors true per gli esami con lode, false per quelli senza.
+     */
+    record Honors(boolean honors) implements QueryCondition {
+
+        /**
+         * @brief Verifica la lode dell'esame.
+         *
+         * @param exam L'esame.
+         * @return true se la lode corrisponde, false altrimenti.
+         */
+        @Override
+        public boolean matches(Exam exam) {
+            return hasHonors(exam) == this.honors;
+        }
+
+        /**
+         * @brief Indica se un esame ha la lode.
+         *
+         * @param exam L'esame.
+         * @return true se l'esame è semplice e ha la lode, false altrimenti.
+         */
+        public static boolean hasHonors(Exam exam) {
+            return exam instanceof SimpleExam simple && simple.getHonors();
+        }
+
+        /**
+         * @brief Restituisce il termine che descrive la condizione.
+         *
+         * @return Il termine.
+         */
+        @Override
+        public String toString() {
+            return (this.honors) ? "honors" : "honors:no";
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package myapp.mvc.model.exam.query;
+
+import myapp.mvc.model.exam.Exam;
+import myapp.mvc.model.exam.ExamMatcher;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * @brief Piano di esecuzione di una {@link ExamQuery}, scelto da {@link QueryPlanner}.
+ *
+ * Il piano ricava i candidati da un solo accesso (un indice, il risultato della ricerca precedente o
+ * tutti gli esami) e li verifica con il predicato residuo, cioè con tutte le condizioni che l'accesso non
+ * garantisce già. I candidati degli indici in memoria vanno ricavati dal thread che possiede gli indici;
+ * quelli letti dal motore di archiviazione ({@link #readsStorage()}) e la verifica da qualunque thread.
+ * Il piano registra i tempi delle fasi, riportati da {@link #explain()}.
+ */
+public final class QueryPlan {
+
+    /** @brief La ricerca pianificata. */
+    private final ExamQuery query;
+
+    /** @brief Descrizione dell'accesso scelto, con stima e costo. */
+    private final String access;
+
+    /** @brief Numero stimato di candidati. */
+    private final int estimate;
+
+    /** @brief Indica se i candidati vengono dal risultato della ricerca precedente. */
+    private final boolean narrowing;
+
+    /** @brief Indica se i candidati vengono letti dal motore di archiviazione. */
+    private final boolean storage;
+
+    /** @brief Ricava i candidati; null se i candidati sono tutti gli esami. */
+    private final Supplier<List<Exam>> source;
+
+    /** @brief Criterio del testo libero da verificare, null se assente. */
+    private final ExamMatcher residualText;
+
+    /** @brief Condizioni da verificare sui candidati. */
+    private final QueryCondition[] residualConditions;
+
+    /** @brief Accessi valutati e scartati, con la loro stima e il loro costo. */
+    private final List<String> alternatives;
+
+    /** @brief Tempo di pianificazione, in nanosecondi. */
+    private final long planNanos;
+
+    /** @brief Tempo impiegato a ricavare i candidati, in nanosecondi. */
+    private volatile long fetchNanos = -1;
+
+    /** @brief Tempo impiegato a verificare i candidati, in nanosecondi. */
+    private volatile long verifyNanos = -1;
+
+    /** @brief Numero di candidati verificati. */
+    private volatile int candidates = -1;
+
+    /** @brief Numero di candidati che soddisfano la ricerca. */
+    private volatile int matches = -1;
+
+    /**
+     * @brief Costruttore.
+     *
+     * @param query La ricerca pianificata.
+     * @param access Descrizione dell'accesso scelto, con stima e costo.
+     * @param estimate Numero stimato di candidati.
+     * @param narrowing true se i candidati vengono dal risultato della ricerca precedente.
+     * @param storage true se i candidati vengono letti dal motore di archiviazione.
+     * @param source Ricava i candidati; null se i candidati sono tutti gli esami.
+     * @param residualText Criterio del testo libero da verificare, null se assente o già garantito.
+     * @param residualConditions Condizioni da verificare sui candidati.
+     * @param alternatives Accessi valutati e scartati.
+     * @param planNanos Tempo di pianificazione, in nanosecondi.
+     */
+    QueryPlan(ExamQuery query, String access, int estimate, boolean narrowing, boolean storage, Supplier<List<Exam>> source,
+              ExamMatcher residualText, List<QueryCondition> residualConditions, List<String> alternatives, long planNanos) {
+        this.query = query;
+        this.access = access;
+        this.estimate = estimate;
+        this.narrowing = narrowing;
+        this.storage = storage;
+        this.source = source;
+        this.residualText = residualText;
+        this.residualConditions = residualConditions.toArray(new QueryCondition[0]);
+        this.alternatives = List.copyOf(alternatives);
+        this.planNanos = planNanos;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Ricava i candidati dall'accesso scelto.
+     *
+     * Se l'accesso usa gli indici in memoria va chiamato dal thread che li possiede. I candidati letti dal
+     * motore di archiviazione sono copie degli esami visualizzati, con gli stessi ID.
+     *
+     * @return I candidati, null se i candidati sono tutti gli esami.
+     */
+    public List<Exam> fetchCandidates() {
+        long start = System.nanoTime();
+        List<Exam> result = (this.source == null) ? null : this.source.get();
+        this.fetchNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * @brief Verifica un candidato con il predicato residuo.
+     *
+     * @param exam Il candidato.
+     * @return true se il candidato soddisfa la ricerca, false altrimenti.
+     */
+    public boolean matches(Exam exam) {
+        if (this.residualText != null && !this.residualText.matches(exam)) return false;
+        for (QueryCondition condition : this.residualConditions)
+            if (!condition.matches(exam)) return false;
+        return true;
+    }
+
+    /**
+     * @brief Registra l'esito della verifica dei candidati.
+     *
+     * @param candidates Numero di candidati verificati.
+     * @param matches Numero di candidati che soddisfano la ricerca.
+     * @param nanos Tempo impiegato, in nanosecondi.
+     */
+    public void recordVerification(int candidates, int matches, long nanos) {
+        this.candidates = candidates;
+        this.matches = matches;
+        this.verifyNanos = nanos;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Ritorna la ricerca pianificata.
+     *
+     * @return ExamQuery La ricerca.
+     */
+    public ExamQuery getQuery() {
+        return this.query;
+    }
+
+    /**
+     * @brief Ritorna la descrizione dell'accesso scelto.
+     *
+     * @return String La descrizione.
+     */
+    public String getAccess() {
+        return this.access;
+    }
+
+    /**
+     * @brief Ritorna il numero stimato di candidati.
+     *
+     * @return int La stima.
+     */
+    public int getEstimate() {
+        return this.estimate;
+    }
+
+    /**
+     * @brief Indica se i candidati vengono dal risultato della ricerca precedente.
+     *
+     * @return boolean true se la ricerca restringe la precedente, false altrimenti.
+     */
+    public boolean isNarrowing() {
+        return this.narrowing;
+    }
+
+    /**
+     * @brief Indica se i candidati vengono letti dal motore di archiviazione, da qualunque thread.
+     *
+     * @return boolean true se l'accesso scelto è un indice su disco, false altrimenti.
+     */
+    public boolean readsStorage() {
+        return this.storage;
+    }
+
+    /**
+     * @brief Descrive il piano scelto, il predicato residuo e i tempi delle fasi già eseguite.
+     *
+     * @return La descrizione, su più righe.
+     */
+    public String explain() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Ricerca: ").append(this.query).append('\n');
+        builder.append("Accesso: ").append(this.access).append('\n');
+        for (String alternative : this.alternatives)
+            builder.append("  scartato: ").append(alternative).append('\n');
+
+        builder.append("Verifica: ");
+        if (this.residualText == null && this.residualConditions.length == 0) builder.append("nessuna");
+        else {
+            StringBuilder residual = new StringBuilder();
+            if (this.residualText != null) residual.append('"').append(this.residualText.getQuery()).append('"');
+            for (QueryCondition condition : this.residualConditions) {
+                if (!residual.isEmpty()) residual.append(' ');
+                residual.append(condition);
+            }
+            builder.append(residual);
+        }
+        builder.append('\n');
+
+        builder.append(String.format("Tempi: pianificazione %.3f ms", this.planNanos / 1e6));
+        if (this.fetchNanos >= 0) builder.append(String.format(", candidati %.3f ms", this.fetchNanos / 1e6));
+        if (this.verifyNanos >= 0)
+            builder.append(String.format(", verifica %.3f ms (%d candidati, %d risultati)", this.verifyNanos / 1e6, this.candidates, this.matches));
+        return builder.toString();
+    }
+
+    /**
+     * @brief Restituisce la descrizione del piano.
+     *
+     * @return La descrizione.
+     */
+    @Override
+    public String toString() {
+        return this.explain();
+    }
+}
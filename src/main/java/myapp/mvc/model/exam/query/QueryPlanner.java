@@ -0,0 +1,291 @@
+package myapp.mvc.model.exam.query;
+
+import myapp.mvc.model.exam.Exam;
+import myapp.mvc.model.exam.ExamMatcher;
+import myapp.util.CompressedBitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * @brief Sceglie come eseguire una {@link ExamQuery} sugli indici di {@link ExamSearchIndex} e, se
+ * disponibili, sugli indici del motore di archiviazione.
+ *
+ * Per il testo libero e per ogni campo di testo stima con i trigrammi il numero di candidati senza
+ * costruirli. Le condizioni su voto, crediti, tipo e lode vengono risolte insieme intersecando le loro
+ * bitmap: il conteggio della bitmap risultante è esatto e l'accesso le garantisce tutte. Gli intervalli di
+ * voto e crediti possono essere letti anche da {@link ExamGradeOrder}, che conta esattamente gli esami
+ * dell'intervallo e li restituisce senza ricavarli per ID. Con un motore che mantiene gli indici
+ * secondari vengono valutate anche le letture dal disco per materia e voto, per cognome, per voto e per
+ * crediti. A questi si aggiungono il risultato della ricerca precedente, quando la nuova lo restringe, e
+ * la scansione di tutti gli esami.
+ *
+ * Il costo di un accesso è il numero stimato di candidati per il costo di ricavarne uno, più il costo di
+ * verificarlo se l'accesso non garantisce tutta la ricerca. Viene scelto l'accesso con il costo più
+ * basso; le condizioni che l'accesso non garantisce esattamente restano nel predicato residuo del
+ * {@link QueryPlan}.
+ */
+public final class QueryPlanner {
+
+    /** @brief Costo di verifica di un candidato con il predicato residuo. */
+    private static final double VERIFY_COST = 1.0;
+
+    /** @brief Costo di ricavare un candidato per ID dagli indici in memoria. */
+    private static final double LOOKUP_COST = 1.0;
+
+    /** @brief Costo di leggere un candidato da {@link ExamGradeOrder}, che contiene direttamente gli esami. */
+    private static final double ORDER_ROW_COST = 0.5;
+
+    /** @brief Costo di leggere e decodificare un candidato dalle foglie di un indice su disco. */
+    private static final double STORAGE_ROW_COST = 1.5;
+
+    /** @brief Costo fisso di una lettura dal disco, per la discesa nell'albero fino alla prima foglia. */
+    private static final double STORAGE_SEEK_COST = 16;
+
+    /**
+     * @brief Costruttore privato: la classe espone solo metodi statici.
+     */
+    private QueryPlanner() {}
+
+    /**
+     * @brief Accesso valutato dal pianificatore.
+     *
+     * @param description Descrizione dell'accesso.
+     * @param estimate Numero stimato di candidati.
+     * @param cost Costo stimato, comprensivo della verifica dei candidati.
+     * @param covered Condizioni garantite esattamente dall'accesso.
+     * @param narrowing true se i candidati vengono dal risultato della ricerca precedente.
+     * @param storage true se i candidati vengono letti dal motore di archiviazione.
+     * @param source Ricava i candidati; null se i candidati sono tutti gli esami.
+     */
+    private record Access(String description, int estimate, double cost, List<QueryCondition> covered,
+                          boolean narrowing, boolean storage, Supplier<List<Exam>> source) {}
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Pianifica una ricerca.
+     *
+     * @param query La ricerca.
+     * @param index Gli indici degli esami.
+     * @param previousMatches ID che soddisfano una ricerca precedente ristretta da questa, null se non disponibili.
+     * @param stored Indici del motore di archiviazione, null se il motore non li mantiene o non vanno letti.
+     * @return Il piano scelto.
+     */
+    public static QueryPlan plan(ExamQuery query, ExamSearchIndex index, Set<String> previousMatches, StoredExamIndexes stored) {
+        long start = System.nanoTime();
+        List<Access> accesses = new ArrayList<>();
+        accesses.add(access(query, "scansione di tutti gli esami", index.size(), 0, 0, List.of(), false, false, null));
+        if (previousMatches != null)
+            accesses.add(access(query, "risultato della ricerca precedente", previousMatches.size(), 0, LOOKUP_COST, List.of(),
+                true, false, () -> index.getAll(previousMatches)));
+
+        ExamMatcher text = query.getText();
+        if (text != null) {
+            int estimate = index.estimateText(text);
+            if (estimate >= 0)
+                accesses.add(access(query, "trigrammi del testo \"" + text.getQuery() + "\"", estimate, 0, LOOKUP_COST, List.of(),
+                    false, false, () -> index.getAll(index.textCandidates(text))));
+        }
+
+        CompressedBitmap rows = null;
+        List<QueryCondition> covered = new ArrayList<>();
+        for (QueryCondition condition : query.getConditions()) {
+            QueryCondition.Text textCondition = asText(condition);
+            if (textCondition != null) {
+                int estimate = index.estimateText(textCondition);
+                if (estimate >= 0)
+                    accesses.add(access(query, "trigrammi di " + condition, estimate, 0, LOOKUP_COST, List.of(),
+                        false, false, () -> index.getAll(index.textCandidates(textCondition))));
+            } else {
+                CompressedBitmap conditionRows = index.conditionRows(condition);
+                rows = (rows == null) ? conditionRows : CompressedBitmap.and(rows, conditionRows);
+                covered.add(condition);
+            }
+        }
+        if (rows != null) {
+            CompressedBitmap matching = rows;
+            StringBuilder description = new StringBuilder("bitmap di");
+            for (QueryCondition condition : covered) description.append(' ').append(condition);
+            accesses.add(access(query, description.toString(), matching.cardinality(), 0, LOOKUP_COST, covered,
+                false, false, () -> index.getAll(index.uniqueIds(matching))));
+        }
+
+        addGradeOrderAccess(accesses, query, index);
+        if (stored != null) addStorageAccesses(accesses, query, index, stored);
+
+        Access chosen = accesses.get(0);
+        for (Access access : accesses)
+            if (access.cost() < chosen.cost()) chosen = access;
+
+        List<String> alternatives = new ArrayList<>();
+        for (Access access : accesses)
+            if (access != chosen) alternatives.add(describe(access));
+
+        List<QueryCondition> residual = new ArrayList<>(query.getConditions());
+        residual.removeAll(chosen.covered());
+
+        return new QueryPlan(query, describe(chosen), chosen.estimate(), chosen.narrowing(), chosen.storage(), chosen.source(),
+            text, residual, alternatives, System.nanoTime() - start);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Aggiunge la lettura da {@link ExamGradeOrder} se la ricerca pone un intervallo su voto o crediti.
+     *
+     * Il costo fisso è quello delle discese nell'albero: una sola se l'intervallo dei crediti è libero,
+     * altrimenti una per voto.
+     *
+     * @param accesses Gli accessi valutati.
+     * @param query La ricerca.
+     * @param index Gli indici in memoria.
+     */
+    private static void addGradeOrderAccess(List<Access> accesses, ExamQuery query, ExamSearchIndex index) {
+        QueryCondition.Range grade = firstRange(query, QueryCondition.RangeField.GRADE);
+        QueryCondition.Range credits = firstRange(query, QueryCondition.RangeField.CREDITS);
+        if (grade == null && credits == null) return;
+
+        int minGrade = (grade == null) ? Exam.GRADE_BOUNDARIES[0] : grade.min();
+        int maxGrade = (grade == null) ? Exam.GRADE_BOUNDARIES[1] : grade.max();
+        int minCredits = (credits == null) ? 0 : credits.min();
+        int maxCredits = (credits == null) ? Integer.MAX_VALUE : credits.max();
+        List<QueryCondition> covered = new ArrayList<>();
+        if (grade != null) covered.add(grade);
+        if (credits != null) covered.add(credits);
+
+        ExamGradeOrder order = index.getGradeOrder();
+        int scans = ExamGradeOrder.scans(minGrade, maxGrade, minCredits, maxCredits);
+        double seekCost = scans * Math.ceil(Math.log(order.size() + 1.0) / Math.log(2));
+        StringBuilder description = new StringBuilder("ordine per voto di");
+        for (QueryCondition condition : covered) description.append(' ').append(condition);
+        accesses.add(access(query, description.toString(), order.count(minGrade, maxGrade, minCredits, maxCredits), seekCost,
+            ORDER_ROW_COST, covered, false, false, () -> order.select(minGrade, maxGrade, minCredits, maxCredits)));
+    }
+
+    /**
+     * @brief Aggiunge le letture dagli indici del motore di archiviazione che la ricerca può usare.
+     *
+     * Le uguaglianze sono garantite dall'indice solo se non distinguono maiuscole e minuscole, perché le
+     * chiavi su disco sono normalizzate; la stima di un'uguaglianza è quella per eccesso dei trigrammi.
+     *
+     * @param accesses Gli accessi valutati.
+     * @param query La ricerca.
+     * @param index Gli indici in memoria, per le stime.
+     * @param stored Gli indici del motore di archiviazione.
+     */
+    private static void addStorageAccesses(List<Access> accesses, ExamQuery query, ExamSearchIndex index, StoredExamIndexes stored) {
+        QueryCondition.Equals teaching = null;
+        QueryCondition.Equals surname = null;
+        for (QueryCondition condition : query.getConditions()) {
+            if (condition instanceof QueryCondition.Equals equals) {
+                if (equals.field() == QueryCondition.TextField.TEACHING && teaching == null) teaching = equals;
+                if (equals.field() == QueryCondition.TextField.SURNAME && surname == null) surname = equals;
+            }
+        }
+        QueryCondition.Range grade = firstRange(query, QueryCondition.RangeField.GRADE);
+        QueryCondition.Range credits = firstRange(query, QueryCondition.RangeField.CREDITS);
+        int gradeEstimate = (grade == null) ? index.size() : index.conditionRows(grade).cardinality();
+
+        if (teaching != null) {
+            String value = teaching.value();
+            int minGrade = (grade == null) ? Exam.GRADE_BOUNDARIES[0] : grade.min();
+            int maxGrade = (grade == null) ? Exam.GRADE_BOUNDARIES[1] : grade.max();
+            List<QueryCondition> covered = new ArrayList<>();
+            if (!teaching.caseSensitive()) covered.add(teaching);
+            if (grade != null) covered.add(grade);
+            accesses.add(access(query, "indice su disco di " + teaching + ((grade == null) ? "" : " " + grade),
+                Math.min(equalsEstimate(index, teaching), gradeEstimate), STORAGE_SEEK_COST, STORAGE_ROW_COST, covered,
+                false, true, () -> stored.findByTeaching(value, minGrade, maxGrade)));
+        }
+        if (surname != null) {
+            String value = surname.value();
+            List<QueryCondition> covered = (surname.caseSensitive()) ? List.of() : List.of(surname);
+            accesses.add(access(query, "indice su disco di " + surname, equalsEstimate(index, surname), STORAGE_SEEK_COST,
+                STORAGE_ROW_COST, covered, false, true, () -> stored.findBySurname(value)));
+        }
+        if (grade != null) {
+            int min = grade.min();
+            int max = grade.max();
+            accesses.add(access(query, "indice su disco di " + grade, gradeEstimate, STORAGE_SEEK_COST, STORAGE_ROW_COST,
+                List.of(grade), false, true, () -> stored.findByGrade(min, max)));
+        }
+        if (credits != null) {
+            int min = credits.min();
+            int max = credits.max();
+            accesses.add(access(query, "indice su disco di " + credits, index.conditionRows(credits).cardinality(), STORAGE_SEEK_COST,
+                STORAGE_ROW_COST, List.of(credits), false, true, () -> stored.findByCredits(min, max)));
+        }
+    }
+
+    /**
+     * @brief Costruisce un accesso calcolandone il costo.
+     *
+     * @param query La ricerca, per stabilire se l'accesso la garantisce tutta.
+     * @param description Descrizione dell'accesso.
+     * @param estimate Numero stimato di candidati.
+     * @param fixedCost Costo indipendente dal numero di candidati.
+     * @param rowCost Costo di ricavare un candidato.
+     * @param covered Condizioni garantite esattamente dall'accesso.
+     * @param narrowing true se i candidati vengono dal risultato della ricerca precedente.
+     * @param storage true se i candidati vengono letti dal motore di archiviazione.
+     * @param source Ricava i candidati; null se i candidati sono tutti gli esami.
+     * @return L'accesso.
+     */
+    private static Access access(ExamQuery query, String description, int estimate, double fixedCost, double rowCost,
+                                 List<QueryCondition> covered, boolean narrowing, boolean storage, Supplier<List<Exam>> source) {
+        boolean exact = query.getText() == null && covered.containsAll(query.getConditions());
+        double cost = fixedCost + estimate * (rowCost + ((exact) ? 0 : VERIFY_COST));
+        return new Access(description, estimate, cost, covered, narrowing, storage, source);
+    }
+
+    /**
+     * @brief Descrive un accesso con la sua stima e il suo costo.
+     *
+     * @param access L'accesso.
+     * @return La descrizione.
+     */
+    private static String describe(Access access) {
+        return String.format("%s, stima %d righe, costo %.0f", access.description(), access.estimate(), access.cost());
+    }
+
+    /**
+     * @brief Restituisce il primo intervallo della ricerca su un attributo.
+     *
+     * @param query La ricerca.
+     * @param field L'attributo.
+     * @return L'intervallo, null se la ricerca non ne pone sull'attributo.
+     */
+    private static QueryCondition.Range firstRange(ExamQuery query, QueryCondition.RangeField field) {
+        for (QueryCondition condition : query.getConditions())
+            if (condition instanceof QueryCondition.Range range && range.field() == field) return range;
+        return null;
+    }
+
+    /**
+     * @brief Restituisce la condizione di contenimento equivalente, per eccesso, a una condizione di testo.
+     *
+     * @param condition La condizione.
+     * @return La condizione di contenimento, null se la condizione non è sul testo.
+     */
+    private static QueryCondition.Text asText(QueryCondition condition) {
+        if (condition instanceof QueryCondition.Text text) return text;
+        if (condition instanceof QueryCondition.Equals equals)
+            return new QueryCondition.Text(equals.field(), equals.value(), equals.caseSensitive());
+        return null;
+    }
+
+    /**
+     * @brief Stima per eccesso il numero di esami che soddisfano un'uguaglianza.
+     *
+     * @param index Gli indici in memoria.
+     * @param condition L'uguaglianza.
+     * @return La stima dei trigrammi, o il numero di esami se il testo è troppo corto.
+     */
+    private static int equalsEstimate(ExamSearchIndex index, QueryCondition.Equals condition) {
+        int estimate = index.estimateText(asText(condition));
+        return (estimate >= 0) ? estimate : index.size();
+    }
+}
@@ -0,0 +1,52 @@
+package myapp.mvc.model.exam.query;
+
+import myapp.mvc.model.exam.Exam;
+
+import java.util.List;
+
+/**
+ * @brief Indici secondari mantenuti dal motore di archiviazione, valutati da {@link QueryPlanner} come accesso.
+ *
+ * Le ricerche leggono solo le pagine dell'intervallo richiesto e restituiscono copie degli esami lette
+ * dal disco, con gli stessi ID di quelli visualizzati. I testi sono confrontati senza accenti e senza
+ * distinguere maiuscole e minuscole. Le implementazioni devono essere sicure per l'accesso da più
+ * thread, perché i candidati letti dal disco vengono ricavati in background.
+ */
+public interface StoredExamIndexes {
+
+    /**
+     * @brief Recupera gli esami degli studenti con il cognome indicato.
+     *
+     * @param surname Cognome dello studente.
+     * @return Gli esami trovati.
+     */
+    List<Exam> findBySurname(String surname);
+
+    /**
+     * @brief Recupera gli esami di una materia con voto finale compreso nell'intervallo.
+     *
+     * @param teaching Materia dell'esame.
+     * @param minGrade Voto minimo, incluso.
+     * @param maxGrade Voto massimo, incluso.
+     * @return Gli esami trovati.
+     */
+    List<Exam> findByTeaching(String teaching, int minGrade, int maxGrade);
+
+    /**
+     * @brief Recupera gli esami con voto finale compreso nell'intervallo.
+     *
+     * @param minGrade Voto minimo, incluso.
+     * @param maxGrade Voto massimo, incluso.
+     * @return Gli esami trovati.
+     */
+    List<Exam> findByGrade(int minGrade, int maxGrade);
+
+    /**
+     * @brief Recupera gli esami con crediti compresi nell'intervallo.
+     *
+     * @param minCredits Crediti minimi, inclusi.
+     * @param maxCredits Crediti massimi, inclusi.
+     * @return Gli esami trovati.
+     */
+    List<Exam> findByCredits(int minCredits, int maxCredits);
+}
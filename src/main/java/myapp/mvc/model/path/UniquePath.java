@@ -1,6 +1,8 @@
 package myapp.mvc.model.path;
 
+import myapp.mvc.model.exam.HasContentHash;
 import myapp.mvc.model.exam.HasUniqueId;
+import myapp.util.ContentHash;
 
 import java.io.Serializable;
 import java.util.UUID;
@@ -11,10 +13,12 @@ import java.util.UUID;
  * La classe `UniquePath` implementa l'interfaccia `HasUniqueId` e rappresenta un percorso
  * con un identificativo unico generato automaticamente. Include anche il percorso stesso.
  */
-public class UniquePath implements HasUniqueId, Serializable {
+public class UniquePath implements HasUniqueId, HasContentHash, Serializable {
+    
+    private static final long serialVersionUID = 5168492400127926074L;
     
     /** @brief ID univoco del percorso */
-    private final String uniqueID = UUID.randomUUID().toString();
+    private final String uniqueID;
     
     /** @brief Percorso associato */
     private String path;
@@ -27,6 +31,19 @@ public class UniquePath implements HasUniqueId, Serializable {
      * @param path Percorso da associare all'istanza.
      */
     public UniquePath(String path) {
+        this(UUID.randomUUID().toString(), path);
+    }
+    
+    /**
+     * @brief Costruttore con ID già assegnato.
+     *
+     * Usato dalla codifica binaria per ricostruire un percorso letto da file.
+     *
+     * @param uniqueID ID univoco del percorso.
+     * @param path Percorso da associare all'istanza.
+     */
+    UniquePath(String uniqueID, String path) {
+        this.uniqueID = uniqueID;
         this.setPath(path);
     }
     
@@ -59,4 +76,14 @@ public class UniquePath implements HasUniqueId, Serializable {
     public String getUniqueId() {
         return this.uniqueID;
     }
+    
+    /**
+     * @brief Restituisce l'impronta del contenuto del percorso.
+     *
+     * @return long Impronta calcolata su ID e percorso.
+     */
+    @Override
+    public long getContentHash() {
+        return ContentHash.finish(ContentHash.mix(ContentHash.mix(ContentHash.start(), this.uniqueID), this.path));
+    }
 }
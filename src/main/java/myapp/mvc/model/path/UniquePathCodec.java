@@ -0,0 +1,42 @@
+package myapp.mvc.model.path;
+
+import myapp.mvc.model.storage.BinaryFormat;
+import myapp.mvc.model.storage.RecordCodec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * @brief Codifica binaria compatta dei percorsi unici.
+ *
+ * Ogni percorso è scritto come ID seguito dalla stringa del percorso.
+ */
+public class UniquePathCodec implements RecordCodec<UniquePath> {
+
+    /**
+     * @brief Scrive un percorso sullo stream.
+     *
+     * @param path Il percorso da scrivere.
+     * @param out Stream binario di destinazione.
+     * @throws IOException Se la scrittura fallisce.
+     */
+    @Override
+    public void encode(UniquePath path, DataOutput out) throws IOException {
+        BinaryFormat.writeId(out, path.getUniqueId());
+        BinaryFormat.writeString(out, path.getPath());
+    }
+
+    /**
+     * @brief Legge un percorso dallo stream.
+     *
+     * @param in Stream binario di origine.
+     * @return Il percorso letto.
+     * @throws IOException Se la lettura fallisce.
+     */
+    @Override
+    public UniquePath decode(DataInput in) throws IOException {
+        String uniqueId = BinaryFormat.readId(in);
+        return new UniquePath(uniqueId, BinaryFormat.readString(in));
+    }
+}
@@ -0,0 +1,290 @@
+package myapp.mvc.model.storage;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiPredicate;
+
+/**
+ * @brief B+tree su pagine di un {@link PageCache}, con chiavi e valori binari.
+ *
+ * Le chiavi sono confrontate byte per byte senza segno. I valori risiedono solo nelle foglie,
+ * collegate tra loro da sinistra a destra per le scansioni di intervalli. I nodi vengono divisi
+ * quando la loro codifica supera la dimensione di una pagina. Le cancellazioni non ribilanciano
+ * l'albero: le foglie possono restare poco piene, ma le chiavi dei nodi interni restano
+ * separatori validi.
+ */
+final class BTree {
+
+    /** @brief Dimensione massima di una chiave in byte. */
+    static final int MAX_KEY_SIZE = PageCache.PAGE_SIZE / 8;
+
+    /** @brief Dimensione massima di un valore in byte. */
+    static final int MAX_VALUE_SIZE = PageCache.PAGE_SIZE / 4;
+
+    /** @brief Pagine dell'albero. */
+    private final PageCache pages;
+
+    /** @brief Numero della pagina radice. */
+    private int root;
+
+    /**
+     * @brief Risultato della divisione di un nodo: separatore e nuovo nodo a destra.
+     *
+     * @param key Prima chiave del nodo destro.
+     * @param right Numero della pagina del nodo destro.
+     */
+    private record Split(byte[] key, int right) {}
+
+    /**
+     * @brief Costruttore che apre un albero esistente.
+     *
+     * @param pages Pagine dell'albero.
+     * @param root Numero della pagina radice.
+     */
+    BTree(PageCache pages, int root) {
+        this.pages = pages;
+        this.root = root;
+    }
+
+    /**
+     * @brief Crea un albero vuoto.
+     *
+     * @param pages Pagine dell'albero.
+     * @return Il nuovo albero.
+     */
+    static BTree create(PageCache pages) {
+        return new BTree(pages, pages.allocate(PageCache.Node.LEAF).pageId);
+    }
+
+    /**
+     * @brief Restituisce il numero della pagina radice, da salvare nei metadati.
+     *
+     * @return Il numero della pagina radice.
+     */
+    int getRoot() {
+        return this.root;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Cerca il valore associato a una chiave.
+     *
+     * @param key La chiave.
+     * @return Il valore, null se la chiave non è presente.
+     */
+    byte[] get(byte[] key) {
+        PageCache.Node leaf = this.findLeaf(key);
+        int i = lowerBound(leaf.keys, key);
+        return (i < leaf.keys.size() && Arrays.equals(leaf.keys.get(i), key)) ? leaf.values.get(i) : null;
+    }
+
+    /**
+     * @brief Inserisce una chiave o ne sostituisce il valore.
+     *
+     * @param key La chiave.
+     * @param value Il valore.
+     */
+    void put(byte[] key, byte[] value) {
+        if (key.length > MAX_KEY_SIZE) throw new IllegalArgumentException("Chiave troppo lunga: " + key.length + " byte");
+        if (value.length > MAX_VALUE_SIZE) throw new IllegalArgumentException("Valore troppo lungo: " + value.length + " byte");
+
+        Split split = this.insert(this.root, key, value);
+        if (split != null) {
+            PageCache.Node newRoot = this.pages.allocate(PageCache.Node.INTERNAL);
+            newRoot.keys.add(split.key());
+            newRoot.children.add(this.root);
+            newRoot.children.add(split.right());
+            this.root = newRoot.pageId;
+        }
+    }
+
+    /**
+     * @brief Rimuove una chiave.
+     *
+     * @param key La chiave.
+     * @return true se la chiave era presente, false altrimenti.
+     */
+    boolean remove(byte[] key) {
+        PageCache.Node leaf = this.findLeaf(key);
+        int i = lowerBound(leaf.keys, key);
+        if (i >= leaf.keys.size() || !Arrays.equals(leaf.keys.get(i), key)) return false;
+        leaf.keys.remove(i);
+        leaf.values.remove(i);
+        this.pages.markDirty(leaf);
+        return true;
+    }
+
+    /**
+     * @brief Scorre in ordine le chiavi comprese in un intervallo, leggendo solo le foglie coinvolte.
+     *
+     * @param from Chiave iniziale inclusa, null per partire dalla prima.
+     * @param to Chiave finale esclusa, null per arrivare all'ultima.
+     * @param action Azione su chiave e valore; se restituisce false la scansione si interrompe.
+     */
+    void scan(byte[] from, byte[] to, BiPredicate<byte[], byte[]> action) {
+        PageCache.Node leaf = (from == null) ? this.firstLeaf() : this.findLeaf(from);
+        int i = (from == null) ? 0 : lowerBound(leaf.keys, from);
+        while (true) {
+            for (; i < leaf.keys.size(); i++) {
+                byte[] key = leaf.keys.get(i);
+                if (to != null && Arrays.compareUnsigned(key, to) >= 0) return;
+                if (!action.test(key, leaf.values.get(i))) return;
+            }
+            if (leaf.next == 0) return;
+            leaf = this.pages.get(leaf.next);
+            i = 0;
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Scende dalla radice fino alla foglia che può contenere la chiave.
+     *
+     * @param key La chiave.
+     * @return La foglia.
+     */
+    private PageCache.Node findLeaf(byte[] key) {
+        PageCache.Node node = this.pages.get(this.root);
+        while (node.type == PageCache.Node.INTERNAL)
+            node = this.pages.get(node.children.get(upperBound(node.keys, key)));
+        return node;
+    }
+
+    /**
+     * @brief Scende dalla radice fino alla foglia più a sinistra.
+     *
+     * @return La prima foglia.
+     */
+    private PageCache.Node firstLeaf() {
+        PageCache.Node node = this.pages.get(this.root);
+        while (node.type == PageCache.Node.INTERNAL)
+            node = this.pages.get(node.children.get(0));
+        return node;
+    }
+
+    /**
+     * @brief Inserisce ricorsivamente una chiave nel sottoalbero, dividendo i nodi troppo grandi.
+     *
+     * @param pageId Pagina radice del sottoalbero.
+     * @param key La chiave.
+     * @param value Il valore.
+     * @return La divisione da propagare al padre, null se il nodo non è stato diviso.
+     */
+    private Split insert(int pageId, byte[] key, byte[] value) {
+        PageCache.Node node = this.pages.get(pageId);
+
+        if (node.type == PageCache.Node.LEAF) {
+            int i = lowerBound(node.keys, key);
+            if (i < node.keys.size() && Arrays.equals(node.keys.get(i), key)) {
+                node.values.set(i, value);
+            } else {
+                node.keys.add(i, key);
+                node.values.add(i, value);
+            }
+            this.pages.markDirty(node);
+            return (node.byteSize() <= PageCache.PAGE_SIZE) ? null : this.splitLeaf(node);
+        }
+
+        int i = upperBound(node.keys, key);
+        Split split = this.insert(node.children.get(i), key, value);
+        if (split == null) return null;
+
+        node.keys.add(i, split.key());
+        node.children.add(i + 1, split.right());
+        this.pages.markDirty(node);
+        return (node.byteSize() <= PageCache.PAGE_SIZE) ? null : this.splitInternal(node);
+    }
+
+    /**
+     * @brief Divide una foglia a metà del suo contenuto in byte.
+     *
+     * @param node La foglia da dividere.
+     * @return La divisione da propagare al padre.
+     */
+    private Split splitLeaf(PageCache.Node node) {
+        int mid = this.splitPoint(node);
+        PageCache.Node right = this.pages.allocate(PageCache.Node.LEAF);
+        right.keys.addAll(node.keys.subList(mid, node.keys.size()));
+        right.values.addAll(node.values.subList(mid, node.values.size()));
+        node.keys.subList(mid, node.keys.size()).clear();
+        node.values.subList(mid, node.values.size()).clear();
+
+        right.next = node.next;
+        node.next = right.pageId;
+        this.pages.markDirty(node);
+        return new Split(right.keys.get(0), right.pageId);
+    }
+
+    /**
+     * @brief Divide un nodo interno promuovendo la chiave centrale.
+     *
+     * @param node Il nodo da dividere.
+     * @return La divisione da propagare al padre.
+     */
+    private Split splitInternal(PageCache.Node node) {
+        int mid = this.splitPoint(node);
+        byte[] separator = node.keys.get(mid);
+        PageCache.Node right = this.pages.allocate(PageCache.Node.INTERNAL);
+        right.keys.addAll(node.keys.subList(mid + 1, node.keys.size()));
+        right.children.addAll(node.children.subList(mid + 1, node.children.size()));
+        node.keys.subList(mid, node.keys.size()).clear();
+        node.children.subList(mid + 1, node.children.size()).clear();
+
+        this.pages.markDirty(node);
+        return new Split(separator, right.pageId);
+    }
+
+    /**
+     * @brief Trova l'indice della chiave a cui il contenuto del nodo raggiunge metà della sua dimensione.
+     *
+     * @param node Il nodo da dividere.
+     * @return Un indice compreso tra 1 e il numero di chiavi meno uno.
+     */
+    private int splitPoint(PageCache.Node node) {
+        int half = node.byteSize() / 2;
+        int size = 0;
+        for (int i = 0; i < node.keys.size(); i++) {
+            size += node.keys.get(i).length + ((node.type == PageCache.Node.LEAF) ? node.values.get(i).length : 4);
+            if (size >= half) return Math.max(1, Math.min(i, node.keys.size() - 2));
+        }
+        return node.keys.size() / 2;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Restituisce l'indice della prima chiave maggiore o uguale a quella cercata.
+     *
+     * @param keys Chiavi ordinate.
+     * @param key Chiave cercata.
+     * @return L'indice trovato.
+     */
+    private static int lowerBound(List<byte[]> keys, byte[] key) {
+        int low = 0, high = keys.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Arrays.compareUnsigned(keys.get(mid), key) < 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * @brief Restituisce l'indice della prima chiave strettamente maggiore di quella cercata.
+     *
+     * @param keys Chiavi ordinate.
+     * @param key Chiave cercata.
+     * @return L'indice trovato.
+     */
+    private static int upperBound(List<byte[]> keys, byte[] key) {
+        int low = 0, high = keys.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Arrays.compareUnsigned(keys.get(mid), key) <= 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
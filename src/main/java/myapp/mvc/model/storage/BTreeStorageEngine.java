@@ -0,0 +1,515 @@
+package myapp.mvc.model.storage;
+
+import myapp.mvc.model.exam.HasUniqueId;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * @brief Motore di archiviazione persistente su B+tree paginati.
+ *
+ * I record sono conservati in un file a pagine ({@link PageCache}) che contiene più alberi:
+ * quello primario (ID → record codificato), quello dell'ordine di inserimento (ordine → ID)
+ * e uno per ogni indice secondario (chiave dell'indice seguita dall'ID → ID). Le scansioni
+ * di un intervallo leggono solo le foglie che lo contengono e i record corrispondenti.
+ *
+ * I record più grandi di un quarto di pagina vengono spostati in una catena di pagine di overflow.
+ * Le modifiche diventano durevoli al {@link #flush()}; un crash fa ripartire dall'ultimo flush riuscito.
+ *
+ * @param <T> Tipo dei record, che implementano l'interfaccia HasUniqueId.
+ */
+public class BTreeStorageEngine<T extends HasUniqueId> implements IndexedStorageEngine<T> {
+
+    /** @brief Numero predefinito di pagine pulite conservate in memoria. */
+    public static final int DEFAULT_CACHE_PAGES = 2048;
+
+    /** @brief Record memorizzato direttamente nella foglia. */
+    private static final byte INLINE = 0;
+
+    /** @brief Record memorizzato in una catena di pagine di overflow. */
+    private static final byte OVERFLOW = 1;
+
+    /** @brief Dimensione dell'intestazione del valore nell'albero primario (tipo e ordine). */
+    private static final int VALUE_HEADER_SIZE = 1 + 8;
+
+    /** @brief Byte di dati contenuti in una pagina di overflow. */
+    private static final int OVERFLOW_CHUNK_SIZE = PageCache.PAGE_SIZE - 9;
+
+    /** @brief Pagine del file. */
+    private final PageCache pages;
+
+    /** @brief Codifica dei record. */
+    private final RecordCodec<T> codec;
+
+    /** @brief Indici secondari mantenuti dal motore. */
+    private final List<SecondaryIndex<T>> indexes;
+
+    /** @brief Albero primario: ID → record. */
+    private BTree primary;
+
+    /** @brief Albero dell'ordine di inserimento: ordine → ID. */
+    private BTree insertionOrder;
+
+    /** @brief Alberi degli indici secondari, indicizzati per nome dell'indice. */
+    private final Map<String, BTree> secondary = new LinkedHashMap<>();
+
+    /** @brief Prossimo ordine di inserimento da assegnare. */
+    private long nextOrder;
+
+    /** @brief Numero di record presenti. */
+    private int count;
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Costruttore con dimensione predefinita della cache delle pagine.
+     *
+     * @param path Percorso del file delle pagine.
+     * @param codec Codifica dei record.
+     * @param indexes Indici secondari da mantenere.
+     * @throws IOException Se il file non può essere aperto o non è valido.
+     */
+    public BTreeStorageEngine(Path path, RecordCodec<T> codec, List<SecondaryIndex<T>> indexes) throws IOException {
+        this(path, codec, indexes, DEFAULT_CACHE_PAGES);
+    }
+
+    /**
+     * @brief Costruttore che apre il file delle pagine e gli alberi che contiene.
+     *
+     * Se gli indici salvati nel file non coincidono con quelli richiesti, gli indici
+     * secondari vengono ricostruiti scorrendo l'albero primario.
+     *
+     * @param path Percorso del file delle pagine.
+     * @param codec Codifica dei record.
+     * @param indexes Indici secondari da mantenere.
+     * @param cachePages Numero massimo di pagine pulite conservate in memoria.
+     * @throws IOException Se il file non può essere aperto o non è valido.
+     */
+    public BTreeStorageEngine(Path path, RecordCodec<T> codec, List<SecondaryIndex<T>> indexes, int cachePages) throws IOException {
+        this.pages = new PageCache(path, cachePages);
+        this.codec = codec;
+        this.indexes = List.copyOf(indexes);
+
+        byte[] metadata = this.pages.getMetadata();
+        if (metadata.length == 0) this.createTrees();
+        else this.readMetadata(metadata);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Ottiene una copia del record cercandola nell'albero primario.
+     *
+     * @param uniqueId L'ID univoco del record.
+     * @return Il record decodificato, null se non esiste.
+     */
+    @Override
+    public synchronized T get(String uniqueId) {
+        byte[] value = this.primary.get(this.idKey(uniqueId));
+        return (value == null) ? null : this.decodeValue(value);
+    }
+
+    /**
+     * @brief Verifica se un record è presente.
+     *
+     * @param uniqueId L'ID univoco del record.
+     * @return true se il record è presente, false altrimenti.
+     */
+    @Override
+    public synchronized boolean contains(String uniqueId) {
+        return this.primary.get(this.idKey(uniqueId)) != null;
+    }
+
+    /**
+     * @brief Inserisce o sostituisce un record aggiornando gli indici secondari che cambiano.
+     *
+     * @param record Il record da inserire.
+     * @return La versione precedente del record, null se l'ID non era presente.
+     */
+    @Override
+    public synchronized T put(T record) {
+        byte[] id = this.idKey(record.getUniqueId());
+        byte[] previousValue = this.primary.get(id);
+        T previous = null;
+        long order;
+
+        if (previousValue != null) {
+            previous = this.decodeValue(previousValue);
+            order = ByteBuffer.wrap(previousValue).getLong(1);
+            this.freeOverflow(previousValue);
+        } else {
+            order = this.nextOrder++;
+            this.count++;
+            this.insertionOrder.put(this.orderKey(order), id);
+        }
+
+        this.primary.put(id, this.encodeValue(order, this.encodeRecord(record)));
+        for (SecondaryIndex<T> index : this.indexes) {
+            BTree tree = this.secondary.get(index.getName());
+            byte[] key = this.secondaryKey(index.getKey(record), id);
+            if (previous != null) {
+                byte[] previousKey = this.secondaryKey(index.getKey(previous), id);
+                if (Arrays.equals(previousKey, key)) continue;
+                tree.remove(previousKey);
+            }
+            tree.put(key, id);
+        }
+        return previous;
+    }
+
+    /**
+     * @brief Rimuove un record da tutti gli alberi.
+     *
+     * @param uniqueId L'ID univoco del record da rimuovere.
+     * @return Il record rimosso, null se non esiste.
+     */
+    @Override
+    public synchronized T delete(String uniqueId) {
+        byte[] id = this.idKey(uniqueId);
+        byte[] value = this.primary.get(id);
+        if (value == null) return null;
+
+        T previous = this.decodeValue(value);
+        this.primary.remove(id);
+        this.insertionOrder.remove(this.orderKey(ByteBuffer.wrap(value).getLong(1)));
+        for (SecondaryIndex<T> index : this.indexes)
+            this.secondary.get(index.getName()).remove(this.secondaryKey(index.getKey(previous), id));
+        this.freeOverflow(value);
+        this.count--;
+        return previous;
+    }
+
+    /**
+     * @brief Scorre tutti i record in ordine di inserimento.
+     *
+     * @param action Azione da eseguire su ciascun record.
+     */
+    @Override
+    public synchronized void scan(Consumer<? super T> action) {
+        this.insertionOrder.scan(null, null, (key, id) -> {
+            action.accept(this.decodeValue(this.primary.get(id)));
+            return true;
+        });
+    }
+
+    /**
+     * @brief Restituisce una copia immutabile di tutti i record decodificati.
+     *
+     * @return I record presenti, in ordine di inserimento.
+     */
+    @Override
+    public synchronized List<T> snapshot() {
+        List<T> records = new ArrayList<>(this.count);
+        this.scan(records::add);
+        return Collections.unmodifiableList(records);
+    }
+
+    /**
+     * @brief Restituisce il numero di record presenti.
+     *
+     * @return Il numero di record.
+     */
+    @Override
+    public synchronized int size() {
+        return this.count;
+    }
+
+    /**
+     * @brief Svuota il file e ricrea alberi vuoti.
+     */
+    @Override
+    public synchronized void clear() {
+        try {
+            this.pages.reset();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.createTrees();
+    }
+
+    /**
+     * @brief Scrive i metadati e le pagine modificate.
+     *
+     * @throws IOException Se la scrittura fallisce.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        this.pages.setMetadata(this.encodeMetadata());
+        this.pages.flush();
+    }
+
+    /**
+     * @brief Indica che il motore salva i record nel proprio file.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    /**
+     * @brief Scrive le modifiche e chiude il file.
+     *
+     * @throws IOException Se la scrittura o la chiusura falliscono.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        this.flush();
+        this.pages.close();
+    }
+
+    /**
+     * @brief Scorre in ordine di ID i record con ID compreso nell'intervallo.
+     *
+     * @param fromInclusive ID iniziale incluso, null per partire dal primo.
+     * @param toExclusive ID finale escluso, null per arrivare all'ultimo.
+     * @param action Azione da eseguire su ciascun record.
+     */
+    @Override
+    public synchronized void scanPrimary(String fromInclusive, String toExclusive, Consumer<? super T> action) {
+        byte[] from = (fromInclusive == null) ? null : this.idKey(fromInclusive);
+        byte[] to = (toExclusive == null) ? null : this.idKey(toExclusive);
+        this.primary.scan(from, to, (id, value) -> {
+            action.accept(this.decodeValue(value));
+            return true;
+        });
+    }
+
+    /**
+     * @brief Scorre in ordine di chiave i record la cui chiave nell'indice è compresa nell'intervallo.
+     *
+     * @param index L'indice da usare.
+     * @param fromInclusive Chiave iniziale inclusa, null per partire dalla prima.
+     * @param toExclusive Chiave finale esclusa, null per arrivare all'ultima.
+     * @param action Azione da eseguire su ciascun record.
+     * @throws IllegalArgumentException Se il motore non mantiene l'indice.
+     */
+    @Override
+    public synchronized void scanIndex(SecondaryIndex<T> index, byte[] fromInclusive, byte[] toExclusive, Consumer<? super T> action) {
+        BTree tree = this.secondary.get(index.getName());
+        if (tree == null) throw new IllegalArgumentException("Indice non mantenuto dal motore: " + index.getName());
+        tree.scan(fromInclusive, toExclusive, (key, id) -> {
+            action.accept(this.decodeValue(this.primary.get(id)));
+            return true;
+        });
+    }
+
+    /**
+     * @brief Restituisce il numero di accessi alle pagine serviti dalla cache.
+     *
+     * @return Il numero di accessi in cache.
+     */
+    public synchronized long getCacheHits() {
+        return this.pages.getHits();
+    }
+
+    /**
+     * @brief Restituisce il numero di accessi alle pagine che hanno richiesto una lettura dal file.
+     *
+     * @return Il numero di letture dal file.
+     */
+    public synchronized long getCacheMisses() {
+        return this.pages.getMisses();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // Alberi e metadati
+
+    /**
+     * @brief Crea alberi vuoti per il primario, l'ordine di inserimento e ogni indice secondario.
+     */
+    private void createTrees() {
+        this.primary = BTree.create(this.pages);
+        this.insertionOrder = BTree.create(this.pages);
+        this.secondary.clear();
+        for (SecondaryIndex<T> index : this.indexes)
+            this.secondary.put(index.getName(), BTree.create(this.pages));
+        this.nextOrder = 0;
+        this.count = 0;
+    }
+
+    /**
+     * @brief Codifica radici degli alberi, contatori e nomi degli indici.
+     *
+     * @return I metadati codificati.
+     */
+    private byte[] encodeMetadata() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(this.primary.getRoot());
+            out.writeInt(this.insertionOrder.getRoot());
+            out.writeLong(this.nextOrder);
+            out.writeInt(this.count);
+            out.writeInt(this.secondary.size());
+            for (Map.Entry<String, BTree> entry : this.secondary.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().getRoot());
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @brief Riapre gli alberi a partire dai metadati, ricostruendo gli indici se sono cambiati.
+     *
+     * @param metadata I metadati letti dal file.
+     * @throws IOException Se i metadati non sono validi.
+     */
+    private void readMetadata(byte[] metadata) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(metadata));
+        this.primary = new BTree(this.pages, in.readInt());
+        this.insertionOrder = new BTree(this.pages, in.readInt());
+        this.nextOrder = in.readLong();
+        this.count = in.readInt();
+
+        Map<String, Integer> roots = new LinkedHashMap<>();
+        int indexCount = in.readInt();
+        for (int i = 0; i < indexCount; i++)
+            roots.put(in.readUTF(), in.readInt());
+
+        List<String> names = this.indexes.stream().map(SecondaryIndex::getName).toList();
+        if (roots.keySet().equals(new LinkedHashSet<>(names))) {
+            for (String name : names)
+                this.secondary.put(name, new BTree(this.pages, roots.get(name)));
+            return;
+        }
+
+        // Gli indici richiesti sono cambiati: vengono ricostruiti (le pagine dei vecchi non vengono recuperate).
+        for (SecondaryIndex<T> index : this.indexes)
+            this.secondary.put(index.getName(), BTree.create(this.pages));
+        this.primary.scan(null, null, (id, value) -> {
+            T record = this.decodeValue(value);
+            for (SecondaryIndex<T> index : this.indexes)
+                this.secondary.get(index.getName()).put(this.secondaryKey(index.getKey(record), id), id);
+            return true;
+        });
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // Chiavi e valori
+
+    /**
+     * @brief Codifica un ID come chiave dell'albero primario.
+     *
+     * @param uniqueId L'ID.
+     * @return La chiave.
+     */
+    private byte[] idKey(String uniqueId) {
+        return uniqueId.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @brief Codifica un ordine di inserimento come chiave.
+     *
+     * @param order L'ordine, non negativo.
+     * @return La chiave in big-endian.
+     */
+    private byte[] orderKey(long order) {
+        return ByteBuffer.allocate(8).putLong(order).array();
+    }
+
+    /**
+     * @brief Costruisce la chiave di un indice secondario, resa unica accodando l'ID.
+     *
+     * @param indexKey La chiave del record nell'indice.
+     * @param id L'ID codificato.
+     * @return La chiave completa.
+     */
+    private byte[] secondaryKey(byte[] indexKey, byte[] id) {
+        byte[] key = Arrays.copyOf(indexKey, indexKey.length + id.length);
+        System.arraycopy(id, 0, key, indexKey.length, id.length);
+        return key;
+    }
+
+    /**
+     * @brief Codifica un record con il codec.
+     *
+     * @param record Il record.
+     * @return I byte del record.
+     */
+    private byte[] encodeRecord(T record) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            this.codec.encode(record, out);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @brief Costruisce il valore dell'albero primario, spostando i record grandi in pagine di overflow.
+     *
+     * @param order Ordine di inserimento del record.
+     * @param record I byte del record.
+     * @return Il valore da salvare nella foglia.
+     */
+    private byte[] encodeValue(long order, byte[] record) {
+        if (VALUE_HEADER_SIZE + record.length <= BTree.MAX_VALUE_SIZE)
+            return ByteBuffer.allocate(VALUE_HEADER_SIZE + record.length).put(INLINE).putLong(order).put(record).array();
+
+        int next = 0;
+        for (int end = record.length; end > 0; end -= OVERFLOW_CHUNK_SIZE) {
+            int start = Math.max(0, end - OVERFLOW_CHUNK_SIZE);
+            PageCache.Node page = this.pages.allocate(PageCache.Node.OVERFLOW);
+            page.data = Arrays.copyOfRange(record, start, end);
+            page.next = next;
+            next = page.pageId;
+        }
+        return ByteBuffer.allocate(VALUE_HEADER_SIZE + 8).put(OVERFLOW).putLong(order).putInt(next).putInt(record.length).array();
+    }
+
+    /**
+     * @brief Decodifica il record contenuto in un valore dell'albero primario.
+     *
+     * @param value Il valore letto dalla foglia.
+     * @return Il record decodificato.
+     */
+    private T decodeValue(byte[] value) {
+        byte[] record;
+        if (value[0] == INLINE) {
+            record = Arrays.copyOfRange(value, VALUE_HEADER_SIZE, value.length);
+        } else {
+            ByteBuffer header = ByteBuffer.wrap(value, VALUE_HEADER_SIZE, 8);
+            int page = header.getInt();
+            record = new byte[header.getInt()];
+            for (int position = 0; page != 0; ) {
+                PageCache.Node node = this.pages.get(page);
+                System.arraycopy(node.data, 0, record, position, node.data.length);
+                position += node.data.length;
+                page = node.next;
+            }
+        }
+        try {
+            return this.codec.decode(new DataInputStream(new ByteArrayInputStream(record)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @brief Restituisce alla lista delle pagine libere la catena di overflow di un valore.
+     *
+     * @param value Il valore dell'albero primario.
+     */
+    private void freeOverflow(byte[] value) {
+        if (value[0] != OVERFLOW) return;
+        int page = ByteBuffer.wrap(value).getInt(VALUE_HEADER_SIZE);
+        while (page != 0) {
+            int next = this.pages.get(page).next;
+            this.pages.free(page);
+            page = next;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package myapp.mvc.model.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * @brief Primitive di codifica binaria compatta condivise dai codec dei record.
+ *
+ * Gli interi sono scritti come varint (7 bit per byte), le stringhe in UTF-8 precedute dalla
+ * lunghezza e gli ID in formato UUID canonico come 128 bit, con la stringa come alternativa
+ * per gli ID che non sono UUID.
+ */
+public final class BinaryFormat {
+
+    /** @brief Marcatore di un ID codificato come UUID a 128 bit. */
+    private static final byte ID_UUID = 0;
+
+    /** @brief Marcatore di un ID codificato come stringa. */
+    private static final byte ID_STRING = 1;
+
+    /**
+     * @brief Numero massimo di elementi o byte riservati in anticipo sulla base di una lunghezza letta da file.
+     *
+     * Le lunghezze lette da un file danneggiato possono essere arbitrarie: oltre questa soglia le
+     * strutture crescono man mano che i dati vengono effettivamente letti.
+     */
+    public static final int MAX_INITIAL_CAPACITY = 1 << 16;
+
+    /**
+     * @brief Costruttore privato: la classe espone solo metodi statici.
+     */
+    private BinaryFormat() {}
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Scrive un intero non negativo come varint.
+     *
+     * I valori negativi sono ammessi ma occupano sempre cinque byte.
+     *
+     * @param out Stream di destinazione.
+     * @param value Valore da scrivere.
+     * @throws IOException Se la scrittura fallisce.
+     */
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * @brief Legge un intero scritto come varint.
+     *
+     * @param in Stream di origine.
+     * @return Il valore letto.
+     * @throws IOException Se la lettura fallisce o il varint è troppo lungo.
+     */
+    public static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new StreamCorruptedException("Varint non valido");
+    }
+
+    /**
+     * @brief Scrive una stringa in UTF-8 preceduta dalla sua lunghezza.
+     *
+     * La lunghezza è incrementata di uno, così che il valore 0 rappresenti null.
+     *
+     * @param out Stream di destinazione.
+     * @param value Stringa da scrivere, può essere null.
+     * @throws IOException Se la scrittura fallisce.
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    /**
+     * @brief Legge una stringa scritta con {@link #writeString}.
+     *
+     * @param in Stream di origine.
+     * @return La stringa letta, null se era stata scritta una stringa nulla.
+     * @throws IOException Se la lettura fallisce.
+     */
+    public static String readString(DataInput in) throws IOException {
+        int length = readVarInt(in);
+        if (length == 0) return null;
+        if (length < 0) throw new StreamCorruptedException("Lunghezza della stringa non valida");
+        int size = length - 1;
+        if (size <= MAX_INITIAL_CAPACITY) {
+            byte[] bytes = new byte[size];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        // Una lunghezza oltre la soglia viene letta a blocchi: un file troncato termina prima di riservare tutta la memoria.
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(MAX_INITIAL_CAPACITY);
+        byte[] chunk = new byte[MAX_INITIAL_CAPACITY];
+        for (int remaining = size; remaining > 0; remaining -= chunk.length) {
+            int read = Math.min(remaining, chunk.length);
+            in.readFully(chunk, 0, read);
+            bytes.write(chunk, 0, read);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @brief Restituisce la capacità iniziale di una struttura per un numero di elementi letto da file.
+     *
+     * @param count Numero di elementi dichiarato nel file, non negativo.
+     * @return La capacità iniziale, al più {@link #MAX_INITIAL_CAPACITY}.
+     */
+    public static int initialCapacity(int count) {
+        return Math.min(count, MAX_INITIAL_CAPACITY);
+    }
+
+    /**
+     * @brief Scrive un ID univoco.
+     *
+     * Gli ID in formato UUID canonico occupano 17 byte; gli altri vengono scritti come stringa.
+     *
+     * @param out Stream di destinazione.
+     * @param uniqueId ID da scrivere.
+     * @throws IOException Se la scrittura fallisce.
+     */
+    public static void writeId(DataOutput out, String uniqueId) throws IOException {
+        UUID uuid = parseCanonicalUuid(uniqueId);
+        if (uuid == null) {
+            out.writeByte(ID_STRING);
+            writeString(out, uniqueId);
+            return;
+        }
+        out.writeByte(ID_UUID);
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * @brief Legge un ID univoco scritto con {@link #writeId}.
+     *
+     * @param in Stream di origine.
+     * @return L'ID letto.
+     * @throws IOException Se la lettura fallisce o il formato dell'ID è sconosciuto.
+     */
+    public static String readId(DataInput in) throws IOException {
+        return switch (in.readByte()) {
+            case ID_UUID -> new UUID(in.readLong(), in.readLong()).toString();
+            case ID_STRING -> readString(in);
+            default -> throw new StreamCorruptedException("Formato dell'ID sconosciuto");
+        };
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Interpreta un ID come UUID solo se la sua forma canonica coincide con la stringa.
+     *
+     * @param uniqueId ID da interpretare.
+     * @return Il UUID corrispondente, null se l'ID non è un UUID canonico.
+     */
+    private static UUID parseCanonicalUuid(String uniqueId) {
+        if (uniqueId == null || uniqueId.length() != 36) return null;
+        try {
+            UUID uuid = UUID.fromString(uniqueId);
+            return uuid.toString().equals(uniqueId) ? uuid : null;
+        } catch (IllegalArgumentException ignored) {
+            // Non è un UUID: verrà scritto come stringa.
+        }
+        return null;
+    }
+}
@@ -0,0 +1,215 @@
+package myapp.mvc.model.storage;
+
+import myapp.mvc.model.exam.HasUniqueId;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * @brief Motore di archiviazione in memoria senza lock, per l'accesso da più thread.
+ *
+ * I record sono conservati in una mappa concorrente indicizzata per ID; ogni voce porta il numero
+ * di sequenza assegnato all'inserimento. Una seconda mappa concorrente ordinata associa i numeri di
+ * sequenza agli ID, così che le scansioni seguano l'ordine di inserimento. Una voce dell'indice di
+ * sequenza è valida solo se coincide con il numero di sequenza del record presente: le voci rimaste
+ * indietro per un inserimento o una rimozione concorrente vengono semplicemente ignorate.
+ *
+ * Al contrario di {@link MemoryStorageEngine} uno snapshot costa tempo lineare ed è debolmente
+ * consistente, ma nessuna operazione deve attendere le altre.
+ *
+ * @param <T> Tipo dei record, che implementano l'interfaccia HasUniqueId.
+ */
+public class ConcurrentMapStorageEngine<T extends HasUniqueId> implements ConcurrentStorageEngine<T> {
+
+    /** @brief Record presenti, indicizzati per ID. */
+    private final Map<String, Entry<T>> entries = new ConcurrentHashMap<>();
+
+    /** @brief Indice numero di sequenza -> ID, in ordine di inserimento. */
+    private final ConcurrentSkipListMap<Long, String> sequence = new ConcurrentSkipListMap<>();
+
+    /** @brief Prossimo numero di sequenza da assegnare. */
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    /**
+     * @brief Voce immutabile della mappa dei record, confrontata per identità.
+     */
+    private static final class Entry<T> {
+
+        /** @brief Numero di sequenza assegnato all'inserimento del record. */
+        private final long sequence;
+
+        /** @brief Il record. */
+        private final T record;
+
+        /**
+         * @brief Costruttore della voce.
+         *
+         * @param sequence Numero di sequenza del record.
+         * @param record Il record.
+         */
+        private Entry(long sequence, T record) {
+            this.sequence = sequence;
+            this.record = record;
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Ottiene un record.
+     *
+     * @param uniqueId L'ID univoco del record.
+     * @return Il record associato all'ID, null se non esiste.
+     */
+    @Override
+    public T get(String uniqueId) {
+        Entry<T> entry = this.entries.get(uniqueId);
+        return (entry == null) ? null : entry.record;
+    }
+
+    /**
+     * @brief Verifica se un record è presente.
+     *
+     * @param uniqueId L'ID univoco del record.
+     * @return true se il record è presente, false altrimenti.
+     */
+    @Override
+    public boolean contains(String uniqueId) {
+        return this.entries.containsKey(uniqueId);
+    }
+
+    /**
+     * @brief Inserisce un record o sostituisce quello con lo stesso ID, mantenendone la posizione.
+     *
+     * @param record Il record da inserire.
+     * @return Il record sostituito, null se l'ID non era presente.
+     */
+    @Override
+    public T put(T record) {
+        while (true) {
+            Entry<T> entry = this.entries.get(record.getUniqueId());
+            if (entry == null) {
+                if (this.putIfAbsent(record) == null) return null;
+            } else if (this.entries.replace(record.getUniqueId(), entry, new Entry<>(entry.sequence, record))) {
+                return entry.record;
+            }
+        }
+    }
+
+    /**
+     * @brief Inserisce un record solo se il suo ID non è già presente.
+     *
+     * Il numero di sequenza viene registrato prima del record, così che una rimozione concorrente
+     * trovi sempre la voce da eliminare; se l'inserimento non avviene la voce viene tolta.
+     *
+     * @param record Il record da inserire.
+     * @return Il record già presente con lo stesso ID, null se il record è stato inserito.
+     */
+    @Override
+    public T putIfAbsent(T record) {
+        long order = this.nextSequence.getAndIncrement();
+        this.sequence.put(order, record.getUniqueId());
+        Entry<T> existing = this.entries.putIfAbsent(record.getUniqueId(), new Entry<>(order, record));
+        if (existing == null) return null;
+        this.sequence.remove(order);
+        return existing.record;
+    }
+
+    /**
+     * @brief Sostituisce un record solo se quello presente è ancora quello atteso, mantenendone la posizione.
+     *
+     * @param expected Il record che si aspetta di trovare, confrontato per identità.
+     * @param record Il record che lo sostituisce, con lo stesso ID.
+     * @return true se il record è stato sostituito, false se nel frattempo è stato modificato o rimosso.
+     */
+    @Override
+    public boolean replace(T expected, T record) {
+        Entry<T> entry = this.entries.get(record.getUniqueId());
+        if (entry == null || entry.record != expected) return false;
+        return this.entries.replace(record.getUniqueId(), entry, new Entry<>(entry.sequence, record));
+    }
+
+    /**
+     * @brief Rimuove un record.
+     *
+     * @param uniqueId L'ID univoco del record da rimuovere.
+     * @return Il record rimosso, null se non esiste.
+     */
+    @Override
+    public T delete(String uniqueId) {
+        Entry<T> entry = this.entries.remove(uniqueId);
+        if (entry == null) return null;
+        this.sequence.remove(entry.sequence);
+        return entry.record;
+    }
+
+    /**
+     * @brief Scorre tutti i record in ordine di inserimento, senza bloccare le modifiche concorrenti.
+     *
+     * @param action Azione da eseguire su ciascun record.
+     */
+    @Override
+    public void scan(Consumer<? super T> action) {
+        for (Map.Entry<Long, String> order : this.sequence.entrySet()) {
+            Entry<T> entry = this.entries.get(order.getValue());
+            if (entry != null && entry.sequence == order.getKey()) action.accept(entry.record);
+        }
+    }
+
+    /**
+     * @brief Restituisce una copia immutabile dell'elenco dei record, in tempo lineare.
+     *
+     * @return I record presenti, in ordine di inserimento.
+     */
+    @Override
+    public List<T> snapshot() {
+        List<T> records = new ArrayList<>(this.entries.size());
+        this.scan(records::add);
+        return Collections.unmodifiableList(records);
+    }
+
+    /**
+     * @brief Restituisce il numero di record presenti.
+     *
+     * @return Il numero di record.
+     */
+    @Override
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * @brief Rimuove tutti i record.
+     *
+     * Non è atomica rispetto alle modifiche concorrenti, che possono sopravvivere alla pulizia.
+     */
+    @Override
+    public void clear() {
+        this.entries.clear();
+        this.sequence.clear();
+    }
+
+    /**
+     * @brief Indica che le letture sono sicure anche durante una modifica.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean supportsOptimisticReads() {
+        return true;
+    }
+
+    /**
+     * @brief Non fa nulla: i record in memoria vengono salvati dal database.
+     */
+    @Override
+    public void flush() {
+        // Nessun file da aggiornare.
+    }
+}
@@ -0,0 +1,33 @@
+package myapp.mvc.model.storage;
+
+import myapp.mvc.model.exam.HasUniqueId;
+
+/**
+ * @brief Motore di archiviazione che può essere letto e modificato da più thread senza lock esterni.
+ *
+ * Ogni operazione sul singolo record è atomica; gli inserimenti e le sostituzioni condizionali
+ * permettono al database di aggiungere e modificare i record senza acquisire il proprio lock.
+ * Le scansioni e gli snapshot sono debolmente consistenti: possono riflettere o meno le modifiche
+ * concorrenti, ma non lanciano eccezioni e restituiscono ogni record al più una volta.
+ *
+ * @param <T> Tipo dei record, che implementano l'interfaccia HasUniqueId.
+ */
+public interface ConcurrentStorageEngine<T extends HasUniqueId> extends StorageEngine<T> {
+
+    /**
+     * @brief Inserisce un record solo se il suo ID non è già presente.
+     *
+     * @param record Il record da inserire.
+     * @return Il record già presente con lo stesso ID, null se il record è stato inserito.
+     */
+    T putIfAbsent(T record);
+
+    /**
+     * @brief Sostituisce un record solo se quello presente è ancora quello atteso, mantenendone la posizione.
+     *
+     * @param expected Il record che si aspetta di trovare, confrontato per identità.
+     * @param record Il record che lo sostituisce, con lo stesso ID.
+     * @return true se il record è stato sostituito, false se nel frattempo è stato modificato o rimosso.
+     */
+    boolean replace(T expected, T record);
+}
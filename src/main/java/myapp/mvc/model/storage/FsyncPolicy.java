@@ -0,0 +1,41 @@
+package myapp.mvc.model.storage;
+
+/**
+ * @brief Politica di scrittura forzata su disco dei file salvati.
+ *
+ * Il salvataggio scrive sempre un file temporaneo e lo sposta al posto di quello vecchio,
+ * quindi un crash del programma lascia comunque un file completo. La politica decide quanto
+ * spesso attendere che i dati raggiungano il disco, proteggendo anche da un'interruzione
+ * dell'alimentazione.
+ */
+public enum FsyncPolicy {
+
+    /** @brief Forza su disco ogni salvataggio. */
+    ALWAYS,
+
+    /**
+     * @brief Forza su disco ogni file salvato prima di spostarlo, ma la cartella al massimo una volta per intervallo di tempo.
+     *
+     * Uno spostamento non ancora durevole può andare perso, lasciando il file precedente, ma il file
+     * salvato non resta mai vuoto o troncato.
+     */
+    BATCHED,
+
+    /** @brief Non forza mai su disco, lasciando la scrittura al sistema operativo. */
+    NEVER;
+
+    /**
+     * @brief Ricava la politica dal suo nome, accettando anche "true" e "false".
+     *
+     * @param name Nome della politica, senza distinzione tra maiuscole e minuscole.
+     * @return La politica corrispondente.
+     * @throws IllegalArgumentException Se il nome non corrisponde a nessuna politica.
+     */
+    public static FsyncPolicy parse(String name) {
+        return switch (name.trim().toLowerCase()) {
+            case "true" -> ALWAYS;
+            case "false" -> NEVER;
+            default -> FsyncPolicy.valueOf(name.trim().toUpperCase());
+        };
+    }
+}
@@ -0,0 +1,77 @@
+package myapp.mvc.model.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * @brief Costruttore di chiavi binarie il cui ordine byte per byte coincide con quello dei valori.
+ *
+ * Gli interi sono scritti in big-endian con il bit di segno invertito; le stringhe in UTF-8
+ * seguite da un byte 0, così che una stringa preceda tutte quelle che la estendono.
+ * Le stringhe più lunghe di {@link #MAX_STRING_SIZE} byte vengono troncate.
+ */
+public final class IndexKey {
+
+    /** @brief Dimensione massima in byte di una stringa all'interno di una chiave. */
+    public static final int MAX_STRING_SIZE = 255;
+
+    /** @brief Byte della chiave in costruzione. */
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    /**
+     * @brief Accoda un intero alla chiave.
+     *
+     * @param value Il valore.
+     * @return Questa chiave, per concatenare le chiamate.
+     */
+    public IndexKey addInt(int value) {
+        int flipped = value ^ Integer.MIN_VALUE;
+        this.bytes.write(flipped >>> 24);
+        this.bytes.write(flipped >>> 16);
+        this.bytes.write(flipped >>> 8);
+        this.bytes.write(flipped);
+        return this;
+    }
+
+    /**
+     * @brief Accoda una stringa alla chiave.
+     *
+     * @param value Il valore, null viene trattato come stringa vuota.
+     * @return Questa chiave, per concatenare le chiamate.
+     */
+    public IndexKey addString(String value) {
+        byte[] encoded = (value == null) ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        this.bytes.write(encoded, 0, Math.min(encoded.length, MAX_STRING_SIZE));
+        this.bytes.write(0);
+        return this;
+    }
+
+    /**
+     * @brief Restituisce i byte della chiave.
+     *
+     * @return La chiave codificata.
+     */
+    public byte[] toBytes() {
+        return this.bytes.toByteArray();
+    }
+
+    /**
+     * @brief Restituisce la più piccola chiave maggiore di tutte quelle che iniziano con il prefisso.
+     *
+     * Da usare come estremo escluso per scorrere tutte le chiavi con un certo prefisso.
+     *
+     * @param prefix Il prefisso.
+     * @return La chiave successiva al prefisso, null se non esiste (prefisso di soli 0xFF).
+     */
+    public static byte[] after(byte[] prefix) {
+        byte[] next = Arrays.copyOf(prefix, prefix.length);
+        for (int i = next.length - 1; i >= 0; i--) {
+            if (next[i] != (byte) 0xFF) {
+                next[i]++;
+                return Arrays.copyOf(next, i + 1);
+            }
+        }
+        return null;
+    }
+}
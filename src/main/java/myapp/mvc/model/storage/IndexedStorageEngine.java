@@ -0,0 +1,33 @@
+package myapp.mvc.model.storage;
+
+import myapp.mvc.model.exam.HasUniqueId;
+
+import java.util.function.Consumer;
+
+/**
+ * @brief Motore di archiviazione ordinato, con scansioni di intervalli sulla chiave primaria e sugli indici secondari.
+ *
+ * @param <T> Tipo dei record, che implementano l'interfaccia HasUniqueId.
+ */
+public interface IndexedStorageEngine<T extends HasUniqueId> extends StorageEngine<T> {
+
+    /**
+     * @brief Scorre in ordine di ID i record con ID compreso nell'intervallo.
+     *
+     * @param fromInclusive ID iniziale incluso, null per partire dal primo.
+     * @param toExclusive ID finale escluso, null per arrivare all'ultimo.
+     * @param action Azione da eseguire su ciascun record.
+     */
+    void scanPrimary(String fromInclusive, String toExclusive, Consumer<? super T> action);
+
+    /**
+     * @brief Scorre in ordine di chiave i record la cui chiave nell'indice è compresa nell'intervallo.
+     *
+     * @param index L'indice da usare, tra quelli con cui è stato aperto il motore.
+     * @param fromInclusive Chiave iniziale inclusa, null per partire dalla prima.
+     * @param toExclusive Chiave finale esclusa, null per arrivare all'ultima.
+     * @param action Azione da eseguire su ciascun record.
+     * @throws IllegalArgumentException Se il motore non mantiene l'indice.
+     */
+    void scanIndex(SecondaryIndex<T> index, byte[] fromInclusive, byte[] toExclusive, Consumer<? super T> action);
+}
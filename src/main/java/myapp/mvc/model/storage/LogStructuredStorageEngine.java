@@ -0,0 +1,862 @@
+package myapp.mvc.model.storage;
+
+import myapp.mvc.model.exam.HasUniqueId;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * @brief Motore di archiviazione persistente a log strutturato (modello Bitcask).
+ *
+ * Ogni scrittura accoda il record codificato al segmento attivo, un file in sola aggiunta.
+ * Una mappa in memoria (keydir) associa ogni ID alla posizione dell'ultima versione del record,
+ * così che una lettura puntuale sia una sola lettura posizionata. Quando il segmento attivo
+ * supera la dimensione massima viene chiuso e ne viene aperto uno nuovo.
+ *
+ * I segmenti chiusi vengono fusi in background quando lo spazio occupato da versioni superate
+ * e cancellazioni supera quello dei dati vivi. Per ogni segmento chiuso viene scritto un file
+ * di hint con le sole posizioni dei record, così che all'avvio non serva rileggere i dati.
+ *
+ * Formato di un record: [CRC32][sequenza][ordine][flag][lunghezza ID][lunghezza valore][ID][valore].
+ * La sequenza cresce a ogni scrittura e decide quale versione prevale all'avvio; l'ordine è quello
+ * di primo inserimento e viene mantenuto dalle modifiche.
+ *
+ * @param <T> Tipo dei record, che implementano l'interfaccia HasUniqueId.
+ */
+public class LogStructuredStorageEngine<T extends HasUniqueId> implements StorageEngine<T> {
+
+    /** @brief Dimensione massima predefinita di un segmento in byte. */
+    public static final long DEFAULT_MAX_SEGMENT_SIZE = 64L * 1024 * 1024;
+
+    /** @brief Spazio minimo occupato da dati superati prima di avviare una fusione. */
+    public static final long DEFAULT_MERGE_THRESHOLD = 16L * 1024 * 1024;
+
+    /** @brief Estensione dei file dei segmenti. */
+    private static final String SEGMENT_EXTENSION = ".seg";
+
+    /** @brief Estensione dei file di hint. */
+    private static final String HINT_EXTENSION = ".hint";
+
+    /** @brief Numero magico che identifica un file di hint completo. */
+    private static final int HINT_MAGIC = 0x48494E54; // "HINT"
+
+    /** @brief Dimensione dell'intestazione di ogni record in byte. */
+    private static final int HEADER_SIZE = 4 + 8 + 8 + 1 + 4 + 4;
+
+    /** @brief Dimensione minima di una voce di hint in byte: ID vuoto, posizione, dimensione, sequenza, ordine e flag. */
+    private static final int MIN_HINT_ENTRY_SIZE = 2 + 8 + 4 + 8 + 8 + 1;
+
+    /** @brief Flag di un record di cancellazione. */
+    private static final byte TOMBSTONE = 1;
+
+    /** @brief Cartella che contiene segmenti e file di hint. */
+    private final Path directory;
+
+    /** @brief Codifica dei record. */
+    private final RecordCodec<T> codec;
+
+    /** @brief Dimensione massima di un segmento in byte. */
+    private final long maxSegmentSize;
+
+    /** @brief Spazio minimo occupato da dati superati prima di avviare una fusione. */
+    private final long mergeThreshold;
+
+    /** @brief Posizione dell'ultima versione di ogni record, in ordine di inserimento. */
+    private final LinkedHashMap<String, Location> keydir = new LinkedHashMap<>();
+
+    /** @brief Canali aperti sui segmenti, indicizzati per numero di segmento. */
+    private final Map<Integer, FileChannel> segments = new HashMap<>();
+
+    /** @brief Voci di hint del segmento attivo, scritte alla sua chiusura. */
+    private final List<HintEntry> activeHints = new ArrayList<>();
+
+    /** @brief Thread che esegue le fusioni in background. */
+    private final ExecutorService merger;
+
+    /** @brief Numero del segmento attivo. */
+    private int activeSegment;
+
+    /** @brief Dimensione del segmento attivo in byte. */
+    private long activeSize;
+
+    /** @brief Prossimo numero di segmento da assegnare. */
+    private int nextSegment;
+
+    /** @brief Prossimo numero di sequenza da assegnare a una scrittura. */
+    private long nextSeq;
+
+    /** @brief Prossimo ordine di inserimento da assegnare a un nuovo ID. */
+    private long nextOrder;
+
+    /** @brief Byte occupati da tutti i segmenti. */
+    private long totalBytes;
+
+    /** @brief Byte occupati dalle ultime versioni dei record vivi. */
+    private long liveBytes;
+
+    /** @brief Indica se una fusione è in corso o programmata. */
+    private boolean merging = false;
+
+    /** @brief Indica se il motore è stato chiuso; le fusioni programmate o in corso si interrompono. */
+    private volatile boolean closed = false;
+
+    /** @brief Incrementato da {@link #clear()} per invalidare le fusioni in corso. */
+    private int generation = 0;
+
+    /**
+     * @brief Posizione di un record all'interno dei segmenti.
+     *
+     * @param segment Numero del segmento.
+     * @param offset Posizione del record nel segmento.
+     * @param size Dimensione del record in byte, intestazione compresa.
+     * @param seq Numero di sequenza della scrittura.
+     * @param order Ordine di primo inserimento dell'ID.
+     */
+    private record Location(int segment, long offset, int size, long seq, long order) {}
+
+    /**
+     * @brief Voce di un file di hint.
+     *
+     * @param key ID del record.
+     * @param location Posizione del record.
+     * @param tombstone true se il record è una cancellazione.
+     */
+    private record HintEntry(String key, Location location, boolean tombstone) {}
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Costruttore con dimensione dei segmenti e soglia di fusione predefinite.
+     *
+     * @param directory Cartella che contiene segmenti e file di hint; viene creata se non esiste.
+     * @param codec Codifica dei record.
+     * @throws IOException Se la cartella o i segmenti non possono essere letti.
+     */
+    public LogStructuredStorageEngine(Path directory, RecordCodec<T> codec) throws IOException {
+        this(directory, codec, DEFAULT_MAX_SEGMENT_SIZE, DEFAULT_MERGE_THRESHOLD);
+    }
+
+    /**
+     * @brief Costruttore che apre i segmenti esistenti e ricostruisce la keydir.
+     *
+     * @param directory Cartella che contiene segmenti e file di hint; viene creata se non esiste.
+     * @param codec Codifica dei record.
+     * @param maxSegmentSize Dimensione massima di un segmento in byte.
+     * @param mergeThreshold Spazio minimo occupato da dati superati prima di avviare una fusione.
+     * @throws IOException Se la cartella o i segmenti non possono essere letti.
+     */
+    public LogStructuredStorageEngine(Path directory, RecordCodec<T> codec, long maxSegmentSize, long mergeThreshold) throws IOException {
+        this.directory = directory;
+        this.codec = codec;
+        this.maxSegmentSize = maxSegmentSize;
+        this.mergeThreshold = mergeThreshold;
+        this.merger = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LogStructuredStorageEngine-merge");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Files.createDirectories(directory);
+        this.open();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Ottiene una copia del record leggendola dal segmento che la contiene.
+     *
+     * @param uniqueId L'ID univoco del record.
+     * @return Il record decodificato, null se non esiste.
+     */
+    @Override
+    public synchronized T get(String uniqueId) {
+        Location location = this.keydir.get(uniqueId);
+        return (location == null) ? null : this.read(location);
+    }
+
+    /**
+     * @brief Verifica se un record è presente, senza leggere i segmenti.
+     *
+     * @param uniqueId L'ID univoco del record.
+     * @return true se il record è presente, false altrimenti.
+     */
+    @Override
+    public synchronized boolean contains(String uniqueId) {
+        return this.keydir.containsKey(uniqueId);
+    }
+
+    /**
+     * @brief Accoda una nuova versione del record al segmento attivo.
+     *
+     * @param record Il record da inserire.
+     * @return La versione precedente del record, null se l'ID non era presente.
+     */
+    @Override
+    public synchronized T put(T record) {
+        String key = record.getUniqueId();
+        Location previous = this.keydir.get(key);
+        T old = (previous == null) ? null : this.read(previous);
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            this.codec.encode(record, out);
+            out.flush();
+
+            long order = (previous == null) ? this.nextOrder++ : previous.order();
+            Location location = this.append(key, bytes.toByteArray(), order, false);
+            if (previous != null) this.liveBytes -= previous.size();
+            this.liveBytes += location.size();
+            this.keydir.put(key, location);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        this.scheduleMergeIfNeeded();
+        return old;
+    }
+
+    /**
+     * @brief Accoda una cancellazione e rimuove il record dalla keydir.
+     *
+     * @param uniqueId L'ID univoco del record da rimuovere.
+     * @return Il record rimosso, null se non esiste.
+     */
+    @Override
+    public synchronized T delete(String uniqueId) {
+        Location previous = this.keydir.get(uniqueId);
+        if (previous == null) return null;
+        T old = this.read(previous);
+
+        try {
+            this.append(uniqueId, new byte[0], previous.order(), true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.keydir.remove(uniqueId);
+        this.liveBytes -= previous.size();
+
+        this.scheduleMergeIfNeeded();
+        return old;
+    }
+
+    /**
+     * @brief Scorre tutti i record in ordine di inserimento, decodificandoli uno alla volta.
+     *
+     * @param action Azione da eseguire su ciascun record.
+     */
+    @Override
+    public synchronized void scan(Consumer<? super T> action) {
+        for (Location location : this.keydir.values())
+            action.accept(this.read(location));
+    }
+
+    /**
+     * @brief Restituisce una copia immutabile di tutti i record decodificati.
+     *
+     * @return I record presenti, in ordine di inserimento.
+     */
+    @Override
+    public synchronized List<T> snapshot() {
+        List<T> records = new ArrayList<>(this.keydir.size());
+        this.scan(records::add);
+        return Collections.unmodifiableList(records);
+    }
+
+    /**
+     * @brief Restituisce il numero di record presenti.
+     *
+     * @return Il numero di record.
+     */
+    @Override
+    public synchronized int size() {
+        return this.keydir.size();
+    }
+
+    /**
+     * @brief Elimina tutti i segmenti e riparte da un segmento vuoto.
+     */
+    @Override
+    public synchronized void clear() {
+        try {
+            this.generation++;
+            this.closeSegments();
+            this.deleteFiles(this.listSegments());
+            this.keydir.clear();
+            this.activeHints.clear();
+            this.totalBytes = 0;
+            this.liveBytes = 0;
+            this.openActiveSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @brief Forza su disco le scritture del segmento attivo.
+     *
+     * @throws IOException Se la scrittura fallisce.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        this.segments.get(this.activeSegment).force(false);
+    }
+
+    /**
+     * @brief Indica che il motore salva i record nei propri file.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    /**
+     * @brief Interrompe le fusioni, chiude il segmento attivo scrivendone l'hint e rilascia i file.
+     *
+     * Prima di rilasciare i file attende che la fusione in corso si interrompa, così che non acceda
+     * a segmenti già chiusi. Il thread della fusione non viene interrotto: un'interruzione durante una
+     * lettura chiuderebbe il canale del segmento letto.
+     *
+     * @throws IOException Se la scrittura o la chiusura falliscono.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) return;
+        this.closed = true;
+        this.merger.shutdown();
+        try {
+            while (!this.merger.awaitTermination(1, TimeUnit.SECONDS)) {
+                // La fusione controlla la chiusura a ogni record copiato.
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            this.flush();
+            this.writeHint(this.activeSegment, this.activeHints);
+            this.closeSegments();
+        }
+    }
+
+    /**
+     * @brief Fonde subito i segmenti chiusi, attendendo la fine dell'operazione.
+     *
+     * @throws IOException Se la fusione fallisce.
+     */
+    public void merge() throws IOException {
+        synchronized (this) {
+            if (this.merging) return;
+            this.merging = true;
+        }
+        try {
+            this.doMerge();
+        } finally {
+            synchronized (this) {
+                this.merging = false;
+            }
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // Apertura
+
+    /**
+     * @brief Ricostruisce la keydir dagli hint (o dai segmenti che ne sono privi) e apre un nuovo segmento attivo.
+     *
+     * @throws IOException Se i file non possono essere letti.
+     */
+    private void open() throws IOException {
+        Map<String, HintEntry> latest = new HashMap<>();
+        long maxSeq = -1;
+        long maxOrder = -1;
+        int maxSegment = -1;
+
+        for (int segment : this.listSegments()) {
+            FileChannel channel = FileChannel.open(this.segmentPath(segment), StandardOpenOption.READ);
+            this.segments.put(segment, channel);
+            this.totalBytes += channel.size();
+            maxSegment = Math.max(maxSegment, segment);
+
+            List<HintEntry> entries = this.readHint(segment, channel.size());
+            if (entries == null) {
+                entries = this.scanSegment(segment, channel);
+                this.writeHint(segment, entries);
+            }
+
+            for (HintEntry entry : entries) {
+                HintEntry current = latest.get(entry.key());
+                if (current == null || current.location().seq() < entry.location().seq()) latest.put(entry.key(), entry);
+                maxSeq = Math.max(maxSeq, entry.location().seq());
+                maxOrder = Math.max(maxOrder, entry.location().order());
+            }
+        }
+
+        latest.values().stream()
+            .filter(entry -> !entry.tombstone())
+            .sorted(Comparator.comparingLong(entry -> entry.location().order()))
+            .forEach(entry -> {
+                this.keydir.put(entry.key(), entry.location());
+                this.liveBytes += entry.location().size();
+            });
+
+        this.nextSeq = maxSeq + 1;
+        this.nextOrder = maxOrder + 1;
+        this.nextSegment = maxSegment + 1;
+        this.openActiveSegment();
+    }
+
+    /**
+     * @brief Elenca i numeri dei segmenti presenti nella cartella, in ordine crescente.
+     *
+     * @return I numeri dei segmenti.
+     * @throws IOException Se la cartella non può essere letta.
+     */
+    private List<Integer> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            return files.map(path -> path.getFileName().toString())
+                .filter(name -> name.endsWith(SEGMENT_EXTENSION))
+                .map(name -> Integer.parseInt(name.substring(0, name.length() - SEGMENT_EXTENSION.length())))
+                .sorted()
+                .toList();
+        }
+    }
+
+    /**
+     * @brief Rilegge un segmento privo di hint fino all'ultimo record integro.
+     *
+     * @param segment Numero del segmento.
+     * @param channel Canale aperto sul segmento.
+     * @return Le voci di hint dei record letti.
+     * @throws IOException Se il segmento non può essere letto.
+     */
+    private List<HintEntry> scanSegment(int segment, FileChannel channel) throws IOException {
+        List<HintEntry> entries = new ArrayList<>();
+        long size = channel.size();
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+        while (offset + HEADER_SIZE <= size) {
+            header.clear();
+            this.readFully(channel, header, offset);
+            header.flip();
+            header.getInt();
+            long seq = header.getLong();
+            long order = header.getLong();
+            byte flags = header.get();
+            int keyLength = header.getInt();
+            int valueLength = header.getInt();
+            if (keyLength < 0 || valueLength < 0 || offset + HEADER_SIZE + keyLength + valueLength > size) break;
+
+            int recordSize = HEADER_SIZE + keyLength + valueLength;
+            ByteBuffer record = ByteBuffer.allocate(recordSize);
+            this.readFully(channel, record, offset);
+            if (!this.checksumMatches(record.array())) break;
+
+            String key = new String(record.array(), HEADER_SIZE, keyLength, StandardCharsets.UTF_8);
+            entries.add(new HintEntry(key, new Location(segment, offset, recordSize, seq, order), flags == TOMBSTONE));
+            offset += recordSize;
+        }
+        return entries;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // Segmenti
+
+    /**
+     * @brief Apre un nuovo segmento attivo vuoto.
+     *
+     * @throws IOException Se il file non può essere creato.
+     */
+    private void openActiveSegment() throws IOException {
+        this.activeSegment = this.nextSegment++;
+        this.activeSize = 0;
+        this.activeHints.clear();
+        FileChannel channel = FileChannel.open(this.segmentPath(this.activeSegment),
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.segments.put(this.activeSegment, channel);
+    }
+
+    /**
+     * @brief Chiude il segmento attivo scrivendone l'hint e ne apre uno nuovo.
+     *
+     * @throws IOException Se la scrittura fallisce.
+     */
+    private void rollActiveSegment() throws IOException {
+        this.segments.get(this.activeSegment).force(false);
+        this.writeHint(this.activeSegment, this.activeHints);
+        this.openActiveSegment();
+    }
+
+    /**
+     * @brief Accoda un record al segmento attivo.
+     *
+     * @param key ID del record.
+     * @param value Record codificato, vuoto per le cancellazioni.
+     * @param order Ordine di primo inserimento dell'ID.
+     * @param tombstone true se il record è una cancellazione.
+     * @return La posizione del record scritto.
+     * @throws IOException Se la scrittura fallisce.
+     */
+    private Location append(String key, byte[] value, long order, boolean tombstone) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long seq = this.nextSeq++;
+        ByteBuffer record = this.encodeRecord(keyBytes, value, seq, order, tombstone);
+        int size = record.remaining();
+
+        Location location = new Location(this.activeSegment, this.activeSize, size, seq, order);
+        this.writeFully(this.segments.get(this.activeSegment), record, this.activeSize);
+        this.activeSize += size;
+        this.totalBytes += size;
+        this.activeHints.add(new HintEntry(key, location, tombstone));
+
+        if (this.activeSize >= this.maxSegmentSize) this.rollActiveSegment();
+        return location;
+    }
+
+    /**
+     * @brief Costruisce i byte di un record, CRC32 compreso.
+     *
+     * @param key ID del record in UTF-8.
+     * @param value Record codificato.
+     * @param seq Numero di sequenza della scrittura.
+     * @param order Ordine di primo inserimento dell'ID.
+     * @param tombstone true se il record è una cancellazione.
+     * @return Il buffer pronto per la scrittura.
+     */
+    private ByteBuffer encodeRecord(byte[] key, byte[] value, long seq, long order, boolean tombstone) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + key.length + value.length);
+        record.putInt(0)
+            .putLong(seq)
+            .putLong(order)
+            .put(tombstone ? TOMBSTONE : 0)
+            .putInt(key.length)
+            .putInt(value.length)
+            .put(key)
+            .put(value);
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, record.capacity() - 4);
+        record.putInt(0, (int) crc.getValue());
+        return record.flip();
+    }
+
+    /**
+     * @brief Legge e decodifica un record con una sola lettura posizionata.
+     *
+     * @param location Posizione del record.
+     * @return Il record decodificato.
+     */
+    private T read(Location location) {
+        try {
+            ByteBuffer record = ByteBuffer.allocate(location.size());
+            this.readFully(this.segments.get(location.segment()), record, location.offset());
+            byte[] bytes = record.array();
+            if (!this.checksumMatches(bytes)) throw new StreamCorruptedException("Record corrotto nel segmento " + location.segment());
+
+            int keyLength = record.getInt(4 + 8 + 8 + 1);
+            int valueOffset = HEADER_SIZE + keyLength;
+            return this.codec.decode(new DataInputStream(new ByteArrayInputStream(bytes, valueOffset, bytes.length - valueOffset)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @brief Verifica il CRC32 di un record.
+     *
+     * @param record I byte del record, intestazione compresa.
+     * @return true se il CRC32 coincide.
+     */
+    private boolean checksumMatches(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 4, record.length - 4);
+        return (int) crc.getValue() == ByteBuffer.wrap(record).getInt(0);
+    }
+
+    /**
+     * @brief Chiude tutti i canali aperti sui segmenti.
+     *
+     * @throws IOException Se la chiusura fallisce.
+     */
+    private void closeSegments() throws IOException {
+        for (FileChannel channel : this.segments.values())
+            channel.close();
+        this.segments.clear();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // Hint
+
+    /**
+     * @brief Scrive il file di hint di un segmento passando da un file temporaneo.
+     *
+     * @param segment Numero del segmento.
+     * @param entries Voci di hint del segmento.
+     * @throws IOException Se la scrittura fallisce.
+     */
+    private void writeHint(int segment, List<HintEntry> entries) throws IOException {
+        Path target = this.hintPath(segment);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(HINT_MAGIC);
+            out.writeInt(entries.size());
+            for (HintEntry entry : entries) {
+                out.writeUTF(entry.key());
+                out.writeLong(entry.location().offset());
+                out.writeInt(entry.location().size());
+                out.writeLong(entry.location().seq());
+                out.writeLong(entry.location().order());
+                out.writeBoolean(entry.tombstone());
+            }
+            out.writeInt(HINT_MAGIC);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @brief Legge il file di hint di un segmento.
+     *
+     * Il numero di voci e le posizioni dei record vengono verificati rispetto alla dimensione dei file:
+     * un hint danneggiato viene scartato come uno incompleto.
+     *
+     * @param segment Numero del segmento.
+     * @param segmentSize Dimensione del segmento in byte.
+     * @return Le voci di hint, null se il file manca, è incompleto o non è valido.
+     */
+    private List<HintEntry> readHint(int segment, long segmentSize) {
+        Path path = this.hintPath(segment);
+        if (!Files.exists(path)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != HINT_MAGIC) return null;
+            int count = in.readInt();
+            if (count < 0 || count > (Files.size(path) - 3 * 4) / MIN_HINT_ENTRY_SIZE) return null;
+            List<HintEntry> entries = new ArrayList<>(BinaryFormat.initialCapacity(count));
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                Location location = new Location(segment, in.readLong(), in.readInt(), in.readLong(), in.readLong());
+                if (location.offset() < 0 || location.size() < HEADER_SIZE || location.offset() + location.size() > segmentSize)
+                    return null;
+                entries.add(new HintEntry(key, location, in.readBoolean()));
+            }
+            return (in.readInt() == HINT_MAGIC) ? entries : null;
+        } catch (IOException | RuntimeException ignored) {
+            // Hint incompleto o danneggiato: il segmento verrà riletto.
+        }
+        return null;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // Fusione
+
+    /**
+     * @brief Programma una fusione quando i dati superati superano la soglia e i dati vivi.
+     */
+    private void scheduleMergeIfNeeded() {
+        long deadBytes = this.totalBytes - this.liveBytes;
+        if (this.closed || this.merging || deadBytes < this.mergeThreshold || deadBytes < this.liveBytes) return;
+        this.merging = true;
+        this.merger.execute(() -> {
+            try {
+                this.doMerge();
+            } catch (IOException ignored) {
+                // Ignora l'eccezione: i segmenti originali restano validi.
+            } finally {
+                synchronized (this) {
+                    this.merging = false;
+                }
+            }
+        });
+    }
+
+    /**
+     * @brief Copia le ultime versioni dei record vivi dei segmenti chiusi in nuovi segmenti ed elimina i vecchi.
+     *
+     * La copia avviene senza trattenere il lock del motore: i segmenti chiusi non cambiano più.
+     * Alla fine la keydir viene aggiornata solo per i record che nel frattempo non sono stati modificati.
+     *
+     * @throws IOException Se la copia fallisce.
+     */
+    private void doMerge() throws IOException {
+        List<Integer> merged;
+        Map<String, Location> live = new LinkedHashMap<>();
+        int mergeGeneration;
+        synchronized (this) {
+            if (this.closed) return;
+            this.rollActiveSegment();
+            merged = this.segments.keySet().stream().filter(segment -> segment != this.activeSegment).sorted().toList();
+            this.keydir.forEach((key, location) -> {
+                if (location.segment() != this.activeSegment) live.put(key, location);
+            });
+            mergeGeneration = this.generation;
+        }
+
+        Map<String, Location> moved = new HashMap<>();
+        List<Integer> outputs = new ArrayList<>();
+        FileChannel output = null;
+        List<HintEntry> outputHints = new ArrayList<>();
+        int outputSegment = -1;
+        long outputSize = 0;
+
+        try {
+            for (Map.Entry<String, Location> entry : live.entrySet()) {
+                if (this.closed) throw new IOException("Motore di archiviazione chiuso durante la fusione");
+                Location source = entry.getValue();
+                if (output == null || outputSize >= this.maxSegmentSize) {
+                    if (output != null) this.finishMergeOutput(output, outputSegment, outputHints);
+                    synchronized (this) {
+                        outputSegment = this.nextSegment++;
+                    }
+                    outputs.add(outputSegment);
+                    output = FileChannel.open(this.segmentPath(outputSegment),
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    outputHints = new ArrayList<>();
+                    outputSize = 0;
+                }
+
+                FileChannel input;
+                synchronized (this) {
+                    input = this.segments.get(source.segment());
+                }
+                ByteBuffer record = ByteBuffer.allocate(source.size());
+                this.readFully(input, record, source.offset());
+                record.flip();
+                this.writeFully(output, record, outputSize);
+
+                Location target = new Location(outputSegment, outputSize, source.size(), source.seq(), source.order());
+                outputHints.add(new HintEntry(entry.getKey(), target, false));
+                moved.put(entry.getKey(), target);
+                outputSize += source.size();
+            }
+            if (output != null) this.finishMergeOutput(output, outputSegment, outputHints);
+        } catch (IOException | RuntimeException e) {
+            if (output != null) output.close();
+            this.deleteFiles(outputs);
+            throw e;
+        }
+
+        synchronized (this) {
+            if (this.closed || mergeGeneration != this.generation) {
+                this.deleteFiles(outputs);
+                return;
+            }
+            for (int segment : outputs) {
+                FileChannel channel = FileChannel.open(this.segmentPath(segment), StandardOpenOption.READ);
+                this.segments.put(segment, channel);
+                this.totalBytes += channel.size();
+            }
+            // I record modificati durante la fusione puntano già al segmento attivo: la loro copia è superata.
+            for (Map.Entry<String, Location> entry : moved.entrySet()) {
+                if (live.get(entry.getKey()).equals(this.keydir.get(entry.getKey())))
+                    this.keydir.put(entry.getKey(), entry.getValue());
+            }
+            for (int segment : merged) {
+                FileChannel channel = this.segments.remove(segment);
+                this.totalBytes -= channel.size();
+                channel.close();
+            }
+            this.deleteFiles(merged);
+            this.recomputeLiveBytes();
+        }
+    }
+
+    /**
+     * @brief Completa un segmento prodotto dalla fusione forzandolo su disco e scrivendone l'hint.
+     *
+     * @param output Canale del segmento.
+     * @param segment Numero del segmento.
+     * @param hints Voci di hint del segmento.
+     * @throws IOException Se la scrittura fallisce.
+     */
+    private void finishMergeOutput(FileChannel output, int segment, List<HintEntry> hints) throws IOException {
+        output.force(false);
+        output.close();
+        this.writeHint(segment, hints);
+    }
+
+    /**
+     * @brief Ricalcola i byte occupati dai record vivi.
+     */
+    private void recomputeLiveBytes() {
+        long bytes = 0;
+        for (Location location : this.keydir.values())
+            bytes += location.size();
+        this.liveBytes = bytes;
+    }
+
+    /**
+     * @brief Elimina i file dei segmenti indicati e i relativi hint.
+     *
+     * @param segments Numeri dei segmenti da eliminare.
+     * @throws IOException Se l'eliminazione fallisce.
+     */
+    private void deleteFiles(List<Integer> segments) throws IOException {
+        for (int segment : segments) {
+            Files.deleteIfExists(this.segmentPath(segment));
+            Files.deleteIfExists(this.hintPath(segment));
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // Utilità
+
+    /**
+     * @brief Restituisce il percorso del file di un segmento.
+     *
+     * @param segment Numero del segmento.
+     * @return Il percorso del file.
+     */
+    private Path segmentPath(int segment) {
+        return this.directory.resolve(String.format("%08d%s", segment, SEGMENT_EXTENSION));
+    }
+
+    /**
+     * @brief Restituisce il percorso del file di hint di un segmento.
+     *
+     * @param segment Numero del segmento.
+     * @return Il percorso del file.
+     */
+    private Path hintPath(int segment) {
+        return this.directory.resolve(String.format("%08d%s", segment, HINT_EXTENSION));
+    }
+
+    /**
+     * @brief Legge da un canale fino a riempire il buffer.
+     *
+     * @param channel Canale da cui leggere.
+     * @param buffer Buffer da riempire.
+     * @param position Posizione iniziale nel file.
+     * @throws IOException Se la lettura fallisce o il file termina prima.
+     */
+    private void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) throw new EOFException();
+        }
+    }
+
+    /**
+     * @brief Scrive su un canale l'intero contenuto del buffer.
+     *
+     * @param channel Canale su cui scrivere.
+     * @param buffer Buffer da scrivere.
+     * @param position Posizione iniziale nel file.
+     * @throws IOException Se la scrittura fallisce.
+     */
+    private void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining())
+            written += channel.write(buffer, position + written);
+    }
+}
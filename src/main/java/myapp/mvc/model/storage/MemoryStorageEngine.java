@@ -0,0 +1,160 @@
+package myapp.mvc.model.storage;
+
+import myapp.mvc.model.exam.HasUniqueId;
+import myapp.util.PersistentOrderedMap;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * @brief Motore di archiviazione in memoria.
+ *
+ * Conserva i record in una {@link PersistentOrderedMap} indicizzata per ordine di inserimento,
+ * affiancata da un indice hash sull'ID. Ogni modifica sostituisce la radice della mappa, quindi
+ * uno snapshot costa solo la lettura di un riferimento e resta immutabile mentre il database
+ * continua a essere modificato. È il motore predefinito: il salvataggio su file resta a carico
+ * del database, tramite snapshot completi e log delle modifiche.
+ *
+ * @param <T> Tipo dei record, che implementano l'interfaccia HasUniqueId.
+ */
+public class MemoryStorageEngine<T extends HasUniqueId> implements StorageEngine<T> {
+
+    /** @brief Record presenti, indicizzati per ordine di inserimento. */
+    private volatile PersistentOrderedMap<T> records = PersistentOrderedMap.empty();
+
+    /** @brief Indice ID -> ordine di inserimento del record. */
+    private final Map<String, Long> orders = new ConcurrentHashMap<>();
+
+    /** @brief Prossimo ordine di inserimento da assegnare. */
+    private long nextOrder = 0;
+
+    /**
+     * @brief Ottiene un record.
+     *
+     * @param uniqueId L'ID univoco del record.
+     * @return Il record associato all'ID, null se non esiste.
+     */
+    @Override
+    public T get(String uniqueId) {
+        Long order = this.orders.get(uniqueId);
+        return (order == null) ? null : this.records.get(order);
+    }
+
+    /**
+     * @brief Verifica se un record è presente.
+     *
+     * @param uniqueId L'ID univoco del record.
+     * @return true se il record è presente, false altrimenti.
+     */
+    @Override
+    public boolean contains(String uniqueId) {
+        return this.orders.containsKey(uniqueId);
+    }
+
+    /**
+     * @brief Inserisce un record o sostituisce quello con lo stesso ID, mantenendone la posizione.
+     *
+     * @param record Il record da inserire.
+     * @return Il record sostituito, null se l'ID non era presente.
+     */
+    @Override
+    public T put(T record) {
+        Long order = this.orders.get(record.getUniqueId());
+        if (order == null) {
+            order = this.nextOrder++;
+            this.orders.put(record.getUniqueId(), order);
+        }
+        T previous = this.records.get(order);
+        this.records = this.records.put(order, record);
+        return previous;
+    }
+
+    /**
+     * @brief Rimuove un record.
+     *
+     * @param uniqueId L'ID univoco del record da rimuovere.
+     * @return Il record rimosso, null se non esiste.
+     */
+    @Override
+    public T delete(String uniqueId) {
+        Long order = this.orders.remove(uniqueId);
+        if (order == null) return null;
+        T record = this.records.get(order);
+        this.records = this.records.remove(order);
+        return record;
+    }
+
+    /**
+     * @brief Scorre tutti i record in ordine di inserimento.
+     *
+     * @param action Azione da eseguire su ciascun record.
+     */
+    @Override
+    public void scan(Consumer<? super T> action) {
+        this.records.values().forEach(action);
+    }
+
+    /**
+     * @brief Restituisce l'elenco immutabile dei record, in tempo costante.
+     *
+     * @return I record presenti, in ordine di inserimento.
+     */
+    @Override
+    public List<T> snapshot() {
+        return this.records.values();
+    }
+
+    /**
+     * @brief Restituisce la posizione di un record nell'ordine di inserimento, in tempo logaritmico.
+     *
+     * @param uniqueId L'ID univoco del record.
+     * @return La posizione del record, -1 se non è presente.
+     */
+    @Override
+    public int indexOf(String uniqueId) {
+        Long order = this.orders.get(uniqueId);
+        return (order == null) ? -1 : this.records.rank(order);
+    }
+
+    /**
+     * @brief Restituisce il numero di record presenti.
+     *
+     * @return Il numero di record.
+     */
+    @Override
+    public int size() {
+        return this.orders.size();
+    }
+
+    /**
+     * @brief Rimuove tutti i record.
+     */
+    @Override
+    public void clear() {
+        this.records = PersistentOrderedMap.empty();
+        this.orders.clear();
+    }
+
+    /**
+     * @brief Indica che le letture sono sicure anche durante una modifica.
+     *
+     * L'indice è una mappa concorrente e la mappa dei record è immutabile e pubblicata tramite
+     * un riferimento volatile, quindi una lettura concorrente vede sempre strutture coerenti.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean supportsOptimisticReads() {
+        return true;
+    }
+
+    /**
+     * @brief Non fa nulla: i record in memoria vengono salvati dal database.
+     */
+    @Override
+    public void flush() {
+        // Nessun file da aggiornare.
+    }
+}
@@ -0,0 +1,547 @@
+package myapp.mvc.model.storage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * @brief File a pagine di dimensione fissa con buffer pool e cache LRU.
+ *
+ * Le pagine vengono lette dal file solo al primo accesso e conservate decodificate in memoria.
+ * Le pagine pulite meno usate di recente vengono scartate quando la cache supera la capacità;
+ * quelle modificate restano in memoria fino al {@link #flush()} successivo, che le scrive prima
+ * in un journal e poi al loro posto nel file. Se un crash interrompe la scrittura, all'apertura
+ * il journal completo viene riapplicato, così che il file rifletta sempre l'ultimo flush riuscito.
+ *
+ * La pagina 0 contiene l'intestazione del file: formato, numero di pagine, lista delle pagine
+ * libere e i metadati del motore che usa il file.
+ */
+final class PageCache implements Closeable {
+
+    /** @brief Dimensione di una pagina in byte. */
+    static final int PAGE_SIZE = 8192;
+
+    /** @brief Numero magico che identifica il file. */
+    private static final int MAGIC = 0x42545245; // "BTRE"
+
+    /** @brief Versione del formato del file. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** @brief Numero magico che chiude un journal completo. */
+    private static final int JOURNAL_MAGIC = 0x4A524E4C; // "JRNL"
+
+    /** @brief Dimensione dell'intestazione fissa della pagina 0 in byte. */
+    private static final int HEADER_SIZE = 6 * 4;
+
+    /** @brief Canale sul file delle pagine. */
+    private final FileChannel channel;
+
+    /** @brief Percorso del journal usato durante il flush. */
+    private final Path journalPath;
+
+    /** @brief Numero massimo di pagine pulite conservate in memoria. */
+    private final int capacity;
+
+    /** @brief Pagine in memoria, in ordine di accesso (dalla meno usata di recente). */
+    private final LinkedHashMap<Integer, Node> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** @brief Pagine modificate dall'ultimo flush. */
+    private final Map<Integer, Node> dirty = new HashMap<>();
+
+    /** @brief Numero di pagine del file, intestazione compresa. */
+    private int pageCount;
+
+    /** @brief Prima pagina della lista delle pagine libere, 0 se vuota. */
+    private int freeHead;
+
+    /** @brief Metadati del motore salvati nell'intestazione. */
+    private byte[] metadata = new byte[0];
+
+    /** @brief Numero di accessi serviti dalla cache. */
+    private long hits = 0;
+
+    /** @brief Numero di accessi che hanno richiesto una lettura dal file. */
+    private long misses = 0;
+
+    /**
+     * @brief Pagina decodificata: nodo foglia, nodo interno, pagina di overflow o pagina libera.
+     */
+    static final class Node {
+
+        /** @brief Tipi di pagina. */
+        static final byte LEAF = 1;
+        static final byte INTERNAL = 2;
+        static final byte OVERFLOW = 3;
+        static final byte FREE = 4;
+
+        /** @brief Numero della pagina. */
+        final int pageId;
+
+        /** @brief Tipo della pagina. */
+        final byte type;
+
+        /** @brief Chiavi ordinate (foglie e nodi interni). */
+        final List<byte[]> keys = new ArrayList<>();
+
+        /** @brief Valori associati alle chiavi (solo foglie). */
+        final List<byte[]> values = new ArrayList<>();
+
+        /** @brief Pagine figlie, una in più delle chiavi (solo nodi interni). */
+        final List<Integer> children = new ArrayList<>();
+
+        /** @brief Pagina successiva: foglia a destra, seguito dell'overflow o pagina libera seguente. */
+        int next = 0;
+
+        /** @brief Dati di una pagina di overflow. */
+        byte[] data = new byte[0];
+
+        /**
+         * @brief Costruttore di una pagina vuota.
+         *
+         * @param pageId Numero della pagina.
+         * @param type Tipo della pagina.
+         */
+        Node(int pageId, byte type) {
+            this.pageId = pageId;
+            this.type = type;
+        }
+
+        /**
+         * @brief Calcola la dimensione della pagina codificata.
+         *
+         * @return La dimensione in byte.
+         */
+        int byteSize() {
+            int size = 1 + 4 + 4;
+            if (this.type == OVERFLOW) return size + this.data.length;
+            for (int i = 0; i < this.keys.size(); i++) {
+                size += varIntSize(this.keys.get(i).length) + this.keys.get(i).length;
+                if (this.type == LEAF) size += varIntSize(this.values.get(i).length) + this.values.get(i).length;
+                else size += 4;
+            }
+            if (this.type == INTERNAL) size += 4;
+            return size;
+        }
+
+        /**
+         * @brief Codifica la pagina in un buffer di dimensione {@link #PAGE_SIZE}.
+         *
+         * @param buffer Buffer di destinazione.
+         */
+        void encode(ByteBuffer buffer) {
+            buffer.put(this.type);
+            buffer.putInt(this.next);
+            switch (this.type) {
+                case OVERFLOW -> {
+                    buffer.putInt(this.data.length);
+                    buffer.put(this.data);
+                }
+                case LEAF -> {
+                    buffer.putInt(this.keys.size());
+                    for (int i = 0; i < this.keys.size(); i++) {
+                        putBytes(buffer, this.keys.get(i));
+                        putBytes(buffer, this.values.get(i));
+                    }
+                }
+                case INTERNAL -> {
+                    buffer.putInt(this.keys.size());
+                    buffer.putInt(this.children.get(0));
+                    for (int i = 0; i < this.keys.size(); i++) {
+                        putBytes(buffer, this.keys.get(i));
+                        buffer.putInt(this.children.get(i + 1));
+                    }
+                }
+                default -> buffer.putInt(0);
+            }
+        }
+
+        /**
+         * @brief Decodifica una pagina letta dal file.
+         *
+         * @param pageId Numero della pagina.
+         * @param buffer Buffer con i byte della pagina.
+         * @return La pagina decodificata.
+         * @throws IOException Se il tipo di pagina è sconosciuto.
+         */
+        static Node decode(int pageId, ByteBuffer buffer) throws IOException {
+            Node node = new Node(pageId, buffer.get());
+            node.next = buffer.getInt();
+            int count = buffer.getInt();
+            switch (node.type) {
+                case OVERFLOW -> {
+                    node.data = new byte[count];
+                    buffer.get(node.data);
+                }
+                case LEAF -> {
+                    for (int i = 0; i < count; i++) {
+                        node.keys.add(getBytes(buffer));
+                        node.values.add(getBytes(buffer));
+                    }
+                }
+                case INTERNAL -> {
+                    node.children.add(buffer.getInt());
+                    for (int i = 0; i < count; i++) {
+                        node.keys.add(getBytes(buffer));
+                        node.children.add(buffer.getInt());
+                    }
+                }
+                case FREE -> {
+                    // Nessun contenuto oltre alla pagina libera seguente.
+                }
+                default -> throw new StreamCorruptedException("Tipo di pagina sconosciuto: " + node.type);
+            }
+            return node;
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Costruttore che apre (o crea) il file delle pagine.
+     *
+     * @param path Percorso del file.
+     * @param capacity Numero massimo di pagine pulite conservate in memoria.
+     * @throws IOException Se il file non può essere aperto o non è valido.
+     */
+    PageCache(Path path, int capacity) throws IOException {
+        this.capacity = capacity;
+        this.journalPath = path.resolveSibling(path.getFileName() + ".journal");
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        this.recoverJournal();
+        if (this.channel.size() < PAGE_SIZE) {
+            this.reset();
+        } else {
+            this.readHeader();
+        }
+    }
+
+    /**
+     * @brief Restituisce una pagina, leggendola dal file se non è in cache.
+     *
+     * @param pageId Numero della pagina.
+     * @return La pagina decodificata.
+     */
+    Node get(int pageId) {
+        Node node = this.cache.get(pageId);
+        if (node != null) {
+            this.hits++;
+            return node;
+        }
+        this.misses++;
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+            this.readFully(buffer, (long) pageId * PAGE_SIZE);
+            node = Node.decode(pageId, buffer.flip());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.cache.put(pageId, node);
+        this.evict();
+        return node;
+    }
+
+    /**
+     * @brief Alloca una pagina vuota, riusando le pagine libere se possibile.
+     *
+     * @param type Tipo della nuova pagina.
+     * @return La nuova pagina, già segnata come modificata.
+     */
+    Node allocate(byte type) {
+        int pageId;
+        if (this.freeHead != 0) {
+            pageId = this.freeHead;
+            this.freeHead = this.get(pageId).next;
+        } else {
+            pageId = this.pageCount++;
+        }
+        Node node = new Node(pageId, type);
+        this.markDirty(node);
+        return node;
+    }
+
+    /**
+     * @brief Restituisce una pagina alla lista delle pagine libere.
+     *
+     * @param pageId Numero della pagina.
+     */
+    void free(int pageId) {
+        Node node = new Node(pageId, Node.FREE);
+        node.next = this.freeHead;
+        this.freeHead = pageId;
+        this.markDirty(node);
+    }
+
+    /**
+     * @brief Segna una pagina come modificata: resterà in memoria fino al prossimo flush.
+     *
+     * @param node La pagina modificata.
+     */
+    void markDirty(Node node) {
+        this.cache.put(node.pageId, node);
+        this.dirty.put(node.pageId, node);
+    }
+
+    /**
+     * @brief Restituisce i metadati del motore salvati nell'intestazione.
+     *
+     * @return I metadati, vuoti per un file nuovo.
+     */
+    byte[] getMetadata() {
+        return this.metadata;
+    }
+
+    /**
+     * @brief Imposta i metadati del motore, scritti al prossimo flush.
+     *
+     * @param metadata I metadati; devono entrare nella pagina di intestazione.
+     */
+    void setMetadata(byte[] metadata) {
+        if (metadata.length > PAGE_SIZE - HEADER_SIZE) throw new IllegalArgumentException("Metadati troppo grandi");
+        this.metadata = metadata;
+    }
+
+    /**
+     * @brief Restituisce il numero di accessi serviti dalla cache.
+     *
+     * @return Il numero di accessi in cache.
+     */
+    long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * @brief Restituisce il numero di accessi che hanno richiesto una lettura dal file.
+     *
+     * @return Il numero di letture dal file.
+     */
+    long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * @brief Scrive le pagine modificate e l'intestazione passando dal journal.
+     *
+     * @throws IOException Se la scrittura fallisce.
+     */
+    void flush() throws IOException {
+        Map<Integer, ByteBuffer> pages = new TreeMap<>();
+        pages.put(0, this.encodeHeader());
+        for (Node node : this.dirty.values()) {
+            ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+            node.encode(buffer);
+            pages.put(node.pageId, buffer.clear());
+        }
+
+        try (FileChannel journal = FileChannel.open(this.journalPath,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long position = 0;
+            for (Map.Entry<Integer, ByteBuffer> page : pages.entrySet()) {
+                position += this.writeFully(journal, ByteBuffer.allocate(4).putInt(0, page.getKey()), position);
+                position += this.writeFully(journal, page.getValue().duplicate(), position);
+            }
+            this.writeFully(journal, ByteBuffer.allocate(8).putInt(0, JOURNAL_MAGIC).putInt(4, pages.size()), position);
+            journal.force(true);
+        }
+
+        for (Map.Entry<Integer, ByteBuffer> page : pages.entrySet())
+            this.writeFully(this.channel, page.getValue(), (long) page.getKey() * PAGE_SIZE);
+        this.channel.force(true);
+        Files.deleteIfExists(this.journalPath);
+
+        this.dirty.clear();
+        this.evict();
+    }
+
+    /**
+     * @brief Svuota il file e riparte da un'intestazione vuota.
+     *
+     * @throws IOException Se il file non può essere troncato.
+     */
+    void reset() throws IOException {
+        this.cache.clear();
+        this.dirty.clear();
+        this.channel.truncate(0);
+        this.pageCount = 1;
+        this.freeHead = 0;
+        this.metadata = new byte[0];
+        this.writeFully(this.channel, this.encodeHeader(), 0);
+    }
+
+    /**
+     * @brief Chiude il file senza scrivere le pagine modificate.
+     *
+     * @throws IOException Se la chiusura fallisce.
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Scarta le pagine pulite meno usate di recente finché la cache rientra nella capacità.
+     */
+    private void evict() {
+        Iterator<Map.Entry<Integer, Node>> iterator = this.cache.entrySet().iterator();
+        while (this.cache.size() > this.capacity + this.dirty.size() && iterator.hasNext()) {
+            if (!this.dirty.containsKey(iterator.next().getKey())) iterator.remove();
+        }
+    }
+
+    /**
+     * @brief Legge l'intestazione dalla pagina 0.
+     *
+     * @throws IOException Se l'intestazione non è valida.
+     */
+    private void readHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE);
+        this.readFully(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION || header.getInt() != PAGE_SIZE)
+            throw new StreamCorruptedException("File delle pagine non valido");
+        this.pageCount = header.getInt();
+        this.freeHead = header.getInt();
+        this.metadata = new byte[header.getInt()];
+        header.get(this.metadata);
+    }
+
+    /**
+     * @brief Codifica l'intestazione della pagina 0.
+     *
+     * @return Il buffer dell'intestazione, pronto per la scrittura.
+     */
+    private ByteBuffer encodeHeader() {
+        ByteBuffer header = ByteBuffer.allocate(PAGE_SIZE);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(PAGE_SIZE)
+            .putInt(this.pageCount).putInt(this.freeHead)
+            .putInt(this.metadata.length).put(this.metadata);
+        return header.clear();
+    }
+
+    /**
+     * @brief Riapplica un journal completo lasciato da un flush interrotto, altrimenti lo elimina.
+     *
+     * @throws IOException Se il journal non può essere letto o applicato.
+     */
+    private void recoverJournal() throws IOException {
+        if (!Files.exists(this.journalPath)) return;
+        try (FileChannel journal = FileChannel.open(this.journalPath, StandardOpenOption.READ)) {
+            long entrySize = 4 + PAGE_SIZE;
+            long size = journal.size();
+            if (size >= 8 && (size - 8) % entrySize == 0) {
+                ByteBuffer trailer = ByteBuffer.allocate(8);
+                this.readFully(journal, trailer, size - 8);
+                if (trailer.getInt(0) == JOURNAL_MAGIC && trailer.getInt(4) == (size - 8) / entrySize) {
+                    for (long position = 0; position < size - 8; position += entrySize) {
+                        ByteBuffer entry = ByteBuffer.allocate((int) entrySize);
+                        this.readFully(journal, entry, position);
+                        int pageId = entry.getInt(0);
+                        this.writeFully(this.channel, entry.position(4), (long) pageId * PAGE_SIZE);
+                    }
+                    this.channel.force(true);
+                }
+            }
+        }
+        Files.delete(this.journalPath);
+    }
+
+    /**
+     * @brief Legge dal file delle pagine fino a riempire il buffer.
+     *
+     * @param buffer Buffer da riempire.
+     * @param position Posizione iniziale nel file.
+     * @throws IOException Se la lettura fallisce.
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        this.readFully(this.channel, buffer, position);
+    }
+
+    /**
+     * @brief Legge da un canale fino a riempire il buffer; oltre la fine del file restano zeri.
+     *
+     * @param channel Canale da cui leggere.
+     * @param buffer Buffer da riempire.
+     * @param position Posizione iniziale nel file.
+     * @throws IOException Se la lettura fallisce.
+     */
+    private void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position() - start) < 0) break;
+        }
+        buffer.position(buffer.limit());
+    }
+
+    /**
+     * @brief Scrive su un canale l'intero contenuto del buffer.
+     *
+     * @param channel Canale su cui scrivere.
+     * @param buffer Buffer da scrivere.
+     * @param position Posizione iniziale nel file.
+     * @return Il numero di byte scritti.
+     * @throws IOException Se la scrittura fallisce.
+     */
+    private long writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining())
+            written += channel.write(buffer, position + written);
+        return written;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Restituisce il numero di byte occupati da un varint.
+     *
+     * @param value Valore non negativo.
+     * @return Il numero di byte.
+     */
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * @brief Scrive un array di byte preceduto dalla sua lunghezza come varint.
+     *
+     * @param buffer Buffer di destinazione.
+     * @param bytes Array da scrivere.
+     */
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        int value = bytes.length;
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+        buffer.put(bytes);
+    }
+
+    /**
+     * @brief Legge un array di byte scritto con {@link #putBytes}.
+     *
+     * @param buffer Buffer di origine.
+     * @return L'array letto.
+     */
+    private static byte[] getBytes(ByteBuffer buffer) {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,35 @@
+package myapp.mvc.model.storage;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * @brief Interfaccia per la codifica binaria di un singolo record.
+ *
+ * Le classi che implementano questa interfaccia definiscono come un record viene scritto
+ * e riletto da uno stream binario. È utilizzata dal log delle modifiche e dai formati di
+ * salvataggio che non passano dalla serializzazione Java dell'intera lista.
+ *
+ * @param <T> Tipo del record codificato.
+ */
+public interface RecordCodec<T> {
+
+    /**
+     * @brief Scrive un record sullo stream.
+     *
+     * @param record Il record da scrivere.
+     * @param out Stream binario di destinazione.
+     * @throws IOException Se la scrittura fallisce.
+     */
+    void encode(T record, DataOutput out) throws IOException;
+
+    /**
+     * @brief Legge un record dallo stream.
+     *
+     * @param in Stream binario di origine.
+     * @return Il record letto.
+     * @throws IOException Se la lettura fallisce o i dati non sono validi.
+     */
+    T decode(DataInput in) throws IOException;
+}
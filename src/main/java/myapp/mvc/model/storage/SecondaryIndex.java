@@ -0,0 +1,28 @@
+package myapp.mvc.model.storage;
+
+/**
+ * @brief Definizione di un indice secondario su un campo dei record.
+ *
+ * La chiave di un record è costruita con {@link IndexKey}, così che l'ordine dei byte
+ * coincida con l'ordine dei valori. I motori ordinati mantengono l'indice su disco;
+ * gli altri lo valutano scorrendo tutti i record.
+ *
+ * @param <T> Tipo dei record indicizzati.
+ */
+public interface SecondaryIndex<T> {
+
+    /**
+     * @brief Restituisce il nome dell'indice, usato per riconoscerlo nei file del motore.
+     *
+     * @return Il nome dell'indice.
+     */
+    String getName();
+
+    /**
+     * @brief Calcola la chiave di un record nell'indice.
+     *
+     * @param record Il record.
+     * @return La chiave codificata con {@link IndexKey}.
+     */
+    byte[] getKey(T record);
+}
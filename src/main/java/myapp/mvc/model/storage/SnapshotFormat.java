@@ -0,0 +1,163 @@
+package myapp.mvc.model.storage;
+
+import myapp.util.IoProgress;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * @brief Formato binario dei file del database.
+ *
+ * Un file è composto da un'intestazione (magic e versione del formato), dal numero di record
+ * e dai record codificati uno dopo l'altro con un {@link RecordCodec}. In lettura riconosce
+ * anche i file scritti con la serializzazione Java, così da poter migrare i salvataggi precedenti.
+ */
+public final class SnapshotFormat {
+
+    /** @brief Numero magico che identifica il formato binario. */
+    private static final int MAGIC = 0x504F4442; // "PODB"
+
+    /** @brief Versione corrente del formato. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** @brief Primi due byte di uno stream della serializzazione Java. */
+    private static final int SERIALIZATION_MAGIC = 0xACED;
+
+    /** @brief Dimensione dei buffer di lettura e scrittura. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * @brief Costruttore privato: la classe espone solo metodi statici.
+     */
+    private SnapshotFormat() {}
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Scrive la lista dei record nel formato binario.
+     *
+     * @param out Stream di destinazione; viene chiuso al termine.
+     * @param data Lista dei record da scrivere.
+     * @param codec Codifica dei record.
+     * @throws IOException Se la scrittura fallisce.
+     */
+    public static <T> void write(OutputStream out, List<T> data, RecordCodec<T> codec) throws IOException {
+        write(out, data, codec, IoProgress.NONE);
+    }
+
+    /**
+     * @brief Scrive la lista dei record nel formato binario, aggiornando l'avanzamento dopo ogni record.
+     *
+     * @param out Stream di destinazione; viene chiuso al termine, anche se l'operazione viene annullata.
+     * @param data Lista dei record da scrivere.
+     * @param codec Codifica dei record.
+     * @param progress Avanzamento, in record scritti.
+     * @throws IOException Se la scrittura fallisce.
+     */
+    public static <T> void write(OutputStream out, List<T> data, RecordCodec<T> codec, IoProgress progress) throws IOException {
+        try (DataOutputStream dOut = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE))) {
+            dOut.writeInt(MAGIC);
+            dOut.writeInt(FORMAT_VERSION);
+            BinaryFormat.writeVarInt(dOut, data.size());
+            long written = 0;
+            for (T record : data) {
+                codec.encode(record, dOut);
+                progress.update(++written, data.size());
+            }
+        }
+    }
+
+    /**
+     * @brief Legge la lista dei record, riconoscendo il formato del file.
+     *
+     * @param in Stream di origine; viene chiuso al termine.
+     * @param codec Codifica dei record del formato binario.
+     * @return La lista dei record letti.
+     * @throws IOException Se la lettura fallisce o il formato non è riconosciuto.
+     */
+    public static <T> List<T> read(InputStream in, RecordCodec<T> codec) throws IOException {
+        return read(in, codec, IoProgress.NONE);
+    }
+
+    /**
+     * @brief Legge la lista dei record, riconoscendo il formato del file e aggiornando l'avanzamento dopo ogni record.
+     *
+     * I file scritti con la serializzazione Java vengono letti in un solo passo.
+     *
+     * @param in Stream di origine; viene chiuso al termine, anche se l'operazione viene annullata.
+     * @param codec Codifica dei record del formato binario.
+     * @param progress Avanzamento, in record letti.
+     * @return La lista dei record letti.
+     * @throws IOException Se la lettura fallisce o il formato non è riconosciuto.
+     */
+    public static <T> List<T> read(InputStream in, RecordCodec<T> codec, IoProgress progress) throws IOException {
+        return read(in, codec, progress, 0, null);
+    }
+
+    /**
+     * @brief Legge la lista dei record, consegnandoli a blocchi man mano che vengono decodificati.
+     *
+     * Ogni blocco è una lista immutabile di al più {@code chunkSize} record, consegnata sul thread
+     * che legge; l'ultimo blocco contiene i record rimanenti. I file scritti con la serializzazione
+     * Java vengono letti in un solo passo e consegnati in un unico blocco.
+     *
+     * @param in Stream di origine; viene chiuso al termine, anche se l'operazione viene annullata.
+     * @param codec Codifica dei record del formato binario.
+     * @param progress Avanzamento, in record letti.
+     * @param chunkSize Numero di record per blocco.
+     * @param chunks Riceve i blocchi di record; null per non consegnarli.
+     * @return La lista di tutti i record letti.
+     * @throws IOException Se la lettura fallisce o il formato non è riconosciuto.
+     */
+    public static <T> List<T> read(InputStream in, RecordCodec<T> codec, IoProgress progress, int chunkSize, Consumer<List<T>> chunks) throws IOException {
+        try (BufferedInputStream bIn = new BufferedInputStream(in, BUFFER_SIZE)) {
+            DataInputStream dIn = new DataInputStream(bIn);
+            bIn.mark(2);
+            if (dIn.readUnsignedShort() == SERIALIZATION_MAGIC) {
+                bIn.reset();
+                List<T> data = readLegacy(bIn);
+                progress.update(1, 1);
+                if (chunks != null && !data.isEmpty()) chunks.accept(List.copyOf(data));
+                return data;
+            }
+            bIn.reset();
+
+            if (dIn.readInt() != MAGIC) throw new StreamCorruptedException("Formato del file sconosciuto");
+            int version = dIn.readInt();
+            if (version != FORMAT_VERSION) throw new StreamCorruptedException("Versione del formato non supportata: " + version);
+
+            int count = BinaryFormat.readVarInt(dIn);
+            if (count < 0) throw new StreamCorruptedException("Numero di record non valido");
+            List<T> data = new ArrayList<>(BinaryFormat.initialCapacity(count));
+            int delivered = 0;
+            for (int i = 0; i < count; i++) {
+                data.add(codec.decode(dIn));
+                progress.update(i + 1, count);
+                if (chunks != null && data.size() - delivered >= chunkSize) {
+                    chunks.accept(List.copyOf(data.subList(delivered, data.size())));
+                    delivered = data.size();
+                }
+            }
+            if (chunks != null && delivered < data.size()) chunks.accept(List.copyOf(data.subList(delivered, data.size())));
+            return data;
+        }
+    }
+
+    /**
+     * @brief Legge la lista dei record scritta con la serializzazione Java.
+     *
+     * @param in Stream di origine.
+     * @return La lista dei record letti.
+     * @throws IOException Se la deserializzazione fallisce.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> readLegacy(InputStream in) throws IOException {
+        try (ObjectInputStream oIn = new ObjectInputStream(in)) {
+            return (List<T>) oIn.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new InvalidObjectException(e.getMessage());
+        }
+    }
+}
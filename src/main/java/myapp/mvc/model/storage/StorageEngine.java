@@ -0,0 +1,130 @@
+package myapp.mvc.model.storage;
+
+import myapp.mvc.model.exam.HasUniqueId;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * @brief Interfaccia dei motori di archiviazione dei record del database.
+ *
+ * Un motore conserva i record indicizzati per ID univoco mantenendo l'ordine di inserimento.
+ * I motori in memoria lasciano al database il salvataggio su file; quelli persistenti
+ * scrivono i record nei propri file e li rendono durevoli con {@link #flush()}.
+ *
+ * @param <T> Tipo dei record, che implementano l'interfaccia HasUniqueId.
+ */
+public interface StorageEngine<T extends HasUniqueId> extends Closeable {
+
+    /**
+     * @brief Ottiene un record.
+     *
+     * @param uniqueId L'ID univoco del record.
+     * @return Il record associato all'ID, null se non esiste.
+     */
+    T get(String uniqueId);
+
+    /**
+     * @brief Verifica se un record è presente.
+     *
+     * @param uniqueId L'ID univoco del record.
+     * @return true se il record è presente, false altrimenti.
+     */
+    boolean contains(String uniqueId);
+
+    /**
+     * @brief Inserisce un record o sostituisce quello con lo stesso ID, mantenendone la posizione.
+     *
+     * @param record Il record da inserire.
+     * @return Il record sostituito, null se l'ID non era presente.
+     */
+    T put(T record);
+
+    /**
+     * @brief Rimuove un record.
+     *
+     * @param uniqueId L'ID univoco del record da rimuovere.
+     * @return Il record rimosso, null se non esiste.
+     */
+    T delete(String uniqueId);
+
+    /**
+     * @brief Scorre tutti i record in ordine di inserimento.
+     *
+     * @param action Azione da eseguire su ciascun record.
+     */
+    void scan(Consumer<? super T> action);
+
+    /**
+     * @brief Restituisce una copia immutabile dell'elenco dei record.
+     *
+     * La lista descrive lo stato del motore nel momento della chiamata e non cambia con le
+     * modifiche successive, così da poter essere letta senza tenere alcun lock.
+     *
+     * @return I record presenti, in ordine di inserimento.
+     */
+    List<T> snapshot();
+
+    /**
+     * @brief Restituisce la posizione di un record nell'ordine di inserimento, se calcolabile in modo economico.
+     *
+     * @param uniqueId L'ID univoco del record.
+     * @return La posizione del record, -1 se non è presente o se il motore non sa calcolarla.
+     */
+    default int indexOf(String uniqueId) {
+        return -1;
+    }
+
+    /**
+     * @brief Restituisce il numero di record presenti.
+     *
+     * @return Il numero di record.
+     */
+    int size();
+
+    /**
+     * @brief Rimuove tutti i record.
+     */
+    void clear();
+
+    /**
+     * @brief Rende durevoli le modifiche applicate.
+     *
+     * @throws IOException Se la scrittura fallisce.
+     */
+    void flush() throws IOException;
+
+    /**
+     * @brief Indica se get, contains, size e snapshot possono essere eseguiti in concorrenza con una modifica.
+     *
+     * In quel caso il database li esegue senza lock, scartando il risultato se nel frattempo
+     * è avvenuta una modifica; il motore deve solo garantire di non lanciare eccezioni e di
+     * non restituire strutture corrotte.
+     *
+     * @return true se le letture ottimistiche sono sicure, false altrimenti.
+     */
+    default boolean supportsOptimisticReads() {
+        return false;
+    }
+
+    /**
+     * @brief Indica se il motore salva i record nei propri file.
+     *
+     * @return true se il motore è persistente, false se i record vivono solo in memoria.
+     */
+    default boolean isPersistent() {
+        return false;
+    }
+
+    /**
+     * @brief Rende durevoli le modifiche e rilascia le risorse del motore.
+     *
+     * @throws IOException Se la scrittura fallisce.
+     */
+    @Override
+    default void close() throws IOException {
+        this.flush();
+    }
+}
@@ -0,0 +1,89 @@
+package myapp.mvc.model.storage;
+
+import myapp.mvc.model.exam.HasUniqueId;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * @brief Registro dei motori di archiviazione disponibili.
+ *
+ * Crea un motore a partire dal suo nome, così che i controller possano sceglierlo
+ * tramite configurazione (ad esempio una proprietà di sistema) senza conoscerne la classe.
+ */
+public final class StorageEngines {
+
+    /** @brief Nome del motore in memoria, usato come predefinito. */
+    public static final String MEMORY = "memory";
+
+    /** @brief Nome del motore in memoria senza lock, per l'accesso da più thread. */
+    public static final String CONCURRENT = "concurrent";
+
+    /** @brief Nome del motore persistente a log strutturato. */
+    public static final String LOG = "log";
+
+    /** @brief Nome del motore persistente su B+tree, con indici secondari. */
+    public static final String BTREE = "btree";
+
+    /** @brief Estensione della cartella dei segmenti del motore a log strutturato, affiancata al file del database. */
+    private static final String LOG_DIRECTORY_EXTENSION = ".segments";
+
+    /** @brief Estensione del file delle pagine del motore su B+tree, affiancato al file del database. */
+    private static final String BTREE_FILE_EXTENSION = ".btree";
+
+    /**
+     * @brief Costruttore privato: la classe espone solo metodi statici.
+     */
+    private StorageEngines() {}
+
+    /**
+     * @brief Crea un motore a partire dal suo nome.
+     *
+     * @param name Nome del motore.
+     * @param fileName Nome del file del database, da cui i motori persistenti ricavano i propri file.
+     * @param codec Codifica dei record, usata dai motori persistenti.
+     * @return Il motore creato.
+     * @throws IllegalArgumentException Se il nome non corrisponde a nessun motore.
+     * @throws UncheckedIOException Se il file del motore persistente non può essere aperto.
+     */
+    public static <T extends HasUniqueId> StorageEngine<T> create(String name, String fileName, RecordCodec<T> codec) {
+        return StorageEngines.create(name, fileName, codec, List.of());
+    }
+
+    /**
+     * @brief Crea un motore a partire dal suo nome, con gli indici secondari da mantenere.
+     *
+     * Gli indici sono usati solo dai motori ordinati; gli altri li ignorano.
+     *
+     * @param name Nome del motore.
+     * @param fileName Nome del file del database, da cui i motori persistenti ricavano i propri file.
+     * @param codec Codifica dei record, usata dai motori persistenti.
+     * @param indexes Indici secondari da mantenere.
+     * @return Il motore creato.
+     * @throws IllegalArgumentException Se il nome non corrisponde a nessun motore.
+     * @throws UncheckedIOException Se il file del motore persistente non può essere aperto.
+     */
+    public static <T extends HasUniqueId> StorageEngine<T> create(String name, String fileName, RecordCodec<T> codec, List<SecondaryIndex<T>> indexes) {
+        return switch (name.trim().toLowerCase()) {
+            case MEMORY -> new MemoryStorageEngine<>();
+            case CONCURRENT -> new ConcurrentMapStorageEngine<>();
+            case LOG -> {
+                try {
+                    yield new LogStructuredStorageEngine<>(Path.of(fileName + LOG_DIRECTORY_EXTENSION), codec);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            case BTREE -> {
+                try {
+                    yield new BTreeStorageEngine<>(Path.of(fileName + BTREE_FILE_EXTENSION), codec, indexes);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            default -> throw new IllegalArgumentException("Motore di archiviazione sconosciuto: " + name);
+        };
+    }
+}
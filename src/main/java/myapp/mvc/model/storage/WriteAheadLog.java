@@ -0,0 +1,438 @@
+package myapp.mvc.model.storage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * @brief Log delle modifiche (write-ahead log) in sola aggiunta.
+ *
+ * Ogni operazione di aggiunta, rimozione o modifica di un record viene codificata in un
+ * record binario e accodata in memoria. Le operazioni accodate vengono scritte sul file
+ * tutte insieme al commit (group commit), eventualmente forzandone la scrittura su disco.
+ * Un thread in background esegue il commit a intervalli regolari.
+ *
+ * Formato del file: intestazione (magic e versione) seguita da una sequenza di record
+ * [lunghezza][CRC32][tipo di operazione][dati]. Alla riapertura il log viene riletto fino
+ * all'ultimo record integro; un eventuale record troncato da un crash viene scartato. Un log con
+ * intestazione non valida o con un record integro ma non decodificabile viene conservato a parte
+ * con l'estensione {@value #CORRUPT_EXTENSION}, così che non impedisca l'apertura del database.
+ *
+ * @param <T> Tipo dei record registrati nel log.
+ */
+public final class WriteAheadLog<T> implements Closeable {
+
+    /** @brief Numero magico che identifica il file di log. */
+    private static final int MAGIC = 0x57414C31; // "WAL1"
+
+    /** @brief Versione del formato del file di log. */
+    private static final int FORMAT_VERSION = 1;
+
+    /** @brief Estensione aggiunta al log danneggiato conservato a parte. */
+    public static final String CORRUPT_EXTENSION = ".corrupt";
+
+    /** @brief Dimensione dell'intestazione del file in byte. */
+    private static final int HEADER_SIZE = 8;
+
+    /** @brief Dimensione dell'intestazione di ogni record in byte (lunghezza e CRC32). */
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    /** @brief Intervallo predefinito tra due commit automatici in millisecondi. */
+    public static final long DEFAULT_GROUP_COMMIT_MILLIS = 200;
+
+    /** @brief Tipi di operazione registrabili nel log. */
+    private static final byte OP_ADD = 1;
+    private static final byte OP_DEL = 2;
+    private static final byte OP_MOD = 3;
+
+    /** @brief Percorso del file di log. */
+    private final Path path;
+
+    /** @brief Codifica dei record. */
+    private final RecordCodec<T> codec;
+
+    /** @brief Indica se ogni commit deve forzare la scrittura su disco. */
+    private final boolean fsync;
+
+    /** @brief Canale di scrittura sul file di log. */
+    private FileChannel channel;
+
+    /** @brief Record accodati e non ancora scritti su file. */
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+    /** @brief Buffer di appoggio per codificare un singolo record. */
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream();
+
+    /** @brief Numero di record accodati e non ancora scritti su file. */
+    private int pendingRecords = 0;
+
+    /** @brief Thread che esegue periodicamente il commit dei record accodati. */
+    private final ScheduledExecutorService committer;
+
+    /**
+     * @brief Interfaccia per applicare le operazioni rilette dal log.
+     *
+     * @param <T> Tipo dei record registrati nel log.
+     */
+    public interface Replayer<T> {
+
+        /**
+         * @brief Applica l'aggiunta di un record.
+         *
+         * @param record Il record aggiunto.
+         */
+        void add(T record);
+
+        /**
+         * @brief Applica la rimozione di un record.
+         *
+         * @param uniqueId L'ID del record rimosso.
+         */
+        void del(String uniqueId);
+
+        /**
+         * @brief Applica la modifica di un record.
+         *
+         * @param record Il record nella sua forma successiva alla modifica.
+         */
+        void mod(T record);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Costruttore che apre (o crea) il file di log.
+     *
+     * @param path Percorso del file di log.
+     * @param codec Codifica dei record.
+     * @param fsync true per forzare la scrittura su disco a ogni commit.
+     * @param groupCommitMillis Intervallo tra due commit automatici, 0 per disattivarli.
+     * @throws IOException Se il file non può essere aperto.
+     */
+    public WriteAheadLog(Path path, RecordCodec<T> codec, boolean fsync, long groupCommitMillis) throws IOException {
+        this.path = path;
+        this.codec = codec;
+        this.fsync = fsync;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (this.channel.size() < HEADER_SIZE) this.writeHeader();
+        else this.channel.position(this.channel.size());
+
+        if (groupCommitMillis > 0) {
+            this.committer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "WriteAheadLog-" + path.getFileName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.committer.scheduleWithFixedDelay(this::commitQuietly, groupCommitMillis, groupCommitMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.committer = null;
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Rilegge il log applicando le operazioni registrate.
+     *
+     * La lettura si ferma al primo record incompleto o corrotto, che viene eliminato dal file
+     * insieme a quanto lo segue. Se l'intestazione non è valida il log viene spostato a parte e
+     * sostituito da uno vuoto, senza applicare operazioni; se un record integro non può essere
+     * decodificato ne viene conservata una copia a parte prima di troncarlo.
+     *
+     * @param replayer Destinatario delle operazioni rilette.
+     * @return Il numero di operazioni applicate.
+     * @throws IOException Se il file non può essere letto.
+     */
+    public synchronized int replay(Replayer<T> replayer) throws IOException {
+        int applied = 0;
+        long valid = HEADER_SIZE;
+        long size = this.channel.size();
+        boolean validHeader;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.path)))) {
+            validHeader = in.readInt() == MAGIC && in.readInt() == FORMAT_VERSION;
+
+            CRC32 crc = new CRC32();
+            while (validHeader && valid + RECORD_HEADER_SIZE <= size) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length <= 0 || valid + RECORD_HEADER_SIZE + length > size) break;
+
+                byte[] body = new byte[length];
+                in.readFully(body);
+                crc.reset();
+                crc.update(body);
+                if ((int) crc.getValue() != checksum) break;
+
+                try {
+                    this.apply(body, replayer);
+                } catch (IOException | RuntimeException e) {
+                    Path corrupt = this.corruptPath();
+                    Files.copy(this.path, corrupt, StandardCopyOption.REPLACE_EXISTING);
+                    System.err.println("Record non valido nel log " + this.path + ", copia conservata in " + corrupt + ": " + e);
+                    break;
+                }
+                valid += RECORD_HEADER_SIZE + length;
+                applied++;
+            }
+        }
+
+        if (!validHeader) {
+            this.quarantine();
+            return 0;
+        }
+        if (valid < size) this.channel.truncate(valid);
+        this.channel.position(valid);
+        return applied;
+    }
+
+    /**
+     * @brief Accoda l'aggiunta di un record.
+     *
+     * @param record Il record aggiunto.
+     */
+    public synchronized void logAdd(T record) {
+        this.append(OP_ADD, record, null);
+    }
+
+    /**
+     * @brief Accoda la rimozione di un record.
+     *
+     * @param uniqueId L'ID del record rimosso.
+     */
+    public synchronized void logDel(String uniqueId) {
+        this.append(OP_DEL, null, uniqueId);
+    }
+
+    /**
+     * @brief Accoda la modifica di un record.
+     *
+     * @param record Il record nella sua forma successiva alla modifica.
+     */
+    public synchronized void logMod(T record) {
+        this.append(OP_MOD, record, null);
+    }
+
+    /**
+     * @brief Scrive su file tutti i record accodati con un'unica operazione di scrittura.
+     *
+     * @throws IOException Se la scrittura fallisce.
+     */
+    public synchronized void commit() throws IOException {
+        if (this.pendingRecords == 0) return;
+
+        long start = this.channel.position();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(this.pending.toByteArray());
+            while (buffer.hasRemaining())
+                this.channel.write(buffer);
+            if (this.fsync) this.channel.force(false);
+        } catch (IOException e) {
+            // Elimina la scrittura parziale: i record restano accodati per il prossimo commit.
+            this.channel.truncate(start);
+            this.channel.position(start);
+            throw e;
+        }
+
+        this.pending.reset();
+        this.pendingRecords = 0;
+    }
+
+    /**
+     * @brief Svuota il log dopo che il suo contenuto è stato incluso in uno snapshot.
+     *
+     * Anche i record accodati e non ancora scritti vengono scartati.
+     *
+     * @throws IOException Se il file non può essere troncato.
+     */
+    public synchronized void truncate() throws IOException {
+        this.pending.reset();
+        this.pendingRecords = 0;
+        this.channel.truncate(HEADER_SIZE);
+        this.channel.position(HEADER_SIZE);
+        if (this.fsync) this.channel.force(false);
+    }
+
+    /**
+     * @brief Scarta i record registrati all'inizio del log, dopo che sono stati inclusi in uno snapshot.
+     *
+     * I record successivi vengono copiati in un nuovo file che sostituisce atomicamente il log,
+     * così che un'interruzione lasci il log precedente oppure quello nuovo, mai uno parziale. Il nuovo
+     * file viene forzato su disco prima dello spostamento anche se i commit non lo sono.
+     *
+     * @param length Numero di byte di record da scartare, come restituito da {@link #size()} dopo un commit.
+     * @throws IOException Se il nuovo file non può essere scritto.
+     */
+    public synchronized void truncateHead(long length) throws IOException {
+        this.commit();
+        long start = HEADER_SIZE + length;
+        long size = this.channel.size();
+        if (start >= size) {
+            this.truncate();
+            return;
+        }
+
+        Path temporary = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+            while (header.hasRemaining())
+                out.write(header);
+            for (long position = start; position < size; )
+                position += this.channel.transferTo(position, size - position, out);
+            out.force(false);
+        }
+
+        this.channel.close();
+        try {
+            Files.move(temporary, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            this.channel = FileChannel.open(this.path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.channel.position(this.channel.size());
+        }
+    }
+
+    /**
+     * @brief Restituisce la dimensione del log, inclusi i record non ancora scritti.
+     *
+     * @return La dimensione in byte dei record registrati dall'ultimo svuotamento.
+     * @throws IOException Se la dimensione del file non può essere letta.
+     */
+    public synchronized long size() throws IOException {
+        return this.channel.size() - HEADER_SIZE + this.pending.size();
+    }
+
+    /**
+     * @brief Restituisce il percorso del file di log.
+     *
+     * @return Il percorso del file.
+     */
+    public Path getPath() {
+        return this.path;
+    }
+
+    /**
+     * @brief Scrive i record accodati e chiude il file di log.
+     *
+     * @throws IOException Se la scrittura o la chiusura falliscono.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.committer != null) this.committer.shutdown();
+        synchronized (this) {
+            if (!this.channel.isOpen()) return;
+            try {
+                this.commit();
+            } finally {
+                this.channel.close();
+            }
+        }
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Codifica un'operazione e la accoda ai record da scrivere.
+     *
+     * @param operation Tipo di operazione.
+     * @param record Il record coinvolto, null per le rimozioni.
+     * @param uniqueId L'ID del record rimosso, null per le altre operazioni.
+     */
+    private void append(byte operation, T record, String uniqueId) {
+        try {
+            this.scratch.reset();
+            DataOutputStream body = new DataOutputStream(this.scratch);
+            body.writeByte(operation);
+            if (record != null) this.codec.encode(record, body);
+            else body.writeUTF(uniqueId);
+            body.flush();
+
+            CRC32 crc = new CRC32();
+            crc.update(this.scratch.toByteArray());
+
+            DataOutputStream out = new DataOutputStream(this.pending);
+            out.writeInt(this.scratch.size());
+            out.writeInt((int) crc.getValue());
+            this.scratch.writeTo(out);
+            out.flush();
+            this.pendingRecords++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @brief Decodifica il corpo di un record e applica l'operazione.
+     *
+     * @param body Corpo del record (tipo di operazione e dati).
+     * @param replayer Destinatario dell'operazione.
+     * @throws IOException Se il corpo non è valido.
+     */
+    private void apply(byte[] body, Replayer<T> replayer) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        switch (in.readByte()) {
+            case OP_ADD -> replayer.add(this.codec.decode(in));
+            case OP_DEL -> replayer.del(in.readUTF());
+            case OP_MOD -> replayer.mod(this.codec.decode(in));
+            default -> throw new IOException("Operazione sconosciuta nel log: " + this.path);
+        }
+    }
+
+    /**
+     * @brief Restituisce il percorso in cui viene conservato il log danneggiato.
+     *
+     * @return Il percorso.
+     */
+    private Path corruptPath() {
+        return this.path.resolveSibling(this.path.getFileName() + CORRUPT_EXTENSION);
+    }
+
+    /**
+     * @brief Sposta a parte il log danneggiato e lo sostituisce con un log vuoto.
+     *
+     * @throws IOException Se il log non può essere spostato o ricreato.
+     */
+    private void quarantine() throws IOException {
+        Path corrupt = this.corruptPath();
+        this.channel.close();
+        try {
+            Files.move(this.path, corrupt, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        this.writeHeader();
+        System.err.println("Intestazione non valida nel log " + this.path + ", spostato in " + corrupt);
+    }
+
+    /**
+     * @brief Scrive l'intestazione di un file di log vuoto.
+     *
+     * @throws IOException Se la scrittura fallisce.
+     */
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+        this.channel.truncate(0);
+        while (header.hasRemaining())
+            this.channel.write(header, header.position());
+        this.channel.position(HEADER_SIZE);
+        if (this.fsync) this.channel.force(false);
+    }
+
+    /**
+     * @brief Esegue il commit dal thread in background senza propagare eccezioni.
+     */
+    private void commitQuietly() {
+        try {
+            this.commit();
+        } catch (IOException ignored) {
+            // Ignora l'eccezione: i record restano accodati per il prossimo commit.
+        }
+    }
+}
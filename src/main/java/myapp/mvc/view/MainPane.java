@@ -1,6 +1,7 @@
 package myapp.mvc.view;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.print.PrinterJob;
@@ -19,14 +20,21 @@ import myapp.mvc.controller.ManageExams;
 import myapp.mvc.controller.ManagePaths;
 import myapp.mvc.model.exam.ComposedExam;
 import myapp.mvc.model.exam.Exam;
+import myapp.mvc.model.exam.query.StoredExamIndexes;
 import myapp.mvc.model.path.UniquePath;
 import myapp.mvc.view.dialog.ManagePathsDialog.ManagePathsDialog;
 import myapp.mvc.view.dialog.SaveOnExitDialog;
 import myapp.mvc.view.dialog.GraphDialog.GraphDialog;
 import myapp.mvc.view.pane.*;
+import myapp.util.RefreshCoalescer;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.DoubleConsumer;
 import java.util.function.Function;
 
 /**
@@ -61,6 +69,26 @@ public class MainPane extends Application {
     /** @brief Interfaccia per la gestione dei percorsi. */
     private final ManagePaths managePaths = getManagePathsInterface();
 
+    // ------------ Aggiornamento delle viste
+    /** @brief Accorpa gli aggiornamenti delle viste richiesti durante uno stesso impulso di JavaFX. */
+    private final RefreshCoalescer refreshCoalescer = new RefreshCoalescer(Platform::runLater);
+    /** @brief Chiave della tabella degli esami. */
+    private static final String VIEW_EXAMS = "exams";
+    /** @brief Chiave della tabella degli esami parziali. */
+    private static final String VIEW_PARTIAL_EXAMS = "partialExams";
+    /** @brief Chiave del flag di modifica. */
+    private static final String VIEW_MOD_FLAG = "modFlag";
+    /** @brief Chiave della barra di avanzamento dei salvataggi e dei caricamenti. */
+    private static final String VIEW_IO_PROGRESS = "ioProgress";
+    /** @brief Chiave dei blocchi di esami da aggiungere alla tabella durante un caricamento. */
+    private static final String VIEW_STREAMED_EXAMS = "streamedExams";
+
+    // ------------ Salvataggi e caricamenti in corso
+    /** @brief Operazioni su file in corso; il valore indica se va attesa prima di chiudere l'applicazione. */
+    private final Map<CompletableFuture<?>, Boolean> runningIo = new LinkedHashMap<>();
+    /** @brief Blocchi di esami letti durante un caricamento e non ancora mostrati in tabella. */
+    private final Queue<List<Exam>> streamedExams = new ConcurrentLinkedQueue<>();
+
     // ------------ Thread di autosalvataggio
     /** @brief Thread di autosalvataggio per il salvataggio automatico dei dati. */
     private static final Autosaver saver = new Autosaver();
@@ -101,9 +129,7 @@ public class MainPane extends Application {
     private void startThreads() {
         saver.setAutosaverJob(() -> {
             System.out.print("Salvataggio... "); // DEBUG
-            synchronized (controllerExams) {
-                controllerExams.saveExamsToFile();
-            }
+            controllerExams.saveExamsToFile();
             System.out.println("Salvataggio Avvenuto!"); //DEBUG
         });
         
@@ -170,7 +196,10 @@ public class MainPane extends Application {
      */
     private void SaveProgram() {
         System.out.println("Saving Application!"); // DEBUG
-        manageExams.saveExamsToSelectedFile();
+        // Il salvataggio avviene sul thread dell'interfaccia: l'applicazione si chiude subito dopo
+        UniquePath selectedPath = managePaths.getPath(managePaths.getSelected());
+        if (selectedPath != null)
+            controllerExams.saveExamsToFile(selectedPath.getPath());
     }
     
     /**
@@ -182,6 +211,7 @@ public class MainPane extends Application {
      */
     private void CloseProgram() {
         System.out.println("Terminating Threads!"); // DEBUG
+        this.awaitRunningIo();
         if (saver.isAlive()) {
             saver.myStop();     // Ferma il thread se in attesa
             saver.interrupt();  // Ferma il thread se in pausa
@@ -325,7 +355,7 @@ public class MainPane extends Application {
                     ? "Istogramma voti delle Materie"
                     : "Istogramma voti degli Studenti";
                 
-                setupGraph(e -> is_filter_set_to_teaching
+                setupGraph(getGraphExams(is_filter_set_to_teaching), e -> is_filter_set_to_teaching
                     ? e.getTeaching()
                     : e.getUsername() + " " + e.getSurname()
                     , title);
@@ -336,20 +366,21 @@ public class MainPane extends Application {
              *
              * Questo metodo calcola la distribuzione dei voti degli esami e mostra un grafico in base ai dati raccolti.
              *
+             * @param exams Esami da raggruppare, nell'ordine in cui mostrare i gruppi.
              * @param getKey Funzione per ottenere la chiave di raggruppamento per il grafico (nome dell'insegnante o dello studente).
              * @param title Titolo del grafico da mostrare.
              */
             @Override
-            public void setupGraph(Function<Exam, String> getKey, String title) {
+            public void setupGraph(Iterable<Exam> exams, Function<Exam, String> getKey, String title) {
                 
                 // Calcolo la cardinalità dei voti
                 int arraySize = Exam.GRADE_BOUNDARIES[1] - Exam.GRADE_BOUNDARIES[0] + 1;
                 
                 // Mappa che contiene il numero di voti da 1 a 18 di ciascuno studente selezionato.
-                Map<String, int[]> studentGrades = new HashMap<>();
+                Map<String, int[]> studentGrades = new LinkedHashMap<>();
                 
                 // Iterazione di tutti gli esami filtrati in tabella
-                for (Exam exam : centerLayout.getFilteredExams()) {
+                for (Exam exam : exams) {
                     
                     int offset = exam.getFinalGrade() - Exam.GRADE_BOUNDARIES[0];
                     
@@ -380,8 +411,10 @@ public class MainPane extends Application {
              */
             @Override
             public void passPartialExam(String uniqueExamId) {
-                updatePartialExamTable(uniqueExamId);
-                bottomLayout.show();
+                refreshCoalescer.request(VIEW_PARTIAL_EXAMS, () -> {
+                    updatePartialExamTable(uniqueExamId);
+                    bottomLayout.show();
+                });
             }
             
             /**
@@ -427,6 +460,8 @@ public class MainPane extends Application {
         centerLayout.setManagePaths(managePaths);
         // Configura l'interfaccia utilizzata dal pannello centrale per gestire gli esami
         centerLayout.setManageExams(manageExams);
+        // Con un motore che mantiene gli indici secondari le ricerche possono leggere dal disco solo le pagine richieste
+        if (MainPane.controllerExams.hasStorageIndexes()) centerLayout.setStoredIndexes(getStoredExamIndexes());
         // Configura l'interfaccia utilizzata dal pannello inferiore per gestire gli esami
         bottomLayout.setManageExams(manageExams);
         
@@ -435,6 +470,12 @@ public class MainPane extends Application {
         // Imposta il flag di modifica
         centerLayout.setModifiedFlag();
         
+        // Applica alle tabelle le modifiche degli esami notificate dal database, sul thread dell'interfaccia
+        MainPane.controllerExams.addChangeListener(change -> this.refreshCoalescer.post(() -> {
+            centerLayout.applyChange(change);
+            bottomLayout.applyChange(change);
+        }));
+        
         //  Aggiorna la tabella degli esami
         this.updateExamTable();
     }
@@ -450,6 +491,9 @@ public class MainPane extends Application {
     private ManageExams getManageExamsInterface() {
         return new ManageExams() {
             
+            /** @brief Indica se la transazione aperta contiene modifiche che richiedono l'aggiornamento del flag di modifica. */
+            private boolean refreshPending = false;
+            
             /**
              * @brief Aggiunge un esame semplice.
              *
@@ -466,8 +510,7 @@ public class MainPane extends Application {
             @Override
             public String addSimpleExam(String username, String surname, String teaching, int credits, int grade, boolean honors) {
                 String uniqueId = MainPane.controllerExams.addSimpleExam(username, surname, teaching, credits, grade, honors);
-                updateExamTable();
-                updModFlag();
+                this.refreshAfterChange();
                 return uniqueId;
             }
             
@@ -485,8 +528,7 @@ public class MainPane extends Application {
             @Override
             public String addComposedExam(String username, String surname, String teaching, int credits) {
                 String uniqueId = MainPane.controllerExams.addComposedExam(username, surname, teaching, credits);
-                updateExamTable();
-                updModFlag();
+                this.refreshAfterChange();
                 return uniqueId;
             }
             
@@ -506,8 +548,7 @@ public class MainPane extends Application {
             @Override
             public void modSimpleExam(String uniqueId, String username, String surname, String teaching, int credits, int grade, boolean honors) {
                 MainPane.controllerExams.modSimpleExam(uniqueId, username, surname, teaching, credits, grade, honors);
-                updateExamTable();
-                updModFlag();
+                this.refreshAfterChange();
             }
             
             /**
@@ -524,8 +565,7 @@ public class MainPane extends Application {
             @Override
             public void modComposedExam(String uniqueId, String username, String surname, String teaching, int credits) {
                 MainPane.controllerExams.modComposedExam(uniqueId, username, surname, teaching, credits);
-                updateExamTable();
-                updModFlag();
+                this.refreshAfterChange();
             }
             
             /**
@@ -541,9 +581,7 @@ public class MainPane extends Application {
             @Override
             public String addIntermediateGrade(String examUniqueId, int grade, int weight) {
                 String uniqueId = MainPane.controllerExams.addIntermediateGrade(examUniqueId, grade, weight);
-                updatePartialExamTable(examUniqueId);
-                updateExamTable();
-                updModFlag();
+                this.refreshAfterChange();
                 return uniqueId;
             }
             
@@ -564,9 +602,7 @@ public class MainPane extends Application {
                     delExam(examUniqueId);
                 }
 
-                updatePartialExamTable(examUniqueId);
-                updateExamTable();
-                updModFlag();
+                this.refreshAfterChange();
             }
             
             /**
@@ -582,9 +618,7 @@ public class MainPane extends Application {
             @Override
             public void modIntermediateGrade(String examUniqueId, String gradeUniqueId, int grade, int weight) {
                 MainPane.controllerExams.modIntermediateGrade(examUniqueId, gradeUniqueId, grade, weight);
-                updatePartialExamTable(examUniqueId);
-                updateExamTable();
-                updModFlag();
+                this.refreshAfterChange();
             }
             
             /**
@@ -618,32 +652,78 @@ public class MainPane extends Application {
             @Override
             public void delExam(String uniqueId) {
                 MainPane.controllerExams.delExam(uniqueId);
-                updateExamTable();
+                this.refreshAfterChange();
+            }
+            
+            /**
+             * @brief Inizia una transazione sugli esami.
+             *
+             * Fino al commit le operazioni non aggiornano il flag di modifica.
+             */
+            @Override
+            public void beginTransaction() {
+                MainPane.controllerExams.beginTransaction();
+            }
+            
+            /**
+             * @brief Applica le operazioni della transazione.
+             *
+             * Le tabelle ricevono le modifiche dal database; il flag di modifica viene aggiornato una sola volta.
+             * Se il commit fallisce il database resta invariato e il flag non viene aggiornato.
+             */
+            @Override
+            public void commitTransaction() {
+                boolean refresh = this.refreshPending;
+                this.refreshPending = false;
+                MainPane.controllerExams.commitTransaction();
+                if (refresh) updModFlag();
+            }
+            
+            /**
+             * @brief Scarta le operazioni della transazione senza aggiornare la vista.
+             */
+            @Override
+            public void rollbackTransaction() {
+                MainPane.controllerExams.rollbackTransaction();
+                this.refreshPending = false;
+            }
+            
+            /**
+             * @brief Aggiorna il flag di modifica dopo un'operazione sugli esami.
+             *
+             * Le tabelle si aggiornano da sole con le modifiche notificate dal database.
+             * Durante una transazione l'aggiornamento del flag viene rimandato al commit.
+             */
+            private void refreshAfterChange() {
+                if (MainPane.controllerExams.isInTransaction()) {
+                    this.refreshPending = true;
+                    return;
+                }
                 updModFlag();
             }
             
             /**
              * @brief Salva gli esami nel file predefinito.
              *
-             * Questo metodo salva gli esami nel file predefinito e aggiorna il flag di modifica.
+             * Questo metodo salva gli esami nel file predefinito su un thread di I/O e al termine aggiorna il flag di modifica.
              */
             @Override
             public void saveExams() {
-                MainPane.controllerExams.saveExamsToFile();
-                updModFlag();
+                runIo(progress -> MainPane.controllerExams.saveExamsToFileAsync(progress), true)
+                    .thenRun(this::updModFlag);
             }
             
             /**
              * @brief Salva gli esami in un percorso specificato.
              *
-             * Questo metodo salva gli esami in un file specificato dal percorso e aggiorna il flag di modifica.
+             * Questo metodo salva gli esami in un file specificato dal percorso su un thread di I/O e al termine aggiorna il flag di modifica.
              *
              * @param path Il percorso del file dove salvare gli esami.
              */
             @Override
             public void saveExams(String path) {
-                MainPane.controllerExams.saveExamsToFile(path);
-                updModFlag();
+                runIo(progress -> MainPane.controllerExams.saveExamsToFileAsync(path, progress), true)
+                    .thenRun(this::updModFlag);
             }
             
             /**
@@ -659,36 +739,28 @@ public class MainPane extends Application {
                 }
             }
             
-            /**
-             * @brief Carica gli esami dal file predefinito.
-             *
-             * Questo metodo carica gli esami dal file predefinito e aggiorna la tabella degli esami e il flag di modifica.
-             */
-            @Override
-            public void loadExams() {
-                MainPane.controllerExams.loadExamsFromFile();
-                updateExamTable();
-                updModFlag();
-            }
-            
             /**
              * @brief Carica gli esami da un percorso specificato.
              *
-             * Questo metodo carica gli esami da un file specificato dal percorso e aggiorna la tabella degli esami e il flag di modifica.
+             * Questo metodo legge gli esami da un file specificato dal percorso su un thread di I/O, li carica nel database
+             * in un solo passo sul thread dell'interfaccia e aggiorna il flag di modifica. Durante la lettura la tabella
+             * mostra gli esami man mano che vengono letti.
              *
              * @param path Il percorso del file da cui caricare gli esami.
              */
             @Override
             public void loadExams(String path) {
-                MainPane.controllerExams.loadExamsFromFile(path);
-                updateExamTable();
-                updModFlag();
+                beginStreamedLoad();
+                runIo(progress -> MainPane.controllerExams.loadExamsFromFileAsync(path, progress, MainPane.this::streamExams, Platform::runLater), false)
+                    .whenCompleteAsync((ignored, e) -> endStreamedLoad(), Platform::runLater)
+                    .thenRun(this::updModFlag);
             }
             
             /**
              * @brief Carica gli esami dal file selezionato.
              *
-             * Questo metodo carica gli esami dal file selezionato tramite l'interfaccia di gestione dei percorsi e aggiorna il flag di modifica.
+             * Questo metodo carica gli esami dal file selezionato tramite l'interfaccia di gestione dei percorsi; il flag di modifica
+             * viene aggiornato al termine del caricamento.
              */
             @Override
             public void loadExamsFromSelectedFile() {
@@ -696,7 +768,6 @@ public class MainPane extends Application {
                 if (selectedPath != null) {
                     manageExams.loadExams(selectedPath.getPath());
                 }
-                updModFlag();
             }
             
             /**
@@ -767,9 +838,17 @@ public class MainPane extends Application {
              * @brief Aggiorna il flag di modifica.
              *
              * Questo metodo aggiorna il flag di modifica in base alla comparazione tra il file e il database.
+             * Il confronto viene eseguito una sola volta per impulso di JavaFX, anche se richiesto più volte.
              */
             @Override
             public void updModFlag() {
+                refreshCoalescer.request(VIEW_MOD_FLAG, this::compareModFlag);
+            }
+            
+            /**
+             * @brief Confronta il file selezionato con il database e aggiorna il flag di modifica.
+             */
+            private void compareModFlag() {
                 if (null == managePaths.getSelected()) return;
                 controllerExams.setModFlag(!compareFileToDatabase(managePaths.getPath(managePaths.getSelected()).getPath()));
                 updateModifiedFlag();
@@ -800,6 +879,91 @@ public class MainPane extends Application {
         };
     }
     
+    /**
+     * @brief Restituisce gli indici secondari del motore di archiviazione, da passare al pianificatore delle ricerche.
+     *
+     * Questo metodo crea e restituisce un'istanza dell'interfaccia {@link StoredExamIndexes},
+     * implementando le ricerche per indice del gestore degli esami.
+     *
+     * @return Un'istanza dell'interfaccia {@link StoredExamIndexes}.
+     */
+    private StoredExamIndexes getStoredExamIndexes() {
+        return new StoredExamIndexes() {
+            
+            /**
+             * @brief Recupera gli esami degli studenti con il cognome indicato.
+             *
+             * @param surname Cognome dello studente.
+             * @return Gli esami trovati.
+             */
+            @Override
+            public List<Exam> findBySurname(String surname) {
+                return MainPane.controllerExams.getExamsBySurname(surname);
+            }
+            
+            /**
+             * @brief Recupera gli esami di una materia con voto finale compreso nell'intervallo.
+             *
+             * @param teaching Materia dell'esame.
+             * @param minGrade Voto minimo, incluso.
+             * @param maxGrade Voto massimo, incluso.
+             * @return Gli esami trovati.
+             */
+            @Override
+            public List<Exam> findByTeaching(String teaching, int minGrade, int maxGrade) {
+                return MainPane.controllerExams.getExamsByTeaching(teaching, minGrade, maxGrade);
+            }
+            
+            /**
+             * @brief Recupera gli esami con voto finale compreso nell'intervallo.
+             *
+             * @param minGrade Voto minimo, incluso.
+             * @param maxGrade Voto massimo, incluso.
+             * @return Gli esami trovati.
+             */
+            @Override
+            public List<Exam> findByGrade(int minGrade, int maxGrade) {
+                return MainPane.controllerExams.getExamsInGradeRange(minGrade, maxGrade);
+            }
+            
+            /**
+             * @brief Recupera gli esami con crediti compresi nell'intervallo.
+             *
+             * @param minCredits Crediti minimi, inclusi.
+             * @param maxCredits Crediti massimi, inclusi.
+             * @return Gli esami trovati.
+             */
+            @Override
+            public List<Exam> findByCredits(int minCredits, int maxCredits) {
+                return MainPane.controllerExams.getExamsInCreditsRange(minCredits, maxCredits);
+            }
+        };
+    }
+    
+    /**
+     * @brief Restituisce gli esami visualizzati da raggruppare nel grafico.
+     *
+     * Con un motore che mantiene gli indici secondari gli esami vengono letti dall'indice per materia o per
+     * cognome, così che i gruppi risultino in ordine alfabetico senza ordinarli; vengono tenuti solo gli
+     * esami visibili in tabella. Altrimenti sono gli esami filtrati, nell'ordine della tabella.
+     *
+     * @param byTeaching true per raggruppare per materia, false per studente.
+     * @return Gli esami da raggruppare.
+     */
+    private List<Exam> getGraphExams(boolean byTeaching) {
+        List<Exam> shown = this.centerLayout.getFilteredExams();
+        if (!MainPane.controllerExams.hasStorageIndexes()) return shown;
+        
+        Set<String> shownIds = new HashSet<>();
+        for (Exam exam : shown)
+            shownIds.add(exam.getUniqueId());
+        List<Exam> ordered = (byTeaching)
+            ? MainPane.controllerExams.getExamsOrderedByTeaching()
+            : MainPane.controllerExams.getExamsOrderedBySurname();
+        ordered.removeIf(exam -> !shownIds.contains(exam.getUniqueId()));
+        return ordered;
+    }
+    
     /**
      * @brief Restituisce l'interfaccia per la gestione dei percorsi.
      *
@@ -880,23 +1044,23 @@ public class MainPane extends Application {
             /**
              * @brief Salva i percorsi nel file predefinito.
              *
-             * Questo metodo salva i percorsi nel file predefinito.
+             * Questo metodo salva i percorsi nel file predefinito su un thread di I/O.
              */
             @Override
             public void savePaths() {
-                controllerPaths.savePathsToFile();
+                runIo(controllerPaths::savePathsToFileAsync, true);
             }
             
             /**
              * @brief Salva i percorsi in un percorso specificato.
              *
-             * Questo metodo salva i percorsi in un file specificato dal percorso.
+             * Questo metodo salva i percorsi in un file specificato dal percorso su un thread di I/O.
              *
              * @param path Il percorso del file dove salvare i percorsi.
              */
             @Override
             public void savePaths(String path) {
-                controllerPaths.savePathsToFile(path);
+                runIo(progress -> controllerPaths.savePathsToFileAsync(path, progress), true);
             }
             
             /**
@@ -952,14 +1116,15 @@ public class MainPane extends Application {
      * @brief Aggiorna la tabella degli esami visualizzati nella vista centrale.
      *
      * Questa funzione imposta i dati della tabella degli esami nella vista centrale con
-     * la lista di tutti gli esami ottenuti dal controller degli esami.
+     * la lista di tutti gli esami ottenuti dal controller degli esami. L'aggiornamento viene
+     * eseguito al prossimo impulso di JavaFX, una sola volta anche se richiesto più volte.
      */
     private void updateExamTable() {
-        this.centerLayout.setData(
+        this.refreshCoalescer.request(VIEW_EXAMS, () -> this.centerLayout.setData(
             FXCollections.observableList(
                 MainPane.controllerExams.getAllExams()
             ) // Conversione di List<Exam> in ObservableList<Exam>
-        );
+        ));
     }
     
     /**
@@ -1010,4 +1175,116 @@ public class MainPane extends Application {
     private void updateModifiedFlag() {
         this.centerLayout.setModifiedFlag();
     }
+    
+    /**
+     * @brief Avvia un'operazione su file e ne mostra l'avanzamento nella vista centrale.
+     *
+     * L'avanzamento viene aggiornato al più una volta per impulso di JavaFX e il pulsante di annullamento
+     * interrompe tutte le operazioni in corso. Gli errori vengono rilanciati sul thread dell'interfaccia.
+     * Va chiamato dal thread dell'interfaccia.
+     *
+     * @param task Avvia l'operazione, ricevendo il consumatore dell'avanzamento.
+     * @param awaitOnClose true se l'operazione va completata prima di chiudere l'applicazione.
+     * @return Il future dell'operazione.
+     */
+    private <R> CompletableFuture<R> runIo(Function<DoubleConsumer, CompletableFuture<R>> task, boolean awaitOnClose) {
+        CompletableFuture<R> future = task.apply(progress -> this.refreshCoalescer.request(
+            VIEW_IO_PROGRESS, () -> this.showIoProgress(progress)
+        ));
+        this.runningIo.put(future, awaitOnClose);
+        this.showIoProgress(0);
+        future.whenCompleteAsync((result, e) -> {
+            this.runningIo.remove(future);
+            if (this.runningIo.isEmpty()) this.centerLayout.hideIoProgress();
+            
+            Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+            if (cause == null || cause instanceof CancellationException) return;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new RuntimeException(cause);
+        }, Platform::runLater);
+        return future;
+    }
+    
+    /**
+     * @brief Prepara la tabella degli esami a mostrare un file mentre viene caricato.
+     */
+    private void beginStreamedLoad() {
+        this.streamedExams.clear();
+        this.centerLayout.beginStreaming();
+    }
+    
+    /**
+     * @brief Riceve un blocco di esami letti dal thread di I/O.
+     *
+     * I blocchi vengono accumulati e aggiunti alla tabella al più una volta per impulso di JavaFX.
+     *
+     * @param chunk Gli esami letti.
+     */
+    private void streamExams(List<Exam> chunk) {
+        this.streamedExams.add(chunk);
+        this.refreshCoalescer.request(VIEW_STREAMED_EXAMS, this::appendStreamedExams);
+    }
+    
+    /**
+     * @brief Aggiunge alla tabella i blocchi di esami accumulati.
+     */
+    private void appendStreamedExams() {
+        List<Exam> exams = new ArrayList<>();
+        for (List<Exam> chunk; (chunk = this.streamedExams.poll()) != null; )
+            exams.addAll(chunk);
+        if (!exams.isEmpty()) this.centerLayout.appendExams(exams);
+    }
+    
+    /**
+     * @brief Conclude il caricamento progressivo.
+     *
+     * Se il database non è stato sostituito, perché il caricamento è stato annullato o il file non era
+     * leggibile, la tabella torna a mostrare il contenuto del database.
+     */
+    private void endStreamedLoad() {
+        this.streamedExams.clear();
+        if (!this.centerLayout.isStreaming()) return;
+        this.centerLayout.endStreaming();
+        this.updateExamTable();
+    }
+    
+    /**
+     * @brief Mostra l'avanzamento delle operazioni su file, se ce ne sono in corso.
+     *
+     * @param progress Avanzamento, tra 0 e 1.
+     */
+    private void showIoProgress(double progress) {
+        if (this.runningIo.isEmpty()) return;
+        this.centerLayout.showIoProgress(progress, () -> List.copyOf(this.runningIo.keySet()).forEach(io -> io.cancel(false)));
+    }
+    
+    /**
+     * @brief Annulla i caricamenti in corso e attende il termine dei salvataggi prima della chiusura.
+     *
+     * I caricamenti vanno annullati perché vengono completati sul thread dell'interfaccia, che qui è in attesa.
+     */
+    private void awaitRunningIo() {
+        for (Map.Entry<CompletableFuture<?>, Boolean> io : List.copyOf(this.runningIo.entrySet())) {
+            if (!io.getValue()) {
+                io.getKey().cancel(false);
+                continue;
+            }
+            try {
+                io.getKey().join();
+            } catch (RuntimeException ignored) {
+                // Ignora l'eccezione per evitare il crash.
+            }
+        }
+    }
+    
+    /**
+     * @brief Restituisce l'accorpatore degli aggiornamenti delle viste.
+     *
+     * I suoi contatori indicano quanti aggiornamenti sono stati richiesti, eseguiti e risparmiati.
+     *
+     * @return L'accorpatore degli aggiornamenti.
+     */
+    public RefreshCoalescer getRefreshCoalescer() {
+        return this.refreshCoalescer;
+    }
 }
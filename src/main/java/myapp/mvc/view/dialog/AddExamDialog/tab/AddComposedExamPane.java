@@ -141,19 +141,27 @@ public class AddComposedExamPane extends BorderPane {
 
         btnAdd.setOnAction(e -> {
 
-            String exam_id = manageExams.addComposedExam(
-                fldUsername.getText(),
-                fldSurname.getText(),
-                fldTeaching.getText(),
-                fldCredits.getValue()
-            );
-
-            for (PartialExamField partial : partialExamsLayout.getPartialExamFields()) {
-                manageExams.addIntermediateGrade(
-                    exam_id,
-                    partial.getPartialGrade(),
-                    partial.getWeight()
+            // L'esame e le sue prove parziali vengono aggiunti in un'unica transazione, con un solo aggiornamento della vista.
+            manageExams.beginTransaction();
+            try {
+                String exam_id = manageExams.addComposedExam(
+                    fldUsername.getText(),
+                    fldSurname.getText(),
+                    fldTeaching.getText(),
+                    fldCredits.getValue()
                 );
+
+                for (PartialExamField partial : partialExamsLayout.getPartialExamFields()) {
+                    manageExams.addIntermediateGrade(
+                        exam_id,
+                        partial.getPartialGrade(),
+                        partial.getWeight()
+                    );
+                }
+                manageExams.commitTransaction();
+            } catch (RuntimeException ex) {
+                manageExams.rollbackTransaction();
+                throw ex;
             }
             
             commonDialogInterface.CloseWindow();
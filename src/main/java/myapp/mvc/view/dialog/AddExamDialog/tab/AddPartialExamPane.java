@@ -173,12 +173,20 @@ public class AddPartialExamPane extends BorderPane {
 
         btnAdd.setOnAction(e -> {
             
-            for (PartialExamField partial : partialExamsLayout.getPartialExamFields()) {
-                manageExams.addIntermediateGrade(
-                    selectedExam.getUniqueId(),
-                    partial.getPartialGrade(),
-                    partial.getWeight()
-                );
+            // Le prove parziali vengono aggiunte in un'unica transazione, con un solo aggiornamento della vista.
+            manageExams.beginTransaction();
+            try {
+                for (PartialExamField partial : partialExamsLayout.getPartialExamFields()) {
+                    manageExams.addIntermediateGrade(
+                        selectedExam.getUniqueId(),
+                        partial.getPartialGrade(),
+                        partial.getWeight()
+                    );
+                }
+                manageExams.commitTransaction();
+            } catch (RuntimeException ex) {
+                manageExams.rollbackTransaction();
+                throw ex;
             }
             
             commonDialogInterface.CloseWindow();
@@ -1,15 +1,23 @@
 package myapp.mvc.view.pane;
 
+import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.*;
 import myapp.mvc.controller.ManageExams;
+import myapp.mvc.model.DatabaseChange;
+import myapp.mvc.model.exam.ComposedExam;
+import myapp.mvc.model.exam.Exam;
 import myapp.mvc.model.exam.PartialExam;
 import myapp.mvc.view.things.MyHSpacer;
 import myapp.mvc.view.things.MySpinner;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  * @brief Classe che estende {@link BorderPane} per fornire un pannello inferiore personalizzato.
  *
@@ -52,6 +60,9 @@ public class BottomPane extends BorderPane {
     /** @brief Tabella per visualizzare gli esami parziali. */
     private final TableView<PartialExam> table = new TableView<>();
     
+    /** @brief Esami parziali visualizzati, aggiornati con le modifiche notificate dal database. */
+    private final ObservableList<PartialExam> partialExams = FXCollections.observableArrayList();
+    
     // ------------ VARIABLES
     /** @brief ID unico dell'esame corrente. */
     private String uniqueExamId;
@@ -165,6 +176,7 @@ public class BottomPane extends BorderPane {
             updateMenuWithSelectedExam(partialExam);
         });
         
+        table.setItems(partialExams);
         VBox.setVgrow(table, Priority.ALWAYS);  // Permette alla TableView di crescere
         table.setMaxHeight(Double.MAX_VALUE);
         table.setEditable(false);
@@ -214,9 +226,61 @@ public class BottomPane extends BorderPane {
      * @param uniqueExamId ID unico dell'esame corrente.
      */
     public void setData(ObservableList<PartialExam> data, String uniqueExamId) {
-        table.setItems(data);
+        partialExams.setAll(data);
         this.uniqueExamId = uniqueExamId;
-        table.refresh();
+    }
+    
+    /**
+     * @brief Applica alla tabella una modifica notificata dal database, se riguarda l'esame corrente.
+     *
+     * Delle prove parziali vengono toccate solo le righe aggiunte, rimosse o modificate, mantenendo
+     * la selezione. Va chiamato sul thread dell'interfaccia.
+     *
+     * @param change La modifica da applicare.
+     */
+    public void applyChange(DatabaseChange<Exam> change) {
+        if (uniqueExamId == null) return;
+        
+        if (change instanceof DatabaseChange.Updated<Exam> updated && uniqueExamId.equals(updated.record().getUniqueId())) {
+            if (updated.record() instanceof ComposedExam ce) reconcilePartialExams(ce.getPartialExams());
+        } else if (change instanceof DatabaseChange.Removed<Exam> removed && uniqueExamId.equals(removed.record().getUniqueId())) {
+            partialExams.clear();
+        } else if (change instanceof DatabaseChange.Reloaded<Exam>) {
+            partialExams.clear();
+        }
+    }
+    
+    /**
+     * @brief Allinea le prove parziali visualizzate a quelle dell'esame aggiornato.
+     *
+     * Rimuove le prove non più presenti, sostituisce quelle il cui contenuto è cambiato e inserisce
+     * le nuove nella loro posizione; le altre righe restano invariate.
+     *
+     * @param updated Le prove parziali dell'esame aggiornato.
+     */
+    private void reconcilePartialExams(List<PartialExam> updated) {
+        PartialExam selected = table.getSelectionModel().getSelectedItem();
+        String selectedId = (selected == null) ? null : selected.getUniqueId();
+        
+        Set<String> ids = new HashSet<>();
+        for (PartialExam partial : updated) ids.add(partial.getUniqueId());
+        partialExams.removeIf(partial -> !ids.contains(partial.getUniqueId()));
+        
+        for (int i = 0; i < updated.size(); i++) {
+            PartialExam partial = updated.get(i);
+            if (i < partialExams.size() && partialExams.get(i).getUniqueId().equals(partial.getUniqueId())) {
+                if (partialExams.get(i).getContentHash() != partial.getContentHash()) partialExams.set(i, partial);
+            } else {
+                partialExams.add(i, partial);
+            }
+        }
+        // Le prove spostate di posizione risulterebbero duplicate: in quel caso la lista viene sostituita.
+        if (partialExams.size() != updated.size()) partialExams.setAll(updated);
+        
+        // La sostituzione di una riga annulla la selezione: viene ripristinata per ID.
+        if (selectedId != null && table.getSelectionModel().getSelectedItem() == null)
+            for (PartialExam partial : partialExams)
+                if (partial.getUniqueId().equals(selectedId)) table.getSelectionModel().select(partial);
     }
     
     /**
@@ -1,9 +1,11 @@
 package myapp.mvc.view.pane;
 
+import javafx.application.Platform;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
+import javafx.collections.transformation.SortedList;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.*;
@@ -16,15 +18,36 @@ import javafx.util.Duration;
 
 import myapp.mvc.controller.ManageExams;
 import myapp.mvc.controller.ManagePaths;
+import myapp.mvc.model.DatabaseChange;
 import myapp.mvc.model.exam.ComposedExam;
 import myapp.mvc.model.exam.Exam;
+import myapp.mvc.model.exam.ExamMatcher;
 import myapp.mvc.model.exam.SimpleExam;
+import myapp.mvc.model.exam.query.ExamQuery;
+import myapp.mvc.model.exam.query.ExamQueryParser;
+import myapp.mvc.model.exam.query.ExamSearchIndex;
+import myapp.mvc.model.exam.query.QueryPlan;
+import myapp.mvc.model.exam.query.QueryPlanner;
+import myapp.mvc.model.exam.query.StoredExamIndexes;
 import myapp.mvc.model.path.UniquePath;
 import myapp.mvc.view.dialog.AddExamDialog.AddExamDialog;
 import myapp.mvc.view.things.MyHSpacer;
 import myapp.mvc.view.things.MySpinner;
+import myapp.util.ParallelFilter;
+import myapp.util.SearchPipeline;
+import myapp.util.SearchStats;
 
-import java.util.StringTokenizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 
 /**
  * @brief Rappresenta il pannello centrale dell'interfaccia utente.
@@ -92,6 +115,10 @@ public class CenterPane extends BorderPane {
     private final Button btnSave = new Button("Save");
     /** Pulsante per caricare i dati */
     private final Button btnLoad = new Button("Load");
+    /** Barra di avanzamento dei salvataggi e dei caricamenti in corso */
+    private final ProgressBar barIo = new ProgressBar(0);
+    /** Pulsante per annullare i salvataggi e i caricamenti in corso */
+    private final Button btnStopIo = new Button("Stop");
     
     // ------------ COMPONENTS MANAGE TABLE (BAR)
     /** Pulsante per aggiungere un nuovo esame */
@@ -100,8 +127,50 @@ public class CenterPane extends BorderPane {
     // ------------ TABLE VIEW
     /** Tabella per visualizzare gli esami */
     private final TableView<Exam> table = new TableView<>();
+    /** Esami visualizzati, aggiornati con le modifiche notificate dal database */
+    private final ObservableList<Exam> exams = FXCollections.observableArrayList();
     /** Lista filtrata di esami */
-    private FilteredList<Exam> filteredExams;
+    private final FilteredList<Exam> filteredExams = new FilteredList<>(exams, b -> true);
+    /** Esami filtrati nell'ordine scelto dalle intestazioni della tabella */
+    private final SortedList<Exam> sortedExams = new SortedList<>(filteredExams);
+    /** Posizione di ogni esame nella lista visualizzata, per ID; valida solo per le prime {@link #indexedRows} righe */
+    private final Map<String, Integer> rowsById = new HashMap<>();
+    /** Numero di righe iniziali la cui posizione in {@link #rowsById} è aggiornata */
+    private int indexedRows = 0;
+    /** Indica se la tabella mostra gli esami di un file ancora in caricamento */
+    private boolean streaming = false;
+    
+    // ------------ SEARCH
+    /** Indici degli esami visualizzati, usati dal pianificatore delle ricerche */
+    private final ExamSearchIndex searchIndex = new ExamSearchIndex();
+    /** Indici del motore di archiviazione, null se il motore non li mantiene */
+    private StoredExamIndexes storedIndexes = null;
+    /** Ricerca attiva, null se la ricerca è vuota */
+    private ExamQuery activeQuery = null;
+    /** Piano dell'ultima ricerca eseguita, null se la ricerca è vuota */
+    private QueryPlan lastPlan = null;
+    /** ID degli esami che corrispondono alla ricerca attiva, null se la ricerca è vuota */
+    private Set<String> matchingExams = null;
+    /** Statistiche delle ricerche risolte restringendo il risultato precedente */
+    private final SearchStats searchStats = new SearchStats();
+    /** Numero di esami oltre il quale la ricerca viene eseguita in parallelo fuori dal thread dell'interfaccia */
+    private static final int PARALLEL_SEARCH_THRESHOLD = 100_000;
+    /** Filtro parallelo per le ricerche sulle tabelle molto grandi */
+    private final ParallelFilter<Exam> parallelFilter = new ParallelFilter<>(ForkJoinPool.commonPool(), 8192);
+    /** Ricerca in corso in background, null se non ce n'è nessuna */
+    private ExamQuery pendingQuery = null;
+    /** Piano della ricerca in corso in background */
+    private QueryPlan pendingPlan = null;
+    /** ID degli esami modificati durante la ricerca in corso, da verificare di nuovo al termine */
+    private Set<String> changedDuringSearch = null;
+    /** Finestra di attesa predefinita prima di avviare una ricerca, in millisecondi */
+    private static final long SEARCH_DEBOUNCE_MILLIS = 150;
+    /** Esecutore delle ricerche in background, un thread virtuale per ricerca */
+    private static final ExecutorService SEARCH_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+    /** Pipeline che accorpa le ricerche ravvicinate, le esegue in background e scarta quelle superate */
+    private final SearchPipeline<String, Set<String>> searchPipeline = new SearchPipeline<>(
+        SEARCH_DEBOUNCE_MILLIS, Platform::runLater, SEARCH_EXECUTOR, this::prepareSearch, this::publishSearch
+    );
     
     // ------------ INTERFACES
     /** Interfaccia per passare le informazioni degli esami parziali */
@@ -253,6 +322,18 @@ public class CenterPane extends BorderPane {
             // Cambiamo il predicato di matching della lista filtrata.
             setFilteredExamsPredicate(newValue);
         });
+        
+        // ToolTip con il piano dell'ultima ricerca e le statistiche delle ricerche
+        fldSearch.hoverProperty().addListener((observable) -> {
+            if (!fldSearch.isHover()) return;
+            if (lastPlan != null) {
+                Tooltip t = new Tooltip(explainSearch());
+                t.setShowDelay(Duration.seconds(0.7));
+                fldSearch.setTooltip(t);
+            } else {
+                fldSearch.setTooltip(null);
+            }
+        });
 
         cmbFilter.setPrefWidth(105);
         cmbFilter.setVisibleRowCount(3);
@@ -297,6 +378,10 @@ public class CenterPane extends BorderPane {
                 manageExams.saveExams(selectedPath.getPath());
             }
         });
+        
+        barIo.setPrefWidth(80);
+        barIo.setMaxHeight(Double.MAX_VALUE);
+        this.hideIoProgress();
 
         // -----------------------------------
 
@@ -304,7 +389,7 @@ public class CenterPane extends BorderPane {
 
         // -----------------------------------
 
-        centerTopLayout.getChildren().addAll(lblSearch, fldSearch, cmbFilter, new MyHSpacer(), lblPath, fldPath, lblFlag, btnLoad, btnSave, new MyHSpacer(), btnAddExam);
+        centerTopLayout.getChildren().addAll(lblSearch, fldSearch, cmbFilter, new MyHSpacer(), lblPath, fldPath, lblFlag, btnLoad, btnSave, barIo, btnStopIo, new MyHSpacer(), btnAddExam);
 
         /* ------------ CENTER MID ---------------------------------------------------------------------------------- */
 
@@ -369,6 +454,18 @@ public class CenterPane extends BorderPane {
             updateMenuWithSelectedExam(selectedExam);
         });
         
+        // L'ordinamento per voto usa le chiavi di ExamGradeOrder invece di ricalcolare il voto a ogni confronto.
+        table.setSortPolicy(t -> {
+            Comparator<Exam> comparator = t.getComparator();
+            if (t.getSortOrder().size() == 1 && t.getSortOrder().get(0) == gradeColumn) {
+                comparator = searchIndex.getGradeOrder().comparator();
+                if (gradeColumn.getSortType() == TableColumn.SortType.DESCENDING) comparator = comparator.reversed();
+            }
+            sortedExams.setComparator(comparator);
+            return true;
+        });
+        
+        table.setItems(sortedExams);
         table.setEditable(false);
         table.setStyle("""
         .table-view:focused .table-row-cell:focused {
@@ -417,19 +514,232 @@ public class CenterPane extends BorderPane {
     public void setManagePaths(ManagePaths managePaths) {
         this.managePaths = managePaths;
     }
+    
+    /**
+     * @brief Imposta gli indici del motore di archiviazione, valutati dal pianificatore delle ricerche.
+     *
+     * @param storedIndexes Indici del motore, null se il motore non li mantiene.
+     */
+    public void setStoredIndexes(StoredExamIndexes storedIndexes) {
+        this.storedIndexes = storedIndexes;
+    }
 
     // ------------ TABLE
     
     /**
      * @brief Imposta i dati da visualizzare nella tabella degli esami.
      *
+     * Sostituisce il contenuto della lista visualizzata, che resta la stessa insieme al suo filtro.
+     *
      * @param data Lista di esami da visualizzare.
      */
     public void setData(ObservableList<Exam> data) {
-        filteredExams = new FilteredList<>(data, b -> true);
-        updFilteredExamsPredicate();
-        table.setItems(filteredExams);
-        table.refresh();
+        replaceExams(data);
+    }
+    
+    /**
+     * @brief Applica alla tabella una modifica notificata dal database.
+     *
+     * Tocca solo la riga coinvolta, così che filtro, posizione di scorrimento e selezione
+     * vengano mantenuti. Va chiamato sul thread dell'interfaccia.
+     *
+     * @param change La modifica da applicare.
+     */
+    public void applyChange(DatabaseChange<Exam> change) {
+        if (streaming && !(change instanceof DatabaseChange.Reloaded)) return;
+        if (change instanceof DatabaseChange.Added<Exam> added) {
+            int index = added.index();
+            indexExam(added.record());
+            if (index < 0 || index > exams.size()) index = exams.size();
+            exams.add(index, added.record());
+            rowsChangedFrom(index);
+            
+        } else if (change instanceof DatabaseChange.Removed<Exam> removed) {
+            int index = indexOfExam(removed.index(), removed.record().getUniqueId());
+            if (index < 0) return;
+            exams.remove(index);
+            rowsById.remove(removed.record().getUniqueId());
+            rowsChangedFrom(index);
+            unindexExam(removed.record());
+            
+        } else if (change instanceof DatabaseChange.Updated<Exam> updated) {
+            int index = indexOfExam(updated.index(), updated.record().getUniqueId());
+            if (index < 0) return;
+            boolean selected = table.getSelectionModel().getSelectedItem() == exams.get(index);
+            indexExam(updated.record());
+            exams.set(index, updated.record());
+            // La sostituzione della riga annulla la selezione: viene ripristinata sul record aggiornato.
+            if (selected) table.getSelectionModel().select(updated.record());
+            
+        } else if (change instanceof DatabaseChange.Reloaded<Exam> reloaded) {
+            if (streaming) endStreaming();
+            // Dopo un caricamento progressivo la tabella contiene già i primi esami: vengono aggiunti solo i rimanenti.
+            List<Exam> records = reloaded.records();
+            int shown = shownPrefixLength(records);
+            if (shown == exams.size()) appendExamsToTable(records.subList(shown, records.size()));
+            else replaceExams(records);
+        }
+    }
+    
+    /**
+     * @brief Sostituisce gli esami visualizzati, ricostruendo l'indice di ricerca.
+     *
+     * @param records I nuovi esami.
+     */
+    private void replaceExams(List<Exam> records) {
+        searchIndex.clear();
+        for (Exam exam : records)
+            searchIndex.put(exam);
+        
+        // La ricerca in corso riguarda gli esami sostituiti: le corrispondenze vengono ricalcolate subito.
+        ExamQuery query = (pendingQuery != null) ? pendingQuery : activeQuery;
+        cancelSearch();
+        if (query != null) {
+            activeQuery = query;
+            matchingExams = findMatchingExams();
+        }
+        exams.setAll(records);
+        rowsById.clear();
+        indexedRows = 0;
+        
+        // La ricerca annullata viene richiesta di nuovo, così da riflettere l'ultimo testo digitato.
+        if (fldSearch.getText() != null && !fldSearch.getText().isEmpty()) updFilteredExamsPredicate();
+    }
+    
+    /**
+     * @brief Aggiunge esami in fondo alla tabella, indicizzandoli prima che il filtro li valuti.
+     *
+     * @param records Gli esami da aggiungere.
+     */
+    private void appendExamsToTable(List<Exam> records) {
+        for (Exam exam : records)
+            indexExam(exam);
+        rowsChangedFrom(exams.size());
+        exams.addAll(records);
+    }
+    
+    /**
+     * @brief Indicizza un esame per la ricerca e aggiorna le corrispondenze della ricerca attiva.
+     *
+     * Va chiamato prima di inserire l'esame nella lista visualizzata, così che il filtro lo valuti correttamente.
+     *
+     * @param exam L'esame da indicizzare.
+     */
+    private void indexExam(Exam exam) {
+        searchIndex.put(exam);
+        if (changedDuringSearch != null) changedDuringSearch.add(exam.getUniqueId());
+        if (matchingExams == null) return;
+        if (activeQuery.matches(exam)) matchingExams.add(exam.getUniqueId());
+        else matchingExams.remove(exam.getUniqueId());
+    }
+    
+    /**
+     * @brief Rimuove un esame dall'indice di ricerca e dalle corrispondenze della ricerca attiva.
+     *
+     * @param exam L'esame da rimuovere.
+     */
+    private void unindexExam(Exam exam) {
+        searchIndex.remove(exam.getUniqueId());
+        if (changedDuringSearch != null) changedDuringSearch.add(exam.getUniqueId());
+        if (matchingExams != null) matchingExams.remove(exam.getUniqueId());
+    }
+    
+    /**
+     * @brief Inizia a mostrare gli esami di un file mentre viene caricato.
+     *
+     * La tabella viene svuotata e riempita con {@link #appendExams(List)}. Fino alla fine del caricamento le
+     * altre modifiche notificate dal database vengono ignorate, perché il caricamento le sostituisce, e le
+     * operazioni sugli esami sono disabilitate; la ricerca resta utilizzabile.
+     */
+    public void beginStreaming() {
+        streaming = true;
+        table.getSelectionModel().clearSelection();
+        replaceExams(List.of());
+        setExamActionsDisabled(true);
+    }
+    
+    /**
+     * @brief Aggiunge in fondo alla tabella un blocco di esami del file in caricamento.
+     *
+     * @param chunk Gli esami letti.
+     */
+    public void appendExams(List<Exam> chunk) {
+        if (streaming) appendExamsToTable(chunk);
+    }
+    
+    /**
+     * @brief Termina il caricamento progressivo e riabilita le operazioni sugli esami.
+     */
+    public void endStreaming() {
+        streaming = false;
+        setExamActionsDisabled(false);
+    }
+    
+    /**
+     * @brief Indica se la tabella mostra gli esami di un file ancora in caricamento.
+     *
+     * @return true durante un caricamento progressivo, false altrimenti.
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+    
+    /**
+     * @brief Abilita o disabilita i pulsanti che modificano, salvano o caricano gli esami.
+     *
+     * @param disabled true per disabilitare i pulsanti.
+     */
+    private void setExamActionsDisabled(boolean disabled) {
+        btnDelete.setDisable(disabled);
+        btnUpdate.setDisable(disabled);
+        btnAddExam.setDisable(disabled);
+        btnLoad.setDisable(disabled);
+        btnSave.setDisable(disabled);
+    }
+    
+    /**
+     * @brief Conta quanti dei primi esami indicati sono già in tabella, nello stesso ordine.
+     *
+     * @param records Gli esami da confrontare, per identità.
+     * @return La lunghezza del prefisso comune tra la tabella e gli esami indicati.
+     */
+    private int shownPrefixLength(List<Exam> records) {
+        int length = Math.min(records.size(), exams.size());
+        for (int i = 0; i < length; i++)
+            if (records.get(i) != exams.get(i)) return i;
+        return length;
+    }
+    
+    /**
+     * @brief Trova la posizione di un esame nella lista visualizzata.
+     *
+     * Senza una posizione indicata dal database (ad esempio con il motore a log) l'esame viene cercato
+     * nella mappa per ID; le posizioni delle righe spostate da inserimenti e rimozioni vengono
+     * aggiornate solo qui, a partire dalla prima riga spostata.
+     *
+     * @param hint Posizione indicata dal database, verificata prima di cercare l'esame per ID.
+     * @param uniqueId ID univoco dell'esame.
+     * @return La posizione dell'esame, -1 se non è presente.
+     */
+    private int indexOfExam(int hint, String uniqueId) {
+        if (hint >= 0 && hint < exams.size() && exams.get(hint).getUniqueId().equals(uniqueId)) return hint;
+        Integer row = rowsById.get(uniqueId);
+        if (row != null && row < indexedRows) return row;
+        
+        for (int i = indexedRows; i < exams.size(); i++)
+            rowsById.put(exams.get(i).getUniqueId(), i);
+        indexedRows = exams.size();
+        row = rowsById.get(uniqueId);
+        return (row == null) ? -1 : row;
+    }
+    
+    /**
+     * @brief Segnala che le righe da una posizione in poi sono cambiate o si sono spostate.
+     *
+     * @param index Posizione della prima riga cambiata.
+     */
+    private void rowsChangedFrom(int index) {
+        indexedRows = Math.min(indexedRows, index);
     }
 
     // ------------ OTHERS
@@ -490,6 +800,32 @@ public class CenterPane extends BorderPane {
         }
     }
     
+    /**
+     * @brief Mostra l'avanzamento dei salvataggi e dei caricamenti in corso.
+     *
+     * @param progress Avanzamento, tra 0 e 1.
+     * @param onStop Azione eseguita premendo il pulsante di annullamento.
+     */
+    public void showIoProgress(double progress, Runnable onStop) {
+        barIo.setProgress(progress);
+        btnStopIo.setOnAction(e -> onStop.run());
+        barIo.setVisible(true);
+        barIo.setManaged(true);
+        btnStopIo.setVisible(true);
+        btnStopIo.setManaged(true);
+    }
+    
+    /**
+     * @brief Nasconde l'avanzamento quando non ci sono salvataggi o caricamenti in corso.
+     */
+    public void hideIoProgress() {
+        barIo.setVisible(false);
+        barIo.setManaged(false);
+        btnStopIo.setVisible(false);
+        btnStopIo.setManaged(false);
+        btnStopIo.setOnAction(null);
+    }
+    
     /**
      * @brief Imposta il flag di modifica in base allo stato degli esami.
      */
@@ -498,81 +834,174 @@ public class CenterPane extends BorderPane {
     }
     
     /**
-     * @brief Imposta il predicato per filtrare gli esami in base al testo di ricerca e al filtro selezionato.
+     * @brief Richiede la ricerca di un testo con il filtro selezionato e la sensibilità al caso corrente.
+     *
+     * Il testo viene interpretato da {@link ExamQueryParser}: oltre al testo libero, cercato nei campi scelti
+     * dal filtro, può contenere condizioni come {@code teaching:"Analisi 1" grade>=27 credits:6..9 honors}.
+     * La ricerca passa per la pipeline: le richieste ravvicinate vengono accorpate, la verifica viene
+     * eseguita in background e i risultati delle richieste superate vengono scartati.
      *
      * @param newValue Testo di ricerca.
      */
     private void setFilteredExamsPredicate(String newValue) {
-        filteredExams.setPredicate(exam -> {
-
-            if (newValue == null || newValue.isEmpty()) return true;
-
-            String selectedFilter = cmbFilter.getValue();
-            String match = (caseSensitivity) ? newValue : newValue.toLowerCase();
-            String[] values = {exam.getUsername(), exam.getSurname(), exam.getTeaching()};
-
-            if (!caseSensitivity)
-                for (int i = 0; i < values.length; i++)
-                    values[i] = values[i].toLowerCase();
-            
-            // Filtro per Studente selezionato
-            if (selectedFilter.equals(filterOptions[1]))
-                /* Per studiare il calendario degli esami di un singolo studente devo identificarlo in modo univoco.
-                   Devo tokenizzare la corrispondenza e assicurarmi che ciascuna sottostringa corrisponda ad almeno
-                   uno dei valori in Nome utente o Cognome. */
-                return areUsernameAndSurnameMatched(match, values);
-            
-            // Filtro per Username, Surname o Materia
-            return areUsernameOrSurnameOrTeachingMatched(match, selectedFilter, values);
-        });
+        searchPipeline.submit(newValue);
     }
     
     /**
-     * @brief Verifica se Username e Surname corrispondono al testo di ricerca.
+     * @brief Prepara la ricerca sul thread dell'interfaccia, scegliendo gli esami da verificare.
      *
-     * @param match Testo di ricerca.
-     * @param values Array contenente Username e Surname.
-     * @return TRUE se entrambi corrispondono, FALSE altrimenti.
+     * Il pianificatore sceglie l'accesso meno costoso tra gli indici e, se la nuova ricerca restringe
+     * quella attiva, il risultato precedente; i candidati degli indici in memoria vengono ricavati qui,
+     * quelli letti dal disco in background insieme alla verifica con il predicato residuo.
+     *
+     * @param newValue Testo di ricerca.
+     * @return La verifica dei candidati da eseguire in background, null se la ricerca è vuota.
      */
-    private static boolean areUsernameAndSurnameMatched(String match, String[] values) {
-        boolean matched = true;
-
-        StringTokenizer tokenizer = new StringTokenizer(match, " ");
-        while (tokenizer.hasMoreTokens() && matched) {
-            String token = tokenizer.nextToken();
-            
-            /* Non appena la sottostringa corrente non corrisponde né al nome utente né al cognome, la corrispondenza viene considerata fallita. */
-            //matched = matched && ( values[0].contains(token) || values[1].contains(token) );
-            matched = ( values[0].contains(token) || values[1].contains(token) );
+    private Supplier<Set<String>> prepareSearch(String newValue) {
+        parallelFilter.cancel();
+        if (newValue == null || newValue.isEmpty()) {
+            pendingQuery = null;
+            pendingPlan = null;
+            changedDuringSearch = null;
+            activeQuery = null;
+            matchingExams = null;
+            lastPlan = null;
+            updateFilteredExams();
+            return null;
         }
-
-        return matched;
+        
+        // Il risultato precedente è un accesso possibile solo se la nuova ricerca lo restringe.
+        ExamQuery query = parseSearch(newValue);
+        Set<String> previousMatches = (matchingExams != null && query.refines(activeQuery)) ? matchingExams : null;
+        QueryPlan plan = QueryPlanner.plan(query, searchIndex, previousMatches, storedIndexes);
+        
+        // Gli esami modificati durante la verifica vengono annotati e verificati di nuovo alla pubblicazione.
+        pendingQuery = query;
+        pendingPlan = plan;
+        changedDuringSearch = new HashSet<>();
+        if (plan.readsStorage()) return () -> verifyCandidates(plan, plan.fetchCandidates());
+        
+        List<Exam> fetched = plan.fetchCandidates();
+        List<Exam> candidates = (fetched == null) ? new ArrayList<>(exams) : fetched;
+        return () -> verifyCandidates(plan, candidates);
     }
     
     /**
-     * @brief Verifica se il testo di ricerca corrisponde a Username, Surname o Materia.
+     * @brief Interpreta il testo di ricerca; se contiene un termine non valido viene cercato come testo libero.
      *
-     * @param match Testo di ricerca.
-     * @param filter Filtro selezionato.
-     * @param values Array contenente Username, Surname e Materia.
-     * @return TRUE se corrisponde, FALSE altrimenti.
+     * @param text Testo di ricerca.
+     * @return La ricerca.
      */
-    private static boolean areUsernameOrSurnameOrTeachingMatched(String match, String filter, String[] values) {
-        boolean isMatch = false;
-
-        for (int i = 0; i < values.length; i++) {
-            if (values[i].contains(match)) {
-
-                // Username or Surname
-                if ((i == 0 || i == 1) && filter.equals(filterOptions[0]))
-                    isMatch = true;
-
-                // Teaching
-                else if (i == 2 && (filter.equals(filterOptions[2]) || filter.equals(filterOptions[0])))
-                    isMatch = true;
-            }
+    private ExamQuery parseSearch(String text) {
+        ExamMatcher.Scope scope = getSearchScope(cmbFilter.getValue());
+        try {
+            return ExamQueryParser.parse(text, scope, caseSensitivity);
+        } catch (IllegalArgumentException e) {
+            // Ignora l'eccezione per evitare il crash: il testo viene cercato così com'è.
+            return ExamQuery.text(text, scope, caseSensitivity);
+        }
+    }
+    
+    /**
+     * @brief Verifica i candidati con il predicato residuo del piano, in background.
+     *
+     * Sulle tabelle molto grandi i candidati vengono suddivisi in blocchi e verificati in parallelo.
+     *
+     * @param plan Il piano della ricerca.
+     * @param candidates Gli esami da verificare.
+     * @return Gli ID degli esami corrispondenti.
+     */
+    private Set<String> verifyCandidates(QueryPlan plan, List<Exam> candidates) {
+        if (plan.isNarrowing()) searchStats.recordNarrowed(candidates.size());
+        else searchStats.recordFull(candidates.size());
+        
+        long start = System.nanoTime();
+        Set<String> matching = new HashSet<>();
+        if (candidates.size() < PARALLEL_SEARCH_THRESHOLD) {
+            for (Exam exam : candidates)
+                if (plan.matches(exam)) matching.add(exam.getUniqueId());
+        } else {
+            for (int index : parallelFilter.submit(candidates, plan::matches).join())
+                matching.add(candidates.get(index).getUniqueId());
         }
-        return isMatch;
+        plan.recordVerification(candidates.size(), matching.size(), System.nanoTime() - start);
+        return matching;
+    }
+    
+    /**
+     * @brief Pubblica il risultato della ricerca con un solo aggiornamento della tabella.
+     *
+     * Gli esami aggiunti, modificati o rimossi durante la verifica vengono verificati di nuovo.
+     *
+     * @param matching Gli ID degli esami corrispondenti.
+     */
+    private void publishSearch(Set<String> matching) {
+        for (String uniqueId : changedDuringSearch) {
+            Exam exam = searchIndex.get(uniqueId);
+            if (exam != null && pendingQuery.matches(exam)) matching.add(uniqueId);
+            else matching.remove(uniqueId);
+        }
+        
+        activeQuery = pendingQuery;
+        lastPlan = pendingPlan;
+        matchingExams = matching;
+        pendingQuery = null;
+        pendingPlan = null;
+        changedDuringSearch = null;
+        updateFilteredExams();
+    }
+    
+    /**
+     * @brief Annulla la ricerca in attesa o in corso, scartandone il risultato.
+     */
+    private void cancelSearch() {
+        searchPipeline.cancel();
+        parallelFilter.cancel();
+        pendingQuery = null;
+        pendingPlan = null;
+        changedDuringSearch = null;
+    }
+    
+    /**
+     * @brief Aggiorna il predicato della lista filtrata con le corrispondenze della ricerca attiva.
+     */
+    private void updateFilteredExams() {
+        // Le corrispondenze vengono aggiornate insieme all'indice: il predicato si riduce a una ricerca per ID.
+        filteredExams.setPredicate(exam -> matchingExams == null || matchingExams.contains(exam.getUniqueId()));
+    }
+    
+    /**
+     * @brief Calcola sul thread dell'interfaccia gli ID degli esami che corrispondono alla ricerca attiva.
+     *
+     * Vengono usati solo gli indici in memoria, per non leggere dal disco sul thread dell'interfaccia.
+     *
+     * @return Gli ID degli esami corrispondenti.
+     */
+    private Set<String> findMatchingExams() {
+        QueryPlan plan = QueryPlanner.plan(activeQuery, searchIndex, null, null);
+        List<Exam> candidates = plan.fetchCandidates();
+        if (candidates == null) candidates = searchIndex.getAll(searchIndex.keys());
+        searchStats.recordFull(candidates.size());
+        
+        long start = System.nanoTime();
+        Set<String> matching = new HashSet<>();
+        for (Exam exam : candidates)
+            if (plan.matches(exam)) matching.add(exam.getUniqueId());
+        plan.recordVerification(candidates.size(), matching.size(), System.nanoTime() - start);
+        lastPlan = plan;
+        return matching;
+    }
+    
+    /**
+     * @brief Converte l'opzione di filtro selezionata nei campi in cui cercare.
+     *
+     * @param filter Opzione di filtro selezionata.
+     * @return I campi in cui cercare il testo.
+     */
+    private static ExamMatcher.Scope getSearchScope(String filter) {
+        if (filterOptions[1].equals(filter)) return ExamMatcher.Scope.STUDENT;
+        if (filterOptions[2].equals(filter)) return ExamMatcher.Scope.TEACHING;
+        return ExamMatcher.Scope.ANY;
     }
     
     /**
@@ -625,6 +1054,28 @@ public class CenterPane extends BorderPane {
         return this.filteredExams;
     }
     
+    /**
+     * @brief Imposta la finestra di attesa prima di avviare una ricerca.
+     *
+     * @param millis Finestra di attesa, in millisecondi; 0 per avviare la ricerca a ogni modifica.
+     */
+    public void setSearchDebounce(long millis) {
+        searchPipeline.setDebounceMillis(millis);
+    }
+    
+    /**
+     * @brief Descrive il piano dell'ultima ricerca eseguita, i tempi delle sue fasi e le statistiche delle ricerche.
+     *
+     * Oltre al piano riporta le ricerche incrementali e la latenza della pipeline, dalla modifica del
+     * testo alla pubblicazione del risultato.
+     *
+     * @return La descrizione, vuota se la ricerca è vuota.
+     */
+    public String explainSearch() {
+        if (this.lastPlan == null) return "";
+        return this.lastPlan.explain() + "\nRicerche: " + this.searchStats + "\nPipeline: " + this.searchPipeline;
+    }
+    
     /**
      * @brief Restituisce l'opzione di filtro selezionata.
      *
@@ -72,8 +72,9 @@ public interface TopMenuInterface {
      * Questo metodo configura il grafico che verrà visualizzato, utilizzando una funzione
      * per ottenere una chiave unica per ciascun esame e un titolo per il grafico.
      *
+     * @param exams Esami da raggruppare, nell'ordine in cui mostrare i gruppi.
      * @param getKey Funzione che estrae una chiave unica da un oggetto di tipo Exam.
      * @param title Titolo del grafico da visualizzare.
      */
-    void setupGraph(Function<Exam, String> getKey, String title);
+    void setupGraph(Iterable<Exam> exams, Function<Exam, String> getKey, String title);
 }
@@ -0,0 +1,196 @@
+package myapp.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * @brief Stream di output che confronta i byte scritti con il contenuto di un file.
+ *
+ * Invece di scrivere i dati, li confronta man mano con quelli letti dal file tramite un
+ * {@link FileChannel} bufferizzato. Alla prima differenza lancia una {@link MismatchException}
+ * così che chi sta producendo i dati possa interrompersi subito, senza arrivare in fondo.
+ * Alla chiusura verifica che il file non contenga byte in più rispetto a quelli scritti.
+ */
+public class ComparingOutputStream extends OutputStream {
+
+    /** @brief Dimensione predefinita del buffer di lettura. */
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /** @brief Canale da cui vengono letti i byte del file. */
+    private final FileChannel channel;
+
+    /** @brief Byte del file letti ma non ancora confrontati. */
+    private final ByteBuffer buffer;
+
+    /** @brief Numero di byte confrontati con esito positivo. */
+    private long compared = 0;
+
+    /** @brief Indica se è stata trovata una differenza. */
+    private boolean mismatch = false;
+
+    /** @brief Indica se lo stream è stato chiuso. */
+    private boolean closed = false;
+
+    /**
+     * @brief Eccezione lanciata alla prima differenza trovata.
+     */
+    public static class MismatchException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * @brief Costruttore dell'eccezione.
+         *
+         * @param offset Posizione del primo byte differente.
+         */
+        public MismatchException(long offset) {
+            super("Il contenuto differisce dal file alla posizione " + offset);
+        }
+    }
+
+    /**
+     * @brief Costruttore con buffer di dimensione predefinita.
+     *
+     * @param path Percorso del file con cui confrontare i byte.
+     * @throws IOException Se il file non può essere aperto.
+     */
+    public ComparingOutputStream(Path path) throws IOException {
+        this(path, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @brief Costruttore con buffer di dimensione personalizzata.
+     *
+     * @param path Percorso del file con cui confrontare i byte.
+     * @param bufferSize Dimensione del buffer di lettura in byte.
+     * @throws IOException Se il file non può essere aperto.
+     */
+    public ComparingOutputStream(Path path, int bufferSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.buffer.flip();
+    }
+
+    /**
+     * @brief Confronta un singolo byte.
+     *
+     * @param b Il byte da confrontare.
+     * @throws IOException Se il byte differisce o la lettura del file fallisce.
+     */
+    @Override
+    public void write(int b) throws IOException {
+        this.ensureComparable();
+        if (!this.buffer.hasRemaining() && !this.fill()) this.fail();
+        if (this.buffer.get() != (byte) b) this.fail();
+        this.compared++;
+    }
+
+    /**
+     * @brief Confronta una porzione di un array di byte.
+     *
+     * @param b L'array di byte.
+     * @param off Posizione iniziale nell'array.
+     * @param len Numero di byte da confrontare.
+     * @throws IOException Se i byte differiscono o la lettura del file fallisce.
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        this.ensureComparable();
+        while (len > 0) {
+            if (!this.buffer.hasRemaining() && !this.fill()) this.fail();
+
+            int n = Math.min(len, this.buffer.remaining());
+            int position = this.buffer.position();
+            int diff = Arrays.mismatch(this.buffer.array(), position, position + n, b, off, off + n);
+            if (diff != -1) {
+                this.compared += diff;
+                this.fail();
+            }
+
+            this.buffer.position(position + n);
+            this.compared += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * @brief Chiude lo stream verificando che il file non contenga altri byte.
+     *
+     * @throws IOException Se la chiusura del canale fallisce.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) return;
+        this.closed = true;
+        try {
+            if (!this.mismatch && (this.buffer.hasRemaining() || this.channel.position() < this.channel.size()))
+                this.mismatch = true;
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * @brief Indica se i byte scritti coincidono con l'intero contenuto del file.
+     *
+     * Il risultato è definitivo solo dopo la chiusura dello stream.
+     *
+     * @return true se lo stream è chiuso e non sono state trovate differenze, false altrimenti.
+     */
+    public boolean isEqual() {
+        return this.closed && !this.mismatch;
+    }
+
+    /**
+     * @brief Restituisce il numero di byte confrontati con esito positivo.
+     *
+     * @return Il numero di byte uguali prima della fine o della prima differenza.
+     */
+    public long getComparedBytes() {
+        return this.compared;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Verifica che lo stream possa ancora confrontare dati.
+     *
+     * @throws IOException Se lo stream è chiuso o è già stata trovata una differenza.
+     */
+    private void ensureComparable() throws IOException {
+        if (this.closed) throw new IOException("Stream chiuso");
+        if (this.mismatch) throw new MismatchException(this.compared);
+    }
+
+    /**
+     * @brief Legge dal file il prossimo blocco di byte da confrontare.
+     *
+     * @return true se sono stati letti dei byte, false se il file è terminato.
+     * @throws IOException Se la lettura fallisce.
+     */
+    private boolean fill() throws IOException {
+        this.buffer.clear();
+        int read;
+        do {
+            read = this.channel.read(this.buffer);
+        } while (read == 0);
+        this.buffer.flip();
+        return read > 0;
+    }
+
+    /**
+     * @brief Registra la differenza e interrompe la scrittura.
+     *
+     * @throws MismatchException Sempre.
+     */
+    private void fail() throws MismatchException {
+        this.mismatch = true;
+        throw new MismatchException(this.compared);
+    }
+}
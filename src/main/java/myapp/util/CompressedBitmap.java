@@ -0,0 +1,786 @@
+package myapp.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * @brief Insieme compresso di interi non negativi, diviso in contenitori come nelle roaring bitmap.
+ *
+ * Gli interi sono raggruppati in blocchi di 65536 valori secondo i 16 bit alti; ogni blocco non vuoto è
+ * memorizzato nel contenitore adatto alla sua densità: un array ordinato dei 16 bit bassi fino a 4096
+ * valori, oltre una bitmap di 1024 parole da 64 bit. Intersezione, unione, differenza e conteggio
+ * procedono per blocchi; tra due bitmap operano su una parola da 64 bit alla volta e contano i bit con
+ * {@link Long#bitCount(long)}, senza visitare i singoli valori.
+ *
+ * Le operazioni tra insiemi restituiscono un nuovo insieme e non modificano gli operandi.
+ * Non è sicuro per l'accesso da più thread.
+ */
+public class CompressedBitmap {
+
+    /** @brief Numero massimo di valori di un contenitore ad array. */
+    private static final int ARRAY_LIMIT = 4096;
+
+    /** @brief Numero di parole da 64 bit di un contenitore a bitmap. */
+    private static final int WORDS = 1024;
+
+    /** @brief 16 bit alti dei blocchi non vuoti, in ordine crescente. */
+    private char[] keys;
+
+    /** @brief Contenitori dei blocchi, nello stesso ordine di {@link #keys}. */
+    private Container[] containers;
+
+    /** @brief Numero di blocchi non vuoti. */
+    private int size;
+
+    /**
+     * @brief Costruttore: crea un insieme vuoto.
+     */
+    public CompressedBitmap() {
+        this(4);
+    }
+
+    /**
+     * @brief Costruttore: crea un insieme vuoto con spazio per un numero di blocchi.
+     *
+     * @param capacity Numero di blocchi previsti.
+     */
+    private CompressedBitmap(int capacity) {
+        this.keys = new char[Math.max(capacity, 1)];
+        this.containers = new Container[Math.max(capacity, 1)];
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Aggiunge un valore.
+     *
+     * @param value Il valore, non negativo.
+     */
+    public void add(int value) {
+        char high = (char) (value >>> 16);
+        int index = this.indexOf(high);
+        if (index >= 0) this.containers[index] = this.containers[index].add((char) value);
+        else this.insert(-index - 1, high, new ArrayContainer().add((char) value));
+    }
+
+    /**
+     * @brief Rimuove un valore.
+     *
+     * @param value Il valore.
+     */
+    public void remove(int value) {
+        int index = this.indexOf((char) (value >>> 16));
+        if (index < 0) return;
+        Container container = this.containers[index].remove((char) value);
+        if (container.cardinality() > 0) {
+            this.containers[index] = container;
+            return;
+        }
+        System.arraycopy(this.keys, index + 1, this.keys, index, this.size - index - 1);
+        System.arraycopy(this.containers, index + 1, this.containers, index, this.size - index - 1);
+        this.containers[--this.size] = null;
+    }
+
+    /**
+     * @brief Verifica se l'insieme contiene un valore.
+     *
+     * @param value Il valore.
+     * @return true se il valore è presente, false altrimenti.
+     */
+    public boolean contains(int value) {
+        int index = this.indexOf((char) (value >>> 16));
+        return index >= 0 && this.containers[index].contains((char) value);
+    }
+
+    /**
+     * @brief Rimuove tutti i valori.
+     */
+    public void clear() {
+        Arrays.fill(this.containers, 0, this.size, null);
+        this.size = 0;
+    }
+
+    /**
+     * @brief Restituisce il numero di valori.
+     *
+     * @return Il numero di valori.
+     */
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < this.size; i++)
+            cardinality += this.containers[i].cardinality();
+        return cardinality;
+    }
+
+    /**
+     * @brief Verifica se l'insieme è vuoto.
+     *
+     * @return true se l'insieme non contiene valori, false altrimenti.
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * @brief Esegue un'azione su ogni valore, in ordine crescente.
+     *
+     * @param action L'azione.
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < this.size; i++)
+            this.containers[i].forEach(this.keys[i] << 16, action);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Calcola l'intersezione di due insiemi.
+     *
+     * @param a Il primo insieme.
+     * @param b Il secondo insieme.
+     * @return I valori presenti in entrambi gli insiemi.
+     */
+    public static CompressedBitmap and(CompressedBitmap a, CompressedBitmap b) {
+        CompressedBitmap result = new CompressedBitmap(Math.min(a.size, b.size));
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) i++;
+            else if (a.keys[i] > b.keys[j]) j++;
+            else {
+                Container container = a.containers[i].and(b.containers[j]);
+                if (container.cardinality() > 0) result.append(a.keys[i], container);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @brief Calcola l'unione di due insiemi.
+     *
+     * @param a Il primo insieme.
+     * @param b Il secondo insieme.
+     * @return I valori presenti in almeno uno degli insiemi.
+     */
+    public static CompressedBitmap or(CompressedBitmap a, CompressedBitmap b) {
+        CompressedBitmap result = new CompressedBitmap(a.size + b.size);
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+                result.append(a.keys[i], a.containers[i].copy());
+                i++;
+            } else if (i == a.size || a.keys[i] > b.keys[j]) {
+                result.append(b.keys[j], b.containers[j].copy());
+                j++;
+            } else {
+                result.append(a.keys[i], a.containers[i].or(b.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @brief Calcola la differenza di due insiemi.
+     *
+     * @param a L'insieme di partenza.
+     * @param b L'insieme dei valori da escludere.
+     * @return I valori di a non presenti in b.
+     */
+    public static CompressedBitmap andNot(CompressedBitmap a, CompressedBitmap b) {
+        CompressedBitmap result = new CompressedBitmap(a.size);
+        int j = 0;
+        for (int i = 0; i < a.size; i++) {
+            while (j < b.size && b.keys[j] < a.keys[i]) j++;
+            Container container = (j < b.size && b.keys[j] == a.keys[i])
+                ? a.containers[i].andNot(b.containers[j])
+                : a.containers[i].copy();
+            if (container.cardinality() > 0) result.append(a.keys[i], container);
+        }
+        return result;
+    }
+
+    /**
+     * @brief Conta i valori presenti in entrambi gli insiemi, senza costruire l'intersezione.
+     *
+     * @param a Il primo insieme.
+     * @param b Il secondo insieme.
+     * @return Il numero di valori comuni.
+     */
+    public static int andCardinality(CompressedBitmap a, CompressedBitmap b) {
+        int cardinality = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) i++;
+            else if (a.keys[i] > b.keys[j]) j++;
+            else cardinality += a.containers[i++].andCardinality(b.containers[j++]);
+        }
+        return cardinality;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Cerca un blocco.
+     *
+     * @param high I 16 bit alti del blocco.
+     * @return La posizione del blocco, oppure (-(posizione di inserimento) - 1) se assente.
+     */
+    private int indexOf(char high) {
+        return Arrays.binarySearch(this.keys, 0, this.size, high);
+    }
+
+    /**
+     * @brief Inserisce un blocco in una posizione.
+     *
+     * @param index La posizione.
+     * @param high I 16 bit alti del blocco.
+     * @param container Il contenitore del blocco.
+     */
+    private void insert(int index, char high, Container container) {
+        this.ensureCapacity();
+        System.arraycopy(this.keys, index, this.keys, index + 1, this.size - index);
+        System.arraycopy(this.containers, index, this.containers, index + 1, this.size - index);
+        this.keys[index] = high;
+        this.containers[index] = container;
+        this.size++;
+    }
+
+    /**
+     * @brief Aggiunge un blocco in coda, con chiave maggiore di quelle presenti.
+     *
+     * @param high I 16 bit alti del blocco.
+     * @param container Il contenitore del blocco.
+     */
+    private void append(char high, Container container) {
+        this.ensureCapacity();
+        this.keys[this.size] = high;
+        this.containers[this.size++] = container;
+    }
+
+    /**
+     * @brief Garantisce lo spazio per un blocco in più.
+     */
+    private void ensureCapacity() {
+        if (this.size < this.keys.length) return;
+        this.keys = Arrays.copyOf(this.keys, this.size * 2);
+        this.containers = Arrays.copyOf(this.containers, this.size * 2);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Contenitore dei 16 bit bassi dei valori di un blocco.
+     *
+     * Le modifiche restituiscono il contenitore da usare al posto di quello corrente, che può cambiare
+     * rappresentazione quando la densità supera o scende sotto {@link #ARRAY_LIMIT}.
+     */
+    private abstract static class Container {
+
+        /**
+         * @brief Aggiunge un valore.
+         *
+         * @param low I 16 bit bassi del valore.
+         * @return Il contenitore aggiornato.
+         */
+        abstract Container add(char low);
+
+        /**
+         * @brief Rimuove un valore.
+         *
+         * @param low I 16 bit bassi del valore.
+         * @return Il contenitore aggiornato, eventualmente vuoto.
+         */
+        abstract Container remove(char low);
+
+        /**
+         * @brief Verifica se il contenitore contiene un valore.
+         *
+         * @param low I 16 bit bassi del valore.
+         * @return true se il valore è presente, false altrimenti.
+         */
+        abstract boolean contains(char low);
+
+        /**
+         * @brief Restituisce il numero di valori.
+         *
+         * @return Il numero di valori.
+         */
+        abstract int cardinality();
+
+        /**
+         * @brief Calcola l'intersezione con un altro contenitore.
+         *
+         * @param other L'altro contenitore.
+         * @return Un nuovo contenitore, eventualmente vuoto.
+         */
+        abstract Container and(Container other);
+
+        /**
+         * @brief Calcola l'unione con un altro contenitore.
+         *
+         * @param other L'altro contenitore.
+         * @return Un nuovo contenitore.
+         */
+        abstract Container or(Container other);
+
+        /**
+         * @brief Calcola la differenza con un altro contenitore.
+         *
+         * @param other Il contenitore dei valori da escludere.
+         * @return Un nuovo contenitore, eventualmente vuoto.
+         */
+        abstract Container andNot(Container other);
+
+        /**
+         * @brief Conta i valori comuni con un altro contenitore.
+         *
+         * @param other L'altro contenitore.
+         * @return Il numero di valori comuni.
+         */
+        abstract int andCardinality(Container other);
+
+        /**
+         * @brief Restituisce una copia indipendente del contenitore.
+         *
+         * @return La copia.
+         */
+        abstract Container copy();
+
+        /**
+         * @brief Esegue un'azione su ogni valore, in ordine crescente.
+         *
+         * @param base I 16 bit alti del blocco, già spostati nella posizione del valore.
+         * @param action L'azione.
+         */
+        abstract void forEach(int base, IntConsumer action);
+    }
+
+    /**
+     * @brief Contenitore per blocchi sparsi: array ordinato dei 16 bit bassi.
+     */
+    private static final class ArrayContainer extends Container {
+
+        /** @brief Valori in ordine crescente; sono validi i primi {@link #cardinality}. */
+        private char[] values;
+
+        /** @brief Numero di valori. */
+        private int cardinality;
+
+        /**
+         * @brief Costruttore: crea un contenitore vuoto.
+         */
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        /**
+         * @brief Costruttore.
+         *
+         * @param values Valori in ordine crescente.
+         * @param cardinality Numero di valori validi.
+         */
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        /**
+         * @brief Aggiunge un valore, passando alla bitmap oltre {@link #ARRAY_LIMIT} valori.
+         *
+         * @param low I 16 bit bassi del valore.
+         * @return Il contenitore aggiornato.
+         */
+        @Override
+        Container add(char low) {
+            int index = Arrays.binarySearch(this.values, 0, this.cardinality, low);
+            if (index >= 0) return this;
+            if (this.cardinality == ARRAY_LIMIT) return this.toBitmap().add(low);
+
+            index = -index - 1;
+            if (this.cardinality == this.values.length)
+                this.values = Arrays.copyOf(this.values, Math.min(Math.max(this.values.length * 2, 4), ARRAY_LIMIT));
+            System.arraycopy(this.values, index, this.values, index + 1, this.cardinality - index);
+            this.values[index] = low;
+            this.cardinality++;
+            return this;
+        }
+
+        /**
+         * @brief Rimuove un valore.
+         *
+         * @param low I 16 bit bassi del valore.
+         * @return Il contenitore aggiornato.
+         */
+        @Override
+        Container remove(char low) {
+            int index = Arrays.binarySearch(this.values, 0, this.cardinality, low);
+            if (index < 0) return this;
+            System.arraycopy(this.values, index + 1, this.values, index, this.cardinality - index - 1);
+            this.cardinality--;
+            return this;
+        }
+
+        /**
+         * @brief Verifica se il contenitore contiene un valore.
+         *
+         * @param low I 16 bit bassi del valore.
+         * @return true se il valore è presente, false altrimenti.
+         */
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(this.values, 0, this.cardinality, low) >= 0;
+        }
+
+        /**
+         * @brief Restituisce il numero di valori.
+         *
+         * @return Il numero di valori.
+         */
+        @Override
+        int cardinality() {
+            return this.cardinality;
+        }
+
+        /**
+         * @brief Calcola l'intersezione: fusione tra due array, verifica dei bit con una bitmap.
+         *
+         * @param other L'altro contenitore.
+         * @return Un nuovo contenitore ad array.
+         */
+        @Override
+        Container and(Container other) {
+            char[] result = new char[Math.min(this.cardinality, other.cardinality())];
+            int count = 0;
+            if (other instanceof ArrayContainer array) {
+                int i = 0;
+                int j = 0;
+                while (i < this.cardinality && j < array.cardinality) {
+                    if (this.values[i] < array.values[j]) i++;
+                    else if (this.values[i] > array.values[j]) j++;
+                    else {
+                        result[count++] = this.values[i++];
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < this.cardinality; i++)
+                    if (other.contains(this.values[i])) result[count++] = this.values[i];
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        /**
+         * @brief Calcola l'unione, passando alla bitmap oltre {@link #ARRAY_LIMIT} valori.
+         *
+         * @param other L'altro contenitore.
+         * @return Un nuovo contenitore.
+         */
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) return other.or(this);
+
+            ArrayContainer array = (ArrayContainer) other;
+            char[] result = new char[this.cardinality + array.cardinality];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < this.cardinality || j < array.cardinality) {
+                if (j == array.cardinality || (i < this.cardinality && this.values[i] < array.values[j]))
+                    result[count++] = this.values[i++];
+                else if (i == this.cardinality || this.values[i] > array.values[j])
+                    result[count++] = array.values[j++];
+                else {
+                    result[count++] = this.values[i++];
+                    j++;
+                }
+            }
+            ArrayContainer union = new ArrayContainer(result, count);
+            return (count > ARRAY_LIMIT) ? union.toBitmap() : union;
+        }
+
+        /**
+         * @brief Calcola la differenza, mantenendo i valori assenti nell'altro contenitore.
+         *
+         * @param other Il contenitore dei valori da escludere.
+         * @return Un nuovo contenitore ad array.
+         */
+        @Override
+        Container andNot(Container other) {
+            char[] result = new char[this.cardinality];
+            int count = 0;
+            for (int i = 0; i < this.cardinality; i++)
+                if (!other.contains(this.values[i])) result[count++] = this.values[i];
+            return new ArrayContainer(result, count);
+        }
+
+        /**
+         * @brief Conta i valori comuni.
+         *
+         * @param other L'altro contenitore.
+         * @return Il numero di valori comuni.
+         */
+        @Override
+        int andCardinality(Container other) {
+            int count = 0;
+            for (int i = 0; i < this.cardinality; i++)
+                if (other.contains(this.values[i])) count++;
+            return count;
+        }
+
+        /**
+         * @brief Restituisce una copia indipendente del contenitore.
+         *
+         * @return La copia.
+         */
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(this.values, Math.max(this.cardinality, 1)), this.cardinality);
+        }
+
+        /**
+         * @brief Esegue un'azione su ogni valore, in ordine crescente.
+         *
+         * @param base I 16 bit alti del blocco, già spostati nella posizione del valore.
+         * @param action L'azione.
+         */
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < this.cardinality; i++)
+                action.accept(base | this.values[i]);
+        }
+
+        /**
+         * @brief Converte il contenitore in una bitmap.
+         *
+         * @return La bitmap con gli stessi valori.
+         */
+        BitmapContainer toBitmap() {
+            long[] words = new long[WORDS];
+            for (int i = 0; i < this.cardinality; i++)
+                words[this.values[i] >>> 6] |= 1L << this.values[i];
+            return new BitmapContainer(words, this.cardinality);
+        }
+    }
+
+    /**
+     * @brief Contenitore per blocchi densi: bitmap di 65536 bit.
+     */
+    private static final class BitmapContainer extends Container {
+
+        /** @brief Parole della bitmap: il bit i della parola w rappresenta il valore w * 64 + i. */
+        private final long[] words;
+
+        /** @brief Numero di bit impostati. */
+        private int cardinality;
+
+        /**
+         * @brief Costruttore.
+         *
+         * @param words Parole della bitmap.
+         * @param cardinality Numero di bit impostati.
+         */
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        /**
+         * @brief Aggiunge un valore.
+         *
+         * @param low I 16 bit bassi del valore.
+         * @return Il contenitore aggiornato.
+         */
+        @Override
+        Container add(char low) {
+            long word = this.words[low >>> 6];
+            long updated = word | (1L << low);
+            if (updated != word) {
+                this.words[low >>> 6] = updated;
+                this.cardinality++;
+            }
+            return this;
+        }
+
+        /**
+         * @brief Rimuove un valore, tornando all'array quando i valori rientrano in {@link #ARRAY_LIMIT}.
+         *
+         * @param low I 16 bit bassi del valore.
+         * @return Il contenitore aggiornato.
+         */
+        @Override
+        Container remove(char low) {
+            long word = this.words[low >>> 6];
+            long updated = word & ~(1L << low);
+            if (updated == word) return this;
+            this.words[low >>> 6] = updated;
+            this.cardinality--;
+            return (this.cardinality <= ARRAY_LIMIT) ? this.toArray() : this;
+        }
+
+        /**
+         * @brief Verifica se il contenitore contiene un valore.
+         *
+         * @param low I 16 bit bassi del valore.
+         * @return true se il valore è presente, false altrimenti.
+         */
+        @Override
+        boolean contains(char low) {
+            return (this.words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        /**
+         * @brief Restituisce il numero di valori.
+         *
+         * @return Il numero di valori.
+         */
+        @Override
+        int cardinality() {
+            return this.cardinality;
+        }
+
+        /**
+         * @brief Calcola l'intersezione, una parola alla volta tra due bitmap.
+         *
+         * @param other L'altro contenitore.
+         * @return Un nuovo contenitore.
+         */
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) return other.and(this);
+
+            long[] otherWords = ((BitmapContainer) other).words;
+            long[] result = new long[WORDS];
+            int count = 0;
+            for (int i = 0; i < WORDS; i++) {
+                result[i] = this.words[i] & otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            BitmapContainer intersection = new BitmapContainer(result, count);
+            return (count <= ARRAY_LIMIT) ? intersection.toArray() : intersection;
+        }
+
+        /**
+         * @brief Calcola l'unione, una parola alla volta tra due bitmap.
+         *
+         * @param other L'altro contenitore.
+         * @return Un nuovo contenitore a bitmap.
+         */
+        @Override
+        Container or(Container other) {
+            long[] result = this.words.clone();
+            if (other instanceof ArrayContainer array) {
+                BitmapContainer union = new BitmapContainer(result, this.cardinality);
+                for (int i = 0; i < array.cardinality; i++)
+                    union.add(array.values[i]);
+                return union;
+            }
+
+            long[] otherWords = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < WORDS; i++) {
+                result[i] |= otherWords[i];
+                count += Long.bitCount(result[i]);
+            }
+            return new BitmapContainer(result, count);
+        }
+
+        /**
+         * @brief Calcola la differenza, una parola alla volta tra due bitmap.
+         *
+         * @param other Il contenitore dei valori da escludere.
+         * @return Un nuovo contenitore.
+         */
+        @Override
+        Container andNot(Container other) {
+            long[] result = this.words.clone();
+            int count;
+            if (other instanceof ArrayContainer array) {
+                count = this.cardinality;
+                for (int i = 0; i < array.cardinality; i++) {
+                    char low = array.values[i];
+                    if ((result[low >>> 6] & (1L << low)) != 0) {
+                        result[low >>> 6] &= ~(1L << low);
+                        count--;
+                    }
+                }
+            } else {
+                long[] otherWords = ((BitmapContainer) other).words;
+                count = 0;
+                for (int i = 0; i < WORDS; i++) {
+                    result[i] &= ~otherWords[i];
+                    count += Long.bitCount(result[i]);
+                }
+            }
+            BitmapContainer difference = new BitmapContainer(result, count);
+            return (count <= ARRAY_LIMIT) ? difference.toArray() : difference;
+        }
+
+        /**
+         * @brief Conta i valori comuni, una parola alla volta tra due bitmap.
+         *
+         * @param other L'altro contenitore.
+         * @return Il numero di valori comuni.
+         */
+        @Override
+        int andCardinality(Container other) {
+            if (other instanceof ArrayContainer) return other.andCardinality(this);
+
+            long[] otherWords = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int i = 0; i < WORDS; i++)
+                count += Long.bitCount(this.words[i] & otherWords[i]);
+            return count;
+        }
+
+        /**
+         * @brief Restituisce una copia indipendente del contenitore.
+         *
+         * @return La copia.
+         */
+        @Override
+        Container copy() {
+            return new BitmapContainer(this.words.clone(), this.cardinality);
+        }
+
+        /**
+         * @brief Esegue un'azione su ogni valore, in ordine crescente.
+         *
+         * @param base I 16 bit alti del blocco, già spostati nella posizione del valore.
+         * @param action L'azione.
+         */
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < WORDS; i++) {
+                long word = this.words[i];
+                while (word != 0) {
+                    action.accept(base | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        /**
+         * @brief Converte il contenitore in un array.
+         *
+         * @return L'array con gli stessi valori.
+         */
+        ArrayContainer toArray() {
+            char[] values = new char[Math.max(this.cardinality, 1)];
+            int count = 0;
+            for (int i = 0; i < WORDS; i++) {
+                long word = this.words[i];
+                while (word != 0) {
+                    values[count++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+    }
+}
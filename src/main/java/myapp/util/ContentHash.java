@@ -0,0 +1,70 @@
+package myapp.util;
+
+/**
+ * @brief Funzioni di hashing a 64 bit per calcolare l'impronta del contenuto di un record.
+ *
+ * Le impronte sono usate per capire in tempo costante se il contenuto del database coincide
+ * con quello salvato su file. I valori vengono combinati campo per campo con {@link #mix}
+ * e il risultato viene rimescolato con {@link #finish} prima di essere sommato agli altri.
+ */
+public final class ContentHash {
+
+    /** @brief Valore iniziale (offset basis di FNV-1a a 64 bit). */
+    private static final long SEED = 0xcbf29ce484222325L;
+
+    /** @brief Primo moltiplicativo di FNV-1a a 64 bit. */
+    private static final long PRIME = 0x100000001b3L;
+
+    /**
+     * @brief Costruttore privato: la classe espone solo metodi statici.
+     */
+    private ContentHash() {}
+
+    /**
+     * @brief Restituisce il valore iniziale da cui partire per combinare i campi.
+     *
+     * @return Il valore iniziale dell'impronta.
+     */
+    public static long start() {
+        return SEED;
+    }
+
+    /**
+     * @brief Combina un valore intero nell'impronta.
+     *
+     * @param hash Impronta corrente.
+     * @param value Valore da combinare.
+     * @return La nuova impronta.
+     */
+    public static long mix(long hash, long value) {
+        return Long.rotateLeft(hash ^ (value * 0x9E3779B97F4A7C15L), 31) * PRIME;
+    }
+
+    /**
+     * @brief Combina una stringa nell'impronta, carattere per carattere.
+     *
+     * @param hash Impronta corrente.
+     * @param value Stringa da combinare, può essere null.
+     * @return La nuova impronta.
+     */
+    public static long mix(long hash, String value) {
+        if (value == null) return mix(hash, -1L);
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= PRIME;
+        }
+        return mix(hash, value.length());
+    }
+
+    /**
+     * @brief Rimescola l'impronta finale (finalizzatore di SplitMix64).
+     *
+     * @param hash Impronta da finalizzare.
+     * @return L'impronta finalizzata.
+     */
+    public static long finish(long hash) {
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+}
@@ -0,0 +1,383 @@
+package myapp.util;
+
+import myapp.mvc.model.exam.HasUniqueId;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+/**
+ * @brief Lista di oggetti unici indicizzata tramite il loro identificatore unico.
+ *
+ * Variante di {@link UniqueList} che mantiene l'ordine di inserimento e un indice hash
+ * sull'ID univoco. Ricerca, cancellazione e verifica di appartenenza per ID avvengono
+ * in tempo costante. L'accesso posizionale usa una copia dei record in ordine che viene
+ * aggiornata in tempo costante dagli inserimenti in coda e dalle rimozioni dell'ultimo record;
+ * un inserimento, una rimozione o una sostituzione intermedi la invalidano, e il primo accesso
+ * posizionale successivo la ricostruisce in O(n).
+ *
+ * A differenza di {@link UniqueList}, un record il cui ID è già presente non viene aggiunto:
+ * {@link #addUnique} lo ignora, mentre i metodi di {@link java.util.List} lanciano
+ * {@link IllegalArgumentException} se il record presente con quell'ID è diverso.
+ *
+ * @param <T> Tipo degli oggetti nella lista, che deve implementare {@link HasUniqueId}.
+ */
+public final class IndexedUniqueList<T extends HasUniqueId> extends AbstractList<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** @brief Indice ID -> record, nell'ordine di inserimento. */
+    private transient LinkedHashMap<String, T> index = new LinkedHashMap<>();
+
+    /** @brief Copia posizionale dei record, null se invalidata da una modifica intermedia. */
+    private transient ArrayList<T> positions;
+
+    /**
+     * @brief Costruttore della lista indicizzata.
+     *
+     * Crea una nuova istanza vuota di {@link IndexedUniqueList}.
+     */
+    public IndexedUniqueList() {
+        super();
+    }
+
+    /**
+     * @brief Costruttore che copia i record di una collezione, ignorando quelli con un ID già inserito.
+     *
+     * @param records Record da inserire, nell'ordine di iterazione della collezione.
+     */
+    public IndexedUniqueList(Collection<? extends T> records) {
+        this();
+        for (T record : records)
+            this.addUnique(record);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Aggiunge un nuovo record alla lista e restituisce il suo ID univoco.
+     *
+     * @param record Istanza del record da inserire nella lista.
+     * @return L'ID univoco del record aggiunto, null se l'ID era già presente.
+     */
+    public String addUnique(T record) {
+        if (this.index.containsKey(record.getUniqueId())) return null;
+        this.add(record);
+        return record.getUniqueId();
+    }
+
+    /**
+     * @brief Cancella un record dalla lista fornendo il suo ID univoco.
+     *
+     * @param uniqueId L'ID univoco del record da cancellare.
+     * @return true se il record è stato cancellato, false altrimenti.
+     */
+    public boolean delUnique(String uniqueId) {
+        T removed = this.index.remove(uniqueId);
+        if (removed == null) return false;
+        int last = (this.positions == null) ? -1 : this.positions.size() - 1;
+        if (last >= 0 && this.positions.get(last) == removed) this.positions.remove(last);
+        else this.positions = null;
+        this.modCount++;
+        return true;
+    }
+
+    /**
+     * @brief Cancella un record dalla lista.
+     *
+     * @param record Istanza del record da cancellare.
+     * @return true se il record è stato cancellato, false altrimenti.
+     */
+    public boolean delUnique(T record) {
+        return this.remove(record);
+    }
+
+    /**
+     * @brief Restituisce l'elemento associato all'ID specificato.
+     *
+     * @param uniqueId L'ID univoco del record da cercare.
+     * @return Il record se trovato, null se non trovato.
+     */
+    public T getUnique(String uniqueId) {
+        return this.index.get(uniqueId);
+    }
+
+    /**
+     * @brief Sostituisce il record con lo stesso ID mantenendone la posizione.
+     *
+     * @param record Il nuovo record.
+     * @return Il record sostituito, null se l'ID non era presente (in tal caso non viene aggiunto nulla).
+     */
+    public T replaceUnique(T record) {
+        T previous = this.index.replace(record.getUniqueId(), record);
+        if (previous != null) this.positions = null;
+        return previous;
+    }
+
+    /**
+     * @brief Verifica se un record con l'ID specificato è presente.
+     *
+     * @param uniqueId L'ID univoco da cercare.
+     * @return true se l'ID è presente, false altrimenti.
+     */
+    public boolean containsUnique(String uniqueId) {
+        return this.index.containsKey(uniqueId);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+    // List
+
+    /**
+     * @brief Restituisce il numero di record presenti.
+     *
+     * @return Il numero di record.
+     */
+    @Override
+    public int size() {
+        return this.index.size();
+    }
+
+    /**
+     * @brief Restituisce il record nella posizione specificata.
+     *
+     * @param position Posizione del record.
+     * @return Il record nella posizione indicata.
+     */
+    @Override
+    public T get(int position) {
+        Objects.checkIndex(position, this.size());
+        if (this.positions == null) this.positions = new ArrayList<>(this.index.values());
+        return this.positions.get(position);
+    }
+
+    /**
+     * @brief Aggiunge un record in coda alla lista.
+     *
+     * @param record Il record da aggiungere.
+     * @return true se il record è stato aggiunto, false se era già presente.
+     * @throws IllegalArgumentException Se è presente un record diverso con lo stesso ID.
+     */
+    @Override
+    public boolean add(T record) {
+        T current = this.index.putIfAbsent(record.getUniqueId(), record);
+        if (current != null) {
+            if (current.equals(record)) return false;
+            throw new IllegalArgumentException("ID già presente: " + record.getUniqueId());
+        }
+        if (this.positions != null) this.positions.add(record);
+        this.modCount++;
+        return true;
+    }
+
+    /**
+     * @brief Inserisce un record in una posizione specifica.
+     *
+     * L'inserimento in coda costa O(1), quello intermedio richiede la ricostruzione dell'indice.
+     *
+     * @param position Posizione di inserimento.
+     * @param record Il record da inserire.
+     * @throws IllegalArgumentException Se l'ID del record è già presente.
+     */
+    @Override
+    public void add(int position, T record) {
+        Objects.checkIndex(position, this.size() + 1);
+        if (this.index.containsKey(record.getUniqueId()))
+            throw new IllegalArgumentException("ID già presente: " + record.getUniqueId());
+
+        if (position == this.size()) {
+            this.add(record);
+            return;
+        }
+
+        LinkedHashMap<String, T> rebuilt = new LinkedHashMap<>();
+        int i = 0;
+        for (T current : this.index.values()) {
+            if (i++ == position) rebuilt.put(record.getUniqueId(), record);
+            rebuilt.put(current.getUniqueId(), current);
+        }
+        this.index = rebuilt;
+        this.structurallyModified();
+    }
+
+    /**
+     * @brief Sostituisce il record in una posizione specifica.
+     *
+     * Se il nuovo record ha lo stesso ID del precedente la sostituzione costa O(1).
+     *
+     * @param position Posizione del record da sostituire.
+     * @param record Il nuovo record.
+     * @return Il record precedentemente presente nella posizione.
+     * @throws IllegalArgumentException Se l'ID del nuovo record è già presente in un'altra posizione.
+     */
+    @Override
+    public T set(int position, T record) {
+        T previous = this.get(position);
+
+        if (previous.getUniqueId().equals(record.getUniqueId())) {
+            this.index.put(record.getUniqueId(), record);
+            this.positions.set(position, record);
+            return previous;
+        }
+
+        if (this.index.containsKey(record.getUniqueId()))
+            throw new IllegalArgumentException("ID già presente: " + record.getUniqueId());
+
+        LinkedHashMap<String, T> rebuilt = new LinkedHashMap<>();
+        for (T current : this.index.values()) {
+            if (current == previous) rebuilt.put(record.getUniqueId(), record);
+            else rebuilt.put(current.getUniqueId(), current);
+        }
+        this.index = rebuilt;
+        this.positions.set(position, record);
+        return previous;
+    }
+
+    /**
+     * @brief Rimuove il record nella posizione specificata.
+     *
+     * @param position Posizione del record da rimuovere.
+     * @return Il record rimosso.
+     */
+    @Override
+    public T remove(int position) {
+        T removed = this.get(position);
+        this.delUnique(removed.getUniqueId());
+        return removed;
+    }
+
+    /**
+     * @brief Rimuove il record specificato, cercandolo tramite il suo ID.
+     *
+     * @param o Il record da rimuovere.
+     * @return true se il record è stato rimosso, false altrimenti.
+     */
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof HasUniqueId record)) return false;
+        T current = this.index.get(record.getUniqueId());
+        if (current == null || !current.equals(o)) return false;
+        return this.delUnique(record.getUniqueId());
+    }
+
+    /**
+     * @brief Verifica la presenza di un record cercandolo tramite il suo ID.
+     *
+     * @param o Il record da cercare.
+     * @return true se il record è presente, false altrimenti.
+     */
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof HasUniqueId record)) return false;
+        T current = this.index.get(record.getUniqueId());
+        return current != null && current.equals(o);
+    }
+
+    /**
+     * @brief Restituisce la posizione del record, evitando la scansione se non è presente.
+     *
+     * @param o Il record da cercare.
+     * @return La posizione del record, -1 se non presente.
+     */
+    @Override
+    public int indexOf(Object o) {
+        return this.contains(o) ? super.indexOf(o) : -1;
+    }
+
+    /**
+     * @brief Restituisce l'ultima posizione del record, che coincide con la prima essendo gli ID unici.
+     *
+     * @param o Il record da cercare.
+     * @return La posizione del record, -1 se non presente.
+     */
+    @Override
+    public int lastIndexOf(Object o) {
+        return this.indexOf(o);
+    }
+
+    /**
+     * @brief Rimuove tutti i record.
+     */
+    @Override
+    public void clear() {
+        this.index.clear();
+        this.positions = new ArrayList<>();
+        this.modCount++;
+    }
+
+    /**
+     * @brief Restituisce un iteratore sui record nell'ordine di inserimento.
+     *
+     * @return L'iteratore sui record.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        Iterator<T> values = this.index.values().iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return values.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return values.next();
+            }
+
+            @Override
+            public void remove() {
+                values.remove();
+                structurallyModified();
+            }
+        };
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Invalida la copia posizionale dopo una modifica intermedia e la segnala agli iteratori.
+     */
+    private void structurallyModified() {
+        this.positions = null;
+        this.modCount++;
+    }
+
+    /**
+     * @brief Serializza i record nell'ordine di inserimento.
+     *
+     * L'indice non viene scritto: è ricostruito durante la deserializzazione.
+     *
+     * @param out Stream di output.
+     * @throws IOException Se la scrittura fallisce.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(this.size());
+        for (T record : this.index.values())
+            out.writeObject(record);
+    }
+
+    /**
+     * @brief Deserializza i record e ricostruisce l'indice.
+     *
+     * @param in Stream di input.
+     * @throws IOException Se la lettura fallisce.
+     * @throws ClassNotFoundException Se la classe di un record non è disponibile.
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int size = in.readInt();
+        this.index = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            T record = (T) in.readObject();
+            this.index.put(record.getUniqueId(), record);
+        }
+    }
+}
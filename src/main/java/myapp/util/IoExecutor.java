@@ -0,0 +1,93 @@
+package myapp.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.DoubleConsumer;
+
+/**
+ * @brief Esegue le operazioni su file fuori dal thread dell'interfaccia.
+ *
+ * Ogni operazione gira su un proprio thread virtuale e restituisce un {@link CompletableFuture}.
+ * L'avanzamento viene inoltrato come frazione tra 0 e 1, solo quando cambia di almeno un centesimo.
+ * Annullare il future interrompe l'operazione al successivo aggiornamento dell'avanzamento.
+ */
+public final class IoExecutor {
+
+    /** @brief Esecutore delle operazioni, un thread virtuale per operazione. */
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    /** @brief Numero di passi in cui viene suddiviso l'avanzamento inoltrato. */
+    private static final int PROGRESS_STEPS = 100;
+
+    /**
+     * @brief Operazione su file eseguita da {@link IoExecutor}.
+     *
+     * @param <R> Tipo del risultato.
+     */
+    @FunctionalInterface
+    public interface IoJob<R> {
+
+        /**
+         * @brief Esegue l'operazione.
+         *
+         * @param progress Avanzamento da aggiornare durante l'operazione.
+         * @return Il risultato dell'operazione.
+         * @throws IOException Se l'operazione fallisce.
+         */
+        R run(IoProgress progress) throws IOException;
+    }
+
+    /**
+     * @brief Costruttore privato: la classe espone solo metodi statici.
+     */
+    private IoExecutor() {}
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Avvia un'operazione su file.
+     *
+     * @param job L'operazione da eseguire.
+     * @param onProgress Riceve l'avanzamento, tra 0 e 1, dal thread dell'operazione; può essere null.
+     * @return Il future dell'operazione, annullabile.
+     */
+    public static <R> CompletableFuture<R> submit(IoJob<R> job, DoubleConsumer onProgress) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        IoProgress progress = new IoProgress() {
+
+            /** @brief Ultimo passo di avanzamento inoltrato. */
+            private int lastStep = -1;
+
+            /**
+             * @brief Interrompe l'operazione se il future è stato annullato e inoltra l'avanzamento.
+             *
+             * @param done Unità di lavoro completate.
+             * @param total Unità di lavoro totali.
+             */
+            @Override
+            public void update(long done, long total) {
+                if (future.isDone()) throw new CancellationException();
+                if (onProgress == null || total <= 0) return;
+                int step = (int) Math.min(PROGRESS_STEPS, done * PROGRESS_STEPS / total);
+                if (step == this.lastStep) return;
+                this.lastStep = step;
+                onProgress.accept((double) step / PROGRESS_STEPS);
+            }
+        };
+        EXECUTOR.execute(() -> {
+            if (future.isDone()) return;
+            try {
+                future.complete(job.run(progress));
+            } catch (IOException e) {
+                future.completeExceptionally(new UncheckedIOException(e));
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+}
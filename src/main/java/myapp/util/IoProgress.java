@@ -0,0 +1,24 @@
+package myapp.util;
+
+/**
+ * @brief Riceve l'avanzamento di un'operazione di lettura o scrittura su file.
+ *
+ * Chi esegue l'operazione chiama {@link #update(long, long)} a intervalli regolari. L'implementazione
+ * può interrompere l'operazione lanciando una {@link java.util.concurrent.CancellationException}:
+ * chi esegue l'operazione deve lasciare i file come erano prima di iniziarla.
+ */
+@FunctionalInterface
+public interface IoProgress {
+
+    /** @brief Avanzamento che non viene registrato e non interrompe mai l'operazione. */
+    IoProgress NONE = (done, total) -> {};
+
+    /**
+     * @brief Registra l'avanzamento dell'operazione.
+     *
+     * @param done Unità di lavoro completate.
+     * @param total Unità di lavoro totali.
+     * @throws java.util.concurrent.CancellationException Se l'operazione è stata annullata.
+     */
+    void update(long done, long total);
+}
@@ -0,0 +1,193 @@
+package myapp.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @brief Statistiche di utilizzo e contesa di un lock lettori/scrittori.
+ *
+ * Conta le letture ottimistiche (riuscite e fallite) e le acquisizioni in lettura e scrittura,
+ * insieme al numero di acquisizioni che hanno dovuto attendere e al tempo totale e massimo di attesa.
+ * I contatori sono aggiornabili da più thread senza sincronizzazione.
+ */
+public class LockStats {
+
+    /** @brief Letture ottimistiche convalidate. */
+    private final LongAdder optimisticReads = new LongAdder();
+
+    /** @brief Letture ottimistiche invalidate da una scrittura concorrente. */
+    private final LongAdder optimisticFailures = new LongAdder();
+
+    /** @brief Acquisizioni del lock in lettura. */
+    private final LongAdder reads = new LongAdder();
+
+    /** @brief Acquisizioni del lock in lettura che hanno dovuto attendere. */
+    private final LongAdder contendedReads = new LongAdder();
+
+    /** @brief Tempo totale di attesa in lettura, in nanosecondi. */
+    private final LongAdder readWaitNanos = new LongAdder();
+
+    /** @brief Acquisizioni del lock in scrittura. */
+    private final LongAdder writes = new LongAdder();
+
+    /** @brief Acquisizioni del lock in scrittura che hanno dovuto attendere. */
+    private final LongAdder contendedWrites = new LongAdder();
+
+    /** @brief Tempo totale di attesa in scrittura, in nanosecondi. */
+    private final LongAdder writeWaitNanos = new LongAdder();
+
+    /** @brief Attesa più lunga registrata, in nanosecondi. */
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Registra l'esito di una lettura ottimistica.
+     *
+     * @param valid true se la lettura è stata convalidata, false se va ripetuta con il lock.
+     */
+    public void recordOptimisticRead(boolean valid) {
+        if (valid) this.optimisticReads.increment();
+        else this.optimisticFailures.increment();
+    }
+
+    /**
+     * @brief Registra un'acquisizione del lock in lettura.
+     *
+     * @param waitNanos Tempo di attesa in nanosecondi, 0 se il lock era libero.
+     */
+    public void recordRead(long waitNanos) {
+        this.reads.increment();
+        if (waitNanos <= 0) return;
+        this.contendedReads.increment();
+        this.readWaitNanos.add(waitNanos);
+        this.maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    /**
+     * @brief Registra un'acquisizione del lock in scrittura.
+     *
+     * @param waitNanos Tempo di attesa in nanosecondi, 0 se il lock era libero.
+     */
+    public void recordWrite(long waitNanos) {
+        this.writes.increment();
+        if (waitNanos <= 0) return;
+        this.contendedWrites.increment();
+        this.writeWaitNanos.add(waitNanos);
+        this.maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    /**
+     * @brief Azzera tutte le statistiche.
+     */
+    public void reset() {
+        this.optimisticReads.reset();
+        this.optimisticFailures.reset();
+        this.reads.reset();
+        this.contendedReads.reset();
+        this.readWaitNanos.reset();
+        this.writes.reset();
+        this.contendedWrites.reset();
+        this.writeWaitNanos.reset();
+        this.maxWaitNanos.set(0);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Restituisce il numero di letture ottimistiche convalidate.
+     *
+     * @return Il numero di letture.
+     */
+    public long getOptimisticReads() {
+        return this.optimisticReads.sum();
+    }
+
+    /**
+     * @brief Restituisce il numero di letture ottimistiche invalidate.
+     *
+     * @return Il numero di letture ripetute con il lock.
+     */
+    public long getOptimisticFailures() {
+        return this.optimisticFailures.sum();
+    }
+
+    /**
+     * @brief Restituisce il numero di acquisizioni in lettura.
+     *
+     * @return Il numero di acquisizioni.
+     */
+    public long getReads() {
+        return this.reads.sum();
+    }
+
+    /**
+     * @brief Restituisce il numero di acquisizioni in lettura che hanno dovuto attendere.
+     *
+     * @return Il numero di acquisizioni contese.
+     */
+    public long getContendedReads() {
+        return this.contendedReads.sum();
+    }
+
+    /**
+     * @brief Restituisce il tempo totale di attesa in lettura.
+     *
+     * @return Il tempo in nanosecondi.
+     */
+    public long getReadWaitNanos() {
+        return this.readWaitNanos.sum();
+    }
+
+    /**
+     * @brief Restituisce il numero di acquisizioni in scrittura.
+     *
+     * @return Il numero di acquisizioni.
+     */
+    public long getWrites() {
+        return this.writes.sum();
+    }
+
+    /**
+     * @brief Restituisce il numero di acquisizioni in scrittura che hanno dovuto attendere.
+     *
+     * @return Il numero di acquisizioni contese.
+     */
+    public long getContendedWrites() {
+        return this.contendedWrites.sum();
+    }
+
+    /**
+     * @brief Restituisce il tempo totale di attesa in scrittura.
+     *
+     * @return Il tempo in nanosecondi.
+     */
+    public long getWriteWaitNanos() {
+        return this.writeWaitNanos.sum();
+    }
+
+    /**
+     * @brief Restituisce l'attesa più lunga registrata.
+     *
+     * @return Il tempo in nanosecondi.
+     */
+    public long getMaxWaitNanos() {
+        return this.maxWaitNanos.get();
+    }
+
+    /**
+     * @brief Restituisce un riepilogo leggibile delle statistiche.
+     *
+     * @return Il riepilogo.
+     */
+    @Override
+    public String toString() {
+        return String.format(
+            "ottimistiche=%d (fallite %d), letture=%d (contese %d, attesa %.3f ms), scritture=%d (contese %d, attesa %.3f ms), attesa max=%.3f ms",
+            this.getOptimisticReads(), this.getOptimisticFailures(),
+            this.getReads(), this.getContendedReads(), this.getReadWaitNanos() / 1e6,
+            this.getWrites(), this.getContendedWrites(), this.getWriteWaitNanos() / 1e6,
+            this.getMaxWaitNanos() / 1e6
+        );
+    }
+}
@@ -0,0 +1,166 @@
+package myapp.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/**
+ * @brief Filtra un elenco in parallelo su un {@link ForkJoinPool}, fuori dal thread dell'interfaccia.
+ *
+ * L'elenco viene diviso ricorsivamente in blocchi, ciascuno verificato da un thread del pool; gli indici
+ * degli elementi che soddisfano il predicato vengono riuniti nell'ordine dell'elenco. Ogni nuova
+ * ricerca annulla quella precedente ancora in corso, che si interrompe entro pochi elementi; lo stesso
+ * avviene annullando il future restituito.
+ *
+ * @param <T> Tipo degli elementi.
+ */
+public class ParallelFilter<T> {
+
+    /** @brief Numero di elementi verificati tra due controlli dell'annullamento all'interno di un blocco. */
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    /** @brief Pool su cui vengono eseguiti i blocchi. */
+    private final ForkJoinPool pool;
+
+    /** @brief Numero massimo di elementi verificati da un singolo blocco. */
+    private final int chunkSize;
+
+    /** @brief Future della ricerca in corso, null se non ce n'è nessuna. */
+    private CompletableFuture<int[]> current = null;
+
+    /**
+     * @brief Costruttore.
+     *
+     * @param pool Pool su cui vengono eseguiti i blocchi.
+     * @param chunkSize Numero massimo di elementi verificati da un singolo blocco.
+     */
+    public ParallelFilter(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("Dimensione dei blocchi non valida: " + chunkSize);
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Avvia il filtro di un elenco, annullando quello precedente se ancora in corso.
+     *
+     * @param items Elenco da filtrare; non deve essere modificato finché il filtro è in corso.
+     * @param predicate Predicato verificato sugli elementi, anche da più thread contemporaneamente.
+     * @return Il future degli indici degli elementi che soddisfano il predicato, in ordine crescente.
+     */
+    public synchronized CompletableFuture<int[]> submit(List<? extends T> items, Predicate<? super T> predicate) {
+        this.cancel();
+        CompletableFuture<int[]> future = new CompletableFuture<>();
+        Chunk<T> root = new Chunk<>(items, predicate, future, this.chunkSize, 0, items.size());
+        this.pool.execute(() -> {
+            if (future.isDone()) return;
+            try {
+                future.complete(root.invoke());
+            } catch (CancellationException e) {
+                future.cancel(false);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        this.current = future;
+        return future;
+    }
+
+    /**
+     * @brief Annulla il filtro in corso, se presente.
+     */
+    public synchronized void cancel() {
+        if (this.current != null) this.current.cancel(false);
+        this.current = null;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Blocco di elementi verificato da un thread del pool, diviso a metà finché supera la dimensione massima.
+     *
+     * I blocchi vivono solo nel pool e non vengono mai serializzati: i riferimenti all'elenco, al predicato
+     * e al future sono transienti.
+     *
+     * @param <T> Tipo degli elementi.
+     */
+    private static final class Chunk<T> extends RecursiveTask<int[]> {
+
+        /** @brief Versione della forma serializzata, ereditata da {@link RecursiveTask}. */
+        private static final long serialVersionUID = 1L;
+
+        /** @brief Elenco filtrato. */
+        private final transient List<? extends T> items;
+
+        /** @brief Predicato verificato sugli elementi. */
+        private final transient Predicate<? super T> predicate;
+
+        /** @brief Future della ricerca, per interrompere il blocco se annullata. */
+        private final transient CompletableFuture<int[]> future;
+
+        /** @brief Numero massimo di elementi verificati senza dividere il blocco. */
+        private final int chunkSize;
+
+        /** @brief Indice del primo elemento del blocco. */
+        private final int from;
+
+        /** @brief Indice successivo all'ultimo elemento del blocco. */
+        private final int to;
+
+        /**
+         * @brief Costruttore.
+         *
+         * @param items Elenco filtrato.
+         * @param predicate Predicato verificato sugli elementi.
+         * @param future Future della ricerca.
+         * @param chunkSize Numero massimo di elementi verificati senza dividere il blocco.
+         * @param from Indice del primo elemento del blocco.
+         * @param to Indice successivo all'ultimo elemento del blocco.
+         */
+        private Chunk(List<? extends T> items, Predicate<? super T> predicate, CompletableFuture<int[]> future,
+                      int chunkSize, int from, int to) {
+            this.items = items;
+            this.predicate = predicate;
+            this.future = future;
+            this.chunkSize = chunkSize;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * @brief Verifica il blocco, o lo divide a metà e riunisce i risultati nell'ordine dell'elenco.
+         *
+         * @return Gli indici degli elementi del blocco che soddisfano il predicato.
+         */
+        @Override
+        protected int[] compute() {
+            if (this.future.isDone()) throw new CancellationException();
+
+            if (this.to - this.from > this.chunkSize) {
+                int middle = (this.from + this.to) >>> 1;
+                Chunk<T> left = new Chunk<>(this.items, this.predicate, this.future, this.chunkSize, this.from, middle);
+                Chunk<T> right = new Chunk<>(this.items, this.predicate, this.future, this.chunkSize, middle, this.to);
+                left.fork();
+                int[] rightIndices = right.compute();
+                int[] leftIndices = left.join();
+
+                int[] merged = Arrays.copyOf(leftIndices, leftIndices.length + rightIndices.length);
+                System.arraycopy(rightIndices, 0, merged, leftIndices.length, rightIndices.length);
+                return merged;
+            }
+
+            int[] indices = new int[this.to - this.from];
+            int count = 0;
+            for (int i = this.from; i < this.to; i++) {
+                if ((i - this.from) % CANCEL_CHECK_INTERVAL == 0 && this.future.isDone()) throw new CancellationException();
+                if (this.predicate.test(this.items.get(i))) indices[count++] = i;
+            }
+            return Arrays.copyOf(indices, count);
+        }
+    }
+}
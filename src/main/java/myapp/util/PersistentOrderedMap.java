@@ -0,0 +1,392 @@
+package myapp.util;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/**
+ * @brief Mappa immutabile ordinata per chiave numerica, realizzata come albero AVL persistente.
+ *
+ * Ogni modifica restituisce una nuova mappa che condivide con la precedente tutti i nodi
+ * non coinvolti: inserimenti e rimozioni copiano solo il cammino dalla radice al nodo modificato,
+ * in tempo logaritmico. Le versioni precedenti restano valide e immutabili, quindi possono essere
+ * lette da altri thread senza alcun lock.
+ *
+ * @param <V> Tipo dei valori.
+ */
+public final class PersistentOrderedMap<V> {
+
+    /** @brief Mappa vuota condivisa. */
+    private static final PersistentOrderedMap<?> EMPTY = new PersistentOrderedMap<>(null);
+
+    /** @brief Radice dell'albero, null per la mappa vuota. */
+    private final Node<V> root;
+
+    /**
+     * @brief Nodo immutabile dell'albero.
+     *
+     * @param key Chiave del nodo.
+     * @param value Valore associato alla chiave.
+     * @param left Sottoalbero delle chiavi minori.
+     * @param right Sottoalbero delle chiavi maggiori.
+     * @param height Altezza del sottoalbero.
+     * @param size Numero di nodi del sottoalbero.
+     */
+    private record Node<V>(long key, V value, Node<V> left, Node<V> right, int height, int size) {}
+
+    /**
+     * @brief Costruttore privato: le mappe si ottengono da {@link #empty()} e dalle modifiche.
+     *
+     * @param root Radice dell'albero.
+     */
+    private PersistentOrderedMap(Node<V> root) {
+        this.root = root;
+    }
+
+    /**
+     * @brief Restituisce la mappa vuota.
+     *
+     * @return La mappa vuota.
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentOrderedMap<V> empty() {
+        return (PersistentOrderedMap<V>) EMPTY;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Cerca il valore associato a una chiave.
+     *
+     * @param key La chiave.
+     * @return Il valore, null se la chiave non è presente.
+     */
+    public V get(long key) {
+        Node<V> node = this.root;
+        while (node != null) {
+            if (key < node.key()) node = node.left();
+            else if (key > node.key()) node = node.right();
+            else return node.value();
+        }
+        return null;
+    }
+
+    /**
+     * @brief Restituisce una mappa con la chiave associata al valore indicato.
+     *
+     * @param key La chiave.
+     * @param value Il valore.
+     * @return La nuova mappa.
+     */
+    public PersistentOrderedMap<V> put(long key, V value) {
+        return new PersistentOrderedMap<>(put(this.root, key, value));
+    }
+
+    /**
+     * @brief Restituisce una mappa senza la chiave indicata.
+     *
+     * @param key La chiave.
+     * @return La nuova mappa, o questa se la chiave non è presente.
+     */
+    public PersistentOrderedMap<V> remove(long key) {
+        Node<V> newRoot = remove(this.root, key);
+        return (newRoot == this.root) ? this : new PersistentOrderedMap<>(newRoot);
+    }
+
+    /**
+     * @brief Restituisce la posizione di una chiave nell'ordine delle chiavi, in tempo logaritmico.
+     *
+     * @param key La chiave.
+     * @return Il numero di chiavi minori, -1 se la chiave non è presente.
+     */
+    public int rank(long key) {
+        Node<V> node = this.root;
+        int rank = 0;
+        while (node != null) {
+            if (key < node.key()) {
+                node = node.left();
+            } else if (key > node.key()) {
+                rank += size(node.left()) + 1;
+                node = node.right();
+            } else {
+                return rank + size(node.left());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @brief Conta le chiavi minori di una chiave, presente o no, in tempo logaritmico.
+     *
+     * Insieme a {@link #values()} individua gli intervalli di chiavi: i valori con chiave in
+     * [from, to) occupano le posizioni da countBelow(from) a countBelow(to) escluso.
+     *
+     * @param key La chiave.
+     * @return Il numero di chiavi minori.
+     */
+    public int countBelow(long key) {
+        Node<V> node = this.root;
+        int count = 0;
+        while (node != null) {
+            if (key <= node.key()) {
+                node = node.left();
+            } else {
+                count += size(node.left()) + 1;
+                node = node.right();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @brief Esegue un'azione sui valori con chiave nell'intervallo, in ordine di chiave.
+     *
+     * Visita solo i sottoalberi che possono contenere chiavi dell'intervallo: richiede tempo logaritmico
+     * più il numero di valori visitati.
+     *
+     * @param fromInclusive Chiave iniziale, inclusa.
+     * @param toExclusive Chiave finale, esclusa.
+     * @param action L'azione da eseguire.
+     */
+    public void forEachInRange(long fromInclusive, long toExclusive, Consumer<? super V> action) {
+        forEachInRange(this.root, fromInclusive, toExclusive, action);
+    }
+
+    /**
+     * @brief Restituisce il numero di chiavi.
+     *
+     * @return Il numero di chiavi.
+     */
+    public int size() {
+        return size(this.root);
+    }
+
+    /**
+     * @brief Restituisce una vista immutabile dei valori in ordine di chiave.
+     *
+     * L'accesso posizionale richiede tempo logaritmico, lo scorrimento tempo lineare.
+     *
+     * @return La lista dei valori.
+     */
+    public List<V> values() {
+        Node<V> values = this.root;
+        return new AbstractList<>() {
+
+            /**
+             * @brief Restituisce il valore alla posizione indicata.
+             *
+             * @param index La posizione.
+             * @return Il valore.
+             */
+            @Override
+            public V get(int index) {
+                if (index < 0 || index >= PersistentOrderedMap.size(values)) throw new IndexOutOfBoundsException(index);
+                Node<V> node = values;
+                while (true) {
+                    int leftSize = PersistentOrderedMap.size(node.left());
+                    if (index < leftSize) {
+                        node = node.left();
+                    } else if (index > leftSize) {
+                        index -= leftSize + 1;
+                        node = node.right();
+                    } else {
+                        return node.value();
+                    }
+                }
+            }
+
+            /**
+             * @brief Restituisce il numero di valori.
+             *
+             * @return Il numero di valori.
+             */
+            @Override
+            public int size() {
+                return PersistentOrderedMap.size(values);
+            }
+
+            /**
+             * @brief Scorre i valori in ordine di chiave con una visita in ordine dell'albero.
+             *
+             * @return L'iteratore.
+             */
+            @Override
+            public Iterator<V> iterator() {
+                return new Iterator<>() {
+
+                    /** @brief Nodi di cui restano da visitare il valore e il sottoalbero destro. */
+                    private final Deque<Node<V>> stack = new ArrayDeque<>();
+
+                    {
+                        this.pushLeft(values);
+                    }
+
+                    /**
+                     * @brief Indica se restano valori da visitare.
+                     *
+                     * @return true se restano valori, false altrimenti.
+                     */
+                    @Override
+                    public boolean hasNext() {
+                        return !this.stack.isEmpty();
+                    }
+
+                    /**
+                     * @brief Restituisce il prossimo valore.
+                     *
+                     * @return Il valore.
+                     */
+                    @Override
+                    public V next() {
+                        if (this.stack.isEmpty()) throw new NoSuchElementException();
+                        Node<V> node = this.stack.pop();
+                        this.pushLeft(node.right());
+                        return node.value();
+                    }
+
+                    /**
+                     * @brief Accoda un nodo e tutti i suoi discendenti a sinistra.
+                     *
+                     * @param node Il nodo di partenza.
+                     */
+                    private void pushLeft(Node<V> node) {
+                        for (; node != null; node = node.left())
+                            this.stack.push(node);
+                    }
+                };
+            }
+        };
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Visita in ordine i nodi di un sottoalbero con chiave nell'intervallo.
+     *
+     * @param node La radice del sottoalbero.
+     * @param fromInclusive Chiave iniziale, inclusa.
+     * @param toExclusive Chiave finale, esclusa.
+     * @param action L'azione da eseguire sui valori.
+     */
+    private static <V> void forEachInRange(Node<V> node, long fromInclusive, long toExclusive, Consumer<? super V> action) {
+        while (node != null) {
+            if (node.key() < fromInclusive) {
+                node = node.right();
+            } else if (node.key() >= toExclusive) {
+                node = node.left();
+            } else {
+                forEachInRange(node.left(), fromInclusive, toExclusive, action);
+                action.accept(node.value());
+                node = node.right();
+            }
+        }
+    }
+
+    /**
+     * @brief Restituisce l'altezza di un sottoalbero.
+     *
+     * @param node La radice del sottoalbero.
+     * @return L'altezza, 0 per il sottoalbero vuoto.
+     */
+    private static int height(Node<?> node) {
+        return (node == null) ? 0 : node.height();
+    }
+
+    /**
+     * @brief Restituisce il numero di nodi di un sottoalbero.
+     *
+     * @param node La radice del sottoalbero.
+     * @return Il numero di nodi.
+     */
+    private static int size(Node<?> node) {
+        return (node == null) ? 0 : node.size();
+    }
+
+    /**
+     * @brief Crea un nodo calcolandone altezza e dimensione.
+     *
+     * @param key Chiave del nodo.
+     * @param value Valore del nodo.
+     * @param left Sottoalbero sinistro.
+     * @param right Sottoalbero destro.
+     * @return Il nuovo nodo.
+     */
+    private static <V> Node<V> node(long key, V value, Node<V> left, Node<V> right) {
+        return new Node<>(key, value, left, right, Math.max(height(left), height(right)) + 1, size(left) + size(right) + 1);
+    }
+
+    /**
+     * @brief Crea un nodo ribilanciando il sottoalbero con al più due rotazioni.
+     *
+     * @param key Chiave del nodo.
+     * @param value Valore del nodo.
+     * @param left Sottoalbero sinistro.
+     * @param right Sottoalbero destro.
+     * @return La radice del sottoalbero bilanciato.
+     */
+    private static <V> Node<V> balance(long key, V value, Node<V> left, Node<V> right) {
+        int difference = height(left) - height(right);
+        if (difference > 1) {
+            if (height(left.left()) >= height(left.right()))
+                return node(left.key(), left.value(), left.left(), node(key, value, left.right(), right));
+            Node<V> pivot = left.right();
+            return node(pivot.key(), pivot.value(),
+                node(left.key(), left.value(), left.left(), pivot.left()),
+                node(key, value, pivot.right(), right));
+        }
+        if (difference < -1) {
+            if (height(right.right()) >= height(right.left()))
+                return node(right.key(), right.value(), node(key, value, left, right.left()), right.right());
+            Node<V> pivot = right.left();
+            return node(pivot.key(), pivot.value(),
+                node(key, value, left, pivot.left()),
+                node(right.key(), right.value(), pivot.right(), right.right()));
+        }
+        return node(key, value, left, right);
+    }
+
+    /**
+     * @brief Inserisce o sostituisce una chiave copiando il cammino dalla radice.
+     *
+     * @param node Radice del sottoalbero.
+     * @param key La chiave.
+     * @param value Il valore.
+     * @return La radice del nuovo sottoalbero.
+     */
+    private static <V> Node<V> put(Node<V> node, long key, V value) {
+        if (node == null) return node(key, value, null, null);
+        if (key < node.key()) return balance(node.key(), node.value(), put(node.left(), key, value), node.right());
+        if (key > node.key()) return balance(node.key(), node.value(), node.left(), put(node.right(), key, value));
+        return node(key, value, node.left(), node.right());
+    }
+
+    /**
+     * @brief Rimuove una chiave copiando il cammino dalla radice.
+     *
+     * @param node Radice del sottoalbero.
+     * @param key La chiave.
+     * @return La radice del nuovo sottoalbero, lo stesso nodo se la chiave non è presente.
+     */
+    private static <V> Node<V> remove(Node<V> node, long key) {
+        if (node == null) return null;
+        if (key < node.key()) {
+            Node<V> left = remove(node.left(), key);
+            return (left == node.left()) ? node : balance(node.key(), node.value(), left, node.right());
+        }
+        if (key > node.key()) {
+            Node<V> right = remove(node.right(), key);
+            return (right == node.right()) ? node : balance(node.key(), node.value(), node.left(), right);
+        }
+        if (node.left() == null) return node.right();
+        if (node.right() == null) return node.left();
+
+        Node<V> successor = node.right();
+        while (successor.left() != null)
+            successor = successor.left();
+        return balance(successor.key(), successor.value(), node.left(), remove(node.right(), successor.key()));
+    }
+}
@@ -0,0 +1,178 @@
+package myapp.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * @brief Accorpa gli aggiornamenti delle viste richiesti durante una stessa azione.
+ *
+ * Ogni vista è identificata da una chiave: richiederne l'aggiornamento la segna come da aggiornare e,
+ * se non è già in programma, pianifica un unico passaggio tramite lo scheduler (per l'interfaccia
+ * {@code Platform::runLater}). Le richieste successive per la stessa vista prima del passaggio
+ * sostituiscono la precedente e vengono contate come aggiornamenti risparmiati, così che ogni vista
+ * venga aggiornata al più una volta per passaggio.
+ *
+ * Le azioni pubblicate con {@link #post(Runnable)} non vengono accorpate: sono eseguite tutte, nell'ordine,
+ * nello stesso passaggio e prima degli aggiornamenti delle viste.
+ */
+public class RefreshCoalescer {
+
+    /** @brief Pianifica l'esecuzione di un passaggio. */
+    private final Consumer<Runnable> scheduler;
+
+    /** @brief Aggiornamenti in attesa, per vista, nell'ordine della prima richiesta. */
+    private final Map<Object, Runnable> dirty = new LinkedHashMap<>();
+
+    /** @brief Azioni in attesa, da eseguire tutte nell'ordine di pubblicazione. */
+    private final List<Runnable> posted = new ArrayList<>();
+
+    /** @brief Indica se un passaggio è già stato pianificato. */
+    private boolean scheduled = false;
+
+    /** @brief Aggiornamenti richiesti. */
+    private long requests = 0;
+
+    /** @brief Aggiornamenti eseguiti. */
+    private long refreshes = 0;
+
+    /** @brief Aggiornamenti evitati perché la vista era già in attesa di aggiornamento. */
+    private long saved = 0;
+
+    /** @brief Passaggi eseguiti. */
+    private long passes = 0;
+
+    /**
+     * @brief Costruttore.
+     *
+     * @param scheduler Pianifica l'esecuzione di un passaggio, ad esempio {@code Platform::runLater}.
+     */
+    public RefreshCoalescer(Consumer<Runnable> scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Segna una vista come da aggiornare.
+     *
+     * @param view Chiave che identifica la vista.
+     * @param refresh Aggiornamento da eseguire; sostituisce quello già in attesa per la stessa vista.
+     */
+    public synchronized void request(Object view, Runnable refresh) {
+        this.requests++;
+        if (this.dirty.put(view, refresh) != null) this.saved++;
+        this.schedule();
+    }
+
+    /**
+     * @brief Pubblica un'azione da eseguire nel prossimo passaggio, senza accorparla alle altre.
+     *
+     * @param action Azione da eseguire.
+     */
+    public synchronized void post(Runnable action) {
+        this.posted.add(action);
+        this.schedule();
+    }
+
+    /**
+     * @brief Pianifica un passaggio se non ce n'è già uno in attesa.
+     */
+    private void schedule() {
+        if (this.scheduled) return;
+        this.scheduled = true;
+        this.scheduler.accept(this::flush);
+    }
+
+    /**
+     * @brief Esegue le azioni e gli aggiornamenti in attesa.
+     *
+     * Le richieste fatte durante il passaggio vengono eseguite nel passaggio successivo. Un'eccezione
+     * non interrompe le altre azioni e viene rilanciata al termine.
+     */
+    public void flush() {
+        List<Runnable> actions;
+        synchronized (this) {
+            this.scheduled = false;
+            actions = new ArrayList<>(this.posted);
+            this.posted.clear();
+            actions.addAll(this.dirty.values());
+            this.refreshes += this.dirty.size();
+            this.dirty.clear();
+            this.passes++;
+        }
+        RuntimeException failure = null;
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                if (failure == null) failure = e;
+                else failure.addSuppressed(e);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Restituisce il numero di aggiornamenti richiesti.
+     *
+     * @return Il numero di richieste.
+     */
+    public synchronized long getRequests() {
+        return this.requests;
+    }
+
+    /**
+     * @brief Restituisce il numero di aggiornamenti eseguiti.
+     *
+     * @return Il numero di aggiornamenti.
+     */
+    public synchronized long getRefreshes() {
+        return this.refreshes;
+    }
+
+    /**
+     * @brief Restituisce il numero di aggiornamenti risparmiati dall'accorpamento.
+     *
+     * @return Il numero di aggiornamenti evitati.
+     */
+    public synchronized long getSaved() {
+        return this.saved;
+    }
+
+    /**
+     * @brief Restituisce il numero di passaggi eseguiti.
+     *
+     * @return Il numero di passaggi.
+     */
+    public synchronized long getPasses() {
+        return this.passes;
+    }
+
+    /**
+     * @brief Azzera i contatori.
+     */
+    public synchronized void reset() {
+        this.requests = 0;
+        this.refreshes = 0;
+        this.saved = 0;
+        this.passes = 0;
+    }
+
+    /**
+     * @brief Restituisce un riepilogo leggibile dei contatori.
+     *
+     * @return Il riepilogo.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format(
+            "richiesti=%d, eseguiti=%d, risparmiati=%d, passaggi=%d",
+            this.requests, this.refreshes, this.saved, this.passes
+        );
+    }
+}
@@ -0,0 +1,338 @@
+package myapp.util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * @brief Esegue le ricerche richieste dall'interfaccia accorpando quelle ravvicinate e scartando quelle superate.
+ *
+ * Una ricerca parte solo dopo che per la durata della finestra di attesa non ne sono state richieste
+ * altre. Viene quindi preparata sul thread dell'interfaccia, che può raccogliere i dati senza
+ * sincronizzazione, eseguita sull'esecutore in background e pubblicata di nuovo sul thread
+ * dell'interfaccia. Ogni richiesta incrementa un numero di generazione: i risultati di una generazione
+ * superata da una richiesta più recente vengono scartati senza essere pubblicati.
+ *
+ * @param <Q> Tipo delle richieste di ricerca.
+ * @param <R> Tipo dei risultati.
+ */
+public final class SearchPipeline<Q, R> {
+
+    /** @brief Pianifica l'avvio delle ricerche al termine della finestra di attesa. */
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(
+        Thread.ofPlatform().name("search-debounce").daemon().factory()
+    );
+
+    /** @brief Esegue le azioni sul thread dell'interfaccia, ad esempio {@code Platform::runLater}. */
+    private final Consumer<Runnable> foreground;
+
+    /** @brief Esegue le ricerche in background. */
+    private final Executor background;
+
+    /** @brief Prepara una ricerca sul thread dell'interfaccia; restituisce null se non c'è nulla da eseguire. */
+    private final Function<Q, Supplier<R>> prepare;
+
+    /** @brief Pubblica il risultato di una ricerca sul thread dell'interfaccia. */
+    private final Consumer<R> publish;
+
+    /** @brief Finestra di attesa, in millisecondi. */
+    private volatile long debounceMillis;
+
+    /** @brief Generazione dell'ultima richiesta. */
+    private long generation = 0;
+
+    /** @brief Avvio pianificato dell'ultima richiesta, null se non ce n'è nessuno. */
+    private ScheduledFuture<?> scheduled = null;
+
+    /** @brief Richieste ricevute. */
+    private long requests = 0;
+
+    /** @brief Ricerche eseguite in background. */
+    private long executed = 0;
+
+    /** @brief Ricerche pubblicate. */
+    private long published = 0;
+
+    /** @brief Ricerche eseguite ma scartate perché superate. */
+    private long discarded = 0;
+
+    /** @brief Somma delle latenze delle ricerche pubblicate, dalla richiesta alla pubblicazione, in nanosecondi. */
+    private long totalLatencyNanos = 0;
+
+    /** @brief Latenza dell'ultima ricerca pubblicata, in nanosecondi. */
+    private long lastLatencyNanos = 0;
+
+    /** @brief Latenza più lunga registrata, in nanosecondi. */
+    private long maxLatencyNanos = 0;
+
+    /** @brief Somma dei tempi di esecuzione in background, in nanosecondi. */
+    private long totalExecutionNanos = 0;
+
+    /**
+     * @brief Costruttore.
+     *
+     * @param debounceMillis Finestra di attesa, in millisecondi.
+     * @param foreground Esegue le azioni sul thread dell'interfaccia, ad esempio {@code Platform::runLater}.
+     * @param background Esegue le ricerche in background.
+     * @param prepare Prepara una ricerca sul thread dell'interfaccia e restituisce il lavoro da eseguire in
+     *                background, oppure null se la ricerca si conclude subito.
+     * @param publish Pubblica il risultato di una ricerca sul thread dell'interfaccia.
+     */
+    public SearchPipeline(long debounceMillis, Consumer<Runnable> foreground, Executor background,
+                          Function<Q, Supplier<R>> prepare, Consumer<R> publish) {
+        this.setDebounceMillis(debounceMillis);
+        this.foreground = foreground;
+        this.background = background;
+        this.prepare = prepare;
+        this.publish = publish;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Richiede una ricerca, superando quelle richieste in precedenza.
+     *
+     * @param query La richiesta di ricerca.
+     */
+    public void submit(Q query) {
+        long requestedAt = System.nanoTime();
+        long current;
+        synchronized (this) {
+            current = this.nextGeneration();
+            this.requests++;
+        }
+        Runnable start = () -> this.foreground.accept(() -> this.start(current, query, requestedAt));
+        long delay = this.debounceMillis;
+        if (delay <= 0) {
+            start.run();
+            return;
+        }
+        ScheduledFuture<?> timer = TIMER.schedule(start, delay, TimeUnit.MILLISECONDS);
+        synchronized (this) {
+            if (this.generation == current) this.scheduled = timer;
+            else timer.cancel(false);
+        }
+    }
+
+    /**
+     * @brief Annulla la ricerca in attesa o in corso, scartandone il risultato.
+     */
+    public synchronized void cancel() {
+        this.nextGeneration();
+    }
+
+    /**
+     * @brief Passa alla generazione successiva, annullando l'avvio pianificato della precedente.
+     *
+     * @return La nuova generazione.
+     */
+    private synchronized long nextGeneration() {
+        if (this.scheduled != null) this.scheduled.cancel(false);
+        this.scheduled = null;
+        return ++this.generation;
+    }
+
+    /**
+     * @brief Indica se una generazione è ancora la più recente.
+     *
+     * @param generation La generazione.
+     * @return true se non è stata superata, false altrimenti.
+     */
+    private synchronized boolean isCurrent(long generation) {
+        return this.generation == generation;
+    }
+
+    /**
+     * @brief Prepara la ricerca sul thread dell'interfaccia e la avvia in background.
+     *
+     * @param generation Generazione della richiesta.
+     * @param query La richiesta di ricerca.
+     * @param requestedAt Istante della richiesta, in nanosecondi.
+     */
+    private void start(long generation, Q query, long requestedAt) {
+        if (!this.isCurrent(generation)) return;
+        Supplier<R> job = this.prepare.apply(query);
+        if (job == null) return;
+
+        this.background.execute(() -> {
+            if (!this.isCurrent(generation)) return;
+            long startedAt = System.nanoTime();
+            R result;
+            try {
+                result = job.get();
+            } catch (RuntimeException e) {
+                // Una ricerca superata può essere stata interrotta: in tal caso l'errore viene ignorato.
+                if (this.isCurrent(generation)) this.foreground.accept(() -> { throw e; });
+                return;
+            } finally {
+                this.recordExecution(System.nanoTime() - startedAt);
+            }
+            this.foreground.accept(() -> {
+                if (!this.isCurrent(generation)) {
+                    this.recordDiscarded();
+                    return;
+                }
+                this.publish.accept(result);
+                this.recordPublished(System.nanoTime() - requestedAt);
+            });
+        });
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Registra una ricerca eseguita in background.
+     *
+     * @param nanos Tempo di esecuzione, in nanosecondi.
+     */
+    private synchronized void recordExecution(long nanos) {
+        this.executed++;
+        this.totalExecutionNanos += nanos;
+    }
+
+    /**
+     * @brief Registra una ricerca scartata perché superata.
+     */
+    private synchronized void recordDiscarded() {
+        this.discarded++;
+    }
+
+    /**
+     * @brief Registra una ricerca pubblicata.
+     *
+     * @param latencyNanos Tempo trascorso dalla richiesta, in nanosecondi.
+     */
+    private synchronized void recordPublished(long latencyNanos) {
+        this.published++;
+        this.totalLatencyNanos += latencyNanos;
+        this.lastLatencyNanos = latencyNanos;
+        this.maxLatencyNanos = Math.max(this.maxLatencyNanos, latencyNanos);
+    }
+
+    /**
+     * @brief Azzera i contatori.
+     */
+    public synchronized void reset() {
+        this.requests = 0;
+        this.executed = 0;
+        this.published = 0;
+        this.discarded = 0;
+        this.totalLatencyNanos = 0;
+        this.lastLatencyNanos = 0;
+        this.maxLatencyNanos = 0;
+        this.totalExecutionNanos = 0;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Imposta la finestra di attesa.
+     *
+     * @param debounceMillis Finestra di attesa, in millisecondi; 0 per avviare subito ogni ricerca.
+     */
+    public void setDebounceMillis(long debounceMillis) {
+        if (debounceMillis < 0) throw new IllegalArgumentException("Finestra di attesa non valida: " + debounceMillis);
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * @brief Restituisce la finestra di attesa.
+     *
+     * @return La finestra di attesa, in millisecondi.
+     */
+    public long getDebounceMillis() {
+        return this.debounceMillis;
+    }
+
+    /**
+     * @brief Restituisce il numero di ricerche richieste.
+     *
+     * @return Il numero di richieste.
+     */
+    public synchronized long getRequests() {
+        return this.requests;
+    }
+
+    /**
+     * @brief Restituisce il numero di ricerche eseguite in background.
+     *
+     * @return Il numero di ricerche.
+     */
+    public synchronized long getExecuted() {
+        return this.executed;
+    }
+
+    /**
+     * @brief Restituisce il numero di ricerche pubblicate.
+     *
+     * @return Il numero di ricerche.
+     */
+    public synchronized long getPublished() {
+        return this.published;
+    }
+
+    /**
+     * @brief Restituisce il numero di ricerche eseguite ma scartate perché superate.
+     *
+     * @return Il numero di ricerche.
+     */
+    public synchronized long getDiscarded() {
+        return this.discarded;
+    }
+
+    /**
+     * @brief Restituisce la latenza media delle ricerche pubblicate, dalla richiesta alla pubblicazione.
+     *
+     * @return La latenza media, in nanosecondi; 0 se non è stata pubblicata alcuna ricerca.
+     */
+    public synchronized long getAverageLatencyNanos() {
+        return (this.published == 0) ? 0 : this.totalLatencyNanos / this.published;
+    }
+
+    /**
+     * @brief Restituisce la latenza dell'ultima ricerca pubblicata.
+     *
+     * @return La latenza, in nanosecondi.
+     */
+    public synchronized long getLastLatencyNanos() {
+        return this.lastLatencyNanos;
+    }
+
+    /**
+     * @brief Restituisce la latenza più lunga registrata.
+     *
+     * @return La latenza, in nanosecondi.
+     */
+    public synchronized long getMaxLatencyNanos() {
+        return this.maxLatencyNanos;
+    }
+
+    /**
+     * @brief Restituisce il tempo medio di esecuzione in background.
+     *
+     * @return Il tempo medio, in nanosecondi; 0 se non è stata eseguita alcuna ricerca.
+     */
+    public synchronized long getAverageExecutionNanos() {
+        return (this.executed == 0) ? 0 : this.totalExecutionNanos / this.executed;
+    }
+
+    /**
+     * @brief Restituisce un riepilogo leggibile dei contatori.
+     *
+     * @return Il riepilogo.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format(
+            "richieste=%d, eseguite=%d (media %.3f ms), pubblicate=%d (latenza media %.3f ms, ultima %.3f ms, max %.3f ms), scartate=%d",
+            this.requests, this.executed, this.getAverageExecutionNanos() / 1e6,
+            this.published, this.getAverageLatencyNanos() / 1e6, this.lastLatencyNanos / 1e6, this.maxLatencyNanos / 1e6,
+            this.discarded
+        );
+    }
+}
@@ -0,0 +1,116 @@
+package myapp.util;
+
+/**
+ * @brief Statistiche delle ricerche incrementali.
+ *
+ * Conta le ricerche risolte restringendo il risultato della ricerca precedente (successi) e quelle
+ * che hanno richiesto una ricerca completa, insieme al numero di righe verificate in ciascun caso.
+ * I contatori vengono aggiornati dal thread dell'interfaccia.
+ */
+public class SearchStats {
+
+    /** @brief Ricerche risolte restringendo il risultato precedente. */
+    private long narrowed = 0;
+
+    /** @brief Ricerche eseguite da capo. */
+    private long full = 0;
+
+    /** @brief Righe verificate dalle ricerche ristrette. */
+    private long narrowedRows = 0;
+
+    /** @brief Righe verificate dalle ricerche eseguite da capo. */
+    private long fullRows = 0;
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Registra una ricerca risolta restringendo il risultato precedente.
+     *
+     * @param rows Numero di righe verificate.
+     */
+    public synchronized void recordNarrowed(int rows) {
+        this.narrowed++;
+        this.narrowedRows += rows;
+    }
+
+    /**
+     * @brief Registra una ricerca eseguita da capo.
+     *
+     * @param rows Numero di righe verificate.
+     */
+    public synchronized void recordFull(int rows) {
+        this.full++;
+        this.fullRows += rows;
+    }
+
+    /**
+     * @brief Azzera tutte le statistiche.
+     */
+    public synchronized void reset() {
+        this.narrowed = 0;
+        this.full = 0;
+        this.narrowedRows = 0;
+        this.fullRows = 0;
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Restituisce il numero di ricerche risolte restringendo il risultato precedente.
+     *
+     * @return Il numero di ricerche.
+     */
+    public synchronized long getNarrowed() {
+        return this.narrowed;
+    }
+
+    /**
+     * @brief Restituisce il numero di ricerche eseguite da capo.
+     *
+     * @return Il numero di ricerche.
+     */
+    public synchronized long getFull() {
+        return this.full;
+    }
+
+    /**
+     * @brief Restituisce il numero di righe verificate dalle ricerche ristrette.
+     *
+     * @return Il numero di righe.
+     */
+    public synchronized long getNarrowedRows() {
+        return this.narrowedRows;
+    }
+
+    /**
+     * @brief Restituisce il numero di righe verificate dalle ricerche eseguite da capo.
+     *
+     * @return Il numero di righe.
+     */
+    public synchronized long getFullRows() {
+        return this.fullRows;
+    }
+
+    /**
+     * @brief Restituisce la frazione di ricerche risolte restringendo il risultato precedente.
+     *
+     * @return Il tasso di successo, tra 0 e 1; 0 se non è stata eseguita alcuna ricerca.
+     */
+    public synchronized double getHitRate() {
+        long total = this.narrowed + this.full;
+        return (total == 0) ? 0 : (double) this.narrowed / total;
+    }
+
+    /**
+     * @brief Restituisce un riepilogo leggibile delle statistiche.
+     *
+     * @return Il riepilogo.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format(
+            "ristrette=%d (righe %d), complete=%d (righe %d), successo=%.1f%%",
+            this.narrowed, this.narrowedRows, this.full, this.fullRows, this.getHitRate() * 100
+        );
+    }
+}
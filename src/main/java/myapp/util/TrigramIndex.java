@@ -0,0 +1,230 @@
+package myapp.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @brief Indice invertito per trigrammi per la ricerca di sottostringhe su più campi di testo.
+ *
+ * Ogni chiave è associata a un numero fisso di campi. Per ciascun campo l'indice associa a ogni
+ * trigramma (sequenza di tre caratteri del testo in minuscolo) l'insieme delle chiavi il cui campo
+ * lo contiene. Una sottostringa di almeno tre caratteri può comparire solo nei testi che contengono
+ * tutti i suoi trigrammi: l'intersezione delle liste corrispondenti restituisce quindi un insieme di
+ * candidati, che va poi verificato sul testo.
+ *
+ * Non è sicuro per l'accesso da più thread.
+ *
+ * @param <K> Tipo delle chiavi.
+ */
+public class TrigramIndex<K> {
+
+    /** @brief Lunghezza dei gram indicizzati. */
+    private static final int GRAM_LENGTH = 3;
+
+    /** @brief Numero di campi di ciascuna chiave. */
+    private final int fieldCount;
+
+    /** @brief Testi in minuscolo dei campi, per chiave, per aggiornare solo le liste che cambiano. */
+    private final Map<K, String[]> loweredValues = new HashMap<>();
+
+    /** @brief Liste delle chiavi per trigramma, una mappa per campo. */
+    private final List<Map<String, Set<K>>> postings = new ArrayList<>();
+
+    /**
+     * @brief Costruttore.
+     *
+     * @param fieldCount Numero di campi di ciascuna chiave.
+     */
+    public TrigramIndex(int fieldCount) {
+        this.fieldCount = fieldCount;
+        for (int i = 0; i < fieldCount; i++)
+            this.postings.add(new HashMap<>());
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Indicizza i campi di una chiave, sostituendo quelli indicizzati in precedenza.
+     *
+     * Vengono aggiornate solo le liste dei trigrammi che cambiano.
+     *
+     * @param key La chiave.
+     * @param fields I testi dei campi, nell'ordine; i valori null sono trattati come testo vuoto.
+     */
+    public void put(K key, String... fields) {
+        if (fields.length != this.fieldCount) throw new IllegalArgumentException("Numero di campi non valido: " + fields.length);
+
+        String[] lowered = new String[this.fieldCount];
+        for (int i = 0; i < this.fieldCount; i++)
+            lowered[i] = (fields[i] == null) ? "" : fields[i].toLowerCase();
+
+        String[] previous = this.loweredValues.put(key, lowered);
+        for (int i = 0; i < this.fieldCount; i++) {
+            if (previous != null && previous[i].equals(lowered[i])) continue;
+            Set<String> oldGrams = (previous == null) ? Collections.emptySet() : grams(previous[i]);
+            Set<String> newGrams = grams(lowered[i]);
+            for (String gram : oldGrams)
+                if (!newGrams.contains(gram)) this.unlink(i, gram, key);
+            for (String gram : newGrams)
+                if (!oldGrams.contains(gram)) this.postings.get(i).computeIfAbsent(gram, g -> new HashSet<>()).add(key);
+        }
+    }
+
+    /**
+     * @brief Rimuove una chiave dall'indice.
+     *
+     * @param key La chiave.
+     */
+    public void remove(K key) {
+        String[] lowered = this.loweredValues.remove(key);
+        if (lowered == null) return;
+        for (int i = 0; i < this.fieldCount; i++)
+            for (String gram : grams(lowered[i]))
+                this.unlink(i, gram, key);
+    }
+
+    /**
+     * @brief Rimuove tutte le chiavi.
+     */
+    public void clear() {
+        this.loweredValues.clear();
+        for (Map<String, Set<K>> field : this.postings)
+            field.clear();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Restituisce le chiavi che possono contenere una sottostringa in almeno uno dei campi indicati.
+     *
+     * Per le sottostringhe più corte di un trigramma non è possibile escludere alcuna chiave e vengono
+     * restituite tutte. Il risultato va verificato sul testo e non va modificato.
+     *
+     * @param loweredQuery La sottostringa cercata, in minuscolo.
+     * @param fields Gli indici dei campi in cui cercare.
+     * @return Le chiavi candidate.
+     */
+    public Set<K> candidates(String loweredQuery, int... fields) {
+        if (!this.canNarrow(loweredQuery)) return this.keys();
+
+        Set<String> grams = grams(loweredQuery);
+        Set<K> union = new HashSet<>();
+        for (int field : fields) {
+            Set<K> intersection = this.intersect(this.postings.get(field), grams);
+            if (fields.length == 1) return intersection;
+            union.addAll(intersection);
+        }
+        return union;
+    }
+
+    /**
+     * @brief Stima per eccesso il numero di candidati per una sottostringa, senza intersecare le liste.
+     *
+     * Per ogni campo conta la lista più corta tra quelle dei trigrammi della sottostringa.
+     *
+     * @param loweredQuery La sottostringa cercata, in minuscolo.
+     * @param fields Gli indici dei campi in cui cercare.
+     * @return Il numero stimato di candidati.
+     */
+    public int estimate(String loweredQuery, int... fields) {
+        if (!this.canNarrow(loweredQuery)) return this.size();
+
+        Set<String> grams = grams(loweredQuery);
+        int total = 0;
+        for (int field : fields) {
+            int shortest = Integer.MAX_VALUE;
+            for (String gram : grams) {
+                Set<K> list = this.postings.get(field).get(gram);
+                shortest = Math.min(shortest, (list == null) ? 0 : list.size());
+            }
+            total += shortest;
+        }
+        return Math.min(total, this.size());
+    }
+
+    /**
+     * @brief Indica se una sottostringa è abbastanza lunga da escludere delle chiavi.
+     *
+     * @param query La sottostringa cercata.
+     * @return true se la sottostringa contiene almeno un trigramma, false altrimenti.
+     */
+    public boolean canNarrow(String query) {
+        return query.length() >= GRAM_LENGTH;
+    }
+
+    /**
+     * @brief Restituisce tutte le chiavi indicizzate.
+     *
+     * @return Vista non modificabile delle chiavi.
+     */
+    public Set<K> keys() {
+        return Collections.unmodifiableSet(this.loweredValues.keySet());
+    }
+
+    /**
+     * @brief Restituisce il numero di chiavi indicizzate.
+     *
+     * @return Il numero di chiavi.
+     */
+    public int size() {
+        return this.loweredValues.size();
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    /**
+     * @brief Interseca le liste dei trigrammi di un campo, partendo dalla più corta.
+     *
+     * @param field Le liste del campo.
+     * @param grams I trigrammi cercati.
+     * @return Le chiavi presenti in tutte le liste.
+     */
+    private Set<K> intersect(Map<String, Set<K>> field, Set<String> grams) {
+        List<Set<K>> lists = new ArrayList<>(grams.size());
+        for (String gram : grams) {
+            Set<K> list = field.get(gram);
+            if (list == null) return Collections.emptySet();
+            lists.add(list);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+        Set<K> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++)
+            result.retainAll(lists.get(i));
+        return result;
+    }
+
+    /**
+     * @brief Toglie una chiave dalla lista di un trigramma, eliminando la lista se resta vuota.
+     *
+     * @param field L'indice del campo.
+     * @param gram Il trigramma.
+     * @param key La chiave.
+     */
+    private void unlink(int field, String gram, K key) {
+        Map<String, Set<K>> lists = this.postings.get(field);
+        Set<K> list = lists.get(gram);
+        if (list == null) return;
+        list.remove(key);
+        if (list.isEmpty()) lists.remove(gram);
+    }
+
+    /**
+     * @brief Estrae i trigrammi distinti di un testo.
+     *
+     * @param text Il testo, in minuscolo.
+     * @return I trigrammi del testo.
+     */
+    private static Set<String> grams(String text) {
+        if (text.length() < GRAM_LENGTH) return Collections.emptySet();
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++)
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        return grams;
+    }
+}